@@ -23,7 +23,10 @@ import java.lang.annotation.Target;
                                 {
                                     "status": 200,
                                     "message": "Login user is successful",
-                                    "data": "h1zgN_ThY_vfA5mx...."
+                                    "data": {
+                                        "accessToken": "eyJhbGciOiJIUzI1NiJ9....",
+                                        "refreshToken": "h1zgN_ThY_vfA5mx...."
+                                    }
                                 }
                                 """
                 )
@@ -0,0 +1,33 @@
+package com.personal.spring_questly.annotation.docs.auth;
+
+import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.media.Content;
+import io.swagger.v3.oas.annotations.media.ExampleObject;
+import io.swagger.v3.oas.annotations.responses.ApiResponse;
+
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+@Target(ElementType.METHOD)
+@Retention(RetentionPolicy.RUNTIME)
+@Operation(summary = "Logout user, revoking the access token and the refresh token sent in the body")
+@ApiResponse(
+        responseCode = "200",
+        content = @Content(
+                mediaType = "application/json",
+                examples = @ExampleObject(
+                        name = "Logout response",
+                        value = """
+                                {
+                                    "status": 200,
+                                    "message": "Logout user is successful",
+                                    "data": null
+                                }
+                                """
+                )
+        )
+)
+public @interface PostLogoutResponseDocs {
+}
@@ -0,0 +1,142 @@
+package com.personal.spring_questly.config;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.Expiry;
+import com.personal.spring_questly.dto.file.FileMetadataDTO;
+import com.personal.spring_questly.util.JwtUtil.VerifiedToken;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.security.core.userdetails.UserDetails;
+import org.springframework.util.unit.DataSize;
+
+import java.nio.ByteBuffer;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.concurrent.TimeUnit;
+
+@Configuration
+public class CacheConfig {
+
+    @Value("${file.metadata-cache.max-size:10000}")
+    private long metadataCacheMaxSize;
+
+    @Value("${file.metadata-cache.expire-after-access:PT1H}")
+    private Duration metadataCacheExpireAfterAccess;
+
+    @Value("${file.hot-cache.max-bytes:64MB}")
+    private DataSize hotCacheMaxBytes;
+
+    @Value("${file.hot-cache.admission.max-size:10000}")
+    private long hotCacheAdmissionMaxSize;
+
+    @Value("${file.hot-cache.admission.window:PT10M}")
+    private Duration hotCacheAdmissionWindow;
+
+    @Value("${jwt.verified-cache.max-size:10000}")
+    private long verifiedTokenCacheMaxSize;
+
+    @Value("${user.details-cache.max-size:10000}")
+    private long userDetailsCacheMaxSize;
+
+    @Value("${user.details-cache.ttl:PT5M}")
+    private Duration userDetailsCacheTtl;
+
+    @Bean
+    public Cache<String, FileMetadataDTO> fileMetadataCache(MeterRegistry meterRegistry) {
+        Cache<String, FileMetadataDTO> cache = Caffeine.newBuilder()
+                                                       .maximumSize(metadataCacheMaxSize)
+                                                       // Files changed behind the app's back are picked up again eventually
+                                                       .expireAfterAccess(metadataCacheExpireAfterAccess)
+                                                       .recordStats()
+                                                       .build();
+
+        return CaffeineCacheMetrics.monitor(meterRegistry, cache, "fileMetadataCache");
+    }
+
+    @Bean
+    public Cache<Path, ByteBuffer> hotFileCache(MeterRegistry meterRegistry) {
+        // Weighted by content length, Caffeine's W-TinyLFU keeps one-off downloads from
+        // pushing out the frequently requested files
+        Cache<Path, ByteBuffer> cache = Caffeine.newBuilder()
+                                                .maximumWeight(hotCacheMaxBytes.toBytes())
+                                                .weigher((Path path, ByteBuffer content) -> content.capacity())
+                                                .recordStats()
+                                                .build();
+
+        Gauge.builder("cache.weighted.size", cache,
+                     c -> c.policy().eviction().map(eviction -> eviction.weightedSize().orElse(0)).orElse(0L))
+             .tag("cache", "hotFileCache")
+             .baseUnit("bytes")
+             .description("Bytes of file content held off-heap")
+             .register(meterRegistry);
+
+        return CaffeineCacheMetrics.monitor(meterRegistry, cache, "hotFileCache");
+    }
+
+    // Files requested once within the window, the second request admits them to the hot file cache
+    @Bean
+    public Cache<Path, Boolean> hotFileAdmissionCache() {
+        return Caffeine.newBuilder()
+                       .maximumSize(hotCacheAdmissionMaxSize)
+                       .expireAfterWrite(hotCacheAdmissionWindow)
+                       .build();
+    }
+
+    @Bean
+    public Cache<String, VerifiedToken> verifiedTokenCache(MeterRegistry meterRegistry) {
+        Cache<String, VerifiedToken> cache = Caffeine.newBuilder()
+                                                     .maximumSize(verifiedTokenCacheMaxSize)
+                                                     .expireAfter(new VerifiedTokenExpiry())
+                                                     .recordStats()
+                                                     .build();
+
+        return CaffeineCacheMetrics.monitor(meterRegistry, cache, "verifiedTokenCache");
+    }
+
+    @Bean
+    public Cache<String, UserDetails> userDetailsCache(MeterRegistry meterRegistry) {
+        Cache<String, UserDetails> cache = Caffeine.newBuilder()
+                                                   .maximumSize(userDetailsCacheMaxSize)
+                                                   // Changes are evicted on UserChangedEvent, the ttl only bounds
+                                                   // changes made outside of JPA
+                                                   .expireAfterWrite(userDetailsCacheTtl)
+                                                   .recordStats()
+                                                   .build();
+
+        Gauge.builder("cache.hit.ratio", cache, c -> c.stats().hitRate())
+             .tag("cache", "userDetailsCache")
+             .description("Share of user lookups served from the cache")
+             .register(meterRegistry);
+
+        // Load latency is reported as cache.load.duration
+        return CaffeineCacheMetrics.monitor(meterRegistry, cache, "userDetailsCache");
+    }
+
+    /**
+     * Every token leaves the cache when it expires, from then on the parser rejects it again.
+     */
+    private static class VerifiedTokenExpiry implements Expiry<String, VerifiedToken> {
+        @Override
+        public long expireAfterCreate(String tokenDigest, VerifiedToken token, long currentTime) {
+            long remainingMs = token.expiresAt().toEpochMilli() - System.currentTimeMillis();
+            return TimeUnit.MILLISECONDS.toNanos(Math.max(0, remainingMs));
+        }
+
+        @Override
+        public long expireAfterUpdate(String tokenDigest, VerifiedToken token, long currentTime,
+                                      long currentDuration) {
+            return this.expireAfterCreate(tokenDigest, token, currentTime);
+        }
+
+        @Override
+        public long expireAfterRead(String tokenDigest, VerifiedToken token, long currentTime,
+                                    long currentDuration) {
+            return currentDuration;
+        }
+    }
+}
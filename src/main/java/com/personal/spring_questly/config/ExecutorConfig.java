@@ -0,0 +1,138 @@
+package com.personal.spring_questly.config;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.task.ThreadPoolTaskExecutorBuilder;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Lazy;
+import org.springframework.core.task.SimpleAsyncTaskExecutor;
+import org.springframework.core.task.TaskExecutor;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+
+import java.util.concurrent.ThreadPoolExecutor;
+
+@Configuration
+public class ExecutorConfig {
+
+    @Value("${file.upload.max-concurrency:8}")
+    private int uploadMaxConcurrency;
+
+    @Value("${file.upload.queue-capacity:256}")
+    private int uploadQueueCapacity;
+
+    @Value("${file.sweep.max-concurrency:4}")
+    private int sweepMaxConcurrency;
+
+    @Value("${file.compression.max-concurrency:2}")
+    private int compressionMaxConcurrency;
+
+    @Value("${file.compression.queue-capacity:256}")
+    private int compressionQueueCapacity;
+
+    @Value("${file.storage.s3.max-concurrency:4}")
+    private int storageUploadMaxConcurrency;
+
+    @Value("${file.async-io.max-concurrency:8}")
+    private int asyncIoMaxConcurrency;
+
+    @Value("${auth.password-hash.max-concurrency:4}")
+    private int passwordHashMaxConcurrency;
+
+    @Value("${auth.password-hash.queue-capacity:64}")
+    private int passwordHashQueueCapacity;
+
+    @Bean(name = "fileUploadExecutor")
+    public TaskExecutor fileUploadExecutor() {
+        if (Runtime.version().feature() >= 21) {
+            SimpleAsyncTaskExecutor executor = new SimpleAsyncTaskExecutor("file-upload-");
+            executor.setVirtualThreads(true);
+            executor.setConcurrencyLimit(uploadMaxConcurrency);
+            return executor;
+        }
+
+        ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+        executor.setThreadNamePrefix("file-upload-");
+        executor.setCorePoolSize(uploadMaxConcurrency);
+        executor.setMaxPoolSize(uploadMaxConcurrency);
+        executor.setQueueCapacity(uploadQueueCapacity);
+        // When saturated the request thread writes the file itself instead of failing
+        executor.setRejectedExecutionHandler(new ThreadPoolExecutor.CallerRunsPolicy());
+        return executor;
+    }
+
+    @Bean(name = "fileSweepExecutor")
+    public TaskExecutor fileSweepExecutor() {
+        ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+        executor.setThreadNamePrefix("file-sweep-");
+        executor.setCorePoolSize(sweepMaxConcurrency);
+        executor.setMaxPoolSize(sweepMaxConcurrency);
+        // Once the queue is full the sweep thread deletes files itself, which holds back the rest
+        // of the batch until the pool catches up
+        executor.setQueueCapacity(sweepMaxConcurrency);
+        executor.setRejectedExecutionHandler(new ThreadPoolExecutor.CallerRunsPolicy());
+        return executor;
+    }
+
+    @Bean(name = "storageUploadExecutor")
+    public TaskExecutor storageUploadExecutor() {
+        ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+        executor.setThreadNamePrefix("storage-upload-");
+        executor.setCorePoolSize(storageUploadMaxConcurrency);
+        executor.setMaxPoolSize(storageUploadMaxConcurrency);
+        // Multipart uploads hold back parts themselves, so the queue stays short
+        executor.setRejectedExecutionHandler(new ThreadPoolExecutor.CallerRunsPolicy());
+        return executor;
+    }
+
+    // Uploads never wait for compression, a file rejected by a full queue is compressed while it is streamed
+    @Bean(name = "fileCompressionExecutor")
+    public TaskExecutor fileCompressionExecutor() {
+        ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+        executor.setThreadNamePrefix("file-compression-");
+        executor.setCorePoolSize(compressionMaxConcurrency);
+        executor.setMaxPoolSize(compressionMaxConcurrency);
+        executor.setQueueCapacity(compressionQueueCapacity);
+        return executor;
+    }
+
+    // A single thread and no queue, a run that is due while the previous one is still going is rejected
+    @Bean(name = "storageReconcileExecutor")
+    public TaskExecutor storageReconcileExecutor() {
+        ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+        executor.setThreadNamePrefix("storage-reconcile-");
+        executor.setCorePoolSize(1);
+        executor.setMaxPoolSize(1);
+        executor.setQueueCapacity(0);
+        return executor;
+    }
+
+    // Runs the reads of AsynchronousFileChannel, which the JDK does with blocking calls on these threads
+    @Bean(name = "fileIoExecutor")
+    public ThreadPoolTaskExecutor fileIoExecutor() {
+        ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+        executor.setThreadNamePrefix("file-io-");
+        executor.setCorePoolSize(asyncIoMaxConcurrency);
+        executor.setMaxPoolSize(asyncIoMaxConcurrency);
+        return executor;
+    }
+
+    // Password hashing is CPU bound, a login burst on the request threads would take every core.
+    // Rejects when full, the pool size is tuned at runtime by PasswordHashService
+    @Bean(name = "passwordHashExecutor")
+    public ThreadPoolTaskExecutor passwordHashExecutor() {
+        ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+        executor.setThreadNamePrefix("password-hash-");
+        executor.setCorePoolSize(passwordHashMaxConcurrency);
+        executor.setMaxPoolSize(passwordHashMaxConcurrency);
+        executor.setQueueCapacity(passwordHashQueueCapacity);
+        return executor;
+    }
+
+    // Spring Boot backs off its own executor once another Executor bean exists,
+    // so keep the default one for MVC async requests
+    @Lazy
+    @Bean(name = {"applicationTaskExecutor", "taskExecutor"})
+    public ThreadPoolTaskExecutor applicationTaskExecutor(ThreadPoolTaskExecutorBuilder builder) {
+        return builder.build();
+    }
+}
@@ -0,0 +1,46 @@
+package com.personal.spring_questly.config;
+
+import jakarta.servlet.http.HttpServletRequest;
+import org.springframework.boot.autoconfigure.web.servlet.MultipartProperties;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.util.AntPathMatcher;
+import org.springframework.web.multipart.MultipartResolver;
+import org.springframework.web.multipart.support.StandardServletMultipartResolver;
+import org.springframework.web.servlet.DispatcherServlet;
+
+@Configuration
+public class MultipartConfig {
+
+    public static String[] streamingUploadPatterns = {"/files/stream-upload/*"};
+
+    private final AntPathMatcher antPathMatcher = new AntPathMatcher();
+
+    @Bean(name = DispatcherServlet.MULTIPART_RESOLVER_BEAN_NAME)
+    public MultipartResolver multipartResolver(MultipartProperties multipartProperties) {
+        StandardServletMultipartResolver multipartResolver = new StandardServletMultipartResolver() {
+            @Override
+            public boolean isMultipart(HttpServletRequest request) {
+                // Streaming uploads read the raw body, the container must not stage their parts
+                return !isStreamingUpload(request) && super.isMultipart(request);
+            }
+        };
+
+        multipartResolver.setResolveLazily(multipartProperties.isResolveLazily());
+
+        return multipartResolver;
+    }
+
+    private boolean isStreamingUpload(HttpServletRequest request) {
+        String currentPath =
+                request.getRequestURI().substring(request.getContextPath().length());
+
+        for (String pattern : streamingUploadPatterns) {
+            if (antPathMatcher.match(pattern, currentPath)) {
+                return true;
+            }
+        }
+
+        return false;
+    }
+}
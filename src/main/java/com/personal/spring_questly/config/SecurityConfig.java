@@ -1,5 +1,6 @@
 package com.personal.spring_questly.config;
 
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.security.config.annotation.method.configuration.EnableMethodSecurity;
@@ -28,6 +29,10 @@ public class SecurityConfig {
     public static String[] allPublicPatterns = Stream.concat(Arrays.stream(publicPathPatterns),
             Arrays.stream(docsPatterns)).toArray(String[]::new);
 
+    // Hashes made with a lower strength are upgraded on the next login
+    @Value("${auth.password-hash.bcrypt-strength:10}")
+    private int bcryptStrength;
+
     @Bean
     public SecurityFilterChain securityFilterChain(HttpSecurity http) throws Exception {
         http.csrf(AbstractHttpConfigurer::disable)
@@ -42,6 +47,6 @@ public class SecurityConfig {
 
     @Bean
     public PasswordEncoder passwordEncoder() {
-        return new BCryptPasswordEncoder();
+        return new BCryptPasswordEncoder(bcryptStrength);
     }
 }
@@ -1,18 +1,26 @@
 package com.personal.spring_questly.controller;
 
 import com.personal.spring_questly.annotation.docs.auth.PostLoginResponseDocs;
+import com.personal.spring_questly.annotation.docs.auth.PostLogoutResponseDocs;
+import com.personal.spring_questly.annotation.docs.auth.PostRefreshResponseDocs;
 import com.personal.spring_questly.annotation.docs.auth.PostRegisterResponseDocs;
+import com.personal.spring_questly.dto.auth.AuthTokensDTO;
 import com.personal.spring_questly.dto.auth.LoginRequestDTO;
+import com.personal.spring_questly.dto.auth.RefreshTokenRequestDTO;
 import com.personal.spring_questly.dto.auth.RegisterRequestDTO;
 import com.personal.spring_questly.dto.common.ApiResponseDTO;
 import com.personal.spring_questly.service.AuthService;
+import com.personal.spring_questly.util.JwtUtil;
+import io.swagger.v3.oas.annotations.security.SecurityRequirement;
 import io.swagger.v3.oas.annotations.tags.Tag;
 import jakarta.validation.Valid;
 import lombok.RequiredArgsConstructor;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestHeader;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RestController;
 
@@ -25,17 +33,17 @@ public class AuthController {
 
     @PostMapping(value = "/register")
     @PostRegisterResponseDocs
-    public ResponseEntity<ApiResponseDTO<String>> register(
+    public ResponseEntity<ApiResponseDTO<AuthTokensDTO>> register(
             @Valid @RequestBody RegisterRequestDTO dto
     ) {
         HttpStatus status = HttpStatus.CREATED;
-        String data = authService.register(dto);
+        AuthTokensDTO data = authService.register(dto);
 
-        ApiResponseDTO<String> response = ApiResponseDTO.<String>builder()
-                                                        .status(status.value())
-                                                        .message("Register user is successful")
-                                                        .data(data)
-                                                        .build();
+        ApiResponseDTO<AuthTokensDTO> response = ApiResponseDTO.<AuthTokensDTO>builder()
+                                                               .status(status.value())
+                                                               .message("Register user is successful")
+                                                               .data(data)
+                                                               .build();
 
         return ResponseEntity.status(status).body(response);
     }
@@ -43,15 +51,51 @@ public class AuthController {
 
     @PostMapping(value = "/login")
     @PostLoginResponseDocs
-    public ResponseEntity<ApiResponseDTO<String>> login(
+    public ResponseEntity<ApiResponseDTO<AuthTokensDTO>> login(
             @Valid @RequestBody LoginRequestDTO dto
     ) {
-        String data = authService.login(dto);
+        AuthTokensDTO data = authService.login(dto);
+
+        ApiResponseDTO<AuthTokensDTO> response = ApiResponseDTO.<AuthTokensDTO>builder()
+                                                               .status(HttpStatus.OK.value())
+                                                               .message("Login user is successful")
+                                                               .data(data)
+                                                               .build();
+
+        return ResponseEntity.ok(response);
+    }
+
+    @PostMapping(value = "/refresh")
+    @PostRefreshResponseDocs
+    public ResponseEntity<ApiResponseDTO<AuthTokensDTO>> refresh(
+            @Valid @RequestBody RefreshTokenRequestDTO dto
+    ) {
+        AuthTokensDTO data = authService.refresh(dto);
+
+        ApiResponseDTO<AuthTokensDTO> response = ApiResponseDTO.<AuthTokensDTO>builder()
+                                                               .status(HttpStatus.OK.value())
+                                                               .message("Refresh token is successful")
+                                                               .data(data)
+                                                               .build();
+
+        return ResponseEntity.ok(response);
+    }
+
+    // Under /auth the JWT filter is skipped, the token is checked by the service instead.
+    // The header is optional, a client whose access token is gone can still send its refresh token
+    @PostMapping(value = "/logout")
+    @PostLogoutResponseDocs
+    @SecurityRequirement(name = "bearerAuth")
+    public ResponseEntity<ApiResponseDTO<Object>> logout(
+            @RequestHeader(value = HttpHeaders.AUTHORIZATION, required = false) String authHeader,
+            @Valid @RequestBody(required = false) RefreshTokenRequestDTO dto
+    ) {
+        authService.logout(authHeader != null ? JwtUtil.getBearerToken(authHeader) : null, dto);
 
-        ApiResponseDTO<String> response = ApiResponseDTO.<String>builder()
+        ApiResponseDTO<Object> response = ApiResponseDTO.builder()
                                                         .status(HttpStatus.OK.value())
-                                                        .message("Login user is successful")
-                                                        .data(data)
+                                                        .message("Logout user is successful")
+                                                        .data(null)
                                                         .build();
 
         return ResponseEntity.ok(response);
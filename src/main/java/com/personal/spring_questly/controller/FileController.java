@@ -1,19 +1,34 @@
 package com.personal.spring_questly.controller;
 
 import com.personal.spring_questly.dto.common.ApiResponseDTO;
+import com.personal.spring_questly.dto.common.CursorPaginationDTO;
 import com.personal.spring_questly.dto.file.BulkDeleteFilesRequestDTO;
 import com.personal.spring_questly.dto.file.BulkDeleteFilesResponseDTO;
+import com.personal.spring_questly.dto.file.BulkDownloadFilesRequestDTO;
+import com.personal.spring_questly.dto.file.BulkGetFilesRequestDTO;
 import com.personal.spring_questly.dto.file.BulkUploadFilesRequestDTO;
+import com.personal.spring_questly.dto.file.FileDTO;
+import com.personal.spring_questly.dto.file.FileMetadataDTO;
+import com.personal.spring_questly.dto.file.StorageUsageResponseDTO;
+import com.personal.spring_questly.service.FileArchiveService;
 import com.personal.spring_questly.service.FileService;
+import com.personal.spring_questly.service.FileStreamService;
+import com.personal.spring_questly.service.ImageVariantService;
+import com.personal.spring_questly.service.StorageQuotaService;
+import com.personal.spring_questly.util.SecurityUtil;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
 import jakarta.validation.Valid;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 
-import java.io.File;
+import java.io.IOException;
 import java.util.List;
+import java.util.concurrent.CompletableFuture;
 
 @RestController
 @RequestMapping("/files")
@@ -21,27 +36,63 @@ import java.util.List;
 @Slf4j
 public class FileController {
     private final FileService fileService;
+    private final FileStreamService fileStreamService;
+    private final ImageVariantService imageVariantService;
+    private final FileArchiveService fileArchiveService;
+    private final StorageQuotaService storageQuotaService;
 
     @GetMapping(value = "{moduleName}/{fileName:.+}")
-    public ResponseEntity<?> getFile(
+    public void getFile(
             @PathVariable("moduleName") String moduleName,
-            @PathVariable("fileName") String fileName
+            @PathVariable("fileName") String fileName,
+            @RequestParam(value = "w", required = false) Integer width,
+            @RequestParam(value = "h", required = false) Integer height,
+            @RequestParam(value = "fit", required = false) String fit,
+            HttpServletRequest request,
+            HttpServletResponse response
     ) {
-        File data = fileService.getFileByModuleNameAndFileName(moduleName, fileName);
+        FileMetadataDTO data = fileService.getFileMetadata(moduleName, fileName);
 
-        return ResponseEntity.ok()
-                             .header("Content-Type", fileService.getFileMimeType(data))
-                             .header("Content-Disposition", fileService.getFileDisposition(data))
-                             .body(fileService.readAllBytes(data));
+        if (width != null || height != null) {
+            data = imageVariantService.getVariant(data, moduleName, fileName, width, height, fit);
+        }
+
+        fileStreamService.streamFile(data, request, response);
     }
 
+    @PostMapping(value = "bulk-download", produces = "application/zip")
+    public void bulkDownloadFiles(
+            @Valid @RequestBody BulkDownloadFilesRequestDTO dto,
+            HttpServletResponse response
+    ) {
+        fileArchiveService.streamArchive(dto.fileIds(), response);
+    }
+
+    // The request thread is released while the files are written
     @PostMapping(value = "bulk-upload")
-    public ResponseEntity<ApiResponseDTO<Object>> uploadFiles(
+    public CompletableFuture<ResponseEntity<ApiResponseDTO<Object>>> uploadFiles(
             @Valid @ModelAttribute BulkUploadFilesRequestDTO dto
     ) {
-        HttpStatus status = HttpStatus.CREATED;
+        return fileService.bulkUploadFilesAsync(dto.moduleName(), dto.files())
+                          .thenApply(this::buildUploadResponse);
+    }
+
+    @PostMapping(value = "stream-upload/{moduleName}", consumes = MediaType.MULTIPART_FORM_DATA_VALUE)
+    public ResponseEntity<ApiResponseDTO<Object>> streamUploadFiles(
+            @PathVariable String moduleName,
+            HttpServletRequest request
+    ) throws IOException {
+        // Parts are written to disk while they are read, see MultipartConfig
         List<com.personal.spring_questly.model.File> data =
-                fileService.bulkUploadFiles(dto.moduleName(), dto.files());
+                fileService.streamUploadFiles(moduleName, request.getContentType(), request.getInputStream());
+
+        return this.buildUploadResponse(data);
+    }
+
+    private ResponseEntity<ApiResponseDTO<Object>> buildUploadResponse(
+            List<com.personal.spring_questly.model.File> data
+    ) {
+        HttpStatus status = HttpStatus.CREATED;
 
         Object responseData = data.size() > 1 ?
                 data.stream()
@@ -58,10 +109,79 @@ public class FileController {
         );
     }
 
+    @GetMapping
+    public ResponseEntity<ApiResponseDTO<CursorPaginationDTO<List<FileDTO>>>> listFiles(
+            @RequestParam(value = "module") String moduleName,
+            @RequestParam(value = "cursor", required = false) String cursor,
+            @RequestParam(value = "limit", required = false) Integer limit
+    ) {
+        CursorPaginationDTO<List<FileDTO>> data = fileService.listFiles(moduleName, cursor, limit);
+
+        ApiResponseDTO<CursorPaginationDTO<List<FileDTO>>> response =
+                ApiResponseDTO.<CursorPaginationDTO<List<FileDTO>>>builder()
+                              .status(HttpStatus.OK.value())
+                              .message("List files successful")
+                              .data(data)
+                              .build();
+
+        return ResponseEntity.ok(response);
+    }
+
+    @PostMapping(value = "bulk-get")
+    public ResponseEntity<ApiResponseDTO<List<FileDTO>>> bulkGetFiles(@Valid @RequestBody BulkGetFilesRequestDTO dto) {
+        List<FileDTO> data = fileService.getFiles(dto.fileIds());
+
+        ApiResponseDTO<List<FileDTO>> response = ApiResponseDTO.<List<FileDTO>>builder()
+                                                               .status(HttpStatus.OK.value())
+                                                               .message("Bulk get successful")
+                                                               .data(data)
+                                                               .build();
+
+        return ResponseEntity.ok(response);
+    }
+
+    @GetMapping(value = "usage")
+    public ResponseEntity<ApiResponseDTO<StorageUsageResponseDTO>> getStorageUsage(
+            @RequestParam(value = "moduleName", required = false) String moduleName
+    ) {
+        String owner = SecurityUtil.getCurrentUsername();
+
+        StorageUsageResponseDTO data = StorageUsageResponseDTO.builder()
+                                                              .module(moduleName != null ?
+                                                                      storageQuotaService.getModuleUsage(moduleName)
+                                                                      : null)
+                                                              .user(owner != null ?
+                                                                    storageQuotaService.getUserUsage(owner)
+                                                                    : null)
+                                                              .build();
+
+        ApiResponseDTO<StorageUsageResponseDTO> response = ApiResponseDTO.<StorageUsageResponseDTO>builder()
+                                                                         .status(HttpStatus.OK.value())
+                                                                         .message("Get storage usage successful")
+                                                                         .data(data)
+                                                                         .build();
+
+        return ResponseEntity.ok(response);
+    }
+
     @DeleteMapping(value = "bulk-delete")
     public ResponseEntity<ApiResponseDTO<BulkDeleteFilesResponseDTO>> bulkDeleteFiles(
-            @Valid @RequestBody BulkDeleteFilesRequestDTO dto
+            @Valid @RequestBody BulkDeleteFilesRequestDTO dto,
+            @RequestParam(value = "async", defaultValue = "false") boolean async
     ) {
+        if (async) {
+            HttpStatus status = HttpStatus.ACCEPTED;
+            BulkDeleteFilesResponseDTO data = fileService.scheduleBulkDeleteFiles(dto.fileIds());
+
+            ApiResponseDTO<BulkDeleteFilesResponseDTO> response = ApiResponseDTO.<BulkDeleteFilesResponseDTO>builder()
+                                                                                .status(status.value())
+                                                                                .message("Bulk delete scheduled")
+                                                                                .data(data)
+                                                                                .build();
+
+            return ResponseEntity.status(status).body(response);
+        }
+
         BulkDeleteFilesResponseDTO data = fileService.bulkDeleteFiles(dto.fileIds());
 
         ApiResponseDTO<BulkDeleteFilesResponseDTO> response = ApiResponseDTO.<BulkDeleteFilesResponseDTO>builder()
@@ -0,0 +1,89 @@
+package com.personal.spring_questly.controller;
+
+import com.personal.spring_questly.dto.common.ApiResponseDTO;
+import com.personal.spring_questly.dto.file.CreateUploadSessionRequestDTO;
+import com.personal.spring_questly.dto.file.UploadSessionDTO;
+import com.personal.spring_questly.service.UploadSessionService;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.validation.Valid;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+import java.io.IOException;
+import java.util.UUID;
+
+@RestController
+@RequestMapping("/upload-sessions")
+@RequiredArgsConstructor
+@Slf4j
+public class UploadSessionController {
+    private final UploadSessionService uploadSessionService;
+
+    @PostMapping
+    public ResponseEntity<ApiResponseDTO<UploadSessionDTO>> createSession(
+            @Valid @RequestBody CreateUploadSessionRequestDTO dto
+    ) {
+        HttpStatus status = HttpStatus.CREATED;
+        UploadSessionDTO data = uploadSessionService.createSession(dto);
+
+        ApiResponseDTO<UploadSessionDTO> response = ApiResponseDTO.<UploadSessionDTO>builder()
+                                                                  .status(status.value())
+                                                                  .message("Create upload session successful")
+                                                                  .data(data)
+                                                                  .build();
+
+        return ResponseEntity.status(status).body(response);
+    }
+
+    @GetMapping(value = "{sessionId}")
+    public ResponseEntity<ApiResponseDTO<UploadSessionDTO>> getSession(
+            @PathVariable UUID sessionId
+    ) {
+        UploadSessionDTO data = uploadSessionService.getSession(sessionId);
+
+        ApiResponseDTO<UploadSessionDTO> response = ApiResponseDTO.<UploadSessionDTO>builder()
+                                                                  .status(HttpStatus.OK.value())
+                                                                  .message("Get upload session successful")
+                                                                  .data(data)
+                                                                  .build();
+
+        return ResponseEntity.ok(response);
+    }
+
+    @PutMapping(value = "{sessionId}")
+    public ResponseEntity<ApiResponseDTO<UploadSessionDTO>> appendChunk(
+            @PathVariable UUID sessionId,
+            @RequestParam long offset,
+            HttpServletRequest request
+    ) throws IOException {
+        // The chunk is the raw request body, it is written to the staging file as it arrives
+        UploadSessionDTO data = uploadSessionService.appendChunk(sessionId, offset, request.getInputStream());
+
+        ApiResponseDTO<UploadSessionDTO> response = ApiResponseDTO.<UploadSessionDTO>builder()
+                                                                  .status(HttpStatus.OK.value())
+                                                                  .message("Upload chunk successful")
+                                                                  .data(data)
+                                                                  .build();
+
+        return ResponseEntity.ok(response);
+    }
+
+    @PostMapping(value = "{sessionId}/complete")
+    public ResponseEntity<ApiResponseDTO<String>> completeSession(
+            @PathVariable UUID sessionId
+    ) {
+        HttpStatus status = HttpStatus.CREATED;
+        com.personal.spring_questly.model.File data = uploadSessionService.completeSession(sessionId);
+
+        ApiResponseDTO<String> response = ApiResponseDTO.<String>builder()
+                                                        .status(status.value())
+                                                        .message("Upload successful")
+                                                        .data(data.getUri())
+                                                        .build();
+
+        return ResponseEntity.status(status).body(response);
+    }
+}
@@ -0,0 +1,10 @@
+package com.personal.spring_questly.dto.auth;
+
+import lombok.Builder;
+
+@Builder
+public record AuthTokensDTO(
+        String accessToken,
+        String refreshToken
+) {
+}
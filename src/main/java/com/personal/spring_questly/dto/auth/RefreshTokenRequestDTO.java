@@ -0,0 +1,13 @@
+package com.personal.spring_questly.dto.auth;
+
+import io.swagger.v3.oas.annotations.media.Schema;
+import jakarta.validation.constraints.NotBlank;
+import lombok.Builder;
+
+@Builder
+public record RefreshTokenRequestDTO(
+        @NotBlank
+        @Schema(description = "Refresh token")
+        String refreshToken
+) {
+}
@@ -0,0 +1,12 @@
+package com.personal.spring_questly.dto.common;
+
+import lombok.Builder;
+
+@Builder
+public record CursorPaginationDTO<T>(
+        // Null on the last page
+        String nextCursor,
+        boolean hasMore,
+        T data
+) {
+}
@@ -0,0 +1,22 @@
+package com.personal.spring_questly.dto.file;
+
+import jakarta.validation.constraints.NotBlank;
+import jakarta.validation.constraints.NotNull;
+import jakarta.validation.constraints.Positive;
+import lombok.Builder;
+
+@Builder
+public record CreateUploadSessionRequestDTO(
+        @NotBlank
+        String moduleName,
+
+        @NotBlank
+        String fileName,
+
+        String contentType,
+
+        @NotNull
+        @Positive
+        Long totalSize
+) {
+}
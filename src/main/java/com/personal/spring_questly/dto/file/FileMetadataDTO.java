@@ -0,0 +1,30 @@
+package com.personal.spring_questly.dto.file;
+
+import lombok.Builder;
+
+import java.io.File;
+
+@Builder(toBuilder = true)
+public record FileMetadataDTO(
+        // Null when the file is kept by a remote storage backend
+        File file,
+
+        String storageKey,
+
+        String mimeType,
+
+        long size,
+
+        long lastModified,
+
+        String disposition,
+
+        String etag,
+
+        // Set when the stored bytes are already encoded, e.g. a precompressed gzip copy
+        String contentEncoding,
+
+        // Gzip copy of the file, null when there is none
+        FileMetadataDTO precompressed
+) {
+}
@@ -0,0 +1,16 @@
+package com.personal.spring_questly.dto.file;
+
+import lombok.Builder;
+
+@Builder
+public record StorageUsageDTO(
+        String name,
+
+        long usedBytes,
+
+        long fileCount,
+
+        // Null when no quota is enforced
+        Long maxBytes
+) {
+}
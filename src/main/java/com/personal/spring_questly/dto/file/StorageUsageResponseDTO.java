@@ -0,0 +1,11 @@
+package com.personal.spring_questly.dto.file;
+
+import lombok.Builder;
+
+@Builder
+public record StorageUsageResponseDTO(
+        StorageUsageDTO module,
+
+        StorageUsageDTO user
+) {
+}
@@ -0,0 +1,17 @@
+package com.personal.spring_questly.dto.file;
+
+import lombok.Builder;
+
+@Builder
+public record StoredObjectDTO(
+        String key,
+
+        long size,
+
+        // Hex SHA-256 of the content
+        String hash,
+
+        // Set when the content is kept in the local blob store and has to be released on delete
+        String blobHash
+) {
+}
@@ -0,0 +1,24 @@
+package com.personal.spring_questly.dto.file;
+
+import lombok.Builder;
+
+import java.time.Instant;
+import java.util.UUID;
+
+@Builder
+public record UploadSessionDTO(
+        UUID id,
+
+        String moduleName,
+
+        String fileName,
+
+        String contentType,
+
+        Long totalSize,
+
+        Long committedOffset,
+
+        Instant expiresAt
+) {
+}
@@ -0,0 +1,7 @@
+package com.personal.spring_questly.event;
+
+/**
+ * Published when a user is updated or deleted, so anything cached for the email can be dropped.
+ */
+public record UserChangedEvent(String email) {
+}
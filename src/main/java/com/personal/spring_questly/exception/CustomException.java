@@ -32,6 +32,30 @@ public class CustomException extends RuntimeException {
         }
     }
 
+    public static class ConflictException extends CustomException {
+        public ConflictException(String message, Object data) {
+            super(HttpStatus.CONFLICT, message, data);
+        }
+    }
+
+    public static class InsufficientStorageException extends CustomException {
+        public InsufficientStorageException(String message, Object data) {
+            super(HttpStatus.INSUFFICIENT_STORAGE, message, data);
+        }
+    }
+
+    public static class TooManyRequestsException extends CustomException {
+        public TooManyRequestsException(String message, Object data) {
+            super(HttpStatus.TOO_MANY_REQUESTS, message, data);
+        }
+    }
+
+    public static class ServiceUnavailableException extends CustomException {
+        public ServiceUnavailableException(String message, Object data) {
+            super(HttpStatus.SERVICE_UNAVAILABLE, message, data);
+        }
+    }
+
     public static class InternalServerErrorException extends CustomException {
         public InternalServerErrorException(String message, Object data) {
             super(HttpStatus.INTERNAL_SERVER_ERROR, message, data);
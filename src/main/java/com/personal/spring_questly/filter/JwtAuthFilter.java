@@ -2,15 +2,18 @@ package com.personal.spring_questly.filter;
 
 import com.personal.spring_questly.config.SecurityConfig;
 import com.personal.spring_questly.exception.CustomException;
-import com.personal.spring_questly.exception.CustomException.BadRequestException;
 import com.personal.spring_questly.exception.CustomException.InternalServerErrorException;
+import com.personal.spring_questly.exception.CustomException.UnauthorizedException;
+import com.personal.spring_questly.service.TokenRevocationService;
 import com.personal.spring_questly.util.JwtUtil;
+import com.personal.spring_questly.util.JwtUtil.VerifiedToken;
 import jakarta.servlet.FilterChain;
 import jakarta.servlet.ServletException;
 import jakarta.servlet.http.HttpServletRequest;
 import jakarta.servlet.http.HttpServletResponse;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
 import org.springframework.security.core.context.SecurityContextHolder;
 import org.springframework.security.core.userdetails.UserDetails;
@@ -29,9 +32,14 @@ import static com.personal.spring_questly.util.SendResponseUtil.sendCustomErrorR
 public class JwtAuthFilter extends OncePerRequestFilter {
     private final JwtUtil jwtUtil;
     private final UserDetailsService userDetailsService;
+    private final TokenRevocationService tokenRevocationService;
 
     private final AntPathMatcher antPathMatcher = new AntPathMatcher();
 
+    // Roles are then read from the user, through the user details cache, instead of the token
+    @Value("${jwt.live-roles.enabled:false}")
+    private boolean isLiveRolesEnabled;
+
     @Override
     protected boolean shouldNotFilter(HttpServletRequest request) throws ServletException {
         String[] publicPathPatterns = SecurityConfig.allPublicPatterns;
@@ -54,9 +62,7 @@ public class JwtAuthFilter extends OncePerRequestFilter {
     protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain filterChain) throws ServletException, IOException {
         try {
             String token = validateAuthHeaderAndGetToken(request, response);
-            String email = jwtUtil.extractEmail(token);
-
-            UserDetails userDetails = userDetailsService.loadUserByUsername(email);
+            UserDetails userDetails = this.getUserDetails(jwtUtil.verify(token));
 
             UsernamePasswordAuthenticationToken authToken =
                     new UsernamePasswordAuthenticationToken(userDetails, null,
@@ -77,20 +83,36 @@ public class JwtAuthFilter extends OncePerRequestFilter {
         filterChain.doFilter(request, response);
     }
 
-    private String validateAuthHeaderAndGetToken(HttpServletRequest request,
-                                                 HttpServletResponse response) throws IOException {
-        String authHeader = request.getHeader("Authorization");
-        String tokenType = "Bearer ";
+    /**
+     * Built from the verified claims, only tokens issued before they carried the user id and roles
+     * still load the user, and every token does when live roles are enabled.
+     */
+    private UserDetails getUserDetails(VerifiedToken verifiedToken) {
+        if (verifiedToken.tokenId() != null && tokenRevocationService.isTokenRevoked(verifiedToken.tokenId())) {
+            throw new UnauthorizedException("Token has been revoked", null);
+        }
 
-        if (authHeader == null) {
-            throw new BadRequestException("Authorization header is " +
-                    "required", null);
+        if (verifiedToken.userId() == null) {
+            return userDetailsService.loadUserByUsername(verifiedToken.email());
         }
 
-        if (!authHeader.startsWith(tokenType)) {
-            throw new BadRequestException("Request must include a Bearer token.", null);
+        if (tokenRevocationService.isRevoked(verifiedToken.userId(), verifiedToken.tokenVersion())) {
+            throw new UnauthorizedException("Token has been revoked", null);
         }
 
-        return authHeader.substring(tokenType.length());
+        if (isLiveRolesEnabled) {
+            return userDetailsService.loadUserByUsername(verifiedToken.email());
+        }
+
+        return org.springframework.security.core.userdetails.User.builder()
+                                                                 .username(verifiedToken.email())
+                                                                 .password("")
+                                                                 .authorities(verifiedToken.authorities())
+                                                                 .build();
+    }
+
+    private String validateAuthHeaderAndGetToken(HttpServletRequest request,
+                                                 HttpServletResponse response) throws IOException {
+        return JwtUtil.getBearerToken(request.getHeader("Authorization"));
     }
 }
@@ -0,0 +1,67 @@
+package com.personal.spring_questly.filter;
+
+import com.personal.spring_questly.exception.CustomException.TooManyRequestsException;
+import com.personal.spring_questly.service.RateLimitService;
+import com.personal.spring_questly.util.JwtUtil;
+import com.personal.spring_questly.util.JwtUtil.VerifiedToken;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import lombok.RequiredArgsConstructor;
+import org.springframework.http.HttpHeaders;
+import org.springframework.stereotype.Component;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+import static com.personal.spring_questly.util.SendResponseUtil.sendCustomErrorResponse;
+
+/**
+ * Throttles the routes configured in the rate limit service with 429. The user is read from the
+ * token itself, so this does not depend on running after the JWT filter.
+ * The client IP is the remote address, behind a proxy set server.forward-headers-strategy so it
+ * comes from X-Forwarded-For.
+ */
+@Component
+@RequiredArgsConstructor
+public class RateLimitFilter extends OncePerRequestFilter {
+    private final RateLimitService rateLimitService;
+    private final JwtUtil jwtUtil;
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain filterChain) throws ServletException, IOException {
+        String currentPath =
+                request.getRequestURI().substring(request.getContextPath().length());
+
+        long waitNanos = rateLimitService.tryAcquire(currentPath, request.getRemoteAddr(),
+                () -> this.getUserKey(request));
+
+        if (waitNanos > 0) {
+            response.setHeader(HttpHeaders.RETRY_AFTER,
+                    String.valueOf(TimeUnit.NANOSECONDS.toSeconds(waitNanos - 1) + 1));
+            sendCustomErrorResponse(new TooManyRequestsException("Too many requests, try again later", null),
+                    response);
+            return;
+        }
+
+        filterChain.doFilter(request, response);
+    }
+
+    private String getUserKey(HttpServletRequest request) {
+        String authHeader = request.getHeader(HttpHeaders.AUTHORIZATION);
+
+        if (authHeader == null) {
+            return null;
+        }
+
+        try {
+            VerifiedToken verifiedToken = jwtUtil.verify(JwtUtil.getBearerToken(authHeader));
+            return verifiedToken.userId() != null ? verifiedToken.userId().toString() : verifiedToken.email();
+        } catch (RuntimeException ex) {
+            // Limited by IP only, the JWT filter rejects the token
+            return null;
+        }
+    }
+}
@@ -0,0 +1,67 @@
+package com.personal.spring_questly.filter;
+
+import com.personal.spring_questly.config.SecurityConfig;
+import com.personal.spring_questly.util.LatencyWindow;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import lombok.RequiredArgsConstructor;
+import org.springframework.stereotype.Component;
+import org.springframework.util.AntPathMatcher;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.stream.Stream;
+
+/**
+ * Records how long API requests outside of /auth take, the password hashing limit is tuned against it.
+ * Routes that move file content are left out, their time follows the size of the file and the speed
+ * of the client rather than the load on the server. The docs are left out as well.
+ */
+@Component
+@RequiredArgsConstructor
+public class RequestLatencyFilter extends OncePerRequestFilter {
+    // Downloads and stream uploads, zip downloads, bulk uploads and chunked uploads
+    private static final String[] transferPathPatterns = {
+            "/files/*/*",
+            "/files/bulk-download",
+            "/files/bulk-upload",
+            "/upload-sessions/**"
+    };
+
+    private static final String[] excludedPathPatterns = Stream.of(SecurityConfig.allPublicPatterns,
+                                                                   transferPathPatterns)
+                                                               .flatMap(Arrays::stream)
+                                                               .toArray(String[]::new);
+
+    private final LatencyWindow latencyWindow;
+
+    private final AntPathMatcher antPathMatcher = new AntPathMatcher();
+
+    @Override
+    protected boolean shouldNotFilter(HttpServletRequest request) throws ServletException {
+        String currentPath =
+                request.getRequestURI().substring(request.getContextPath().length());
+
+        for (String pattern : excludedPathPatterns) {
+            if (antPathMatcher.match(pattern, currentPath)) {
+                return true;
+            }
+        }
+
+        return false;
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain filterChain) throws ServletException, IOException {
+        long startedAt = System.nanoTime();
+
+        try {
+            filterChain.doFilter(request, response);
+        } finally {
+            latencyWindow.record(System.nanoTime() - startedAt);
+        }
+    }
+}
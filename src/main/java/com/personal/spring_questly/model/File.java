@@ -4,6 +4,7 @@ import jakarta.persistence.*;
 import lombok.*;
 import org.hibernate.annotations.UuidGenerator;
 
+import java.time.Instant;
 import java.util.UUID;
 
 @Getter
@@ -12,7 +13,13 @@ import java.util.UUID;
 @AllArgsConstructor
 @Builder
 @Entity
-@Table(name = "files", schema = "quest")
+@Table(name = "files", schema = "quest", indexes = {
+        @Index(name = "idx_files_module_name_name", columnList = "module_name, name"),
+        @Index(name = "idx_files_module_name_created_at_file_id", columnList = "module_name, created_at, file_id"),
+        @Index(name = "idx_files_deleted_at", columnList = "deleted_at"),
+        @Index(name = "idx_files_created_at", columnList = "created_at"),
+        @Index(name = "idx_files_owner", columnList = "owner")
+})
 public class File extends TimeStamp {
     @Id
     @GeneratedValue
@@ -37,4 +44,25 @@ public class File extends TimeStamp {
 
     @Column(name = "uri", nullable = false)
     private String uri;
+
+    @Column(name = "etag")
+    private String etag;
+
+    @Column(name = "blob_hash")
+    private String blobHash;
+
+    // Email of the uploading user, null for files uploaded before quotas existed
+    @Column(name = "owner")
+    private String owner;
+
+    // Set once the file is tombstoned, the sweeper removes it when this time has passed
+    @Column(name = "deleted_at")
+    private Instant deletedAt;
+
+    @Column(name = "delete_attempts")
+    private Integer deleteAttempts;
+
+    // Set by the reconciler while the row has no file on disk
+    @Column(name = "missing_at")
+    private Instant missingAt;
 }
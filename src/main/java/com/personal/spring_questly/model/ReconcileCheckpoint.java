@@ -0,0 +1,24 @@
+package com.personal.spring_questly.model;
+
+import jakarta.persistence.Column;
+import jakarta.persistence.Entity;
+import jakarta.persistence.Id;
+import jakarta.persistence.Table;
+import lombok.*;
+
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+@Entity
+@Table(name = "reconcile_checkpoints", schema = "quest")
+public class ReconcileCheckpoint extends TimeStamp {
+    @Id
+    @Column(name = "name")
+    private String name;
+
+    // Last position a reconciliation pass completed, null when the pass starts over
+    @Column(name = "position")
+    private String position;
+}
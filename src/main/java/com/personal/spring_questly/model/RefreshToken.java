@@ -0,0 +1,47 @@
+package com.personal.spring_questly.model;
+
+import jakarta.persistence.*;
+import lombok.*;
+import org.hibernate.annotations.UuidGenerator;
+
+import java.time.Instant;
+import java.util.UUID;
+
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+@Entity
+// Families are revoked by family_id, expired tokens are deleted by expires_at
+@Table(name = "refresh_tokens", schema = "quest", indexes = {
+        @Index(columnList = "family_id"),
+        @Index(columnList = "expires_at")
+})
+public class RefreshToken extends TimeStamp {
+    @Id
+    @GeneratedValue
+    @UuidGenerator
+    @Column(name = "refresh_token_id")
+    private UUID id;
+
+    @Column(name = "user_id", nullable = false)
+    private UUID userId;
+
+    // Every token rotated from the same login shares the family, a reused token revokes all of them
+    @Column(name = "family_id", nullable = false)
+    private UUID familyId;
+
+    // SHA-256 of the token, the token itself is only ever known to the client
+    @Column(name = "token_hash", nullable = false, unique = true)
+    private String tokenHash;
+
+    @Column(name = "token_version", nullable = false)
+    private int tokenVersion;
+
+    @Column(name = "expires_at", nullable = false)
+    private Instant expiresAt;
+
+    @Column(name = "used_at")
+    private Instant usedAt;
+}
@@ -0,0 +1,26 @@
+package com.personal.spring_questly.model;
+
+import jakarta.persistence.*;
+import lombok.*;
+
+import java.time.Instant;
+import java.util.UUID;
+
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+@Entity
+// Every instance polls for new revocations by created_at
+@Table(name = "revoked_tokens", schema = "quest", indexes = @Index(columnList = "created_at"))
+public class RevokedToken extends TimeStamp {
+    // The jti of the access token
+    @Id
+    @Column(name = "token_id")
+    private UUID id;
+
+    // Kept until the token would have expired anyway
+    @Column(name = "expires_at", nullable = false)
+    private Instant expiresAt;
+}
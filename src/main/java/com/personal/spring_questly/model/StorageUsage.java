@@ -0,0 +1,27 @@
+package com.personal.spring_questly.model;
+
+import jakarta.persistence.Column;
+import jakarta.persistence.Entity;
+import jakarta.persistence.Id;
+import jakarta.persistence.Table;
+import lombok.*;
+
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+@Entity
+@Table(name = "storage_usages", schema = "quest")
+public class StorageUsage extends TimeStamp {
+    // Scope and name, as module:<module name> or user:<email>
+    @Id
+    @Column(name = "usage_id")
+    private String id;
+
+    @Column(name = "used_bytes", nullable = false)
+    private Long usedBytes;
+
+    @Column(name = "file_count", nullable = false)
+    private Long fileCount;
+}
@@ -0,0 +1,39 @@
+package com.personal.spring_questly.model;
+
+import jakarta.persistence.*;
+import lombok.*;
+import org.hibernate.annotations.UuidGenerator;
+
+import java.util.UUID;
+
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+@Entity
+@Table(name = "upload_sessions", schema = "quest", indexes = {
+        @Index(name = "idx_upload_sessions_updated_at", columnList = "updated_at")
+})
+public class UploadSession extends TimeStamp {
+    @Id
+    @GeneratedValue
+    @UuidGenerator
+    @Column(name = "upload_session_id")
+    private UUID id;
+
+    @Column(name = "module_name", nullable = false)
+    private String moduleName;
+
+    @Column(name = "file_name")
+    private String fileName;
+
+    @Column(name = "content_type")
+    private String contentType;
+
+    @Column(name = "total_size", nullable = false)
+    private Long totalSize;
+
+    @Column(name = "committed_offset", nullable = false)
+    private Long committedOffset;
+}
@@ -3,6 +3,7 @@ package com.personal.spring_questly.model;
 import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
 import jakarta.persistence.*;
 import lombok.*;
+import org.hibernate.annotations.ColumnDefault;
 import org.hibernate.annotations.UuidGenerator;
 
 import java.util.Objects;
@@ -14,7 +15,9 @@ import java.util.UUID;
 @AllArgsConstructor
 @Builder
 @Entity
-@Table(name = "users", schema = "quest")
+@EntityListeners(UserEntityListener.class)
+// Token versions changed since the last poll are read by updated_at every few seconds
+@Table(name = "users", schema = "quest", indexes = @Index(columnList = "updated_at"))
 public class User extends TimeStamp {
     @Id
     @GeneratedValue
@@ -42,6 +45,11 @@ public class User extends TimeStamp {
     @Column(name = "is_quester", nullable = false)
     private boolean isQuester;
 
+    // Raised to revoke every token issued so far, tokens carry the version they were issued with
+    @ColumnDefault("0")
+    @Column(name = "token_version", nullable = false)
+    private int tokenVersion;
+
     @OneToOne(mappedBy = "user", cascade = {CascadeType.ALL}, orphanRemoval = true)
     @JsonIgnoreProperties("user")
     private UserProfile userProfile;
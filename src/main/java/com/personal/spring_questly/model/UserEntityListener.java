@@ -0,0 +1,21 @@
+package com.personal.spring_questly.model;
+
+import com.personal.spring_questly.event.UserChangedEvent;
+import jakarta.persistence.PostRemove;
+import jakarta.persistence.PostUpdate;
+import lombok.RequiredArgsConstructor;
+import org.springframework.context.ApplicationEventPublisher;
+
+/**
+ * Created by Hibernate through Spring, so the publisher is injected. Bulk JPQL updates skip it.
+ */
+@RequiredArgsConstructor
+public class UserEntityListener {
+    private final ApplicationEventPublisher applicationEventPublisher;
+
+    @PostUpdate
+    @PostRemove
+    public void onChanged(User user) {
+        applicationEventPublisher.publishEvent(new UserChangedEvent(user.getEmail()));
+    }
+}
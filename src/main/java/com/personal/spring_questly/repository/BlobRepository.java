@@ -0,0 +1,34 @@
+package com.personal.spring_questly.repository;
+
+import com.personal.spring_questly.model.Blob;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.Collection;
+import java.util.List;
+
+public interface BlobRepository extends JpaRepository<Blob, String> {
+    // One statement, so concurrent uploads of the same content never both insert the row
+    @Transactional
+    @Modifying
+    @Query(value = "insert into quest.blobs as b (hash, size, ref_count, created_at, updated_at) " +
+            "values (:hash, :size, 1, now(), now()) " +
+            "on conflict (hash) do update set ref_count = b.ref_count + 1, updated_at = now()", nativeQuery = true)
+    int addReference(@Param("hash") String hash, @Param("size") long size);
+
+    @Transactional
+    @Modifying
+    @Query("update Blob b set b.refCount = b.refCount - 1 where b.hash = :hash and b.refCount > 0")
+    int decrementRefCount(@Param("hash") String hash);
+
+    @Transactional
+    @Modifying
+    @Query("delete from Blob b where b.hash = :hash and b.refCount <= 0")
+    int deleteIfUnreferenced(@Param("hash") String hash);
+
+    @Query("select b.hash from Blob b where b.hash in :hashes")
+    List<String> findHashesByHashIn(@Param("hashes") Collection<String> hashes);
+}
@@ -1,10 +1,87 @@
 package com.personal.spring_questly.repository;
 
 import com.personal.spring_questly.model.File;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.transaction.annotation.Transactional;
 
+import java.time.Instant;
+import java.util.Collection;
+import java.util.List;
+import java.util.Optional;
 import java.util.UUID;
 
 public interface FileRepository extends JpaRepository<File, UUID> {
+    Optional<File> findByModuleNameAndName(String moduleName, String name);
 
+    @Query("select f.name from File f where f.moduleName = :moduleName and f.name in :names")
+    List<String> findNamesByModuleNameAndNameIn(@Param("moduleName") String moduleName,
+                                                @Param("names") Collection<String> names);
+
+    // Sizes are stored in KB
+    @Query("select coalesce(sum(f.size), 0) from File f where f.moduleName = :moduleName and f.deletedAt is null")
+    double sumLiveSizeByModuleName(@Param("moduleName") String moduleName);
+
+    @Query("select count(f) from File f where f.moduleName = :moduleName and f.deletedAt is null")
+    long countLiveByModuleName(@Param("moduleName") String moduleName);
+
+    @Query("select coalesce(sum(f.size), 0) from File f where f.owner = :owner and f.deletedAt is null")
+    double sumLiveSizeByOwner(@Param("owner") String owner);
+
+    @Query("select count(f) from File f where f.owner = :owner and f.deletedAt is null")
+    long countLiveByOwner(@Param("owner") String owner);
+
+    @Query(value = "select * from quest.files where module_name = :moduleName and deleted_at is null order by created_at, file_id limit :limit", nativeQuery = true)
+    List<File> findLiveByModuleName(@Param("moduleName") String moduleName, @Param("limit") int limit);
+
+    // The row comparison lets the database seek straight into the (module_name, created_at, file_id) index,
+    // so a deep page costs the same as the first one
+    @Query(value = "select * from quest.files where module_name = :moduleName and deleted_at is null and (created_at, file_id) > (:createdAt, :id) order by created_at, file_id limit :limit", nativeQuery = true)
+    List<File> findLiveByModuleNameAfter(@Param("moduleName") String moduleName, @Param("createdAt") Instant createdAt,
+                                         @Param("id") UUID id, @Param("limit") int limit);
+
+    @Query("select distinct f.moduleName from File f where f.deletedAt is null")
+    List<String> findLiveModuleNames();
+
+    @Query("select f.name from File f where f.moduleName = :moduleName and f.name > :afterName and f.deletedAt is null order by f.name")
+    List<String> findLiveNamesAfter(@Param("moduleName") String moduleName, @Param("afterName") String afterName,
+                                    Pageable pageable);
+
+    @Query("select f from File f where f.createdAt >= :since and f.deletedAt is null order by f.createdAt")
+    List<File> findLiveCreatedSince(@Param("since") Instant since, Pageable pageable);
+
+    @Query("select f from File f where f.id > :afterId and f.deletedAt is null order by f.id")
+    List<File> findLiveAfterId(@Param("afterId") UUID afterId, Pageable pageable);
+
+    @Transactional
+    @Modifying
+    @Query("update File f set f.missingAt = :missingAt where f.id in :ids and f.missingAt is null")
+    int markMissing(@Param("ids") Collection<UUID> ids, @Param("missingAt") Instant missingAt);
+
+    @Transactional
+    @Modifying
+    @Query("update File f set f.missingAt = null where f.id in :ids")
+    int clearMissing(@Param("ids") Collection<UUID> ids);
+
+    @Transactional
+    @Modifying
+    @Query("update File f set f.deletedAt = :deletedAt, f.deleteAttempts = 0 where f.id in :ids and f.deletedAt is null")
+    int markDeleted(@Param("ids") Collection<UUID> ids, @Param("deletedAt") Instant deletedAt);
+
+    @Query("select f from File f where f.deletedAt <= :now and coalesce(f.deleteAttempts, 0) < :maxAttempts order by f.deletedAt")
+    List<File> findDueTombstones(@Param("now") Instant now, @Param("maxAttempts") int maxAttempts, Pageable pageable);
+
+    @Transactional
+    @Modifying
+    @Query("update File f set f.deletedAt = :retryAt, f.deleteAttempts = coalesce(f.deleteAttempts, 0) + 1 where f.id in :ids")
+    int rescheduleDelete(@Param("ids") Collection<UUID> ids, @Param("retryAt") Instant retryAt);
+
+    // Rows another sweeper removed first are not returned, so each blob reference is released once
+    @Transactional
+    @Query(value = "delete from quest.files where file_id in (:ids) and deleted_at is not null returning blob_hash",
+           nativeQuery = true)
+    List<String> deleteTombstonesReturningBlobHash(@Param("ids") Collection<UUID> ids);
 }
@@ -0,0 +1,7 @@
+package com.personal.spring_questly.repository;
+
+import com.personal.spring_questly.model.ReconcileCheckpoint;
+import org.springframework.data.jpa.repository.JpaRepository;
+
+public interface ReconcileCheckpointRepository extends JpaRepository<ReconcileCheckpoint, String> {
+}
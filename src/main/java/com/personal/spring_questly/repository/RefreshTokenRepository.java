@@ -0,0 +1,32 @@
+package com.personal.spring_questly.repository;
+
+import com.personal.spring_questly.model.RefreshToken;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.Instant;
+import java.util.Optional;
+import java.util.UUID;
+
+public interface RefreshTokenRepository extends JpaRepository<RefreshToken, UUID> {
+    Optional<RefreshToken> findByTokenHash(String tokenHash);
+
+    // Only one of several requests with the same token gets 1 back
+    @Transactional
+    @Modifying
+    @Query("update RefreshToken t set t.usedAt = :usedAt where t.id = :id and t.usedAt is null")
+    int markUsed(@Param("id") UUID id, @Param("usedAt") Instant usedAt);
+
+    @Transactional
+    @Modifying
+    @Query("update RefreshToken t set t.usedAt = :usedAt where t.familyId = :familyId and t.usedAt is null")
+    int revokeFamily(@Param("familyId") UUID familyId, @Param("usedAt") Instant usedAt);
+
+    @Transactional
+    @Modifying
+    @Query("delete from RefreshToken t where t.expiresAt < :now")
+    int deleteExpired(@Param("now") Instant now);
+}
@@ -0,0 +1,25 @@
+package com.personal.spring_questly.repository;
+
+import com.personal.spring_questly.model.RevokedToken;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.Instant;
+import java.util.List;
+import java.util.UUID;
+
+public interface RevokedTokenRepository extends JpaRepository<RevokedToken, UUID> {
+    @Query("select t.id from RevokedToken t where t.expiresAt > :now")
+    List<UUID> findLiveIds(@Param("now") Instant now);
+
+    @Query("select t.id from RevokedToken t where t.createdAt >= :since")
+    List<UUID> findIdsCreatedSince(@Param("since") Instant since);
+
+    @Transactional
+    @Modifying
+    @Query("delete from RevokedToken t where t.expiresAt < :now")
+    int deleteExpired(@Param("now") Instant now);
+}
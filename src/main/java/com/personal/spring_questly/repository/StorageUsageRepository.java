@@ -0,0 +1,24 @@
+package com.personal.spring_questly.repository;
+
+import com.personal.spring_questly.model.StorageUsage;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.transaction.annotation.Transactional;
+
+public interface StorageUsageRepository extends JpaRepository<StorageUsage, String> {
+    // Instances creating the same row at once keep whichever insert came first
+    @Transactional
+    @Modifying
+    @Query(value = "insert into quest.storage_usages (usage_id, used_bytes, file_count, created_at, updated_at) " +
+            "values (:id, :bytes, :fileCount, now(), now()) " +
+            "on conflict (usage_id) do nothing", nativeQuery = true)
+    int insertIfAbsent(@Param("id") String id, @Param("bytes") long bytes, @Param("fileCount") long fileCount);
+
+    // Adds to the stored totals, so instances flushing at the same time do not overwrite each other
+    @Transactional
+    @Modifying
+    @Query("update StorageUsage u set u.usedBytes = u.usedBytes + :bytes, u.fileCount = u.fileCount + :fileCount where u.id = :id")
+    int addUsage(@Param("id") String id, @Param("bytes") long bytes, @Param("fileCount") long fileCount);
+}
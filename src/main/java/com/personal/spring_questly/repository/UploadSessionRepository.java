@@ -0,0 +1,12 @@
+package com.personal.spring_questly.repository;
+
+import com.personal.spring_questly.model.UploadSession;
+import org.springframework.data.jpa.repository.JpaRepository;
+
+import java.time.Instant;
+import java.util.List;
+import java.util.UUID;
+
+public interface UploadSessionRepository extends JpaRepository<UploadSession, UUID> {
+    List<UploadSession> findAllByUpdatedAtBefore(Instant updatedAt);
+}
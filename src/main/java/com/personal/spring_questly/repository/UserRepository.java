@@ -2,7 +2,13 @@ package com.personal.spring_questly.repository;
 
 import com.personal.spring_questly.model.User;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.transaction.annotation.Transactional;
 
+import java.time.Instant;
+import java.util.List;
 import java.util.Optional;
 import java.util.UUID;
 
@@ -10,4 +16,31 @@ public interface UserRepository extends JpaRepository<User, UUID> {
     Optional<User> findByEmail(String email);
 
     boolean existsByEmail(String email);
+
+    // Bulk updates skip @UpdateTimestamp, updated_at is what other instances poll for revocations
+    @Transactional
+    @Modifying
+    @Query("update User u set u.tokenVersion = u.tokenVersion + 1, u.updatedAt = :now where u.id = :id")
+    int incrementTokenVersion(@Param("id") UUID id, @Param("now") Instant now);
+
+    // Only replaces the hash it was computed from, a password changed in the meantime wins
+    @Transactional
+    @Modifying
+    @Query("update User u set u.password = :password where u.id = :id and u.password = :currentPassword")
+    int updatePassword(@Param("id") UUID id, @Param("currentPassword") String currentPassword,
+                       @Param("password") String password);
+
+    @Query("select u.tokenVersion from User u where u.id = :id")
+    Optional<Integer> findTokenVersionById(@Param("id") UUID id);
+
+    @Query("select u.id as id, u.tokenVersion as tokenVersion, u.updatedAt as updatedAt from User u where u.tokenVersion > 0 and u.updatedAt >= :since")
+    List<TokenVersion> findTokenVersionsUpdatedSince(@Param("since") Instant since);
+
+    interface TokenVersion {
+        UUID getId();
+
+        int getTokenVersion();
+
+        Instant getUpdatedAt();
+    }
 }
@@ -1,10 +1,16 @@
 package com.personal.spring_questly.service;
 
+import com.personal.spring_questly.dto.auth.AuthTokensDTO;
 import com.personal.spring_questly.dto.auth.LoginRequestDTO;
+import com.personal.spring_questly.dto.auth.RefreshTokenRequestDTO;
 import com.personal.spring_questly.dto.auth.RegisterRequestDTO;
 
 public interface AuthService {
-    String register(RegisterRequestDTO dto);
+    AuthTokensDTO register(RegisterRequestDTO dto);
 
-    String login(LoginRequestDTO dto);
+    AuthTokensDTO login(LoginRequestDTO dto);
+
+    AuthTokensDTO refresh(RefreshTokenRequestDTO dto);
+
+    void logout(String token, RefreshTokenRequestDTO dto);
 }
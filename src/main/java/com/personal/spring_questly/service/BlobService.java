@@ -0,0 +1,19 @@
+package com.personal.spring_questly.service;
+
+import com.personal.spring_questly.model.Blob;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Path;
+
+public interface BlobService {
+    Blob store(InputStream in, Path target) throws IOException;
+
+    void release(String hash);
+
+    Path getBlobPath(String hash);
+
+    boolean quarantineIfUnreferenced(String hash, Path quarantinePath) throws IOException;
+
+    boolean releaseLinked(Path file) throws IOException;
+}
@@ -0,0 +1,10 @@
+package com.personal.spring_questly.service;
+
+import jakarta.servlet.http.HttpServletResponse;
+
+import java.util.List;
+import java.util.UUID;
+
+public interface FileArchiveService {
+    void streamArchive(List<UUID> ids, HttpServletResponse response);
+}
@@ -0,0 +1,13 @@
+package com.personal.spring_questly.service;
+
+import com.personal.spring_questly.dto.file.FileMetadataDTO;
+
+public interface FileEncodingService {
+    boolean isCompressible(FileMetadataDTO metadata);
+
+    boolean precompress(String moduleName, String fileName, String mimeType);
+
+    FileMetadataDTO getPrecompressed(FileMetadataDTO original);
+
+    void deletePrecompressed(String moduleName, String fileName);
+}
@@ -0,0 +1,13 @@
+package com.personal.spring_questly.service;
+
+public interface FileNameFilterService {
+    boolean mightExist(String moduleName, String fileName);
+
+    void add(String moduleName, String fileName);
+
+    void remove(String moduleName, String fileName);
+
+    void refresh();
+
+    void rebuild();
+}
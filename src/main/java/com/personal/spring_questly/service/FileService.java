@@ -1,11 +1,16 @@
 package com.personal.spring_questly.service;
 
+import com.personal.spring_questly.dto.common.CursorPaginationDTO;
 import com.personal.spring_questly.dto.file.BulkDeleteFilesResponseDTO;
+import com.personal.spring_questly.dto.file.FileDTO;
+import com.personal.spring_questly.dto.file.FileMetadataDTO;
 import org.springframework.web.multipart.MultipartFile;
 
 import java.io.File;
+import java.io.InputStream;
 import java.util.List;
 import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
 
 public interface FileService {
     String getFileMimeType(File file);
@@ -16,7 +21,28 @@ public interface FileService {
 
     File getFileByModuleNameAndFileName(String moduleName, String fileName);
 
+    String getFileETag(String moduleName, String fileName);
+
+    FileMetadataDTO getFileMetadata(String moduleName, String fileName);
+
     List<com.personal.spring_questly.model.File> bulkUploadFiles(String moduleName, List<MultipartFile> files);
 
+    CompletableFuture<List<com.personal.spring_questly.model.File>> bulkUploadFilesAsync(String moduleName,
+                                                                                        List<MultipartFile> files);
+
+    List<com.personal.spring_questly.model.File> streamUploadFiles(String moduleName, String contentType,
+                                                                   InputStream body);
+
+    com.personal.spring_questly.model.File uploadFile(String moduleName, String originalFileName, String contentType,
+                                                      InputStream content);
+
     BulkDeleteFilesResponseDTO bulkDeleteFiles(List<UUID> ids);
+
+    BulkDeleteFilesResponseDTO scheduleBulkDeleteFiles(List<UUID> ids);
+
+    CursorPaginationDTO<List<FileDTO>> listFiles(String moduleName, String cursor, Integer limit);
+
+    List<FileDTO> getFiles(List<UUID> ids);
+
+    void invalidateCachedFile(String moduleName, String fileName);
 }
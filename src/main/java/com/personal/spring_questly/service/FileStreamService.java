@@ -0,0 +1,9 @@
+package com.personal.spring_questly.service;
+
+import com.personal.spring_questly.dto.file.FileMetadataDTO;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+
+public interface FileStreamService {
+    void streamFile(FileMetadataDTO metadata, HttpServletRequest request, HttpServletResponse response);
+}
@@ -0,0 +1,5 @@
+package com.personal.spring_questly.service;
+
+public interface FileSweepService {
+    int sweepDeletedFiles();
+}
@@ -0,0 +1,12 @@
+package com.personal.spring_questly.service;
+
+import com.personal.spring_questly.dto.file.FileMetadataDTO;
+
+import java.io.File;
+import java.nio.ByteBuffer;
+
+public interface HotFileCacheService {
+    ByteBuffer getContent(FileMetadataDTO metadata);
+
+    void invalidate(File file);
+}
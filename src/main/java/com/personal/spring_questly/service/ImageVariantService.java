@@ -0,0 +1,10 @@
+package com.personal.spring_questly.service;
+
+import com.personal.spring_questly.dto.file.FileMetadataDTO;
+
+public interface ImageVariantService {
+    FileMetadataDTO getVariant(FileMetadataDTO original, String moduleName, String fileName,
+                               Integer width, Integer height, String fit);
+
+    void deleteVariants(String moduleName, String fileName);
+}
@@ -0,0 +1,13 @@
+package com.personal.spring_questly.service;
+
+import java.util.UUID;
+
+public interface PasswordHashService {
+    String encode(String rawPassword);
+
+    boolean matches(String rawPassword, String encodedPassword);
+
+    void upgradeEncoding(UUID userId, String rawPassword, String encodedPassword);
+
+    void adjustLimit();
+}
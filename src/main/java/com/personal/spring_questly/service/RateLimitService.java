@@ -0,0 +1,9 @@
+package com.personal.spring_questly.service;
+
+import java.util.function.Supplier;
+
+public interface RateLimitService {
+    long tryAcquire(String path, String ipAddress, Supplier<String> userKey);
+
+    void evictIdleBuckets();
+}
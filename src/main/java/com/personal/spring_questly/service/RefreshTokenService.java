@@ -0,0 +1,14 @@
+package com.personal.spring_questly.service;
+
+import com.personal.spring_questly.dto.auth.AuthTokensDTO;
+import com.personal.spring_questly.model.User;
+
+public interface RefreshTokenService {
+    AuthTokensDTO issue(User user);
+
+    AuthTokensDTO rotate(String refreshToken);
+
+    void revoke(String refreshToken);
+
+    void deleteExpired();
+}
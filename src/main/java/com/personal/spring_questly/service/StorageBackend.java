@@ -0,0 +1,43 @@
+package com.personal.spring_questly.service;
+
+import com.personal.spring_questly.dto.file.StoredObjectDTO;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Path;
+import java.util.List;
+
+/**
+ * Where stored file content lives, selected with file.storage.backend.
+ * Keys have the form module/name, see FileLayoutUtil#getStorageKey.
+ */
+public interface StorageBackend {
+    StoredObjectDTO put(String key, InputStream content) throws IOException;
+
+    InputStream get(String key) throws IOException;
+
+    InputStream getRange(String key, long start, long length) throws IOException;
+
+    /**
+     * Returns false when there was nothing to delete, backends that cannot tell without an extra request return true.
+     */
+    boolean delete(String key) throws IOException;
+
+    boolean exists(String key) throws IOException;
+
+    /**
+     * Size of the object in bytes, throws NoSuchFileException when it does not exist.
+     */
+    long getSize(String key) throws IOException;
+
+    /**
+     * Keys starting with the prefix in lexicographic order, after startAfter when it is set.
+     */
+    List<String> list(String prefix, String startAfter, int limit) throws IOException;
+
+    /**
+     * Path of the object on this node's disk, null when the backend keeps objects elsewhere.
+     * Sendfile, the hot file cache and image variants only work with local objects.
+     */
+    Path getLocalPath(String key);
+}
@@ -0,0 +1,15 @@
+package com.personal.spring_questly.service;
+
+import com.personal.spring_questly.dto.file.StorageUsageDTO;
+
+public interface StorageQuotaService {
+    void reserve(String moduleName, String owner, long bytes, int fileCount);
+
+    void release(String moduleName, String owner, long bytes, int fileCount);
+
+    StorageUsageDTO getModuleUsage(String moduleName);
+
+    StorageUsageDTO getUserUsage(String owner);
+
+    void flush();
+}
@@ -0,0 +1,18 @@
+package com.personal.spring_questly.service;
+
+import java.time.Instant;
+import java.util.UUID;
+
+public interface TokenRevocationService {
+    boolean isRevoked(UUID userId, int tokenVersion);
+
+    int revoke(UUID userId);
+
+    boolean isTokenRevoked(UUID tokenId);
+
+    void revokeToken(UUID tokenId, Instant expiresAt);
+
+    void refresh();
+
+    void rebuildFilter();
+}
@@ -0,0 +1,19 @@
+package com.personal.spring_questly.service;
+
+import com.personal.spring_questly.dto.file.CreateUploadSessionRequestDTO;
+import com.personal.spring_questly.dto.file.UploadSessionDTO;
+
+import java.io.InputStream;
+import java.util.UUID;
+
+public interface UploadSessionService {
+    UploadSessionDTO createSession(CreateUploadSessionRequestDTO dto);
+
+    UploadSessionDTO getSession(UUID id);
+
+    UploadSessionDTO appendChunk(UUID id, long offset, InputStream body);
+
+    com.personal.spring_questly.model.File completeSession(UUID id);
+
+    void cleanupStaleSessions();
+}
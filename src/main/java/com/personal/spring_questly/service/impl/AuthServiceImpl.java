@@ -1,6 +1,8 @@
 package com.personal.spring_questly.service.impl;
 
+import com.personal.spring_questly.dto.auth.AuthTokensDTO;
 import com.personal.spring_questly.dto.auth.LoginRequestDTO;
+import com.personal.spring_questly.dto.auth.RefreshTokenRequestDTO;
 import com.personal.spring_questly.dto.auth.RegisterRequestDTO;
 import com.personal.spring_questly.exception.CustomException.BadRequestException;
 import com.personal.spring_questly.exception.CustomException.UnauthorizedException;
@@ -8,29 +10,38 @@ import com.personal.spring_questly.model.User;
 import com.personal.spring_questly.model.UserProfile;
 import com.personal.spring_questly.repository.UserRepository;
 import com.personal.spring_questly.service.AuthService;
+import com.personal.spring_questly.service.PasswordHashService;
+import com.personal.spring_questly.service.RefreshTokenService;
+import com.personal.spring_questly.service.TokenRevocationService;
 import com.personal.spring_questly.util.JwtUtil;
+import com.personal.spring_questly.util.JwtUtil.VerifiedToken;
+import io.jsonwebtoken.JwtException;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
-import org.springframework.security.crypto.password.PasswordEncoder;
 import org.springframework.stereotype.Service;
 
+import java.time.Instant;
+import java.util.UUID;
+
 @Service
 @RequiredArgsConstructor
 @Slf4j
 public class AuthServiceImpl implements AuthService {
     private final UserRepository userRepository;
     private final JwtUtil jwtUtil;
-    private final PasswordEncoder passwordEncoder;
+    private final PasswordHashService passwordHashService;
+    private final TokenRevocationService tokenRevocationService;
+    private final RefreshTokenService refreshTokenService;
 
     @Override
-    public String register(RegisterRequestDTO dto) {
+    public AuthTokensDTO register(RegisterRequestDTO dto) {
         if (userRepository.existsByEmail(dto.email())) {
             throw new BadRequestException("Email is already taken", null);
         }
 
         User newUser = User.builder()
                            .email(dto.email())
-                           .password(passwordEncoder.encode(dto.password()))
+                           .password(passwordHashService.encode(dto.password()))
                            .firstName(dto.firstName())
                            .lastName(dto.lastName())
                            .fullName(dto.firstName() + " " + dto.lastName())
@@ -40,19 +51,74 @@ public class AuthServiceImpl implements AuthService {
 
         newUser.addUserProfile(UserProfile.builder().build());
 
-        return jwtUtil.generateToken(userRepository.save(newUser).getEmail());
+        return refreshTokenService.issue(userRepository.save(newUser));
     }
 
     @Override
-    public String login(LoginRequestDTO dto) {
+    public AuthTokensDTO login(LoginRequestDTO dto) {
         User foundUser = userRepository.findByEmail(dto.email()).orElseThrow(
                 () -> new UnauthorizedException("Invalid credentials", null)
         );
 
-        if (!passwordEncoder.matches(dto.password(), foundUser.getPassword())) {
+        if (!passwordHashService.matches(dto.password(), foundUser.getPassword())) {
             throw new UnauthorizedException("Invalid credentials", null);
         }
 
-        return jwtUtil.generateToken(foundUser.getEmail());
+        passwordHashService.upgradeEncoding(foundUser.getId(), dto.password(), foundUser.getPassword());
+
+        return refreshTokenService.issue(foundUser);
+    }
+
+    @Override
+    public AuthTokensDTO refresh(RefreshTokenRequestDTO dto) {
+        return refreshTokenService.rotate(dto.refreshToken());
+    }
+
+    /**
+     * Revokes the refresh token when it is sent along, then the access token when there is one.
+     * The refresh token is revoked first and whatever the access token is, since it is what keeps the
+     * session alive. An expired access token is still accepted, it is what a client usually has left.
+     * Tokens issued before they had an id cannot be revoked alone, so every token of the user is.
+     */
+    @Override
+    public void logout(String token, RefreshTokenRequestDTO dto) {
+        if (dto != null) {
+            refreshTokenService.revoke(dto.refreshToken());
+        }
+
+        if (token == null) {
+            if (dto != null) {
+                return;
+            }
+
+            throw new BadRequestException("Authorization header or refresh token is required", null);
+        }
+
+        VerifiedToken verifiedToken;
+
+        try {
+            verifiedToken = jwtUtil.verifyAllowingExpired(token);
+        } catch (JwtException | IllegalArgumentException ex) {
+            throw new UnauthorizedException("Invalid credentials", null);
+        }
+
+        if (verifiedToken.tokenId() != null) {
+            // An expired token is already rejected everywhere, there is nothing left to revoke
+            if (verifiedToken.expiresAt() == null || verifiedToken.expiresAt().isAfter(Instant.now())) {
+                tokenRevocationService.revokeToken(verifiedToken.tokenId(), verifiedToken.expiresAt());
+            }
+
+            return;
+        }
+
+        UUID userId = verifiedToken.userId();
+
+        if (userId == null) {
+            userId = userRepository.findByEmail(verifiedToken.email()).orElseThrow(
+                    () -> new UnauthorizedException("Invalid credentials", null)
+            ).getId();
+        }
+
+        tokenRevocationService.revoke(userId);
     }
 }
@@ -0,0 +1,222 @@
+package com.personal.spring_questly.service.impl;
+
+import com.personal.spring_questly.model.Blob;
+import com.personal.spring_questly.repository.BlobRepository;
+import com.personal.spring_questly.service.BlobService;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.FileSystemException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.security.DigestInputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HexFormat;
+import java.util.concurrent.locks.ReentrantLock;
+
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class BlobServiceImpl implements BlobService {
+    public static final String BLOB_DIR = ".blobs";
+    public static final String TEMP_DIR = ".tmp";
+
+    private static final int LOCK_STRIPES = 64;
+
+    private final BlobRepository blobRepository;
+
+    // Serializes ref count changes and blob file creation/removal per hash
+    private final ReentrantLock[] locks = createLocks();
+
+    @Value("${file.upload-dir}")
+    private String uploadDir;
+
+    @Override
+    public Blob store(InputStream in, Path target) throws IOException {
+        Path tempDir = Paths.get(uploadDir, TEMP_DIR);
+        Files.createDirectories(tempDir);
+
+        Path tempFile = Files.createTempFile(tempDir, "blob-", ".tmp");
+
+        MessageDigest digest = this.createDigest();
+        long size;
+
+        try (InputStream digestIn = new DigestInputStream(in, digest)) {
+            size = Files.copy(digestIn, tempFile, StandardCopyOption.REPLACE_EXISTING);
+        } catch (IOException ex) {
+            Files.deleteIfExists(tempFile);
+            throw ex;
+        }
+
+        String hash = HexFormat.of().formatHex(digest.digest());
+        Path blobPath = this.getBlobPath(hash);
+
+        ReentrantLock lock = this.getLock(hash);
+        lock.lock();
+
+        try {
+            blobRepository.addReference(hash, size);
+
+            try {
+                // The content is the same for the same hash, so an existing blob is never rewritten
+                if (Files.exists(blobPath)) {
+                    log.info("Blob already stored, skipping write: {}", hash);
+                } else {
+                    Files.createDirectories(blobPath.getParent());
+                    Files.move(tempFile, blobPath, StandardCopyOption.ATOMIC_MOVE);
+                }
+
+                this.linkBlob(blobPath, target);
+            } catch (IOException ex) {
+                this.removeReference(hash);
+                throw ex;
+            }
+        } finally {
+            Files.deleteIfExists(tempFile);
+            lock.unlock();
+        }
+
+        return Blob.builder()
+                   .hash(hash)
+                   .size(size)
+                   .build();
+    }
+
+    @Override
+    public void release(String hash) {
+        if (hash == null) {
+            return;
+        }
+
+        ReentrantLock lock = this.getLock(hash);
+        lock.lock();
+
+        try {
+            this.removeReference(hash);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Moves a blob without a blobs row out of the store, returns false when it is referenced after all.
+     */
+    @Override
+    public boolean quarantineIfUnreferenced(String hash, Path quarantinePath) throws IOException {
+        ReentrantLock lock = this.getLock(hash);
+        lock.lock();
+
+        try {
+            if (blobRepository.existsById(hash)) {
+                return false;
+            }
+
+            Path blobPath = this.getBlobPath(hash);
+
+            if (!Files.exists(blobPath)) {
+                return false;
+            }
+
+            Files.createDirectories(quarantinePath.getParent());
+            Files.move(blobPath, quarantinePath);
+
+            return true;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Releases the reference held by a file that is still hard-linked to its blob, e.g. one whose files row
+     * was never saved. Returns false when the file is not linked to a blob, such as a private copy.
+     */
+    @Override
+    public boolean releaseLinked(Path file) throws IOException {
+        MessageDigest digest = this.createDigest();
+
+        try (InputStream digestIn = new DigestInputStream(Files.newInputStream(file), digest)) {
+            digestIn.transferTo(OutputStream.nullOutputStream());
+        }
+
+        String hash = HexFormat.of().formatHex(digest.digest());
+        Path blobPath = this.getBlobPath(hash);
+
+        ReentrantLock lock = this.getLock(hash);
+        lock.lock();
+
+        try {
+            if (!Files.exists(blobPath) || !Files.isSameFile(file, blobPath)) {
+                return false;
+            }
+
+            this.removeReference(hash);
+
+            return true;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Blobs are sharded by the first two bytes of their hash, e.g. .blobs/3f/a9/3fa9...
+     */
+    @Override
+    public Path getBlobPath(String hash) {
+        return Paths.get(uploadDir, BLOB_DIR, hash.substring(0, 2), hash.substring(2, 4), hash);
+    }
+
+    private void removeReference(String hash) {
+        blobRepository.decrementRefCount(hash);
+
+        if (blobRepository.deleteIfUnreferenced(hash) > 0) {
+            try {
+                Files.deleteIfExists(this.getBlobPath(hash));
+            } catch (IOException ex) {
+                log.info("Cannot delete unreferenced blob {}: {}", hash, ex.getMessage());
+            }
+        }
+    }
+
+    private void linkBlob(Path blobPath, Path target) throws IOException {
+        try {
+            Files.createLink(target, blobPath);
+        } catch (UnsupportedOperationException | FileSystemException ex) {
+            if (Files.exists(target)) {
+                throw ex;
+            }
+
+            // File system without hard links, keep a private copy instead
+            Files.copy(blobPath, target);
+        }
+    }
+
+    private MessageDigest createDigest() {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException ex) {
+            throw new IllegalStateException(ex);
+        }
+    }
+
+    private ReentrantLock getLock(String hash) {
+        return locks[Math.floorMod(hash.hashCode(), LOCK_STRIPES)];
+    }
+
+    private static ReentrantLock[] createLocks() {
+        ReentrantLock[] locks = new ReentrantLock[LOCK_STRIPES];
+
+        for (int i = 0; i < LOCK_STRIPES; i++) {
+            locks[i] = new ReentrantLock();
+        }
+
+        return locks;
+    }
+}
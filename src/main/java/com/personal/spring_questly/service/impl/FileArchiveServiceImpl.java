@@ -0,0 +1,258 @@
+package com.personal.spring_questly.service.impl;
+
+import com.personal.spring_questly.exception.CustomException.BadRequestException;
+import com.personal.spring_questly.exception.CustomException.InternalServerErrorException;
+import com.personal.spring_questly.exception.CustomException.NotFoundException;
+import com.personal.spring_questly.repository.FileRepository;
+import com.personal.spring_questly.service.FileArchiveService;
+import com.personal.spring_questly.service.StorageBackend;
+import com.personal.spring_questly.util.FileLayoutUtil;
+import jakarta.servlet.http.HttpServletResponse;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.ContentDisposition;
+import org.springframework.http.HttpHeaders;
+import org.springframework.stereotype.Service;
+
+import java.io.BufferedOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.nio.file.attribute.FileTime;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.UUID;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+import java.util.zip.CRC32;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
+
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class FileArchiveServiceImpl implements FileArchiveService {
+    private static final int BUFFER_SIZE = 64 * 1024;
+
+    // Deflating these again costs CPU and saves next to nothing
+    private static final Set<String> COMPRESSED_MIME_TYPES = Set.of(
+            "application/zip",
+            "application/gzip",
+            "application/x-gzip",
+            "application/x-7z-compressed",
+            "application/x-rar-compressed",
+            "application/x-bzip2",
+            "application/x-xz",
+            "application/pdf",
+            "application/vnd.openxmlformats-officedocument.wordprocessingml.document",
+            "application/vnd.openxmlformats-officedocument.spreadsheetml.sheet",
+            "application/vnd.openxmlformats-officedocument.presentationml.presentation"
+    );
+
+    private static final Set<String> UNCOMPRESSED_MEDIA_TYPES = Set.of(
+            "image/bmp",
+            "image/svg+xml",
+            "image/tiff",
+            "audio/wav",
+            "audio/x-wav"
+    );
+
+    private final FileRepository fileRepository;
+    private final StorageBackend storageBackend;
+
+    @Value("${file.archive.max-files:1000}")
+    private int maxFiles;
+
+    @Value("${file.archive.compression-level:1}")
+    private int compressionLevel;
+
+    /**
+     * Writes the files as one ZIP archive straight to the response.
+     * Entries are copied from disk through fixed-size buffers, so memory use does not depend on the archive size.
+     */
+    @Override
+    public void streamArchive(List<UUID> ids, HttpServletResponse response) {
+        if (ids.size() > maxFiles) {
+            throw new BadRequestException(String.format("Cannot download more than %d files at once", maxFiles),
+                                          null);
+        }
+
+        List<com.personal.spring_questly.model.File> files = this.findLiveFiles(ids);
+
+        if (files.isEmpty()) {
+            throw new NotFoundException("Resource not found", null);
+        }
+
+        log.info("Stream archive of {} files", files.size());
+
+        response.setContentType("application/zip");
+        response.setHeader(HttpHeaders.CONTENT_DISPOSITION,
+                           ContentDisposition.attachment().filename("files.zip").build().toString());
+        response.setHeader(HttpHeaders.CACHE_CONTROL, "no-store");
+
+        try {
+            OutputStream out = new BufferedOutputStream(response.getOutputStream(), BUFFER_SIZE);
+            ZipOutputStream zip = new ZipOutputStream(out);
+            zip.setLevel(compressionLevel);
+
+            ByteBuffer buffer = ByteBuffer.allocate(BUFFER_SIZE);
+            Set<String> entryNames = new HashSet<>();
+
+            for (com.personal.spring_questly.model.File file : files) {
+                String entryName = file.getModuleName() + "/" + file.getName();
+
+                if (entryNames.add(entryName)) {
+                    this.writeEntry(zip, entryName, file, buffer);
+                }
+            }
+
+            // Ends the archive without closing the servlet stream
+            zip.finish();
+            out.flush();
+        } catch (IOException ex) {
+            // Headers are sent by now, the client sees a truncated archive
+            log.info("Stream archive failed: {}", ex.getMessage());
+            throw new InternalServerErrorException("Cannot stream archive", null);
+        }
+    }
+
+    private void writeEntry(ZipOutputStream zip, String entryName, com.personal.spring_questly.model.File file,
+                            ByteBuffer buffer) throws IOException {
+        String storageKey = FileLayoutUtil.getStorageKey(file.getModuleName(), file.getName());
+        Path filePath = storageBackend.getLocalPath(storageKey);
+
+        if (filePath == null) {
+            this.writeRemoteEntry(zip, entryName, storageKey, file, buffer);
+            return;
+        }
+
+        try (FileChannel channel = FileChannel.open(filePath, StandardOpenOption.READ)) {
+            BasicFileAttributes attributes = Files.readAttributes(filePath, BasicFileAttributes.class);
+
+            ZipEntry entry = new ZipEntry(entryName);
+            entry.setLastModifiedTime(attributes.lastModifiedTime());
+
+            if (this.isCompressed(file.getType())) {
+                // STORED entries need their size and CRC up front, which costs one extra read of the file
+                entry.setMethod(ZipEntry.STORED);
+                entry.setSize(channel.size());
+                entry.setCompressedSize(channel.size());
+                entry.setCrc(this.computeCrc(channel, buffer));
+                channel.position(0);
+            }
+
+            zip.putNextEntry(entry);
+
+            while (channel.read(buffer.clear()) != -1) {
+                zip.write(buffer.array(), 0, buffer.position());
+            }
+
+            zip.closeEntry();
+        } catch (NoSuchFileException ex) {
+            // Deleted since the rows were read, leave it out rather than failing the whole archive
+            log.info("Skip missing file in archive: {}", entryName);
+        }
+    }
+
+    /**
+     * Same as a local entry, but a STORED entry downloads the object twice, once for its CRC.
+     */
+    private void writeRemoteEntry(ZipOutputStream zip, String entryName, String storageKey,
+                                  com.personal.spring_questly.model.File file, ByteBuffer buffer) throws IOException {
+        try {
+            ZipEntry entry = new ZipEntry(entryName);
+
+            if (file.getCreatedAt() != null) {
+                entry.setLastModifiedTime(FileTime.from(file.getCreatedAt()));
+            }
+
+            if (this.isCompressed(file.getType())) {
+                CRC32 crc = new CRC32();
+                long size = 0;
+
+                try (InputStream in = storageBackend.get(storageKey)) {
+                    int read;
+
+                    while ((read = in.read(buffer.array())) != -1) {
+                        crc.update(buffer.array(), 0, read);
+                        size += read;
+                    }
+                }
+
+                entry.setMethod(ZipEntry.STORED);
+                entry.setSize(size);
+                entry.setCompressedSize(size);
+                entry.setCrc(crc.getValue());
+            }
+
+            try (InputStream in = storageBackend.get(storageKey)) {
+                zip.putNextEntry(entry);
+
+                int read;
+
+                while ((read = in.read(buffer.array())) != -1) {
+                    zip.write(buffer.array(), 0, read);
+                }
+            }
+
+            zip.closeEntry();
+        } catch (NoSuchFileException ex) {
+            log.info("Skip missing file in archive: {}", entryName);
+        }
+    }
+
+    private long computeCrc(FileChannel channel, ByteBuffer buffer) throws IOException {
+        CRC32 crc = new CRC32();
+
+        while (channel.read(buffer.clear()) != -1) {
+            crc.update(buffer.flip());
+        }
+
+        return crc.getValue();
+    }
+
+    private boolean isCompressed(String mimeType) {
+        if (mimeType == null) {
+            return false;
+        }
+
+        String type = mimeType.toLowerCase(Locale.ROOT);
+
+        if (COMPRESSED_MIME_TYPES.contains(type)) {
+            return true;
+        }
+
+        return (type.startsWith("image/") || type.startsWith("video/") || type.startsWith("audio/"))
+                && !UNCOMPRESSED_MEDIA_TYPES.contains(type);
+    }
+
+    /**
+     * Live rows in the requested order, unknown and tombstoned ids are left out.
+     */
+    private List<com.personal.spring_questly.model.File> findLiveFiles(List<UUID> ids) {
+        Map<UUID, com.personal.spring_questly.model.File> filesById =
+                fileRepository.findAllById(ids)
+                              .stream()
+                              .filter(file -> file.getDeletedAt() == null)
+                              .collect(Collectors.toMap(com.personal.spring_questly.model.File::getId,
+                                                        Function.identity()));
+
+        return ids.stream()
+                  .distinct()
+                  .map(filesById::get)
+                  .filter(Objects::nonNull)
+                  .toList();
+    }
+}
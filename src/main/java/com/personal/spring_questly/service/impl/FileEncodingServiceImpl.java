@@ -0,0 +1,195 @@
+package com.personal.spring_questly.service.impl;
+
+import com.personal.spring_questly.dto.file.FileMetadataDTO;
+import com.personal.spring_questly.service.FileEncodingService;
+import com.personal.spring_questly.service.StorageBackend;
+import com.personal.spring_questly.util.FileLayoutUtil;
+import com.personal.spring_questly.util.LevelGZIPOutputStream;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.util.unit.DataSize;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.Locale;
+import java.util.Set;
+
+/**
+ * Keeps a gzip copy of compressible files under its own directory, apart from the image variants,
+ * so the copies never count against the variant limit of a file.
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class FileEncodingServiceImpl implements FileEncodingService {
+    public static final String PRECOMPRESSED_EXTENSION = ".gz";
+
+    private static final int BUFFER_SIZE = 64 * 1024;
+
+    private static final Set<String> COMPRESSIBLE_MIME_TYPES = Set.of(
+            "application/json",
+            "application/xml",
+            "application/javascript",
+            "application/x-ndjson",
+            "application/x-yaml",
+            "application/yaml",
+            "application/rtf",
+            "image/svg+xml",
+            "image/bmp"
+    );
+
+    private final StorageBackend storageBackend;
+
+    @Value("${file.precompressed-dir:./precompressed/}")
+    private String precompressedDir;
+
+    @Value("${file.compression.enabled:true}")
+    private boolean isEnabled;
+
+    // Below this the gzip framing costs about as much as compression saves
+    @Value("${file.compression.min-size:1KB}")
+    private DataSize minSize;
+
+    @Value("${file.compression.level:9}")
+    private int level;
+
+    // Copies that save less than this are not kept
+    @Value("${file.compression.max-ratio:0.9}")
+    private double maxRatio;
+
+    @Override
+    public boolean isCompressible(FileMetadataDTO metadata) {
+        return isEnabled
+                && metadata.size() >= minSize.toBytes()
+                && this.isCompressibleType(metadata.mimeType());
+    }
+
+    /**
+     * Compressed once after upload with the highest level, later requests are served the copy as it is.
+     * Failing here is not fatal, the file is then compressed while it is streamed.
+     * Returns true when a copy was written.
+     */
+    @Override
+    public boolean precompress(String moduleName, String fileName, String mimeType) {
+        if (!isEnabled || !this.isCompressibleType(mimeType)) {
+            return false;
+        }
+
+        String storageKey = FileLayoutUtil.getStorageKey(moduleName, fileName);
+        Path filePath = storageBackend.getLocalPath(storageKey);
+
+        // Remote objects are compressed while they are streamed
+        if (filePath == null) {
+            return false;
+        }
+
+        Path precompressedPath = this.getPrecompressedPath(storageKey);
+
+        try {
+            long size = Files.size(filePath);
+
+            if (size < minSize.toBytes()) {
+                return false;
+            }
+
+            Files.createDirectories(precompressedPath.getParent());
+            Path tempPath = Files.createTempFile(precompressedPath.getParent(), "precompressed-", ".tmp");
+
+            try {
+                try (InputStream in = Files.newInputStream(filePath);
+                     OutputStream out = new LevelGZIPOutputStream(Files.newOutputStream(tempPath), level,
+                                                                  BUFFER_SIZE)) {
+                    in.transferTo(out);
+                }
+
+                if (Files.size(tempPath) > size * maxRatio) {
+                    log.info("Skip precompressing {}, saves too little", storageKey);
+                    return false;
+                }
+
+                // Readers never see a half written copy
+                Files.move(tempPath, precompressedPath, StandardCopyOption.ATOMIC_MOVE);
+            } finally {
+                Files.deleteIfExists(tempPath);
+            }
+        } catch (IOException ex) {
+            log.info("Precompress {} failed: {}", storageKey, ex.getMessage());
+            return false;
+        }
+
+        return true;
+    }
+
+    /**
+     * Returns null when the file has no compressed copy.
+     * Called when the file metadata is loaded, the result is cached along with it.
+     */
+    @Override
+    public FileMetadataDTO getPrecompressed(FileMetadataDTO original) {
+        if (original.storageKey() == null) {
+            return null;
+        }
+
+        Path precompressedPath = this.getPrecompressedPath(original.storageKey());
+        BasicFileAttributes attributes;
+
+        try {
+            attributes = Files.readAttributes(precompressedPath, BasicFileAttributes.class);
+        } catch (NoSuchFileException ex) {
+            return null;
+        } catch (IOException ex) {
+            log.info("Cannot read precompressed file {}: {}", precompressedPath, ex.getMessage());
+            return null;
+        }
+
+        return FileMetadataDTO.builder()
+                              .file(precompressedPath.toAbsolutePath().toFile())
+                              .storageKey(original.storageKey())
+                              .mimeType(original.mimeType())
+                              .size(attributes.size())
+                              .lastModified(original.lastModified())
+                              .disposition(original.disposition())
+                              // Each encoding is its own representation and needs its own tag
+                              .etag(original.etag() != null ? original.etag() + "-gzip" : null)
+                              .contentEncoding("gzip")
+                              .build();
+    }
+
+    @Override
+    public void deletePrecompressed(String moduleName, String fileName) {
+        Path precompressedPath = this.getPrecompressedPath(FileLayoutUtil.getStorageKey(moduleName, fileName));
+
+        try {
+            Files.deleteIfExists(precompressedPath);
+        } catch (IOException ex) {
+            log.info("Cannot delete precompressed file {}: {}", precompressedPath, ex.getMessage());
+        }
+    }
+
+    private boolean isCompressibleType(String mimeType) {
+        if (mimeType == null) {
+            return false;
+        }
+
+        // Parameters such as charset do not matter here
+        String type = mimeType.split(";", 2)[0].trim().toLowerCase(Locale.ROOT);
+
+        return type.startsWith("text/")
+                || type.endsWith("+json")
+                || type.endsWith("+xml")
+                || COMPRESSIBLE_MIME_TYPES.contains(type);
+    }
+
+    private Path getPrecompressedPath(String storageKey) {
+        return Paths.get(precompressedDir, storageKey + PRECOMPRESSED_EXTENSION);
+    }
+}
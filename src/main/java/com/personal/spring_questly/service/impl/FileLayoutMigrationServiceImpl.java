@@ -0,0 +1,182 @@
+package com.personal.spring_questly.service.impl;
+
+import com.personal.spring_questly.service.FileLayoutMigrationService;
+import com.personal.spring_questly.service.FileService;
+import com.personal.spring_questly.util.FileLayoutUtil;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.FileAlreadyExistsException;
+import java.nio.file.FileSystemException;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Moves files stored before sharding into the sharded layout while the application serves them.
+ * Each run links a batch of legacy files at their sharded path and unlinks the batch of the previous run,
+ * so readers that resolved a legacy path get a whole interval to finish with it.
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class FileLayoutMigrationServiceImpl implements FileLayoutMigrationService {
+    private final FileLayoutUtil fileLayoutUtil;
+    private final FileService fileService;
+
+    // Linked by the previous run, their legacy paths are unlinked by the next one
+    private final List<MigratedFile> pendingFiles = new ArrayList<>();
+
+    @Value("${file.layout-migration.enabled:false}")
+    private boolean isEnabled;
+
+    @Value("${file.layout-migration.batch-size:500}")
+    private int batchSize;
+
+    /**
+     * Returns how many files were moved by this run, 0 once the migration is done.
+     */
+    @Override
+    @Scheduled(fixedDelayString = "${file.layout-migration.interval:PT10S}")
+    public int migrateNextBatch() {
+        if (!isEnabled) {
+            return 0;
+        }
+
+        this.unlinkPendingFiles();
+
+        try {
+            this.linkLegacyFiles();
+
+            if (!pendingFiles.isEmpty()) {
+                log.info("Migrating {} files to the sharded layout", pendingFiles.size());
+            }
+
+            return pendingFiles.size();
+        } catch (IOException ex) {
+            log.info("File layout migration failed: {}", ex.getMessage());
+            return 0;
+        }
+    }
+
+    private void unlinkPendingFiles() {
+        for (MigratedFile file : pendingFiles) {
+            try {
+                Files.deleteIfExists(file.legacyPath());
+            } catch (IOException ex) {
+                // Picked up again by the next scan
+                log.info("Cannot unlink legacy file {}: {}", file.legacyPath(), ex.getMessage());
+            }
+
+            fileService.invalidateCachedFile(file.moduleName(), file.fileName());
+        }
+
+        pendingFiles.clear();
+    }
+
+    private void linkLegacyFiles() throws IOException {
+        Path uploadDir = fileLayoutUtil.getModuleDir(null);
+
+        if (!Files.isDirectory(uploadDir)) {
+            return;
+        }
+
+        // Files uploaded without a module sit right in the upload dir
+        this.linkLegacyFiles(null, uploadDir);
+
+        try (DirectoryStream<Path> moduleDirs = Files.newDirectoryStream(uploadDir, Files::isDirectory)) {
+            for (Path moduleDir : moduleDirs) {
+                String moduleName = moduleDir.getFileName().toString();
+
+                if (pendingFiles.size() >= batchSize) {
+                    break;
+                }
+
+                // Dot-prefixed directories are reserved for the blob store and upload sessions
+                if (!moduleName.startsWith(".")) {
+                    this.linkLegacyFiles(moduleName, moduleDir);
+                }
+            }
+        }
+
+        // Lookups resolve the sharded path from now on, drop entries cached with the legacy one
+        for (MigratedFile file : pendingFiles) {
+            fileService.invalidateCachedFile(file.moduleName(), file.fileName());
+        }
+    }
+
+    private void linkLegacyFiles(String moduleName, Path moduleDir) throws IOException {
+        // Shard directories are skipped, only legacy files are plain files at this level
+        try (DirectoryStream<Path> entries = Files.newDirectoryStream(moduleDir, Files::isRegularFile)) {
+            for (Path legacyPath : entries) {
+                if (pendingFiles.size() >= batchSize) {
+                    return;
+                }
+
+                String fileName = legacyPath.getFileName().toString();
+
+                if (this.linkToShard(moduleName, fileName, legacyPath)) {
+                    pendingFiles.add(new MigratedFile(moduleName, fileName, legacyPath));
+                }
+            }
+        }
+    }
+
+    private boolean linkToShard(String moduleName, String fileName, Path legacyPath) {
+        Path filePath = fileLayoutUtil.getFilePath(moduleName, fileName);
+
+        try {
+            Files.createDirectories(filePath.getParent());
+            Files.createLink(filePath, legacyPath);
+        } catch (FileAlreadyExistsException ex) {
+            // Linked by a run that did not get to unlink the legacy path
+        } catch (NoSuchFileException ex) {
+            // Deleted in the meantime
+            return false;
+        } catch (UnsupportedOperationException | FileSystemException ex) {
+            return this.copyToShard(legacyPath, filePath);
+        } catch (IOException ex) {
+            log.info("Cannot link {} into the sharded layout: {}", legacyPath, ex.getMessage());
+            return false;
+        }
+
+        return true;
+    }
+
+    private boolean copyToShard(Path legacyPath, Path filePath) {
+        try {
+            // File system without hard links, copy aside first so readers never see a partial file
+            Path tempDir = Files.createDirectories(fileLayoutUtil.getModuleDir(BlobServiceImpl.TEMP_DIR));
+            Path tempFile = Files.createTempFile(tempDir, "layout-", ".tmp");
+
+            try {
+                Files.copy(legacyPath, tempFile, StandardCopyOption.REPLACE_EXISTING);
+                Files.move(tempFile, filePath, StandardCopyOption.ATOMIC_MOVE);
+            } finally {
+                Files.deleteIfExists(tempFile);
+            }
+
+            return true;
+        } catch (IOException ex) {
+            log.info("Cannot copy {} into the sharded layout: {}", legacyPath, ex.getMessage());
+            return false;
+        }
+    }
+
+    private record MigratedFile(
+            String moduleName,
+
+            String fileName,
+
+            Path legacyPath
+    ) {
+    }
+}
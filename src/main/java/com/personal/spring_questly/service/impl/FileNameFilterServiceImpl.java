@@ -0,0 +1,331 @@
+package com.personal.spring_questly.service.impl;
+
+import com.personal.spring_questly.repository.FileRepository;
+import com.personal.spring_questly.service.FileNameFilterService;
+import com.personal.spring_questly.util.BloomFilter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.util.unit.DataSize;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Keeps a Bloom filter of the live file names of every module, so names that were never uploaded
+ * are answered as missing without touching the disk or the database.
+ * Filters are built from the files table once the app is up and rebuilt from time to time. Uploads
+ * are added right away, names uploaded on other instances are picked up on every refresh.
+ * Negatives are never checked against the database, so a name uploaded on another instance
+ * is answered as missing here for up to one refresh interval.
+ * Deleted names stay in a filter until it is rebuilt, their lookups just take the regular path.
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class FileNameFilterServiceImpl implements FileNameFilterService {
+    private static final int PAGE_SIZE = 10000;
+
+    private final Map<String, ModuleFilter> filters = new ConcurrentHashMap<>();
+    private final Set<String> staleModules = ConcurrentHashMap.newKeySet();
+
+    private final FileRepository fileRepository;
+    private final MeterRegistry meterRegistry;
+
+    private volatile boolean isReady;
+    private volatile double sizeRatio = 1;
+    private Instant refreshedAt;
+
+    @Value("${file.name-filter.enabled:true}")
+    private boolean isEnabled;
+
+    @Value("${file.name-filter.fpp:0.01}")
+    private double fpp;
+
+    // Every module gets room for at least this many names, so small modules are not rebuilt on every upload
+    @Value("${file.name-filter.min-expected-names:1024}")
+    private long minExpectedNames;
+
+    // Filters are sized down, which raises the false positive rate, once all of them would need more
+    @Value("${file.name-filter.max-size:64MB}")
+    private DataSize maxSize;
+
+    // Other instances set created_at from their own clocks
+    @Value("${file.name-filter.refresh-overlap:PT1M}")
+    private Duration refreshOverlap;
+
+    @PostConstruct
+    public void registerMetrics() {
+        Gauge.builder("file.name.filter.size", this, FileNameFilterServiceImpl::getSizeInBytes)
+             .baseUnit("bytes")
+             .description("Memory held by the file name filters")
+             .register(meterRegistry);
+
+        Gauge.builder("file.name.filter.fpp", this, service -> service.fpp)
+             .tag("type", "configured")
+             .description("False positive rate the filters are sized for")
+             .register(meterRegistry);
+
+        Gauge.builder("file.name.filter.fpp", this, FileNameFilterServiceImpl::getEstimatedFpp)
+             .tag("type", "estimated")
+             .description("Highest false positive rate of any module, estimated from the bits set")
+             .register(meterRegistry);
+
+        Gauge.builder("file.name.filter.modules", filters, Map::size)
+             .description("Modules with a file name filter")
+             .register(meterRegistry);
+    }
+
+    /**
+     * Always true until the filters are built or when they are disabled.
+     */
+    @Override
+    public boolean mightExist(String moduleName, String fileName) {
+        if (!isEnabled || !isReady || moduleName == null || fileName == null) {
+            return true;
+        }
+
+        ModuleFilter moduleFilter = filters.get(moduleName);
+        boolean mightExist = moduleFilter != null && moduleFilter.mightContain(fileName);
+
+        if (!mightExist) {
+            meterRegistry.counter("file.name.filter.negatives").increment();
+        }
+
+        return mightExist;
+    }
+
+    @Override
+    public void add(String moduleName, String fileName) {
+        if (!isEnabled || moduleName == null || fileName == null) {
+            return;
+        }
+
+        ModuleFilter moduleFilter = filters.computeIfAbsent(moduleName,
+                key -> new ModuleFilter(this.createFilter(minExpectedNames), minExpectedNames));
+
+        if (moduleFilter.add(fileName)) {
+            staleModules.add(moduleName);
+        }
+    }
+
+    @Override
+    public void remove(String moduleName, String fileName) {
+        ModuleFilter moduleFilter = moduleName != null ? filters.get(moduleName) : null;
+
+        if (moduleFilter != null && moduleFilter.remove()) {
+            staleModules.add(moduleName);
+        }
+    }
+
+    /**
+     * Builds the filters on the first run. Later runs add names uploaded on other instances and
+     * rebuild the modules that are overfilled or hold too many deleted names.
+     */
+    @Override
+    @Scheduled(fixedDelayString = "${file.name-filter.refresh-interval:PT5S}")
+    public synchronized void refresh() {
+        if (!isEnabled) {
+            return;
+        }
+
+        if (!isReady) {
+            this.rebuild();
+            return;
+        }
+
+        Instant startedAt = Instant.now();
+        Instant since = refreshedAt.minus(refreshOverlap);
+        List<com.personal.spring_questly.model.File> files;
+
+        do {
+            files = fileRepository.findLiveCreatedSince(since, PageRequest.of(0, PAGE_SIZE));
+            files.forEach(file -> this.add(file.getModuleName(), file.getName()));
+
+            Instant lastCreatedAt = files.isEmpty() ? since : files.get(files.size() - 1).getCreatedAt();
+
+            // A full page created in the same instant would otherwise be read forever
+            if (!lastCreatedAt.isAfter(since)) {
+                break;
+            }
+
+            since = lastCreatedAt;
+        } while (files.size() == PAGE_SIZE);
+
+        refreshedAt = startedAt;
+
+        for (String moduleName : Set.copyOf(staleModules)) {
+            staleModules.remove(moduleName);
+            this.rebuildModule(moduleName, fileRepository.countLiveByModuleName(moduleName));
+        }
+    }
+
+    /**
+     * Rebuilding also drops deleted names and sizes every filter for its module again.
+     */
+    @Override
+    @Scheduled(fixedDelayString = "${file.name-filter.rebuild-interval:PT6H}",
+            initialDelayString = "${file.name-filter.rebuild-interval:PT6H}")
+    public synchronized void rebuild() {
+        if (!isEnabled) {
+            return;
+        }
+
+        log.info("Rebuild file name filters...");
+
+        Instant startedAt = Instant.now();
+        Map<String, Long> counts = new HashMap<>();
+
+        for (String moduleName : fileRepository.findLiveModuleNames()) {
+            counts.put(moduleName, fileRepository.countLiveByModuleName(moduleName));
+        }
+
+        // Modules emptied since the last build keep a small filter, uploads may still be on their way
+        filters.keySet().forEach(moduleName -> counts.putIfAbsent(moduleName, 0L));
+
+        long optimalBits = counts.values()
+                                 .stream()
+                                 .mapToLong(count -> BloomFilter.getOptimalBitSize(this.getExpectedNames(count), fpp))
+                                 .sum();
+
+        sizeRatio = Math.min(1, (double) maxSize.toBytes() * 8 / Math.max(1, optimalBits));
+
+        if (sizeRatio < 1) {
+            log.info("File name filters exceed {}, sized down to {}", maxSize, sizeRatio);
+        }
+
+        counts.forEach(this::rebuildModule);
+
+        refreshedAt = startedAt;
+        isReady = true;
+
+        log.info("Rebuilt file name filters of {} modules", counts.size());
+    }
+
+    private void rebuildModule(String moduleName, long count) {
+        long expectedNames = this.getExpectedNames(count);
+        ModuleFilter moduleFilter = filters.computeIfAbsent(moduleName,
+                key -> new ModuleFilter(this.createFilter(expectedNames), expectedNames));
+
+        // Uploads seen while the names are read are added again afterwards
+        moduleFilter.startRebuild();
+
+        try {
+            BloomFilter filter = this.createFilter(expectedNames);
+            long names = 0;
+            String afterName = "";
+            List<String> page;
+
+            do {
+                page = fileRepository.findLiveNamesAfter(moduleName, afterName, PageRequest.of(0, PAGE_SIZE));
+                page.forEach(filter::put);
+                names += page.size();
+                afterName = page.isEmpty() ? afterName : page.get(page.size() - 1);
+            } while (page.size() == PAGE_SIZE);
+
+            moduleFilter.finishRebuild(filter, expectedNames, names);
+        } catch (RuntimeException ex) {
+            // The old filter stays, it holds every name the new one would
+            moduleFilter.cancelRebuild();
+            staleModules.add(moduleName);
+            log.info("Rebuild file name filter of {} failed: {}", moduleName, ex.getMessage());
+        }
+    }
+
+    // Twice the current names, so a module can grow for a while before it is rebuilt
+    private long getExpectedNames(long count) {
+        return Math.max(count * 2, minExpectedNames);
+    }
+
+    private BloomFilter createFilter(long expectedNames) {
+        return BloomFilter.create(expectedNames, fpp, sizeRatio);
+    }
+
+    private long getSizeInBytes() {
+        return filters.values()
+                      .stream()
+                      .mapToLong(moduleFilter -> moduleFilter.filter.getSizeInBytes())
+                      .sum();
+    }
+
+    private double getEstimatedFpp() {
+        return filters.values()
+                      .stream()
+                      .mapToDouble(moduleFilter -> moduleFilter.filter.getEstimatedFpp())
+                      .max()
+                      .orElse(0);
+    }
+
+    private static class ModuleFilter {
+        // Replaced as a whole on rebuild, so readers never take the lock
+        private volatile BloomFilter filter;
+
+        private long expectedNames;
+        private long names;
+        private long removedNames;
+        private Set<String> namesAddedDuringRebuild;
+
+        ModuleFilter(BloomFilter filter, long expectedNames) {
+            this.filter = filter;
+            this.expectedNames = expectedNames;
+        }
+
+        boolean mightContain(String fileName) {
+            return filter.mightContain(fileName);
+        }
+
+        /**
+         * Returns true once the filter holds more names than it was sized for.
+         */
+        synchronized boolean add(String fileName) {
+            // Names seen before, for example again on a refresh, are not counted twice
+            if (filter.put(fileName)) {
+                names++;
+            }
+
+            if (namesAddedDuringRebuild != null) {
+                namesAddedDuringRebuild.add(fileName);
+            }
+
+            return names > expectedNames;
+        }
+
+        /**
+         * Returns true once a quarter of the names are deleted ones.
+         */
+        synchronized boolean remove() {
+            removedNames++;
+            return removedNames * 4 > names;
+        }
+
+        synchronized void startRebuild() {
+            namesAddedDuringRebuild = new HashSet<>();
+        }
+
+        synchronized void finishRebuild(BloomFilter rebuilt, long expectedNames, long names) {
+            namesAddedDuringRebuild.forEach(rebuilt::put);
+
+            this.filter = rebuilt;
+            this.expectedNames = expectedNames;
+            this.names = names + namesAddedDuringRebuild.size();
+            this.removedNames = 0;
+            this.namesAddedDuringRebuild = null;
+        }
+
+        synchronized void cancelRebuild() {
+            namesAddedDuringRebuild = null;
+        }
+    }
+}
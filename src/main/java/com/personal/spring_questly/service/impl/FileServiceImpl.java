@@ -1,34 +1,95 @@
 package com.personal.spring_questly.service.impl;
 
+import com.personal.spring_questly.dto.common.CursorPaginationDTO;
 import com.personal.spring_questly.dto.file.BulkDeleteFilesResponseDTO;
 import com.personal.spring_questly.dto.file.FileDTO;
+import com.personal.spring_questly.dto.file.FileMetadataDTO;
+import com.personal.spring_questly.dto.file.StoredObjectDTO;
 import com.personal.spring_questly.exception.CustomException.BadRequestException;
 import com.personal.spring_questly.exception.CustomException.NotFoundException;
 import com.personal.spring_questly.repository.FileRepository;
+import com.personal.spring_questly.service.BlobService;
+import com.personal.spring_questly.service.FileEncodingService;
+import com.personal.spring_questly.service.FileNameFilterService;
 import com.personal.spring_questly.service.FileService;
+import com.personal.spring_questly.service.HotFileCacheService;
+import com.personal.spring_questly.service.ImageVariantService;
+import com.personal.spring_questly.service.StorageQuotaService;
+import com.personal.spring_questly.service.StorageBackend;
+import com.personal.spring_questly.util.FileLayoutUtil;
+import com.personal.spring_questly.util.LimitedInputStream;
+import com.personal.spring_questly.util.MultipartStreamReader;
+import com.personal.spring_questly.util.SecurityUtil;
+import com.github.benmanes.caffeine.cache.Cache;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Qualifier;
 import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.task.TaskExecutor;
+import org.springframework.core.task.TaskRejectedException;
+import org.springframework.http.MediaType;
 import org.springframework.stereotype.Service;
+import org.springframework.util.unit.DataSize;
 import org.springframework.web.multipart.MultipartFile;
 
 import java.io.File;
 import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
 import java.nio.file.Files;
 import java.nio.file.Path;
-import java.nio.file.Paths;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.time.Instant;
+import java.time.format.DateTimeParseException;
 import java.util.ArrayList;
+import java.util.Base64;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Optional;
 import java.util.UUID;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Function;
+import java.util.stream.Collectors;
 
 @Service
 @RequiredArgsConstructor
 @Slf4j
 public class FileServiceImpl implements FileService {
     private final FileRepository fileRepository;
-
-    @Value("${file.upload-dir}")
-    private String uploadDir;
+    private final BlobService blobService;
+    @Qualifier("fileUploadExecutor")
+    private final TaskExecutor fileUploadExecutor;
+    private final Cache<String, FileMetadataDTO> fileMetadataCache;
+    private final HotFileCacheService hotFileCacheService;
+    private final ImageVariantService imageVariantService;
+    private final FileLayoutUtil fileLayoutUtil;
+    private final StorageBackend storageBackend;
+    private final FileEncodingService fileEncodingService;
+    @Qualifier("fileCompressionExecutor")
+    private final TaskExecutor fileCompressionExecutor;
+    private final StorageQuotaService storageQuotaService;
+    private final FileNameFilterService fileNameFilterService;
+
+    @Value("${spring.servlet.multipart.max-file-size:10MB}")
+    private DataSize maxFileSize;
+
+    @Value("${spring.servlet.multipart.max-request-size:15MB}")
+    private DataSize maxRequestSize;
+
+    @Value("${file.listing.default-limit:50}")
+    private int defaultListLimit;
+
+    @Value("${file.listing.max-limit:200}")
+    private int maxListLimit;
+
+    @Value("${file.listing.max-ids:500}")
+    private int maxGetIds;
 
     public static FileDTO mapToDTO(com.personal.spring_questly.model.File file) {
         return FileDTO.builder()
@@ -68,23 +129,18 @@ public class FileServiceImpl implements FileService {
     public String getFileDisposition(File file) {
         log.info("Get file disposition");
 
-        String prefix;
-
-        if (this.getFileMimeType(file).startsWith("image/")) {
-            prefix = "inline";
-        } else {
-            prefix = "attachment";
-        }
-
-        return String.format("%s; %s", prefix, file.getName());
+        return this.buildDisposition(this.getFileMimeType(file), file.getName());
     }
 
     @Override
     public File getFileByModuleNameAndFileName(String moduleName, String fileName) {
         log.info("Get file: {}/{}", moduleName, fileName);
 
-        File file =
-                new File(uploadDir + "/" + moduleName + "/" + fileName);
+        if (fileName == null || !fileNameFilterService.mightExist(moduleName, fileName)) {
+            throw new NotFoundException("Resource not found", null);
+        }
+
+        File file = fileLayoutUtil.resolveFilePath(moduleName, fileName).toFile();
 
         if (!file.exists() || !file.isFile()) {
             throw new NotFoundException("Resource not found", null);
@@ -93,69 +149,194 @@ public class FileServiceImpl implements FileService {
         return file;
     }
 
+    @Override
+    public String getFileETag(String moduleName, String fileName) {
+        return fileRepository.findByModuleNameAndName(moduleName, fileName)
+                             .filter(file -> file.getDeletedAt() == null)
+                             .map(com.personal.spring_questly.model.File::getEtag)
+                             .orElse(null);
+    }
+
+    @Override
+    public FileMetadataDTO getFileMetadata(String moduleName, String fileName) {
+        // Stored files never change in place, an entry stays valid until the file is deleted
+        return fileMetadataCache.get(this.getMetadataCacheKey(moduleName, fileName),
+                key -> this.loadFileMetadata(moduleName, fileName));
+    }
+
     @Override
     public List<com.personal.spring_questly.model.File> bulkUploadFiles(String moduleName, List<MultipartFile> files) {
+        try {
+            return this.bulkUploadFilesAsync(moduleName, files).join();
+        } catch (CompletionException ex) {
+            if (ex.getCause() instanceof RuntimeException cause) {
+                throw cause;
+            }
+
+            throw ex;
+        }
+    }
+
+    /**
+     * Validation and the quota check happen on the calling thread, the files are written on the
+     * upload executor and the returned future completes once their rows are saved.
+     */
+    @Override
+    public CompletableFuture<List<com.personal.spring_questly.model.File>> bulkUploadFilesAsync(
+            String moduleName, List<MultipartFile> files) {
         log.info("Bulk upload files for module: {}", moduleName);
 
-        List<com.personal.spring_questly.model.File> newFiles = new ArrayList<>();
+        this.validateModuleName(moduleName);
 
-        try {
-            for (MultipartFile file : files) {
-                String fileExtension = this.getFileExtension(file);
+        String owner = SecurityUtil.getCurrentUsername();
+        long totalSize = files.stream()
+                              .mapToLong(MultipartFile::getSize)
+                              .sum();
 
-                String randomFileName =
-                        UUID.randomUUID() + "-" + System.currentTimeMillis() + fileExtension;
+        // Checked against the declared sizes, so uploads over quota never reach the disk
+        storageQuotaService.reserve(moduleName, owner, totalSize, files.size());
 
-                String filePath = this.getFilePath(moduleName, randomFileName);
+        return this.uploadMultipartFiles(moduleName, owner, files)
+                   .whenComplete((newFiles, ex) -> {
+                       if (ex != null) {
+                           storageQuotaService.release(moduleName, owner, totalSize, files.size());
+                       }
+                   });
+    }
 
-                file.transferTo(new File(filePath));
+    private CompletableFuture<List<com.personal.spring_questly.model.File>> uploadMultipartFiles(String moduleName,
+                                                                              String owner,
+                                                                              List<MultipartFile> files) {
+        AtomicBoolean isFailed = new AtomicBoolean(false);
+        List<CompletableFuture<com.personal.spring_questly.model.File>> uploads =
+                new ArrayList<>(files.size());
 
-                String fileUri = this.getFileUri(moduleName, randomFileName);
+        for (int i = 0; i < files.size(); i++) {
+            MultipartFile file = files.get(i);
+            Integer index = files.size() > 1 ? i : null;
 
-                newFiles.add(com.personal.spring_questly.model.File.builder()
-                                                                   .name(randomFileName)
-                                                                   .moduleName(moduleName)
-                                                                   .type(file.getContentType())
-                                                                   .size((double) file.getSize() / 1024)
-                                                                   .index(files.size() > 1 ? files.indexOf(file) : null)
-                                                                   .uri(fileUri)
-                                                                   .build());
+            uploads.add(CompletableFuture.supplyAsync(() -> {
+                if (isFailed.get()) {
+                    throw new CancellationException("Bulk upload already failed");
+                }
+
+                try {
+                    return this.uploadMultipartFile(moduleName, owner, file, index);
+                } catch (RuntimeException ex) {
+                    isFailed.set(true);
+                    throw ex;
+                }
+            }, fileUploadExecutor));
+        }
+
+        // allOf only settles once every upload has finished, so rollback sees all of them
+        return CompletableFuture.allOf(uploads.toArray(CompletableFuture[]::new)).handle((ignored, ex) -> {
+            if (ex != null) {
+                log.info("Bulk upload files failed: {}", ex.getMessage());
+
+                for (CompletableFuture<com.personal.spring_questly.model.File> upload : uploads) {
+                    if (!upload.isCompletedExceptionally()) {
+                        this.rollbackUploadedFile(upload.join());
+                    }
+                }
+
+                throw new BadRequestException("Bulk upload files failed", null);
             }
-        } catch (Exception ex) {
-            for (com.personal.spring_questly.model.File uploadedFile : newFiles) {
-                File currUploadedFile =
-                        this.getFileByModuleNameAndFileName(uploadedFile.getModuleName(), uploadedFile.getName());
 
-                if (currUploadedFile.exists()) {
-                    currUploadedFile.delete();
+            List<com.personal.spring_questly.model.File> newFiles = uploads.stream()
+                                                                           .map(CompletableFuture::join)
+                                                                           .toList();
+
+            return this.saveUploadedFiles(newFiles);
+        });
+    }
+
+    @Override
+    public List<com.personal.spring_questly.model.File> streamUploadFiles(String moduleName,
+                                                                          String contentType,
+                                                                          InputStream body) {
+        log.info("Stream upload files for module: {}", moduleName);
+
+        this.validateModuleName(moduleName);
+
+        String boundary = MultipartStreamReader.extractBoundary(contentType);
+
+        if (boundary == null) {
+            throw new BadRequestException("Request must be multipart/form-data", null);
+        }
+
+        String owner = SecurityUtil.getCurrentUsername();
+        List<com.personal.spring_questly.model.File> newFiles = new ArrayList<>();
+
+        try {
+            MultipartStreamReader reader = new MultipartStreamReader(
+                    new LimitedInputStream(body, maxRequestSize.toBytes()), boundary);
+
+            MultipartStreamReader.Part part;
+
+            while ((part = reader.nextPart()) != null) {
+                if (part.isFile()) {
+                    InputStream content = new LimitedInputStream(part.body(), maxFileSize.toBytes());
+                    newFiles.add(this.storeFile(
+                            moduleName, owner, part.fileName(), part.contentType(), content, newFiles.size()));
                 }
             }
+        } catch (IOException | RuntimeException ex) {
+            log.info("Stream upload files failed: {}", ex.getMessage());
+            newFiles.forEach(this::rollbackUploadedFile);
+
+            if (ex instanceof LimitedInputStream.LimitExceededException) {
+                throw new BadRequestException("Uploaded file is too large", null);
+            }
 
             throw new BadRequestException("Bulk upload files failed", null);
         }
 
-        return fileRepository.saveAll(newFiles);
+        if (newFiles.isEmpty()) {
+            throw new BadRequestException("No files were uploaded", null);
+        }
+
+        if (newFiles.size() == 1) {
+            newFiles.get(0).setIndex(null);
+        }
+
+        return this.reserveAndSaveUploadedFiles(moduleName, owner, newFiles);
+    }
+
+    @Override
+    public com.personal.spring_questly.model.File uploadFile(String moduleName,
+                                                             String originalFileName,
+                                                             String contentType,
+                                                             InputStream content) {
+        log.info("Upload file for module: {}", moduleName);
+
+        this.validateModuleName(moduleName);
+
+        String owner = SecurityUtil.getCurrentUsername();
+        com.personal.spring_questly.model.File newFile;
+
+        try {
+            newFile = this.storeFile(moduleName, owner, originalFileName, contentType, content, null);
+        } catch (IOException ex) {
+            log.info("Upload file failed: {}", ex.getMessage());
+            throw new BadRequestException("Upload file failed", null);
+        }
+
+        return this.reserveAndSaveUploadedFiles(moduleName, owner, List.of(newFile)).get(0);
     }
 
     @Override
     public BulkDeleteFilesResponseDTO bulkDeleteFiles(List<UUID> ids) {
-        List<com.personal.spring_questly.model.File> filesToDelete =
-                fileRepository.findAllById(ids);
+        List<com.personal.spring_questly.model.File> filesToDelete = this.findLiveFiles(ids);
+
+        this.invalidateCachedFiles(filesToDelete);
 
         List<com.personal.spring_questly.model.File> deletedFiles = new ArrayList<>();
         List<com.personal.spring_questly.model.File> undeletedFiles = new ArrayList<>();
 
         for (com.personal.spring_questly.model.File file : filesToDelete) {
-            Path filePath = Paths.get(uploadDir, file.getModuleName(), file.getName());
-            File fileToDelete = filePath.toFile();
-
-            if (fileToDelete.exists()) {
-                boolean isDeleted = fileToDelete.delete();
-                if (isDeleted) {
-                    deletedFiles.add(file);
-                } else {
-                    undeletedFiles.add(file);
-                }
+            if (this.deleteFromDisk(file)) {
+                deletedFiles.add(file);
             } else {
                 undeletedFiles.add(file);
             }
@@ -164,6 +345,14 @@ public class FileServiceImpl implements FileService {
         // Delete successfully deleted files from DB
         if (!deletedFiles.isEmpty()) {
             fileRepository.deleteAll(deletedFiles);
+
+            // Physical blobs are only dropped once nothing references them anymore
+            for (com.personal.spring_questly.model.File file : deletedFiles) {
+                blobService.release(file.getBlobHash());
+                imageVariantService.deleteVariants(file.getModuleName(), file.getName());
+                fileEncodingService.deletePrecompressed(file.getModuleName(), file.getName());
+                this.releaseDeletedFile(file);
+            }
         }
 
         return BulkDeleteFilesResponseDTO.builder()
@@ -172,27 +361,409 @@ public class FileServiceImpl implements FileService {
                                          .build();
     }
 
-    private List<FileDTO> convertToFileDTOs(List<com.personal.spring_questly.model.File> files) {
-        return files.stream()
-                    .map(FileServiceImpl::mapToDTO)
-                    .toList();
+    /**
+     * Pages are read with a keyset instead of an offset and nothing is counted, so every page costs
+     * the same. One row more than asked is read to know whether another page follows.
+     */
+    @Override
+    public CursorPaginationDTO<List<FileDTO>> listFiles(String moduleName, String cursor, Integer limit) {
+        log.info("List files of module {}...", moduleName);
+
+        int pageSize = limit != null ? limit : defaultListLimit;
+
+        if (pageSize < 1 || pageSize > maxListLimit) {
+            throw new BadRequestException(String.format("Limit must be between 1 and %d", maxListLimit), null);
+        }
+
+        List<com.personal.spring_questly.model.File> files;
+
+        if (cursor == null || cursor.isBlank()) {
+            files = fileRepository.findLiveByModuleName(moduleName, pageSize + 1);
+        } else {
+            FileCursor fileCursor = decodeCursor(cursor);
+            files = fileRepository.findLiveByModuleNameAfter(
+                    moduleName, fileCursor.createdAt(), fileCursor.id(), pageSize + 1);
+        }
+
+        boolean hasMore = files.size() > pageSize;
+        List<com.personal.spring_questly.model.File> page = hasMore ? files.subList(0, pageSize) : files;
+
+        return CursorPaginationDTO.<List<FileDTO>>builder()
+                                  .nextCursor(hasMore ? encodeCursor(page.get(page.size() - 1)) : null)
+                                  .hasMore(hasMore)
+                                  .data(convertToFileDTOs(page))
+                                  .build();
+    }
+
+    /**
+     * Loaded with a single query, files that do not exist or are tombstoned are left out.
+     * The result keeps the order of the requested ids.
+     */
+    @Override
+    public List<FileDTO> getFiles(List<UUID> ids) {
+        log.info("Get {} files...", ids.size());
+
+        if (ids.size() > maxGetIds) {
+            throw new BadRequestException(String.format("Cannot get more than %d files at once", maxGetIds), null);
+        }
+
+        Map<UUID, com.personal.spring_questly.model.File> filesById =
+                fileRepository.findAllById(new LinkedHashSet<>(ids))
+                              .stream()
+                              .filter(file -> file.getDeletedAt() == null)
+                              .collect(Collectors.toMap(com.personal.spring_questly.model.File::getId,
+                                                        Function.identity()));
+
+        return ids.stream()
+                  .distinct()
+                  .map(filesById::get)
+                  .filter(Objects::nonNull)
+                  .map(FileServiceImpl::mapToDTO)
+                  .toList();
+    }
+
+    @Override
+    public void invalidateCachedFile(String moduleName, String fileName) {
+        fileMetadataCache.invalidate(this.getMetadataCacheKey(moduleName, fileName));
+
+        for (Path filePath : fileLayoutUtil.getAllFilePaths(moduleName, fileName)) {
+            hotFileCacheService.invalidate(filePath.toFile());
+        }
     }
 
-    private String getFilePath(String moduleName, String randomFileName) throws IOException {
-        File moduleDir = moduleName != null ?
-                new File(uploadDir + "/" + moduleName)
-                : new File(uploadDir);
+    @Override
+    public BulkDeleteFilesResponseDTO scheduleBulkDeleteFiles(List<UUID> ids) {
+        log.info("Schedule bulk delete of {} files", ids.size());
+
+        List<com.personal.spring_questly.model.File> filesToDelete = this.findLiveFiles(ids);
+
+        if (!filesToDelete.isEmpty()) {
+            // Tombstoned rows are hidden right away, FileSweepService removes them later
+            fileRepository.markDeleted(filesToDelete.stream()
+                                                    .map(com.personal.spring_questly.model.File::getId)
+                                                    .toList(), Instant.now());
 
-        if (!moduleDir.exists() && !moduleDir.mkdirs()) {
-            throw new IOException("Failed to create directory: " + moduleDir.getAbsolutePath());
+            this.invalidateCachedFiles(filesToDelete);
+
+            // Tombstoned files stop counting right away, the sweeper does not touch the usage again
+            filesToDelete.forEach(this::releaseDeletedFile);
         }
 
-        return moduleDir.getAbsolutePath() + "/" + randomFileName;
+        return BulkDeleteFilesResponseDTO.builder()
+                                         .deletedFiles(convertToFileDTOs(filesToDelete))
+                                         .undeletedFiles(List.of())
+                                         .build();
     }
 
-    private String getFileExtension(MultipartFile file) {
-        String originalFileName = file.getOriginalFilename();
+    private List<com.personal.spring_questly.model.File> findLiveFiles(List<UUID> ids) {
+        return fileRepository.findAllById(ids)
+                             .stream()
+                             .filter(file -> file.getDeletedAt() == null)
+                             .toList();
+    }
+
+    private void invalidateCachedFiles(List<com.personal.spring_questly.model.File> files) {
+        for (com.personal.spring_questly.model.File file : files) {
+            this.invalidateCachedFile(file.getModuleName(), file.getName());
+        }
+    }
+
+    /**
+     * Returns false when the file did not exist at all or could not be deleted.
+     */
+    private boolean deleteFromDisk(com.personal.spring_questly.model.File file) {
+        String storageKey = FileLayoutUtil.getStorageKey(file.getModuleName(), file.getName());
+
+        try {
+            return storageBackend.delete(storageKey);
+        } catch (IOException ex) {
+            log.info("Cannot delete file {}: {}", storageKey, ex.getMessage());
+            return false;
+        }
+    }
+
+    private com.personal.spring_questly.model.File uploadMultipartFile(String moduleName,
+                                                                       String owner,
+                                                                       MultipartFile file,
+                                                                       Integer index) {
+        String randomFileName = this.getRandomFileName(file.getOriginalFilename());
+
+        StoredObjectDTO storedObject;
+
+        try (InputStream in = file.getInputStream()) {
+            storedObject = storageBackend.put(FileLayoutUtil.getStorageKey(moduleName, randomFileName), in);
+        } catch (IOException ex) {
+            throw new UncheckedIOException(ex);
+        }
+
+        String fileUri = this.getFileUri(moduleName, randomFileName);
+
+        return com.personal.spring_questly.model.File.builder()
+                                                     .name(randomFileName)
+                                                     .moduleName(moduleName)
+                                                     .type(file.getContentType())
+                                                     .size((double) file.getSize() / 1024)
+                                                     .index(index)
+                                                     .uri(fileUri)
+                                                     .etag(storedObject.hash())
+                                                     .blobHash(storedObject.blobHash())
+                                                     .owner(owner)
+                                                     .build();
+    }
+
+    private com.personal.spring_questly.model.File storeFile(String moduleName,
+                                                             String owner,
+                                                             String originalFileName,
+                                                             String contentType,
+                                                             InputStream content,
+                                                             Integer index) throws IOException {
+        String randomFileName = this.getRandomFileName(originalFileName);
+
+        // Size and checksum are computed while the content is written
+        StoredObjectDTO storedObject =
+                storageBackend.put(FileLayoutUtil.getStorageKey(moduleName, randomFileName), content);
+
+        String fileUri = this.getFileUri(moduleName, randomFileName);
+
+        return com.personal.spring_questly.model.File.builder()
+                                                     .name(randomFileName)
+                                                     .moduleName(moduleName)
+                                                     .type(contentType)
+                                                     .size((double) storedObject.size() / 1024)
+                                                     .index(index)
+                                                     .uri(fileUri)
+                                                     .etag(storedObject.hash())
+                                                     .blobHash(storedObject.blobHash())
+                                                     .owner(owner)
+                                                     .build();
+    }
+
+    /**
+     * Sizes of streamed uploads are only known once they are written, so their quota is checked afterwards.
+     */
+    private List<com.personal.spring_questly.model.File> reserveAndSaveUploadedFiles(
+            String moduleName, String owner, List<com.personal.spring_questly.model.File> newFiles) {
+        long totalSize = newFiles.stream()
+                                 .mapToLong(FileServiceImpl::getSizeInBytes)
+                                 .sum();
+
+        try {
+            storageQuotaService.reserve(moduleName, owner, totalSize, newFiles.size());
+        } catch (RuntimeException ex) {
+            newFiles.forEach(this::rollbackUploadedFile);
+            throw ex;
+        }
+
+        try {
+            return this.saveUploadedFiles(newFiles);
+        } catch (RuntimeException ex) {
+            storageQuotaService.release(moduleName, owner, totalSize, newFiles.size());
+            throw ex;
+        }
+    }
+
+    private void releaseDeletedFile(com.personal.spring_questly.model.File file) {
+        storageQuotaService.release(file.getModuleName(), file.getOwner(), getSizeInBytes(file), 1);
+        fileNameFilterService.remove(file.getModuleName(), file.getName());
+    }
+
+    private static long getSizeInBytes(com.personal.spring_questly.model.File file) {
+        return file.getSize() != null ? Math.round(file.getSize() * 1024) : 0;
+    }
+
+    private List<com.personal.spring_questly.model.File> saveUploadedFiles(
+            List<com.personal.spring_questly.model.File> newFiles) {
+        List<com.personal.spring_questly.model.File> savedFiles;
+
+        try {
+            savedFiles = fileRepository.saveAll(newFiles);
+        } catch (RuntimeException ex) {
+            log.info("Saving uploaded files failed: {}", ex.getMessage());
+            newFiles.forEach(this::rollbackUploadedFile);
+
+            throw new BadRequestException("Bulk upload files failed", null);
+        }
+
+        savedFiles.forEach(file -> fileNameFilterService.add(file.getModuleName(), file.getName()));
+        savedFiles.forEach(this::precompressLater);
+
+        return savedFiles;
+    }
+
+    /**
+     * Compressing at the highest level takes a while, so it runs after the upload has returned.
+     * Metadata cached before the copy existed is dropped once the copy is written.
+     */
+    private void precompressLater(com.personal.spring_questly.model.File file) {
+        try {
+            fileCompressionExecutor.execute(() -> {
+                if (fileEncodingService.precompress(file.getModuleName(), file.getName(), file.getType())) {
+                    this.invalidateCachedFile(file.getModuleName(), file.getName());
+                }
+            });
+        } catch (TaskRejectedException ex) {
+            // Without a copy the file is compressed while it is streamed
+            log.info("Skip precompressing {}, compression queue is full", file.getName());
+        }
+    }
+
+    private FileMetadataDTO loadFileMetadata(String moduleName, String fileName) {
+        log.info("Load file metadata: {}/{}", moduleName, fileName);
+
+        // Names the filter has not seen are answered without any I/O, names uploaded on another
+        // instance are seen after its next refresh
+        if (fileName == null || !fileNameFilterService.mightExist(moduleName, fileName)) {
+            throw new NotFoundException("Resource not found", null);
+        }
+
+        String storageKey = FileLayoutUtil.getStorageKey(moduleName, fileName);
+        Path filePath = storageBackend.getLocalPath(storageKey);
+
+        if (filePath == null) {
+            return this.loadRemoteFileMetadata(moduleName, fileName, storageKey);
+        }
+
+        File file = filePath.toFile();
+        BasicFileAttributes attributes;
+
+        try {
+            attributes = Files.readAttributes(file.toPath(), BasicFileAttributes.class);
+        } catch (IOException ex) {
+            throw new NotFoundException("Resource not found", null);
+        }
+
+        if (!attributes.isRegularFile()) {
+            throw new NotFoundException("Resource not found", null);
+        }
+
+        Optional<com.personal.spring_questly.model.File> storedFile =
+                fileRepository.findByModuleNameAndName(moduleName, fileName);
+
+        if (storedFile.filter(storedRow -> storedRow.getDeletedAt() != null).isPresent()) {
+            // Tombstoned, the sweeper has not removed it from disk yet
+            throw new NotFoundException("Resource not found", null);
+        }
+
+        String mimeType = this.getFileMimeType(file);
+
+        if (mimeType == null) {
+            mimeType = storedFile.map(com.personal.spring_questly.model.File::getType)
+                                 .orElse(MediaType.APPLICATION_OCTET_STREAM_VALUE);
+        }
+
+        FileMetadataDTO metadata =
+                FileMetadataDTO.builder()
+                               .file(file.getAbsoluteFile())
+                               .storageKey(storageKey)
+                               .mimeType(mimeType)
+                               .size(attributes.size())
+                               .lastModified(attributes.lastModifiedTime().toMillis())
+                               .disposition(this.buildDisposition(mimeType, file.getName()))
+                               .etag(storedFile.map(com.personal.spring_questly.model.File::getEtag)
+                                               .orElse(null))
+                               .build();
+
+        if (!fileEncodingService.isCompressible(metadata)) {
+            return metadata;
+        }
+
+        // Looked up once here, downloads take the copy from the cached metadata without a stat call
+        return metadata.toBuilder()
+                       .precompressed(fileEncodingService.getPrecompressed(metadata))
+                       .build();
+    }
+
+    /**
+     * Remote objects are not stat-ed on every request, everything comes from the files row.
+     */
+    private FileMetadataDTO loadRemoteFileMetadata(String moduleName, String fileName, String storageKey) {
+        com.personal.spring_questly.model.File storedFile =
+                fileRepository.findByModuleNameAndName(moduleName, fileName)
+                              .filter(file -> file.getDeletedAt() == null)
+                              .orElseThrow(() -> new NotFoundException("Resource not found", null));
+
+        String mimeType = storedFile.getType() != null ? storedFile.getType()
+                : MediaType.APPLICATION_OCTET_STREAM_VALUE;
+        long size;
+
+        // The stored size is a KB double, range requests need the exact byte count
+        try {
+            size = storageBackend.getSize(storageKey);
+        } catch (IOException ex) {
+            throw new NotFoundException("Resource not found", null);
+        }
+
+        return FileMetadataDTO.builder()
+                              .storageKey(storageKey)
+                              .mimeType(mimeType)
+                              .size(size)
+                              .lastModified(storedFile.getCreatedAt().toEpochMilli())
+                              .disposition(this.buildDisposition(mimeType, fileName))
+                              .etag(storedFile.getEtag())
+                              .build();
+    }
+
+    private String buildDisposition(String mimeType, String fileName) {
+        String prefix;
+
+        if (mimeType.startsWith("image/")) {
+            prefix = "inline";
+        } else {
+            prefix = "attachment";
+        }
+
+        return String.format("%s; %s", prefix, fileName);
+    }
+
+    private String getMetadataCacheKey(String moduleName, String fileName) {
+        return moduleName + "/" + fileName;
+    }
+
+    private void validateModuleName(String moduleName) {
+        if (moduleName != null && moduleName.startsWith(".")) {
+            // Dot-prefixed directories under the upload dir are reserved for the blob store
+            throw new BadRequestException("Invalid module name", null);
+        }
+    }
+
+    private void rollbackUploadedFile(com.personal.spring_questly.model.File uploadedFile) {
+        this.deleteFromDisk(uploadedFile);
+
+        blobService.release(uploadedFile.getBlobHash());
+    }
+
+    // Opaque to clients, holds the sort key of the last row on the page
+    private static String encodeCursor(com.personal.spring_questly.model.File file) {
+        String value = file.getCreatedAt() + "," + file.getId();
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(value.getBytes(StandardCharsets.UTF_8));
+    }
+
+    private static FileCursor decodeCursor(String cursor) {
+        try {
+            String value = new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8);
+            String[] parts = value.split(",", 2);
+
+            return new FileCursor(Instant.parse(parts[0]), UUID.fromString(parts[1]));
+        } catch (IllegalArgumentException | DateTimeParseException | ArrayIndexOutOfBoundsException ex) {
+            throw new BadRequestException("Invalid cursor", null);
+        }
+    }
+
+    private record FileCursor(Instant createdAt, UUID id) {
+    }
+
+    private List<FileDTO> convertToFileDTOs(List<com.personal.spring_questly.model.File> files) {
+        return files.stream()
+                    .map(FileServiceImpl::mapToDTO)
+                    .toList();
+    }
+
+    private String getRandomFileName(String originalFileName) {
+        return UUID.randomUUID() + "-" + System.currentTimeMillis()
+                + this.getFileExtension(originalFileName);
+    }
 
+    private String getFileExtension(String originalFileName) {
         if (originalFileName == null || !originalFileName.contains(".")) {
             return "";
         }
@@ -0,0 +1,371 @@
+package com.personal.spring_questly.service.impl;
+
+import com.personal.spring_questly.dto.file.FileMetadataDTO;
+import com.personal.spring_questly.exception.CustomException.InternalServerErrorException;
+import com.personal.spring_questly.service.FileEncodingService;
+import com.personal.spring_questly.service.FileStreamService;
+import com.personal.spring_questly.service.HotFileCacheService;
+import com.personal.spring_questly.service.StorageBackend;
+import com.personal.spring_questly.util.AsyncFileTransfer;
+import com.personal.spring_questly.util.LevelGZIPOutputStream;
+import jakarta.servlet.AsyncContext;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.HttpRange;
+import org.springframework.http.HttpStatus;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+import org.springframework.stereotype.Service;
+import org.springframework.web.context.request.ServletWebRequest;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.AsynchronousFileChannel;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.file.Files;
+import java.nio.file.StandardOpenOption;
+import java.time.Duration;
+import java.util.List;
+import java.util.Locale;
+import java.util.Set;
+import java.util.zip.GZIPOutputStream;
+
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class FileStreamServiceImpl implements FileStreamService {
+    // Tomcat request attributes, see org.apache.catalina.Globals
+    private static final String SENDFILE_SUPPORTED_ATTR = "org.apache.tomcat.sendfile.support";
+    private static final String SENDFILE_FILENAME_ATTR = "org.apache.tomcat.sendfile.filename";
+    private static final String SENDFILE_START_ATTR = "org.apache.tomcat.sendfile.start";
+    private static final String SENDFILE_END_ATTR = "org.apache.tomcat.sendfile.end";
+
+    private static final String GZIP = "gzip";
+    private static final int BUFFER_SIZE = 64 * 1024;
+
+    private final HotFileCacheService hotFileCacheService;
+    private final StorageBackend storageBackend;
+    private final FileEncodingService fileEncodingService;
+    @Qualifier("fileIoExecutor")
+    private final ThreadPoolTaskExecutor fileIoExecutor;
+
+    @Value("${file.sendfile-min-size:49152}")
+    private long sendfileMinSize;
+
+    @Value("${file.cache-max-age:31536000}")
+    private long cacheMaxAge;
+
+    // Low, the response waits for every compressed block
+    @Value("${file.compression.streaming-level:1}")
+    private int streamingLevel;
+
+    // Only used where sendfile is not, for example behind TLS or for files below the sendfile size
+    @Value("${file.async-io.enabled:false}")
+    private boolean isAsyncIoEnabled;
+
+    // Replaces the container default, which is too short for large downloads to slow clients
+    @Value("${file.async-io.timeout:PT30M}")
+    private Duration asyncIoTimeout;
+
+    @Override
+    public void streamFile(FileMetadataDTO metadata, HttpServletRequest request, HttpServletResponse response) {
+        boolean isCompressedOnTheFly = false;
+
+        if (fileEncodingService.isCompressible(metadata)) {
+            // Caches must not hand a gzip body to clients that did not ask for one
+            response.setHeader(HttpHeaders.VARY, HttpHeaders.ACCEPT_ENCODING);
+
+            if (this.acceptsGzip(request)) {
+                FileMetadataDTO precompressed = metadata.precompressed();
+                isCompressedOnTheFly = precompressed == null;
+                metadata = precompressed != null ? precompressed : metadata;
+                response.setHeader(HttpHeaders.CONTENT_ENCODING, GZIP);
+            }
+        }
+
+        File file = metadata.file();
+        log.info("Stream file: {}", file != null ? file.getName() : metadata.storageKey());
+
+        // Everything but the body comes from the metadata, no stat calls on the hot path
+        String entityTag = metadata.etag() != null ? "\"" + metadata.etag() + "\"" : null;
+
+        if (isCompressedOnTheFly && entityTag != null) {
+            // Output depends on the compression level, so it is only weakly equal between responses
+            entityTag = "W/\"" + metadata.etag() + "-" + GZIP + "\"";
+        }
+
+        long lastModified = metadata.lastModified();
+
+        // Stored names are random, so the content behind a URI never changes
+        response.setHeader(HttpHeaders.CACHE_CONTROL,
+                String.format("public, max-age=%d, immutable", cacheMaxAge));
+
+        if (new ServletWebRequest(request, response).checkNotModified(entityTag, lastModified)) {
+            return;
+        }
+
+        long length = metadata.size();
+
+        response.setHeader(HttpHeaders.CONTENT_TYPE, metadata.mimeType());
+        response.setHeader(HttpHeaders.CONTENT_DISPOSITION, metadata.disposition());
+
+        if (isCompressedOnTheFly) {
+            // The compressed length is not known up front, so ranges are not offered
+            this.writeCompressed(metadata, request, response);
+            return;
+        }
+
+        response.setHeader(HttpHeaders.ACCEPT_RANGES, "bytes");
+
+        long start = 0;
+        long end = length - 1;
+
+        HttpRange range = this.getRequestedRange(request, entityTag, lastModified);
+
+        if (range != null) {
+            try {
+                start = range.getRangeStart(length);
+                end = range.getRangeEnd(length);
+            } catch (IllegalArgumentException ex) {
+                start = length;
+            }
+
+            if (start >= length || start > end) {
+                response.setStatus(HttpStatus.REQUESTED_RANGE_NOT_SATISFIABLE.value());
+                response.setHeader(HttpHeaders.CONTENT_RANGE, "bytes */" + length);
+                return;
+            }
+
+            response.setStatus(HttpStatus.PARTIAL_CONTENT.value());
+            response.setHeader(HttpHeaders.CONTENT_RANGE,
+                    String.format("bytes %d-%d/%d", start, end, length));
+        }
+
+        long count = end - start + 1;
+        response.setContentLengthLong(count);
+
+        if (count <= 0 || HttpMethod.HEAD.matches(request.getMethod())) {
+            return;
+        }
+
+        try {
+            if (file == null) {
+                this.transferObject(metadata.storageKey(), start, count, response);
+                return;
+            }
+
+            ByteBuffer cachedContent = hotFileCacheService.getContent(metadata);
+
+            if (cachedContent != null) {
+                this.writeContent(cachedContent, (int) start, (int) count, response);
+                return;
+            }
+
+            if (this.canUseSendfile(request, count)) {
+                // Tomcat writes the region with sendfile once the servlet returns
+                request.setAttribute(SENDFILE_FILENAME_ATTR, file.getAbsolutePath());
+                request.setAttribute(SENDFILE_START_ATTR, start);
+                request.setAttribute(SENDFILE_END_ATTR, end + 1);
+                return;
+            }
+
+            if (this.canUseAsyncIo(request)) {
+                this.transferFileAsync(file, start, count, request, response);
+                return;
+            }
+
+            this.transferFile(file, start, count, response);
+        } catch (IOException ex) {
+            log.info("Stream file failed: {}", ex.getMessage());
+            throw new InternalServerErrorException("Cannot stream file", null);
+        }
+    }
+
+    /**
+     * Honours q-values, so {@code gzip;q=0} and {@code *;q=0} turn compression off.
+     */
+    private boolean acceptsGzip(HttpServletRequest request) {
+        String acceptEncoding = request.getHeader(HttpHeaders.ACCEPT_ENCODING);
+
+        if (acceptEncoding == null) {
+            return false;
+        }
+
+        Double gzipQuality = null;
+        Double wildcardQuality = null;
+
+        for (String coding : acceptEncoding.split(",")) {
+            String[] params = coding.split(";");
+            String name = params[0].trim().toLowerCase(Locale.ROOT);
+            double quality = 1;
+
+            for (int i = 1; i < params.length; i++) {
+                String param = params[i].trim();
+
+                if (param.startsWith("q=")) {
+                    try {
+                        quality = Double.parseDouble(param.substring(2));
+                    } catch (NumberFormatException ex) {
+                        quality = 0;
+                    }
+                }
+            }
+
+            if (name.equals(GZIP) || name.equals("x-gzip")) {
+                gzipQuality = quality;
+            } else if (name.equals("*")) {
+                wildcardQuality = quality;
+            }
+        }
+
+        Double quality = gzipQuality != null ? gzipQuality : wildcardQuality;
+
+        return quality != null && quality > 0;
+    }
+
+    private void writeCompressed(FileMetadataDTO metadata, HttpServletRequest request,
+                                 HttpServletResponse response) {
+        if (HttpMethod.HEAD.matches(request.getMethod())) {
+            return;
+        }
+
+        try (InputStream in = metadata.file() != null
+                ? Files.newInputStream(metadata.file().toPath())
+                : storageBackend.get(metadata.storageKey())) {
+            GZIPOutputStream out = new LevelGZIPOutputStream(response.getOutputStream(), streamingLevel, BUFFER_SIZE);
+
+            in.transferTo(out);
+
+            // Writes the trailer without closing the servlet stream
+            out.finish();
+        } catch (IOException ex) {
+            log.info("Stream compressed file failed: {}", ex.getMessage());
+            throw new InternalServerErrorException("Cannot stream file", null);
+        }
+    }
+
+    private HttpRange getRequestedRange(HttpServletRequest request, String entityTag,
+                                        long lastModified) {
+        String rangeHeader = request.getHeader(HttpHeaders.RANGE);
+
+        if (rangeHeader == null || !this.isIfRangeSatisfied(request, entityTag, lastModified)) {
+            return null;
+        }
+
+        List<HttpRange> ranges;
+
+        try {
+            ranges = HttpRange.parseRanges(rangeHeader);
+        } catch (IllegalArgumentException ex) {
+            return null;
+        }
+
+        // Multiple ranges are allowed to be answered with the full representation
+        return ranges.size() == 1 ? ranges.get(0) : null;
+    }
+
+    private boolean isIfRangeSatisfied(HttpServletRequest request, String entityTag,
+                                       long lastModified) {
+        String ifRange = request.getHeader(HttpHeaders.IF_RANGE);
+
+        if (ifRange == null) {
+            return true;
+        }
+
+        // If-Range requires a strong comparison, weak validators never match
+        if (ifRange.startsWith("\"") || ifRange.startsWith("W/")) {
+            return ifRange.equals(entityTag);
+        }
+
+        try {
+            long ifRangeDate = request.getDateHeader(HttpHeaders.IF_RANGE);
+            return ifRangeDate != -1 && lastModified / 1000 == ifRangeDate / 1000;
+        } catch (IllegalArgumentException ex) {
+            return false;
+        }
+    }
+
+    private boolean canUseSendfile(HttpServletRequest request, long count) {
+        return sendfileMinSize >= 0
+                && count >= sendfileMinSize
+                && Boolean.TRUE.equals(request.getAttribute(SENDFILE_SUPPORTED_ATTR));
+    }
+
+    private boolean canUseAsyncIo(HttpServletRequest request) {
+        return isAsyncIoEnabled && request.isAsyncSupported() && !request.isAsyncStarted();
+    }
+
+    /**
+     * The request thread returns as soon as the transfer is set up, reads and writes continue
+     * on callbacks while the disk or the client is busy.
+     */
+    private void transferFileAsync(File file, long start, long count, HttpServletRequest request,
+                                   HttpServletResponse response) throws IOException {
+        AsynchronousFileChannel channel = AsynchronousFileChannel.open(
+                file.toPath(), Set.of(StandardOpenOption.READ), fileIoExecutor.getThreadPoolExecutor());
+
+        AsyncContext asyncContext;
+
+        try {
+            asyncContext = request.startAsync(request, response);
+            asyncContext.setTimeout(asyncIoTimeout.toMillis());
+        } catch (RuntimeException ex) {
+            channel.close();
+            throw ex;
+        }
+
+        new AsyncFileTransfer(channel, start, count, asyncContext, BUFFER_SIZE).start();
+    }
+
+    private void writeContent(ByteBuffer content, int start, int count,
+                              HttpServletResponse response) throws IOException {
+        ByteBuffer region = content.slice(start, count);
+        WritableByteChannel out = Channels.newChannel(response.getOutputStream());
+
+        while (region.hasRemaining()) {
+            out.write(region);
+        }
+    }
+
+    /**
+     * Remote objects are copied through the servlet stream, only the requested range is fetched.
+     */
+    private void transferObject(String storageKey, long start, long count,
+                                HttpServletResponse response) throws IOException {
+        try (InputStream in = storageBackend.getRange(storageKey, start, count)) {
+            if (in.transferTo(response.getOutputStream()) != count) {
+                throw new IOException("Object ended before expected length");
+            }
+        }
+    }
+
+    private void transferFile(File file, long start, long count,
+                              HttpServletResponse response) throws IOException {
+        try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+            WritableByteChannel out = Channels.newChannel(response.getOutputStream());
+
+            long position = start;
+            long remaining = count;
+
+            while (remaining > 0) {
+                long transferred = channel.transferTo(position, remaining, out);
+
+                if (transferred <= 0) {
+                    throw new IOException("File ended before expected length");
+                }
+
+                position += transferred;
+                remaining -= transferred;
+            }
+        }
+    }
+}
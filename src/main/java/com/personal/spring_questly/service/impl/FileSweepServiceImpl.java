@@ -0,0 +1,140 @@
+package com.personal.spring_questly.service.impl;
+
+import com.personal.spring_questly.repository.FileRepository;
+import com.personal.spring_questly.service.BlobService;
+import com.personal.spring_questly.service.FileEncodingService;
+import com.personal.spring_questly.service.FileSweepService;
+import com.personal.spring_questly.service.HotFileCacheService;
+import com.personal.spring_questly.service.ImageVariantService;
+import com.personal.spring_questly.service.StorageBackend;
+import com.personal.spring_questly.util.FileLayoutUtil;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.task.TaskExecutor;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Objects;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class FileSweepServiceImpl implements FileSweepService {
+    private final FileRepository fileRepository;
+    private final BlobService blobService;
+    private final HotFileCacheService hotFileCacheService;
+    private final ImageVariantService imageVariantService;
+    private final FileEncodingService fileEncodingService;
+    @Qualifier("fileSweepExecutor")
+    private final TaskExecutor fileSweepExecutor;
+    private final FileLayoutUtil fileLayoutUtil;
+    private final StorageBackend storageBackend;
+
+    @Value("${file.sweep.batch-size:200}")
+    private int batchSize;
+
+    @Value("${file.sweep.max-attempts:5}")
+    private int maxAttempts;
+
+    @Value("${file.sweep.retry-delay:PT5M}")
+    private Duration retryDelay;
+
+    /**
+     * Removes tombstoned files batch by batch and returns how many rows were deleted.
+     */
+    @Override
+    @Scheduled(fixedDelayString = "${file.sweep.interval:PT30S}")
+    public int sweepDeletedFiles() {
+        int sweptCount = 0;
+
+        while (true) {
+            Instant now = Instant.now();
+            List<com.personal.spring_questly.model.File> tombstones =
+                    fileRepository.findDueTombstones(now, maxAttempts, PageRequest.of(0, batchSize));
+
+            if (tombstones.isEmpty()) {
+                break;
+            }
+
+            sweptCount += this.sweepBatch(tombstones, now);
+
+            if (tombstones.size() < batchSize) {
+                break;
+            }
+        }
+
+        if (sweptCount > 0) {
+            log.info("Swept {} deleted files", sweptCount);
+        }
+
+        return sweptCount;
+    }
+
+    private int sweepBatch(List<com.personal.spring_questly.model.File> tombstones, Instant now) {
+        List<CompletableFuture<Boolean>> deletions =
+                tombstones.stream()
+                          .map(file -> CompletableFuture.supplyAsync(() -> this.deleteFromDisk(file), fileSweepExecutor))
+                          .toList();
+
+        List<UUID> deletedIds = new ArrayList<>();
+        List<UUID> failedIds = new ArrayList<>();
+
+        for (int i = 0; i < tombstones.size(); i++) {
+            if (deletions.get(i).join()) {
+                deletedIds.add(tombstones.get(i).getId());
+            } else {
+                failedIds.add(tombstones.get(i).getId());
+            }
+        }
+
+        if (!failedIds.isEmpty()) {
+            log.info("Deleting {} files failed, retrying in {}", failedIds.size(), retryDelay);
+            fileRepository.rescheduleDelete(failedIds, now.plus(retryDelay));
+        }
+
+        if (deletedIds.isEmpty()) {
+            return 0;
+        }
+
+        List<String> blobHashes = fileRepository.deleteTombstonesReturningBlobHash(deletedIds);
+
+        blobHashes.stream()
+                  .filter(Objects::nonNull)
+                  .forEach(blobService::release);
+
+        return blobHashes.size();
+    }
+
+    private boolean deleteFromDisk(com.personal.spring_questly.model.File file) {
+        String storageKey = FileLayoutUtil.getStorageKey(file.getModuleName(), file.getName());
+
+        try {
+            // Already missing counts as deleted, a previous sweep may have got this far
+            storageBackend.delete(storageKey);
+        } catch (IOException ex) {
+            log.info("Cannot delete file {}: {}", storageKey, ex.getMessage());
+            return false;
+        }
+
+        // A file that is not migrated to the sharded layout yet may be cached under both paths
+        for (Path filePath : fileLayoutUtil.getAllFilePaths(file.getModuleName(), file.getName())) {
+            hotFileCacheService.invalidate(filePath.toFile());
+        }
+
+        imageVariantService.deleteVariants(file.getModuleName(), file.getName());
+        fileEncodingService.deletePrecompressed(file.getModuleName(), file.getName());
+
+        return true;
+    }
+}
@@ -0,0 +1,101 @@
+package com.personal.spring_questly.service.impl;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.personal.spring_questly.dto.file.FileMetadataDTO;
+import com.personal.spring_questly.service.HotFileCacheService;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.util.unit.DataSize;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class HotFileCacheServiceImpl implements HotFileCacheService {
+    private final Cache<Path, ByteBuffer> hotFileCache;
+    private final Cache<Path, Boolean> hotFileAdmissionCache;
+
+    @Value("${file.hot-cache.max-file-size:64KB}")
+    private DataSize maxFileSize;
+
+    /**
+     * Returns a read-only view of the cached content, or null when the file is not cacheable.
+     * A file is only copied off-heap on its second request within the admission window, one-off
+     * downloads keep going through sendfile.
+     */
+    @Override
+    public ByteBuffer getContent(FileMetadataDTO metadata) {
+        if (metadata.file() == null || metadata.size() <= 0 || metadata.size() > maxFileSize.toBytes()) {
+            return null;
+        }
+
+        Path key = this.getKey(metadata.file());
+        ByteBuffer content = hotFileCache.getIfPresent(key);
+
+        if (content == null) {
+            if (hotFileAdmissionCache.asMap().remove(key) == null) {
+                hotFileAdmissionCache.put(key, Boolean.TRUE);
+                return null;
+            }
+
+            try {
+                content = this.loadContent(key);
+            } catch (UncheckedIOException ex) {
+                log.info("Cannot cache file {}: {}", key, ex.getMessage());
+                return null;
+            }
+
+            hotFileCache.put(key, content);
+        }
+
+        if (content.remaining() != metadata.size()) {
+            // The file changed on disk since its metadata was read
+            hotFileCache.invalidate(key);
+            return null;
+        }
+
+        return content.asReadOnlyBuffer();
+    }
+
+    @Override
+    public void invalidate(File file) {
+        hotFileCache.invalidate(this.getKey(file));
+        hotFileAdmissionCache.invalidate(this.getKey(file));
+    }
+
+    private ByteBuffer loadContent(Path path) {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            long size = channel.size();
+
+            if (size > maxFileSize.toBytes()) {
+                throw new IOException("File grew past the cacheable size");
+            }
+
+            // Direct buffers keep the cached bytes outside of the Java heap
+            ByteBuffer content = ByteBuffer.allocateDirect((int) size);
+
+            while (content.hasRemaining()) {
+                if (channel.read(content) < 0) {
+                    break;
+                }
+            }
+
+            return content.flip();
+        } catch (IOException ex) {
+            throw new UncheckedIOException(ex);
+        }
+    }
+
+    private Path getKey(File file) {
+        return file.toPath().toAbsolutePath().normalize();
+    }
+}
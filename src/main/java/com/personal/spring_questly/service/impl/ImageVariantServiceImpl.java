@@ -0,0 +1,347 @@
+package com.personal.spring_questly.service.impl;
+
+import com.personal.spring_questly.dto.file.FileMetadataDTO;
+import com.personal.spring_questly.exception.CustomException;
+import com.personal.spring_questly.exception.CustomException.BadRequestException;
+import com.personal.spring_questly.exception.CustomException.InternalServerErrorException;
+import com.personal.spring_questly.service.ImageVariantService;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.util.FileSystemUtils;
+
+import javax.imageio.ImageIO;
+import javax.imageio.ImageReader;
+import javax.imageio.stream.ImageInputStream;
+import java.awt.Graphics2D;
+import java.awt.RenderingHints;
+import java.awt.image.BufferedImage;
+import java.io.File;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.stream.Stream;
+
+@Service
+@Slf4j
+public class ImageVariantServiceImpl implements ImageVariantService {
+    public static final String FIT_CONTAIN = "contain";
+    public static final String FIT_COVER = "cover";
+    public static final String FIT_FILL = "fill";
+
+    // Requests for a variant that is being generated wait for that generation instead of repeating it
+    private final Map<Path, CompletableFuture<Void>> inFlightVariants = new ConcurrentHashMap<>();
+
+    @Value("${file.variant-dir:./variants/}")
+    private String variantDir;
+
+    // Requested dimensions are rounded up to one of these, so a file has a bounded set of variants
+    @Value("${file.variant.sizes:64,128,256,512,1024,2048}")
+    private List<Integer> sizes;
+
+    // Bounds the disk one original can take, past it the original is served as it is
+    @Value("${file.variant.max-per-file:16}")
+    private int maxVariantsPerFile;
+
+    // Checked from the image header before decoding, a small file can still decode to gigabytes
+    @Value("${file.variant.max-source-pixels:40000000}")
+    private long maxSourcePixels;
+
+    @Override
+    public FileMetadataDTO getVariant(FileMetadataDTO original, String moduleName, String fileName,
+                                      Integer width, Integer height, String fit) {
+        String fitMode = fit != null ? fit.toLowerCase(Locale.ROOT) : FIT_CONTAIN;
+
+        this.validateVariant(original, width, height, fitMode);
+
+        width = this.snapToSize(width);
+        height = this.snapToSize(height);
+
+        String format = this.getImageFormat(fileName);
+
+        if (format == null) {
+            // No ImageIO writer for this type, fall back to the original
+            return original;
+        }
+
+        String variantName = String.format("%sx%s-%s.%s",
+                width != null ? width : "", height != null ? height : "", fitMode, format);
+        Path variantPath = Paths.get(variantDir, moduleName, fileName, variantName);
+
+        if (!Files.exists(variantPath)) {
+            if (this.countVariants(variantPath.getParent()) >= maxVariantsPerFile) {
+                log.info("Variant limit reached for {}/{}, serving the original", moduleName, fileName);
+                return original;
+            }
+
+            this.generateOnce(original, variantPath, format, width, height, fitMode);
+        }
+
+        return this.buildVariantMetadata(original, variantPath, variantName);
+    }
+
+    @Override
+    public void deleteVariants(String moduleName, String fileName) {
+        Path variantsPath = Paths.get(variantDir, moduleName, fileName);
+
+        try {
+            FileSystemUtils.deleteRecursively(variantsPath);
+        } catch (IOException ex) {
+            log.info("Cannot delete variants of {}/{}: {}", moduleName, fileName, ex.getMessage());
+        }
+    }
+
+    private void validateVariant(FileMetadataDTO original, Integer width, Integer height, String fitMode) {
+        if (!original.mimeType().startsWith("image/")) {
+            throw new BadRequestException("Only images can be resized", null);
+        }
+
+        if (original.file() == null) {
+            throw new BadRequestException("Resizing is not supported by the configured storage backend", null);
+        }
+
+        if (!this.isValidDimension(width) || !this.isValidDimension(height)) {
+            throw new BadRequestException(
+                    String.format("Width and height must be between 1 and %d", Collections.max(sizes)), null);
+        }
+
+        if (!fitMode.equals(FIT_CONTAIN) && !fitMode.equals(FIT_COVER) && !fitMode.equals(FIT_FILL)) {
+            throw new BadRequestException("Fit must be one of contain, cover or fill", null);
+        }
+    }
+
+    private boolean isValidDimension(Integer dimension) {
+        return dimension == null || (dimension >= 1 && dimension <= Collections.max(sizes));
+    }
+
+    private Integer snapToSize(Integer dimension) {
+        if (dimension == null) {
+            return null;
+        }
+
+        int snapped = Integer.MAX_VALUE;
+
+        for (int size : sizes) {
+            if (size >= dimension && size < snapped) {
+                snapped = size;
+            }
+        }
+
+        return snapped;
+    }
+
+    private long countVariants(Path variantsPath) {
+        if (!Files.isDirectory(variantsPath)) {
+            return 0;
+        }
+
+        try (Stream<Path> variants = Files.list(variantsPath)) {
+            return variants.filter(variant -> !variant.getFileName().toString().endsWith(".tmp"))
+                           .count();
+        } catch (IOException ex) {
+            throw new InternalServerErrorException("Cannot read image variants", null);
+        }
+    }
+
+    private void generateOnce(FileMetadataDTO original, Path variantPath, String format,
+                              Integer width, Integer height, String fitMode) {
+        CompletableFuture<Void> generation = new CompletableFuture<>();
+        CompletableFuture<Void> inFlight = inFlightVariants.putIfAbsent(variantPath, generation);
+
+        if (inFlight != null) {
+            this.await(inFlight);
+            return;
+        }
+
+        try {
+            // Another request may have finished the variant between the exists check and here
+            if (!Files.exists(variantPath)) {
+                this.generateVariant(original, variantPath, format, width, height, fitMode);
+            }
+
+            generation.complete(null);
+        } catch (RuntimeException ex) {
+            generation.completeExceptionally(ex);
+        } finally {
+            inFlightVariants.remove(variantPath, generation);
+        }
+
+        this.await(generation);
+    }
+
+    private void await(CompletableFuture<Void> generation) {
+        try {
+            generation.join();
+        } catch (CompletionException ex) {
+            if (ex.getCause() instanceof CustomException cause) {
+                throw cause;
+            }
+
+            log.info("Generate image variant failed: {}", ex.getCause().getMessage());
+            throw new InternalServerErrorException("Cannot generate image variant", null);
+        }
+    }
+
+    private void generateVariant(FileMetadataDTO original, Path variantPath, String format,
+                                 Integer width, Integer height, String fitMode) {
+        log.info("Generate image variant: {}", variantPath);
+
+        try {
+            BufferedImage source = this.readImage(original.file());
+            BufferedImage variant = source != null ? this.resize(source, format, width, height, fitMode) : null;
+
+            Files.createDirectories(variantPath.getParent());
+            Path tempPath = Files.createTempFile(variantPath.getParent(), "variant-", ".tmp");
+
+            try {
+                // Originals that cannot be decoded or are small enough already are kept as they are,
+                // so they are not decoded again on the next request
+                if (variant == null || !ImageIO.write(variant, format, tempPath.toFile())) {
+                    Files.copy(original.file().toPath(), tempPath, StandardCopyOption.REPLACE_EXISTING);
+                }
+
+                // Readers never see a half written variant
+                Files.move(tempPath, variantPath, StandardCopyOption.ATOMIC_MOVE);
+            } finally {
+                Files.deleteIfExists(tempPath);
+            }
+        } catch (IOException ex) {
+            throw new UncheckedIOException(ex);
+        }
+    }
+
+    /**
+     * Decodes the image once its header shows it is within the pixel limit, returns null when no
+     * reader supports it.
+     */
+    private BufferedImage readImage(File file) throws IOException {
+        try (ImageInputStream input = ImageIO.createImageInputStream(file)) {
+            Iterator<ImageReader> readers = input != null ? ImageIO.getImageReaders(input)
+                                                          : Collections.emptyIterator();
+
+            if (!readers.hasNext()) {
+                return null;
+            }
+
+            ImageReader reader = readers.next();
+
+            try {
+                reader.setInput(input, true, true);
+
+                if ((long) reader.getWidth(0) * reader.getHeight(0) > maxSourcePixels) {
+                    throw new BadRequestException("Image is too large to resize", null);
+                }
+
+                return reader.read(0);
+            } finally {
+                reader.dispose();
+            }
+        }
+    }
+
+    private BufferedImage resize(BufferedImage source, String format,
+                                 Integer width, Integer height, String fitMode) {
+        int sourceWidth = source.getWidth();
+        int sourceHeight = source.getHeight();
+
+        int targetWidth = width != null ? width : Integer.MAX_VALUE;
+        int targetHeight = height != null ? height : Integer.MAX_VALUE;
+
+        double scaleX = (double) targetWidth / sourceWidth;
+        double scaleY = (double) targetHeight / sourceHeight;
+
+        int drawWidth;
+        int drawHeight;
+        int canvasWidth;
+        int canvasHeight;
+
+        if (fitMode.equals(FIT_FILL) && width != null && height != null) {
+            drawWidth = canvasWidth = Math.min(width, sourceWidth);
+            drawHeight = canvasHeight = Math.min(height, sourceHeight);
+        } else if (fitMode.equals(FIT_COVER) && width != null && height != null) {
+            double scale = Math.min(1, Math.max(scaleX, scaleY));
+            drawWidth = Math.max(1, (int) Math.round(sourceWidth * scale));
+            drawHeight = Math.max(1, (int) Math.round(sourceHeight * scale));
+            canvasWidth = Math.min(width, drawWidth);
+            canvasHeight = Math.min(height, drawHeight);
+        } else {
+            double scale = Math.min(1, Math.min(scaleX, scaleY));
+            drawWidth = canvasWidth = Math.max(1, (int) Math.round(sourceWidth * scale));
+            drawHeight = canvasHeight = Math.max(1, (int) Math.round(sourceHeight * scale));
+        }
+
+        // Variants never upscale, the original is already the best version
+        if (canvasWidth == sourceWidth && canvasHeight == sourceHeight) {
+            return null;
+        }
+
+        // JPEG has no alpha channel
+        int imageType = format.equals("jpg") ? BufferedImage.TYPE_INT_RGB : BufferedImage.TYPE_INT_ARGB;
+        BufferedImage variant = new BufferedImage(canvasWidth, canvasHeight, imageType);
+
+        Graphics2D graphics = variant.createGraphics();
+
+        try {
+            graphics.setRenderingHint(RenderingHints.KEY_INTERPOLATION, RenderingHints.VALUE_INTERPOLATION_BICUBIC);
+            graphics.setRenderingHint(RenderingHints.KEY_RENDERING, RenderingHints.VALUE_RENDER_QUALITY);
+            graphics.setRenderingHint(RenderingHints.KEY_ANTIALIASING, RenderingHints.VALUE_ANTIALIAS_ON);
+
+            // Centered, so cover crops evenly from both sides
+            int x = (canvasWidth - drawWidth) / 2;
+            int y = (canvasHeight - drawHeight) / 2;
+            graphics.drawImage(source, x, y, drawWidth, drawHeight, null);
+        } finally {
+            graphics.dispose();
+        }
+
+        return variant;
+    }
+
+    private String getImageFormat(String fileName) {
+        int dotIdx = fileName.lastIndexOf('.');
+
+        if (dotIdx < 0) {
+            return null;
+        }
+
+        String extension = fileName.substring(dotIdx + 1).toLowerCase(Locale.ROOT);
+        String format = extension.equals("jpeg") ? "jpg" : extension;
+
+        return ImageIO.getImageWritersBySuffix(format).hasNext() ? format : null;
+    }
+
+    private FileMetadataDTO buildVariantMetadata(FileMetadataDTO original, Path variantPath, String variantName) {
+        BasicFileAttributes attributes;
+
+        try {
+            attributes = Files.readAttributes(variantPath, BasicFileAttributes.class);
+        } catch (NoSuchFileException ex) {
+            // Removed by a concurrent delete of the original
+            return original;
+        } catch (IOException ex) {
+            throw new InternalServerErrorException("Cannot read image variant", null);
+        }
+
+        return FileMetadataDTO.builder()
+                              .file(variantPath.toAbsolutePath().toFile())
+                              .mimeType(original.mimeType())
+                              .size(attributes.size())
+                              .lastModified(attributes.lastModifiedTime().toMillis())
+                              .disposition(original.disposition())
+                              .etag(original.etag() != null ? original.etag() + "-" + variantName : null)
+                              .build();
+    }
+}
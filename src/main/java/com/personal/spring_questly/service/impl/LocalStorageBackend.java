@@ -0,0 +1,199 @@
+package com.personal.spring_questly.service.impl;
+
+import com.personal.spring_questly.dto.file.StoredObjectDTO;
+import com.personal.spring_questly.model.Blob;
+import com.personal.spring_questly.service.BlobService;
+import com.personal.spring_questly.service.StorageBackend;
+import com.personal.spring_questly.util.FileLayoutUtil;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Service;
+
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.TreeSet;
+import java.util.stream.Stream;
+
+/**
+ * Keeps objects under file.upload-dir in the sharded layout, with content deduplicated by the blob store.
+ */
+@Service
+@ConditionalOnProperty(name = "file.storage.backend", havingValue = "local", matchIfMissing = true)
+@RequiredArgsConstructor
+@Slf4j
+public class LocalStorageBackend implements StorageBackend {
+    private final BlobService blobService;
+    private final FileLayoutUtil fileLayoutUtil;
+
+    @Override
+    public StoredObjectDTO put(String key, InputStream content) throws IOException {
+        Path filePath = fileLayoutUtil.getFilePath(getModuleName(key), getFileName(key)).toAbsolutePath();
+
+        // Safe when parallel uploads create the same shard directory
+        Files.createDirectories(filePath.getParent());
+
+        // Size and checksum are computed by the blob store while the content is written
+        Blob blob = blobService.store(content, filePath);
+
+        return StoredObjectDTO.builder()
+                              .key(key)
+                              .size(blob.getSize())
+                              .hash(blob.getHash())
+                              .blobHash(blob.getHash())
+                              .build();
+    }
+
+    @Override
+    public InputStream get(String key) throws IOException {
+        return Files.newInputStream(this.getLocalPath(key));
+    }
+
+    @Override
+    public InputStream getRange(String key, long start, long length) throws IOException {
+        FileChannel channel = FileChannel.open(this.getLocalPath(key), StandardOpenOption.READ);
+
+        try {
+            channel.position(start);
+        } catch (IOException ex) {
+            channel.close();
+            throw ex;
+        }
+
+        return new RangeInputStream(Channels.newInputStream(channel), length);
+    }
+
+    /**
+     * Removes the object from both its sharded and its legacy path.
+     */
+    @Override
+    public boolean delete(String key) throws IOException {
+        boolean isDeleted = false;
+
+        for (Path filePath : fileLayoutUtil.getAllFilePaths(getModuleName(key), getFileName(key))) {
+            isDeleted |= Files.deleteIfExists(filePath);
+        }
+
+        return isDeleted;
+    }
+
+    @Override
+    public boolean exists(String key) {
+        return Files.isRegularFile(this.getLocalPath(key));
+    }
+
+    @Override
+    public long getSize(String key) throws IOException {
+        return Files.size(this.getLocalPath(key));
+    }
+
+    /**
+     * Walks the matching module directories, keeping only the first {@code limit} keys in memory.
+     */
+    @Override
+    public List<String> list(String prefix, String startAfter, int limit) throws IOException {
+        TreeSet<String> keys = new TreeSet<>();
+        Path uploadDir = fileLayoutUtil.getModuleDir(null);
+
+        if (!Files.isDirectory(uploadDir)) {
+            return List.of();
+        }
+
+        int slashIdx = prefix.indexOf('/');
+        String modulePrefix = slashIdx >= 0 ? prefix.substring(0, slashIdx) : prefix;
+
+        try (DirectoryStream<Path> moduleDirs = Files.newDirectoryStream(uploadDir, Files::isDirectory)) {
+            for (Path moduleDir : moduleDirs) {
+                String moduleName = moduleDir.getFileName().toString();
+
+                // Dot-prefixed directories are reserved for the blob store and other internal data
+                if (moduleName.startsWith(".")
+                        || (slashIdx >= 0 ? !moduleName.equals(modulePrefix) : !moduleName.startsWith(modulePrefix))) {
+                    continue;
+                }
+
+                // Legacy files sit in the module directory, the rest two shard levels below
+                try (Stream<Path> files = Files.walk(moduleDir, 3)) {
+                    files.filter(Files::isRegularFile)
+                         .map(file -> getStorageKey(moduleName, file))
+                         .filter(key -> key.startsWith(prefix) && (startAfter == null || key.compareTo(startAfter) > 0))
+                         .forEach(key -> {
+                             keys.add(key);
+
+                             if (keys.size() > limit) {
+                                 keys.pollLast();
+                             }
+                         });
+                }
+            }
+        }
+
+        return new ArrayList<>(keys);
+    }
+
+    @Override
+    public Path getLocalPath(String key) {
+        return fileLayoutUtil.resolveFilePath(getModuleName(key), getFileName(key));
+    }
+
+    private static String getStorageKey(String moduleName, Path file) {
+        return FileLayoutUtil.getStorageKey(moduleName, file.getFileName().toString());
+    }
+
+    private static String getModuleName(String key) {
+        int slashIdx = key.indexOf('/');
+        return slashIdx >= 0 ? key.substring(0, slashIdx) : null;
+    }
+
+    private static String getFileName(String key) {
+        return key.substring(key.indexOf('/') + 1);
+    }
+
+    private static class RangeInputStream extends FilterInputStream {
+        private long remaining;
+
+        RangeInputStream(InputStream in, long length) {
+            super(in);
+            this.remaining = length;
+        }
+
+        @Override
+        public int read() throws IOException {
+            if (remaining <= 0) {
+                return -1;
+            }
+
+            int b = super.read();
+
+            if (b != -1) {
+                remaining--;
+            }
+
+            return b;
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) throws IOException {
+            if (remaining <= 0) {
+                return -1;
+            }
+
+            int read = super.read(b, off, (int) Math.min(len, remaining));
+
+            if (read > 0) {
+                remaining -= read;
+            }
+
+            return read;
+        }
+    }
+}
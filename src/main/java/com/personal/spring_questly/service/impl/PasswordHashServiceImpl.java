@@ -0,0 +1,159 @@
+package com.personal.spring_questly.service.impl;
+
+import com.personal.spring_questly.exception.CustomException.InternalServerErrorException;
+import com.personal.spring_questly.exception.CustomException.ServiceUnavailableException;
+import com.personal.spring_questly.repository.UserRepository;
+import com.personal.spring_questly.service.PasswordHashService;
+import com.personal.spring_questly.util.LatencyWindow;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.task.TaskRejectedException;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+import org.springframework.security.crypto.password.PasswordEncoder;
+import org.springframework.stereotype.Service;
+
+import java.time.Duration;
+import java.util.UUID;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+
+/**
+ * Runs password hashing on its own bounded pool, so a login burst cannot take the cores other
+ * requests need. Requests are turned away with 503 once the queue is full.
+ * The pool size follows the p99 latency of the other requests: it shrinks quickly while that is
+ * above target and grows back one thread at a time once it is not.
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class PasswordHashServiceImpl implements PasswordHashService {
+    private final PasswordEncoder passwordEncoder;
+    @Qualifier("passwordHashExecutor")
+    private final ThreadPoolTaskExecutor passwordHashExecutor;
+    private final LatencyWindow latencyWindow;
+    private final UserRepository userRepository;
+    private final MeterRegistry meterRegistry;
+
+    private volatile int limit;
+
+    @Value("${auth.password-hash.max-concurrency:4}")
+    private int maxConcurrency;
+
+    @Value("${auth.password-hash.min-concurrency:1}")
+    private int minConcurrency;
+
+    @Value("${auth.password-hash.adaptive.enabled:true}")
+    private boolean isAdaptive;
+
+    @Value("${auth.password-hash.adaptive.target-p99:PT0.25S}")
+    private Duration targetP99;
+
+    // Fewer requests than this say nothing about the p99
+    @Value("${auth.password-hash.adaptive.min-samples:100}")
+    private int minSamples;
+
+    @PostConstruct
+    public void init() {
+        limit = maxConcurrency;
+
+        Gauge.builder("auth.password.hash.limit", this, service -> service.limit)
+             .description("Password hashes allowed to run at the same time")
+             .register(meterRegistry);
+    }
+
+    @Override
+    public String encode(String rawPassword) {
+        return this.run(() -> passwordEncoder.encode(rawPassword));
+    }
+
+    @Override
+    public boolean matches(String rawPassword, String encodedPassword) {
+        return this.run(() -> passwordEncoder.matches(rawPassword, encodedPassword));
+    }
+
+    /**
+     * Hashes the password again in the background when it was stored with weaker settings than the
+     * current ones. Skipped when the pool is busy, the next login tries again.
+     */
+    @Override
+    public void upgradeEncoding(UUID userId, String rawPassword, String encodedPassword) {
+        if (!passwordEncoder.upgradeEncoding(encodedPassword)) {
+            return;
+        }
+
+        try {
+            passwordHashExecutor.execute(() -> {
+                userRepository.updatePassword(userId, encodedPassword, passwordEncoder.encode(rawPassword));
+                log.info("Rehashed password of user {}", userId);
+            });
+        } catch (TaskRejectedException ex) {
+            log.info("Skip rehashing password of user {}, hashing is saturated", userId);
+        }
+    }
+
+    @Override
+    @Scheduled(fixedDelayString = "${auth.password-hash.adaptive.interval:PT1S}")
+    public synchronized void adjustLimit() {
+        long[] latencies = latencyWindow.drain();
+
+        if (!isAdaptive) {
+            return;
+        }
+
+        int nextLimit = limit;
+
+        if (latencies.length >= minSamples && LatencyWindow.getPercentile(latencies, 0.99) > targetP99.toNanos()) {
+            nextLimit = Math.max(minConcurrency, Math.min(limit - 1, limit * 3 / 4));
+        } else if (limit < maxConcurrency) {
+            nextLimit = limit + 1;
+        }
+
+        if (nextLimit == limit) {
+            return;
+        }
+
+        // The core size may never be above the max size, so the order depends on the direction
+        if (nextLimit > limit) {
+            passwordHashExecutor.setMaxPoolSize(nextLimit);
+            passwordHashExecutor.setCorePoolSize(nextLimit);
+        } else {
+            passwordHashExecutor.setCorePoolSize(nextLimit);
+            passwordHashExecutor.setMaxPoolSize(nextLimit);
+        }
+
+        log.info("Password hash limit changed from {} to {}", limit, nextLimit);
+        limit = nextLimit;
+    }
+
+    private <T> T run(Callable<T> task) {
+        Future<T> future;
+
+        try {
+            future = passwordHashExecutor.submit(task);
+        } catch (TaskRejectedException ex) {
+            meterRegistry.counter("auth.password.hash.rejected").increment();
+            throw new ServiceUnavailableException("Too many sign-ins in progress, try again later", null);
+        }
+
+        try {
+            return future.get();
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            future.cancel(true);
+            throw new InternalServerErrorException("Password check was interrupted", null);
+        } catch (ExecutionException ex) {
+            if (ex.getCause() instanceof RuntimeException cause) {
+                throw cause;
+            }
+
+            throw new InternalServerErrorException("Password check failed", null);
+        }
+    }
+}
@@ -0,0 +1,161 @@
+package com.personal.spring_questly.service.impl;
+
+import com.personal.spring_questly.service.RateLimitService;
+import com.personal.spring_questly.util.TokenBucket;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.util.AntPathMatcher;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Supplier;
+
+/**
+ * Limits requests to the configured routes with a token bucket per client IP and another per
+ * user, both have to have a token left. A request rejected by the user bucket gets its IP token
+ * back. Routes use the same ant patterns as SecurityConfig, the first one matching a path applies.
+ * Buckets are created on the first request and dropped once they have been full for the idle
+ * timeout, a request racing the eviction at worst gets one token for free.
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class RateLimitServiceImpl implements RateLimitService {
+    private final MeterRegistry meterRegistry;
+
+    private final AntPathMatcher antPathMatcher = new AntPathMatcher();
+
+    private List<Route> routes;
+
+    @Value("${rate-limit.enabled:true}")
+    private boolean isEnabled;
+
+    // Every entry is "<pattern> <capacity> <refill period>"
+    @Value("${rate-limit.routes:/auth/login 10 PT1M,/auth/register 5 PT1M,/auth/refresh 30 PT1M,/files/bulk-upload 20 PT1M," +
+            "/files/stream-upload/** 20 PT1M,/upload-sessions/** 600 PT1M}")
+    private List<String> routeLimits;
+
+    @Value("${rate-limit.idle-timeout:PT10M}")
+    private Duration idleTimeout;
+
+    @PostConstruct
+    public void init() {
+        List<Route> parsedRoutes = new ArrayList<>();
+
+        for (String routeLimit : routeLimits) {
+            String[] parts = routeLimit.trim().split("\\s+");
+
+            if (parts.length != 3 || Integer.parseInt(parts[1]) < 1) {
+                throw new IllegalArgumentException("Invalid rate limit route: " + routeLimit);
+            }
+
+            parsedRoutes.add(new Route(parts[0], Integer.parseInt(parts[1]), Duration.parse(parts[2]),
+                    new ConcurrentHashMap<>(), new ConcurrentHashMap<>()));
+        }
+
+        routes = List.copyOf(parsedRoutes);
+
+        Gauge.builder("rate.limit.buckets", this, service -> service.getBucketCount())
+             .description("Token buckets currently kept for rate limiting")
+             .register(meterRegistry);
+    }
+
+    /**
+     * Returns 0 when the request may go ahead, otherwise the nanoseconds until it may be retried.
+     * The user is only resolved for limited routes.
+     */
+    @Override
+    public long tryAcquire(String path, String ipAddress, Supplier<String> userKey) {
+        if (!isEnabled) {
+            return 0;
+        }
+
+        Route route = this.findRoute(path);
+
+        if (route == null) {
+            return 0;
+        }
+
+        long now = System.nanoTime();
+        TokenBucket ipBucket = this.getBucket(route, route.ipBuckets(), ipAddress, now);
+        long waitNanos = ipBucket.tryAcquire(now);
+
+        if (waitNanos == 0) {
+            String user = userKey.get();
+
+            if (user != null) {
+                waitNanos = this.getBucket(route, route.userBuckets(), user, now).tryAcquire(now);
+
+                if (waitNanos > 0) {
+                    ipBucket.release();
+                }
+            }
+        }
+
+        if (waitNanos > 0) {
+            meterRegistry.counter("rate.limit.rejected", "route", route.pattern()).increment();
+        }
+
+        return waitNanos;
+    }
+
+    @Override
+    @Scheduled(fixedDelayString = "${rate-limit.eviction-interval:PT1M}")
+    public void evictIdleBuckets() {
+        long now = System.nanoTime();
+        long idleNanos = idleTimeout.toNanos();
+        long bucketCount = this.getBucketCount();
+
+        for (Route route : routes) {
+            route.ipBuckets().values().removeIf(bucket -> bucket.isIdle(now, idleNanos));
+            route.userBuckets().values().removeIf(bucket -> bucket.isIdle(now, idleNanos));
+        }
+
+        log.debug("Evicted {} idle rate limit buckets", bucketCount - this.getBucketCount());
+    }
+
+    private Route findRoute(String path) {
+        for (Route route : routes) {
+            if (antPathMatcher.match(route.pattern(), path)) {
+                return route;
+            }
+        }
+
+        return null;
+    }
+
+    private TokenBucket getBucket(Route route, Map<String, TokenBucket> buckets, String key, long now) {
+        TokenBucket bucket = buckets.get(key);
+
+        // Looked up first, computeIfAbsent may lock the bin even when the key is there
+        if (bucket == null) {
+            bucket = buckets.computeIfAbsent(key,
+                    ignored -> new TokenBucket(route.capacity(), route.refillPeriod(), now));
+        }
+
+        return bucket;
+    }
+
+    private long getBucketCount() {
+        long bucketCount = 0;
+
+        for (Route route : routes) {
+            bucketCount += route.ipBuckets().size() + route.userBuckets().size();
+        }
+
+        return bucketCount;
+    }
+
+    private record Route(String pattern, int capacity, Duration refillPeriod, Map<String, TokenBucket> ipBuckets,
+                         Map<String, TokenBucket> userBuckets) {
+    }
+}
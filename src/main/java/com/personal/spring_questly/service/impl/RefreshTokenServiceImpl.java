@@ -0,0 +1,125 @@
+package com.personal.spring_questly.service.impl;
+
+import com.personal.spring_questly.dto.auth.AuthTokensDTO;
+import com.personal.spring_questly.exception.CustomException.UnauthorizedException;
+import com.personal.spring_questly.model.RefreshToken;
+import com.personal.spring_questly.model.User;
+import com.personal.spring_questly.repository.RefreshTokenRepository;
+import com.personal.spring_questly.repository.UserRepository;
+import com.personal.spring_questly.service.RefreshTokenService;
+import com.personal.spring_questly.util.JwtUtil;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.security.SecureRandom;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Base64;
+import java.util.UUID;
+
+/**
+ * Refresh tokens are random and opaque, only their SHA-256 is stored. They carry 256 bits of
+ * entropy, so a fast hash is enough and refreshing never touches BCrypt.
+ * Every refresh uses up the token and issues the next one of the same family. A token used twice
+ * means it was stolen, and the whole family is revoked.
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class RefreshTokenServiceImpl implements RefreshTokenService {
+    private static final int TOKEN_BYTES = 32;
+    private static final SecureRandom SECURE_RANDOM = new SecureRandom();
+
+    private final RefreshTokenRepository refreshTokenRepository;
+    private final UserRepository userRepository;
+    private final JwtUtil jwtUtil;
+
+    @Value("${jwt.refresh.expiration:P30D}")
+    private Duration refreshExpiration;
+
+    @Override
+    public AuthTokensDTO issue(User user) {
+        return this.issue(user, UUID.randomUUID());
+    }
+
+    /**
+     * Whether the token is used up is decided by the conditional update alone, never by the row read
+     * before it, so of several requests with the same token exactly one rotates it.
+     * Revoking the family is committed even though the request fails.
+     */
+    @Override
+    @Transactional(noRollbackFor = UnauthorizedException.class)
+    public AuthTokensDTO rotate(String refreshToken) {
+        RefreshToken foundToken = refreshTokenRepository.findByTokenHash(JwtUtil.digest(refreshToken)).orElseThrow(
+                () -> new UnauthorizedException("Invalid refresh token", null)
+        );
+
+        Instant now = Instant.now();
+
+        // Used before, by this client or by whoever stole the token
+        if (refreshTokenRepository.markUsed(foundToken.getId(), now) == 0) {
+            this.revokeFamily(foundToken, now);
+            throw new UnauthorizedException("Refresh token has been revoked", null);
+        }
+
+        if (!foundToken.getExpiresAt().isAfter(now)) {
+            throw new UnauthorizedException("Refresh token has expired", null);
+        }
+
+        User user = userRepository.findById(foundToken.getUserId()).orElseThrow(
+                () -> new UnauthorizedException("Invalid refresh token", null)
+        );
+
+        // Revoking every token of the user bumps the version
+        if (foundToken.getTokenVersion() < user.getTokenVersion()) {
+            throw new UnauthorizedException("Refresh token has been revoked", null);
+        }
+
+        return this.issue(user, foundToken.getFamilyId());
+    }
+
+    @Override
+    public void revoke(String refreshToken) {
+        refreshTokenRepository.findByTokenHash(JwtUtil.digest(refreshToken)).ifPresent(
+                foundToken -> refreshTokenRepository.revokeFamily(foundToken.getFamilyId(), Instant.now())
+        );
+    }
+
+    @Override
+    @Scheduled(fixedDelayString = "${jwt.refresh.cleanup-interval:PT1H}")
+    public void deleteExpired() {
+        int deletedCount = refreshTokenRepository.deleteExpired(Instant.now());
+
+        if (deletedCount > 0) {
+            log.info("Deleted {} expired refresh tokens", deletedCount);
+        }
+    }
+
+    private AuthTokensDTO issue(User user, UUID familyId) {
+        byte[] bytes = new byte[TOKEN_BYTES];
+        SECURE_RANDOM.nextBytes(bytes);
+        String refreshToken = Base64.getUrlEncoder().withoutPadding().encodeToString(bytes);
+
+        refreshTokenRepository.save(RefreshToken.builder()
+                                                .userId(user.getId())
+                                                .familyId(familyId)
+                                                .tokenHash(JwtUtil.digest(refreshToken))
+                                                .tokenVersion(user.getTokenVersion())
+                                                .expiresAt(Instant.now().plus(refreshExpiration))
+                                                .build());
+
+        return AuthTokensDTO.builder()
+                            .accessToken(jwtUtil.generateToken(user))
+                            .refreshToken(refreshToken)
+                            .build();
+    }
+
+    private void revokeFamily(RefreshToken refreshToken, Instant now) {
+        log.warn("Refresh token of user {} was used twice, revoking its family", refreshToken.getUserId());
+        refreshTokenRepository.revokeFamily(refreshToken.getFamilyId(), now);
+    }
+}
@@ -0,0 +1,384 @@
+package com.personal.spring_questly.service.impl;
+
+import com.personal.spring_questly.dto.file.StoredObjectDTO;
+import com.personal.spring_questly.service.StorageBackend;
+import com.personal.spring_questly.util.AwsSignatureUtil;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.core.task.TaskExecutor;
+import org.springframework.stereotype.Service;
+import org.springframework.util.unit.DataSize;
+import org.w3c.dom.Document;
+import org.w3c.dom.NodeList;
+
+import javax.xml.XMLConstants;
+import javax.xml.parsers.DocumentBuilderFactory;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.security.DigestInputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Semaphore;
+
+/**
+ * Keeps objects in an S3-compatible bucket, addressed path-style so MinIO and similar stores work too.
+ * Large uploads are split into parts that are uploaded in parallel, reads stream the response body.
+ */
+@Service
+@ConditionalOnProperty(name = "file.storage.backend", havingValue = "s3")
+@RequiredArgsConstructor
+@Slf4j
+public class S3StorageBackend implements StorageBackend {
+    @Qualifier("storageUploadExecutor")
+    private final TaskExecutor storageUploadExecutor;
+
+    private final HttpClient httpClient = HttpClient.newBuilder()
+                                                    .connectTimeout(Duration.ofSeconds(10))
+                                                    .build();
+
+    @Value("${file.storage.s3.endpoint}")
+    private String endpoint;
+
+    @Value("${file.storage.s3.region:us-east-1}")
+    private String region;
+
+    @Value("${file.storage.s3.bucket}")
+    private String bucket;
+
+    @Value("${file.storage.s3.access-key}")
+    private String accessKey;
+
+    @Value("${file.storage.s3.secret-key}")
+    private String secretKey;
+
+    // S3 requires at least 5MB for every part but the last
+    @Value("${file.storage.s3.part-size:8MB}")
+    private DataSize partSize;
+
+    @Value("${file.storage.s3.max-concurrency:4}")
+    private int maxConcurrency;
+
+    @Value("${file.storage.s3.request-timeout:PT1M}")
+    private Duration requestTimeout;
+
+    /**
+     * Content that fits in one part is sent with a single PUT, anything larger as a multipart upload.
+     */
+    @Override
+    public StoredObjectDTO put(String key, InputStream content) throws IOException {
+        MessageDigest digest = this.createDigest();
+        InputStream in = new DigestInputStream(content, digest);
+
+        byte[] firstPart = in.readNBytes((int) partSize.toBytes());
+        long size;
+
+        if (firstPart.length < partSize.toBytes()) {
+            this.send("PUT", key, null, HttpRequest.BodyPublishers.ofByteArray(firstPart), 200);
+            size = firstPart.length;
+        } else {
+            size = this.putMultipart(key, firstPart, in);
+        }
+
+        return StoredObjectDTO.builder()
+                              .key(key)
+                              .size(size)
+                              .hash(HexFormat.of().formatHex(digest.digest()))
+                              .build();
+    }
+
+    @Override
+    public InputStream get(String key) throws IOException {
+        return this.getObject(key, null);
+    }
+
+    @Override
+    public InputStream getRange(String key, long start, long length) throws IOException {
+        return this.getObject(key, String.format("bytes=%d-%d", start, start + length - 1));
+    }
+
+    /**
+     * S3 deletes are idempotent and answer 204 whether or not the key existed, so this always returns true.
+     */
+    @Override
+    public boolean delete(String key) throws IOException {
+        this.send("DELETE", key, null, HttpRequest.BodyPublishers.noBody(), 204);
+
+        return true;
+    }
+
+    @Override
+    public boolean exists(String key) throws IOException {
+        return this.head(key) != null;
+    }
+
+    @Override
+    public long getSize(String key) throws IOException {
+        HttpResponse<Void> response = this.head(key);
+
+        if (response == null) {
+            throw new NoSuchFileException(key);
+        }
+
+        return response.headers()
+                       .firstValueAsLong("Content-Length")
+                       .orElseThrow(() -> new IOException("Missing Content-Length for " + key));
+    }
+
+    @Override
+    public List<String> list(String prefix, String startAfter, int limit) throws IOException {
+        StringBuilder query = new StringBuilder("list-type=2")
+                .append("&max-keys=").append(limit)
+                .append("&prefix=").append(AwsSignatureUtil.encode(prefix, false));
+
+        if (startAfter != null) {
+            query.append("&start-after=").append(AwsSignatureUtil.encode(startAfter, false));
+        }
+
+        HttpResponse<InputStream> response = this.send("GET", "", query.toString(),
+                                                       HttpRequest.BodyPublishers.noBody(), 200);
+
+        return this.readElements(response.body(), "Key");
+    }
+
+    @Override
+    public Path getLocalPath(String key) {
+        return null;
+    }
+
+    private long putMultipart(String key, byte[] firstPart, InputStream in) throws IOException {
+        HttpResponse<InputStream> created = this.send("POST", key, "uploads=",
+                                                      HttpRequest.BodyPublishers.noBody(), 200);
+        String uploadId = this.readElements(created.body(), "UploadId").get(0);
+
+        // Bounds buffered parts to the ones being uploaded plus the one being read
+        Semaphore permits = new Semaphore(maxConcurrency);
+        List<CompletableFuture<String>> partUploads = new ArrayList<>();
+        long size = 0;
+
+        try {
+            byte[] part = firstPart;
+
+            while (part.length > 0) {
+                int partNumber = partUploads.size() + 1;
+                byte[] body = part;
+
+                permits.acquire();
+                partUploads.add(CompletableFuture.supplyAsync(() -> {
+                    try {
+                        return this.uploadPart(key, uploadId, partNumber, body);
+                    } finally {
+                        permits.release();
+                    }
+                }, storageUploadExecutor));
+
+                size += part.length;
+                part = in.readNBytes((int) partSize.toBytes());
+            }
+
+            List<String> etags = new ArrayList<>();
+
+            for (CompletableFuture<String> partUpload : partUploads) {
+                etags.add(partUpload.join());
+            }
+
+            this.completeMultipart(key, uploadId, etags);
+
+            return size;
+        } catch (IOException | RuntimeException | InterruptedException ex) {
+            partUploads.forEach(partUpload -> partUpload.cancel(false));
+            this.abortMultipart(key, uploadId);
+
+            if (ex instanceof InterruptedException) {
+                Thread.currentThread().interrupt();
+                throw new InterruptedIOException("Multipart upload interrupted");
+            }
+
+            if (ex instanceof CompletionException && ex.getCause() instanceof IOException cause) {
+                throw cause;
+            }
+
+            throw ex instanceof IOException ioException ? ioException : new IOException(ex);
+        }
+    }
+
+    private String uploadPart(String key, String uploadId, int partNumber, byte[] body) {
+        String query = String.format("partNumber=%d&uploadId=%s", partNumber, AwsSignatureUtil.encode(uploadId, false));
+
+        try {
+            HttpResponse<InputStream> response = this.send("PUT", key, query,
+                                                           HttpRequest.BodyPublishers.ofByteArray(body), 200);
+            response.body().close();
+
+            return response.headers()
+                           .firstValue("ETag")
+                           .orElseThrow(() -> new IOException("Missing ETag for part " + partNumber));
+        } catch (IOException ex) {
+            throw new CompletionException(ex);
+        }
+    }
+
+    private void completeMultipart(String key, String uploadId, List<String> etags) throws IOException {
+        StringBuilder body = new StringBuilder("<CompleteMultipartUpload>");
+
+        for (int i = 0; i < etags.size(); i++) {
+            body.append("<Part><PartNumber>").append(i + 1).append("</PartNumber>")
+                .append("<ETag>").append(etags.get(i).replace("&", "&amp;").replace("\"", "&quot;"))
+                .append("</ETag></Part>");
+        }
+
+        body.append("</CompleteMultipartUpload>");
+
+        HttpResponse<InputStream> response = this.send("POST", key,
+                                                       "uploadId=" + AwsSignatureUtil.encode(uploadId, false),
+                                                       HttpRequest.BodyPublishers.ofString(body.toString()), 200);
+
+        // S3 may report a failed completion with status 200 and an Error document
+        if (!this.readElements(response.body(), "Error").isEmpty()) {
+            throw new IOException("Completing multipart upload failed for " + key);
+        }
+    }
+
+    private void abortMultipart(String key, String uploadId) {
+        try {
+            this.send("DELETE", key, "uploadId=" + AwsSignatureUtil.encode(uploadId, false),
+                      HttpRequest.BodyPublishers.noBody(), 204);
+        } catch (IOException ex) {
+            // Left to the bucket's lifecycle rule for incomplete uploads
+            log.info("Cannot abort multipart upload {}: {}", uploadId, ex.getMessage());
+        }
+    }
+
+    /**
+     * Returns null when the object does not exist.
+     */
+    private HttpResponse<Void> head(String key) throws IOException {
+        HttpResponse<Void> response = this.execute(this.buildRequest("HEAD", key, null,
+                                                                     HttpRequest.BodyPublishers.noBody()),
+                                                   HttpResponse.BodyHandlers.discarding());
+
+        if (response.statusCode() == 404) {
+            return null;
+        }
+
+        this.checkStatus(response.statusCode(), 200, key);
+
+        return response;
+    }
+
+    private InputStream getObject(String key, String range) throws IOException {
+        HttpRequest.Builder request = this.buildRequest("GET", key, null, HttpRequest.BodyPublishers.noBody());
+
+        if (range != null) {
+            request.header("Range", range);
+        }
+
+        HttpResponse<InputStream> response = this.execute(request, HttpResponse.BodyHandlers.ofInputStream());
+
+        if (response.statusCode() == 404) {
+            response.body().close();
+            throw new NoSuchFileException(key);
+        }
+
+        this.checkStatus(response, range != null ? 206 : 200, key);
+
+        return response.body();
+    }
+
+    private HttpResponse<InputStream> send(String method, String key, String query,
+                                           HttpRequest.BodyPublisher body, int expectedStatus) throws IOException {
+        HttpResponse<InputStream> response = this.execute(this.buildRequest(method, key, query, body),
+                                                           HttpResponse.BodyHandlers.ofInputStream());
+
+        this.checkStatus(response, expectedStatus, key);
+
+        return response;
+    }
+
+    private HttpRequest.Builder buildRequest(String method, String key, String query,
+                                             HttpRequest.BodyPublisher body) {
+        String path = "/" + AwsSignatureUtil.encode(bucket, false)
+                + (key.isEmpty() ? "" : "/" + AwsSignatureUtil.encode(key, true));
+        URI uri = URI.create(endpoint.replaceAll("/+$", "") + path + (query != null ? "?" + query : ""));
+
+        HttpRequest.Builder request = HttpRequest.newBuilder(uri)
+                                                 .timeout(requestTimeout)
+                                                 .method(method, body);
+
+        Map<String, String> headers = AwsSignatureUtil.sign(method, uri, AwsSignatureUtil.UNSIGNED_PAYLOAD,
+                                                            region, accessKey, secretKey, Instant.now());
+        headers.forEach(request::header);
+
+        return request;
+    }
+
+    private <T> HttpResponse<T> execute(HttpRequest.Builder request, HttpResponse.BodyHandler<T> bodyHandler)
+            throws IOException {
+        try {
+            return httpClient.send(request.build(), bodyHandler);
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Storage request interrupted");
+        }
+    }
+
+    private void checkStatus(HttpResponse<InputStream> response, int expectedStatus, String key) throws IOException {
+        if (response.statusCode() != expectedStatus) {
+            response.body().close();
+            this.checkStatus(response.statusCode(), expectedStatus, key);
+        }
+    }
+
+    private void checkStatus(int status, int expectedStatus, String key) throws IOException {
+        if (status != expectedStatus) {
+            throw new IOException(String.format("Storage request for %s failed with status %d", key, status));
+        }
+    }
+
+    private List<String> readElements(InputStream body, String tagName) throws IOException {
+        try (body) {
+            DocumentBuilderFactory factory = DocumentBuilderFactory.newInstance();
+            factory.setFeature("http://apache.org/xml/features/disallow-doctype-decl", true);
+            factory.setFeature(XMLConstants.FEATURE_SECURE_PROCESSING, true);
+
+            Document document = factory.newDocumentBuilder().parse(body);
+            NodeList nodes = document.getElementsByTagName(tagName);
+            List<String> values = new ArrayList<>();
+
+            for (int i = 0; i < nodes.getLength(); i++) {
+                values.add(nodes.item(i).getTextContent());
+            }
+
+            return values;
+        } catch (IOException ex) {
+            throw ex;
+        } catch (Exception ex) {
+            throw new IOException("Cannot read storage response", ex);
+        }
+    }
+
+    private MessageDigest createDigest() {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException ex) {
+            throw new IllegalStateException(ex);
+        }
+    }
+}
@@ -0,0 +1,223 @@
+package com.personal.spring_questly.service.impl;
+
+import com.personal.spring_questly.dto.file.StorageUsageDTO;
+import com.personal.spring_questly.exception.CustomException.InsufficientStorageException;
+import com.personal.spring_questly.model.StorageUsage;
+import com.personal.spring_questly.repository.FileRepository;
+import com.personal.spring_questly.repository.StorageUsageRepository;
+import com.personal.spring_questly.service.StorageQuotaService;
+import jakarta.annotation.PreDestroy;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.util.unit.DataSize;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Keeps storage usage per module and per user in memory, so checking a quota never touches the database.
+ * Changes are collected in striped adders and added to the storage_usages rows on every flush.
+ * A counter is loaded from its row the first time a quota is checked, the row is built from the files table
+ * once when it does not exist yet. Usage lookups only read, so they never create rows or counters.
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class StorageQuotaServiceImpl implements StorageQuotaService {
+    private static final String MODULE_SCOPE = "module";
+    private static final String USER_SCOPE = "user";
+
+    private final Map<String, UsageCounter> counters = new ConcurrentHashMap<>();
+
+    private final StorageUsageRepository storageUsageRepository;
+    private final FileRepository fileRepository;
+
+    @Value("${file.quota.enabled:true}")
+    private boolean isEnabled;
+
+    @Value("${file.quota.module-max-size:10GB}")
+    private DataSize moduleMaxSize;
+
+    @Value("${file.quota.user-max-size:1GB}")
+    private DataSize userMaxSize;
+
+    /**
+     * Counts the bytes right away and takes them back when a quota is exceeded, concurrent uploads
+     * can never reserve more than the quota together. Users are only limited when an owner is given.
+     */
+    @Override
+    public void reserve(String moduleName, String owner, long bytes, int fileCount) {
+        UsageCounter moduleCounter = this.getCounter(MODULE_SCOPE, moduleName);
+        UsageCounter userCounter = owner != null ? this.getCounter(USER_SCOPE, owner) : null;
+
+        moduleCounter.add(bytes, fileCount);
+
+        if (userCounter != null) {
+            userCounter.add(bytes, fileCount);
+        }
+
+        if (!isEnabled) {
+            return;
+        }
+
+        boolean isModuleExceeded = moduleCounter.getUsedBytes() > moduleMaxSize.toBytes();
+        boolean isUserExceeded = userCounter != null && userCounter.getUsedBytes() > userMaxSize.toBytes();
+
+        if (isModuleExceeded || isUserExceeded) {
+            this.release(moduleName, owner, bytes, fileCount);
+
+            throw new InsufficientStorageException(
+                    isModuleExceeded ? "Module storage quota exceeded" : "User storage quota exceeded", null);
+        }
+    }
+
+    @Override
+    public void release(String moduleName, String owner, long bytes, int fileCount) {
+        this.getCounter(MODULE_SCOPE, moduleName).add(-bytes, -fileCount);
+
+        if (owner != null) {
+            this.getCounter(USER_SCOPE, owner).add(-bytes, -fileCount);
+        }
+    }
+
+    @Override
+    public StorageUsageDTO getModuleUsage(String moduleName) {
+        return this.buildUsage(moduleName, this.findCounter(MODULE_SCOPE, moduleName), moduleMaxSize);
+    }
+
+    @Override
+    public StorageUsageDTO getUserUsage(String owner) {
+        return this.buildUsage(owner, this.findCounter(USER_SCOPE, owner), userMaxSize);
+    }
+
+    /**
+     * Adds the pending changes to the stored totals, then reads the totals back to pick up
+     * what other instances flushed in the meantime.
+     */
+    @Override
+    @Scheduled(fixedDelayString = "${file.quota.flush-interval:PT10S}")
+    @PreDestroy
+    public synchronized void flush() {
+        counters.forEach((id, counter) -> {
+            long bytes = counter.pendingBytes.sum();
+            long fileCount = counter.pendingFileCount.sum();
+
+            if (bytes == 0 && fileCount == 0) {
+                return;
+            }
+
+            try {
+                storageUsageRepository.addUsage(id, bytes, fileCount);
+                StorageUsage usage = storageUsageRepository.findById(id).orElseThrow();
+
+                // Stored totals are updated before the pending ones are taken back, so usage is
+                // briefly counted twice rather than not at all
+                counter.storedBytes.set(usage.getUsedBytes());
+                counter.storedFileCount.set(usage.getFileCount());
+                counter.add(-bytes, -fileCount);
+            } catch (RuntimeException ex) {
+                // Stays pending and is retried on the next flush
+                log.info("Flush storage usage {} failed: {}", id, ex.getMessage());
+            }
+        });
+    }
+
+    /**
+     * Loads outside of the map, so other counters are not blocked while the database is queried.
+     * When two threads load the same counter, the one stored first is used by both.
+     */
+    private UsageCounter getCounter(String scope, String name) {
+        String id = scope + ":" + name;
+        UsageCounter counter = counters.get(id);
+
+        if (counter != null) {
+            return counter;
+        }
+
+        UsageCounter loadedCounter = this.loadCounter(scope, name, id);
+        counter = counters.putIfAbsent(id, loadedCounter);
+
+        return counter != null ? counter : loadedCounter;
+    }
+
+    private UsageCounter loadCounter(String scope, String name, String id) {
+        StorageUsage usage = storageUsageRepository.findById(id).orElse(null);
+
+        if (usage == null) {
+            UsageCounter computedCounter = this.computeCounter(scope, name, id);
+
+            storageUsageRepository.insertIfAbsent(id, computedCounter.storedBytes.get(),
+                                                  computedCounter.storedFileCount.get());
+            // Another instance may have inserted the row first, its totals already count every file
+            usage = storageUsageRepository.findById(id).orElseThrow();
+        }
+
+        return new UsageCounter(usage.getUsedBytes(), usage.getFileCount());
+    }
+
+    /**
+     * Read only, answers from memory or the stored row and falls back to the files table.
+     */
+    private UsageCounter findCounter(String scope, String name) {
+        String id = scope + ":" + name;
+        UsageCounter counter = counters.get(id);
+
+        if (counter != null) {
+            return counter;
+        }
+
+        return storageUsageRepository.findById(id)
+                                     .map(usage -> new UsageCounter(usage.getUsedBytes(), usage.getFileCount()))
+                                     .orElseGet(() -> this.computeCounter(scope, name, id));
+    }
+
+    private UsageCounter computeCounter(String scope, String name, String id) {
+        log.info("Compute storage usage {}", id);
+
+        boolean isModule = scope.equals(MODULE_SCOPE);
+        double sizeKb = isModule ? fileRepository.sumLiveSizeByModuleName(name)
+                : fileRepository.sumLiveSizeByOwner(name);
+        long fileCount = isModule ? fileRepository.countLiveByModuleName(name)
+                : fileRepository.countLiveByOwner(name);
+
+        return new UsageCounter(Math.round(sizeKb * 1024), fileCount);
+    }
+
+    private StorageUsageDTO buildUsage(String name, UsageCounter counter, DataSize maxSize) {
+        return StorageUsageDTO.builder()
+                              .name(name)
+                              .usedBytes(counter.getUsedBytes())
+                              .fileCount(counter.storedFileCount.get() + counter.pendingFileCount.sum())
+                              .maxBytes(isEnabled ? maxSize.toBytes() : null)
+                              .build();
+    }
+
+    private static class UsageCounter {
+        // Totals as last read from the database
+        private final AtomicLong storedBytes;
+        private final AtomicLong storedFileCount;
+
+        // Changes not flushed yet, LongAdder keeps parallel uploads from contending on one value
+        private final LongAdder pendingBytes = new LongAdder();
+        private final LongAdder pendingFileCount = new LongAdder();
+
+        UsageCounter(long storedBytes, long storedFileCount) {
+            this.storedBytes = new AtomicLong(storedBytes);
+            this.storedFileCount = new AtomicLong(storedFileCount);
+        }
+
+        void add(long bytes, long fileCount) {
+            pendingBytes.add(bytes);
+            pendingFileCount.add(fileCount);
+        }
+
+        long getUsedBytes() {
+            return storedBytes.get() + pendingBytes.sum();
+        }
+    }
+}
@@ -0,0 +1,381 @@
+package com.personal.spring_questly.service.impl;
+
+import com.personal.spring_questly.model.ReconcileCheckpoint;
+import com.personal.spring_questly.repository.BlobRepository;
+import com.personal.spring_questly.repository.FileRepository;
+import com.personal.spring_questly.repository.ReconcileCheckpointRepository;
+import com.personal.spring_questly.service.BlobService;
+import com.personal.spring_questly.service.FileService;
+import com.personal.spring_questly.service.StorageReconcileService;
+import com.personal.spring_questly.util.FileLayoutUtil;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.task.TaskExecutor;
+import org.springframework.core.task.TaskRejectedException;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.UUID;
+
+/**
+ * Finds files on disk without a files row and rows without a file on disk.
+ * A crash between writing a file and saving its row, or between deleting a file and its row, leaves these behind.
+ * Orphaned files and blobs are moved to the quarantine directory, dangling rows get missing_at set.
+ * Both passes checkpoint their position, so each run continues where the previous one stopped.
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class StorageReconcileServiceImpl implements StorageReconcileService {
+    public static final String QUARANTINE_DIR = ".quarantine";
+
+    private static final String DISK_CHECKPOINT = "disk";
+    private static final String ROWS_CHECKPOINT = "rows";
+    private static final UUID MIN_ID = new UUID(0, 0);
+
+    private final FileRepository fileRepository;
+    private final BlobRepository blobRepository;
+    private final ReconcileCheckpointRepository reconcileCheckpointRepository;
+    private final BlobService blobService;
+    private final FileService fileService;
+    private final FileLayoutUtil fileLayoutUtil;
+    @Qualifier("storageReconcileExecutor")
+    private final TaskExecutor storageReconcileExecutor;
+
+    // Checkpoints are shared rows, so enable it on a single node only
+    @Value("${file.reconcile.enabled:false}")
+    private boolean isEnabled;
+
+    // Only the local layout is walked, a remote bucket is left to its own tooling
+    @Value("${file.storage.backend:local}")
+    private String storageBackend;
+
+    @Value("${file.reconcile.chunk-size:500}")
+    private int chunkSize;
+
+    // Files younger than this may still be waiting for their row to be saved
+    @Value("${file.reconcile.min-age:PT1H}")
+    private Duration minAge;
+
+    @Value("${file.reconcile.max-run-duration:PT5M}")
+    private Duration maxRunDuration;
+
+    @Value("${file.reconcile.max-entries-per-second:1000}")
+    private int maxEntriesPerSecond;
+
+    /**
+     * Hands the run to its own thread, a throttled run lasts up to max-run-duration
+     * and would hold up every other job on the shared scheduler thread.
+     */
+    @Scheduled(fixedDelayString = "${file.reconcile.interval:PT1H}")
+    public void scheduleReconcile() {
+        try {
+            storageReconcileExecutor.execute(this::reconcile);
+        } catch (TaskRejectedException ex) {
+            log.info("Previous storage reconciliation is still running, skipping this run");
+        }
+    }
+
+    /**
+     * Returns how many orphaned files and blobs were quarantined plus how many rows were flagged.
+     */
+    @Override
+    public synchronized int reconcile() {
+        if (!isEnabled || !storageBackend.equals("local")) {
+            return 0;
+        }
+
+        // Each pass gets half of the run, so a long disk walk does not starve the rows pass
+        Duration passDuration = maxRunDuration.dividedBy(2);
+        int foundCount = 0;
+
+        try {
+            foundCount += this.reconcileDisk(Instant.now().plus(passDuration));
+            foundCount += this.reconcileRows(Instant.now().plus(passDuration));
+        } catch (IOException ex) {
+            log.info("Storage reconciliation failed: {}", ex.getMessage());
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+        }
+
+        if (foundCount > 0) {
+            log.info("Storage reconciliation quarantined or flagged {} entries", foundCount);
+        }
+
+        return foundCount;
+    }
+
+    /**
+     * Walks module directories in a stable order, one directory of files at a time.
+     * The checkpoint is the last directory completed, as module or module/ab/cd.
+     */
+    private int reconcileDisk(Instant deadline) throws IOException, InterruptedException {
+        Path uploadDir = fileLayoutUtil.getModuleDir(null);
+
+        if (!Files.isDirectory(uploadDir)) {
+            return 0;
+        }
+
+        String checkpoint = this.getCheckpoint(DISK_CHECKPOINT);
+        int foundCount = 0;
+
+        for (String moduleName : this.listDirNames(uploadDir)) {
+            // Other dot-prefixed directories hold staging and quarantined data, and files without a module,
+            // whose shard directories must not be mistaken for module names
+            if (moduleName.startsWith(".") && !moduleName.equals(BlobServiceImpl.BLOB_DIR)) {
+                continue;
+            }
+
+            Path moduleDir = uploadDir.resolve(moduleName);
+            List<String> positions = new ArrayList<>();
+
+            // Legacy files sit in the module directory itself, the rest in its shard directories
+            positions.add(moduleName);
+
+            for (String outerShard : this.listDirNames(moduleDir)) {
+                for (String innerShard : this.listDirNames(moduleDir.resolve(outerShard))) {
+                    positions.add(moduleName + "/" + outerShard + "/" + innerShard);
+                }
+            }
+
+            for (String position : positions) {
+                if (checkpoint != null && comparePositions(position, checkpoint) <= 0) {
+                    continue;
+                }
+
+                if (Instant.now().isAfter(deadline)) {
+                    return foundCount;
+                }
+
+                foundCount += this.reconcileDir(moduleName, uploadDir.resolve(position));
+                this.saveCheckpoint(DISK_CHECKPOINT, position);
+            }
+        }
+
+        this.saveCheckpoint(DISK_CHECKPOINT, null);
+
+        return foundCount;
+    }
+
+    private int reconcileDir(String moduleName, Path dir) throws IOException, InterruptedException {
+        List<Path> chunk = new ArrayList<>();
+        int foundCount = 0;
+
+        try (DirectoryStream<Path> entries = Files.newDirectoryStream(dir, Files::isRegularFile)) {
+            for (Path entry : entries) {
+                chunk.add(entry);
+
+                if (chunk.size() >= chunkSize) {
+                    foundCount += this.reconcileChunk(moduleName, chunk);
+                    chunk.clear();
+                }
+            }
+        } catch (NoSuchFileException ex) {
+            // Removed since it was listed
+            return foundCount;
+        }
+
+        if (!chunk.isEmpty()) {
+            foundCount += this.reconcileChunk(moduleName, chunk);
+        }
+
+        return foundCount;
+    }
+
+    private int reconcileChunk(String moduleName, List<Path> paths) throws IOException, InterruptedException {
+        List<String> names = paths.stream()
+                                  .map(path -> path.getFileName().toString())
+                                  .toList();
+        boolean isBlobDir = moduleName.equals(BlobServiceImpl.BLOB_DIR);
+
+        Set<String> storedNames = new HashSet<>(isBlobDir ?
+                                                        blobRepository.findHashesByHashIn(names)
+                                                        : fileRepository.findNamesByModuleNameAndNameIn(moduleName,
+                                                                                                        names));
+        Instant createdBefore = Instant.now().minus(minAge);
+        int quarantinedCount = 0;
+
+        for (Path path : paths) {
+            String name = path.getFileName().toString();
+
+            if (storedNames.contains(name) || !this.isCreatedBefore(path, createdBefore)) {
+                continue;
+            }
+
+            Path quarantinePath = fileLayoutUtil.getModuleDir(QUARANTINE_DIR).resolve(moduleName).resolve(name);
+
+            if (isBlobDir) {
+                if (blobService.quarantineIfUnreferenced(name, quarantinePath)) {
+                    log.info("Quarantined orphaned blob {}", name);
+                    quarantinedCount++;
+                }
+            } else if (this.quarantineFile(path, quarantinePath)) {
+                log.info("Quarantined orphaned file {}/{}", moduleName, name);
+                fileService.invalidateCachedFile(moduleName, name);
+                this.releaseBlob(quarantinePath);
+                quarantinedCount++;
+            }
+        }
+
+        this.throttle(paths.size());
+
+        return quarantinedCount;
+    }
+
+    /**
+     * Checks live rows in id order, the checkpoint is the last id checked.
+     */
+    private int reconcileRows(Instant deadline) throws InterruptedException {
+        String checkpoint = this.getCheckpoint(ROWS_CHECKPOINT);
+        UUID afterId = checkpoint != null ? UUID.fromString(checkpoint) : MIN_ID;
+        int flaggedCount = 0;
+
+        while (!Instant.now().isAfter(deadline)) {
+            List<com.personal.spring_questly.model.File> files =
+                    fileRepository.findLiveAfterId(afterId, PageRequest.of(0, chunkSize));
+
+            if (files.isEmpty()) {
+                this.saveCheckpoint(ROWS_CHECKPOINT, null);
+                break;
+            }
+
+            List<UUID> missingIds = new ArrayList<>();
+            List<UUID> foundIds = new ArrayList<>();
+
+            for (com.personal.spring_questly.model.File file : files) {
+                Path filePath = fileLayoutUtil.resolveFilePath(file.getModuleName(), file.getName());
+
+                if (!Files.isRegularFile(filePath)) {
+                    missingIds.add(file.getId());
+                } else if (file.getMissingAt() != null) {
+                    foundIds.add(file.getId());
+                }
+            }
+
+            if (!missingIds.isEmpty()) {
+                flaggedCount += fileRepository.markMissing(missingIds, Instant.now());
+            }
+
+            if (!foundIds.isEmpty()) {
+                fileRepository.clearMissing(foundIds);
+            }
+
+            afterId = files.get(files.size() - 1).getId();
+            this.saveCheckpoint(ROWS_CHECKPOINT, afterId.toString());
+            this.throttle(files.size());
+        }
+
+        return flaggedCount;
+    }
+
+    private boolean quarantineFile(Path path, Path quarantinePath) {
+        try {
+            Files.createDirectories(quarantinePath.getParent());
+            Files.move(path, quarantinePath);
+            return true;
+        } catch (IOException ex) {
+            log.info("Cannot quarantine {}: {}", path, ex.getMessage());
+            return false;
+        }
+    }
+
+    /**
+     * Moving keeps the hard link to the blob, so the quarantined copy still identifies the blob it references.
+     */
+    private void releaseBlob(Path quarantinePath) {
+        try {
+            if (blobService.releaseLinked(quarantinePath)) {
+                log.info("Released the blob reference of {}", quarantinePath);
+            }
+        } catch (IOException ex) {
+            log.info("Cannot release the blob reference of {}: {}", quarantinePath, ex.getMessage());
+        }
+    }
+
+    /**
+     * Uses the inode change time where available, creating a hard link to an old blob updates it
+     * while the modification time still dates from the first upload of that content.
+     */
+    private boolean isCreatedBefore(Path path, Instant createdBefore) throws IOException {
+        FileTime changedAt;
+
+        try {
+            changedAt = (FileTime) Files.getAttribute(path, "unix:ctime");
+        } catch (UnsupportedOperationException | IllegalArgumentException ex) {
+            changedAt = Files.getLastModifiedTime(path);
+        } catch (NoSuchFileException ex) {
+            return false;
+        }
+
+        return changedAt.toInstant().isBefore(createdBefore);
+    }
+
+    private void throttle(int entryCount) throws InterruptedException {
+        long pauseMs = entryCount * 1000L / maxEntriesPerSecond;
+
+        if (pauseMs > 0) {
+            Thread.sleep(pauseMs);
+        }
+    }
+
+    private List<String> listDirNames(Path dir) throws IOException {
+        List<String> names = new ArrayList<>();
+
+        try (DirectoryStream<Path> entries = Files.newDirectoryStream(dir, Files::isDirectory)) {
+            for (Path entry : entries) {
+                names.add(entry.getFileName().toString());
+            }
+        }
+
+        // Directory streams have no order, sorting keeps the checkpoint meaningful across runs
+        names.sort(null);
+
+        return names;
+    }
+
+    private String getCheckpoint(String name) {
+        return reconcileCheckpointRepository.findById(name)
+                                            .map(ReconcileCheckpoint::getPosition)
+                                            .orElse(null);
+    }
+
+    private void saveCheckpoint(String name, String position) {
+        reconcileCheckpointRepository.save(ReconcileCheckpoint.builder()
+                                                              .name(name)
+                                                              .position(position)
+                                                              .build());
+    }
+
+    /**
+     * Compares positions segment by segment, so a module directory comes before its shard directories.
+     */
+    private static int comparePositions(String position, String other) {
+        String[] segments = position.split("/");
+        String[] otherSegments = other.split("/");
+
+        for (int i = 0; i < Math.min(segments.length, otherSegments.length); i++) {
+            int result = segments[i].compareTo(otherSegments[i]);
+
+            if (result != 0) {
+                return result;
+            }
+        }
+
+        return Integer.compare(segments.length, otherSegments.length);
+    }
+}
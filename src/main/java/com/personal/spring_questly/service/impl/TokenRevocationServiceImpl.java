@@ -0,0 +1,171 @@
+package com.personal.spring_questly.service.impl;
+
+import com.personal.spring_questly.exception.CustomException.NotFoundException;
+import com.personal.spring_questly.model.RevokedToken;
+import com.personal.spring_questly.repository.RevokedTokenRepository;
+import com.personal.spring_questly.repository.UserRepository;
+import com.personal.spring_questly.repository.UserRepository.TokenVersion;
+import com.personal.spring_questly.service.TokenRevocationService;
+import com.personal.spring_questly.util.BloomFilter;
+import jakarta.annotation.PostConstruct;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Keeps the token version of every user who revoked their tokens recently, so the filter can reject
+ * revoked tokens without touching the database.
+ * Only revocations younger than the token lifetime are kept, older tokens have expired anyway.
+ * Revocations made on other instances are picked up on every refresh.
+ * Single tokens revoked on logout go into a Bloom filter of their ids, rebuilt from the database at
+ * startup and then periodically to drop expired ids. A hit is confirmed against the database, so a
+ * false positive costs a query but never rejects a valid token.
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class TokenRevocationServiceImpl implements TokenRevocationService {
+    private final Map<UUID, Revocation> revocations = new ConcurrentHashMap<>();
+
+    private final UserRepository userRepository;
+    private final RevokedTokenRepository revokedTokenRepository;
+
+    private volatile BloomFilter revokedTokenFilter;
+    private Instant refreshedAt;
+
+    @Value("${jwt.expiration}")
+    private long expirationMs;
+
+    // Other instances set updated_at from their own clocks
+    @Value("${jwt.revocation.refresh-overlap:PT1M}")
+    private Duration refreshOverlap;
+
+    @Value("${jwt.revocation.filter.expected-insertions:100000}")
+    private long filterExpectedInsertions;
+
+    @Value("${jwt.revocation.filter.fpp:0.001}")
+    private double filterFpp;
+
+    @PostConstruct
+    public synchronized void load() {
+        Instant startedAt = Instant.now();
+
+        this.addAll(startedAt.minusMillis(expirationMs));
+        this.rebuildFilter();
+        refreshedAt = startedAt;
+
+        log.info("Loaded token revocations of {} users", revocations.size());
+    }
+
+    /**
+     * Tokens issued before the user's latest revocation carry a lower version.
+     */
+    @Override
+    public boolean isRevoked(UUID userId, int tokenVersion) {
+        Revocation revocation = revocations.get(userId);
+        return revocation != null && tokenVersion < revocation.tokenVersion();
+    }
+
+    @Override
+    public int revoke(UUID userId) {
+        Instant now = Instant.now();
+
+        if (userRepository.incrementTokenVersion(userId, now) == 0) {
+            throw new NotFoundException("User not found", null);
+        }
+
+        int tokenVersion = userRepository.findTokenVersionById(userId).orElseThrow(
+                () -> new NotFoundException("User not found", null)
+        );
+
+        this.put(userId, tokenVersion, now);
+
+        return tokenVersion;
+    }
+
+    @Override
+    public boolean isTokenRevoked(UUID tokenId) {
+        return revokedTokenFilter.mightContain(tokenId.toString()) && revokedTokenRepository.existsById(tokenId);
+    }
+
+    /**
+     * Stored before it is added to the filter, so a rebuild running at the same time finds it in
+     * the database.
+     */
+    @Override
+    public void revokeToken(UUID tokenId, Instant expiresAt) {
+        revokedTokenRepository.save(RevokedToken.builder()
+                                                .id(tokenId)
+                                                .expiresAt(expiresAt)
+                                                .build());
+        revokedTokenFilter.put(tokenId.toString());
+    }
+
+    @Override
+    @Scheduled(fixedDelayString = "${jwt.revocation.refresh-interval:PT5S}")
+    public synchronized void refresh() {
+        Instant startedAt = Instant.now();
+        Instant expiredBefore = startedAt.minusMillis(expirationMs);
+
+        this.addAll(refreshedAt.minus(refreshOverlap));
+        this.addRevokedTokens(refreshedAt.minus(refreshOverlap));
+        refreshedAt = startedAt;
+
+        revocations.values().removeIf(revocation -> revocation.revokedAt().isBefore(expiredBefore));
+    }
+
+    /**
+     * A Bloom filter cannot forget ids, so expired ones are only dropped by building a new filter.
+     * Ids revoked while it is built are added again once it has replaced the old one.
+     */
+    @Override
+    @Scheduled(fixedDelayString = "${jwt.revocation.filter.rebuild-interval:PT1H}",
+            initialDelayString = "${jwt.revocation.filter.rebuild-interval:PT1H}")
+    public synchronized void rebuildFilter() {
+        Instant startedAt = Instant.now();
+
+        int deletedCount = revokedTokenRepository.deleteExpired(startedAt);
+        List<UUID> tokenIds = revokedTokenRepository.findLiveIds(startedAt);
+
+        // Twice the live ids leaves room for the revocations until the next rebuild
+        BloomFilter filter = BloomFilter.create(Math.max(filterExpectedInsertions, tokenIds.size() * 2L),
+                filterFpp, 1);
+        tokenIds.forEach(tokenId -> filter.put(tokenId.toString()));
+
+        revokedTokenFilter = filter;
+        this.addRevokedTokens(startedAt.minus(refreshOverlap));
+
+        log.info("Rebuilt revoked token filter with {} ids ({} bytes), deleted {} expired", tokenIds.size(),
+                filter.getSizeInBytes(), deletedCount);
+    }
+
+    private void addAll(Instant since) {
+        for (TokenVersion tokenVersion : userRepository.findTokenVersionsUpdatedSince(since)) {
+            this.put(tokenVersion.getId(), tokenVersion.getTokenVersion(), tokenVersion.getUpdatedAt());
+        }
+    }
+
+    private void addRevokedTokens(Instant since) {
+        for (UUID tokenId : revokedTokenRepository.findIdsCreatedSince(since)) {
+            revokedTokenFilter.put(tokenId.toString());
+        }
+    }
+
+    private void put(UUID userId, int tokenVersion, Instant revokedAt) {
+        // Versions only go up, a late refresh never brings back an older one
+        revocations.merge(userId, new Revocation(tokenVersion, revokedAt),
+                (current, next) -> next.tokenVersion() >= current.tokenVersion() ? next : current);
+    }
+
+    private record Revocation(int tokenVersion, Instant revokedAt) {
+    }
+}
@@ -0,0 +1,258 @@
+package com.personal.spring_questly.service.impl;
+
+import com.personal.spring_questly.dto.file.CreateUploadSessionRequestDTO;
+import com.personal.spring_questly.dto.file.UploadSessionDTO;
+import com.personal.spring_questly.exception.CustomException.BadRequestException;
+import com.personal.spring_questly.exception.CustomException.ConflictException;
+import com.personal.spring_questly.exception.CustomException.InternalServerErrorException;
+import com.personal.spring_questly.exception.CustomException.NotFoundException;
+import com.personal.spring_questly.model.UploadSession;
+import com.personal.spring_questly.repository.UploadSessionRepository;
+import com.personal.spring_questly.service.FileService;
+import com.personal.spring_questly.service.UploadSessionService;
+import com.personal.spring_questly.util.LimitedInputStream;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.util.unit.DataSize;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.locks.ReentrantLock;
+
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class UploadSessionServiceImpl implements UploadSessionService {
+    public static final String STAGING_DIR = ".uploads";
+
+    private static final long TRANSFER_SIZE = 64 * 1024;
+
+    private final UploadSessionRepository uploadSessionRepository;
+    private final FileService fileService;
+
+    // Chunks of one session are written one at a time, a lock per session so a slow client only
+    // ever holds up its own upload
+    private final Map<UUID, ReentrantLock> locks = new ConcurrentHashMap<>();
+
+    @Value("${file.upload-dir}")
+    private String uploadDir;
+
+    @Value("${spring.servlet.multipart.max-file-size:10MB}")
+    private DataSize maxFileSize;
+
+    @Value("${file.upload-session.max-chunk-size:2MB}")
+    private DataSize maxChunkSize;
+
+    @Value("${file.upload-session.ttl:PT24H}")
+    private Duration sessionTtl;
+
+    @Override
+    public UploadSessionDTO createSession(CreateUploadSessionRequestDTO dto) {
+        log.info("Create upload session for module: {}", dto.moduleName());
+
+        if (dto.moduleName().startsWith(".")) {
+            throw new BadRequestException("Invalid module name", null);
+        }
+
+        if (dto.totalSize() > maxFileSize.toBytes()) {
+            throw new BadRequestException("Uploaded file is too large", null);
+        }
+
+        UploadSession session = UploadSession.builder()
+                                             .moduleName(dto.moduleName())
+                                             .fileName(dto.fileName())
+                                             .contentType(dto.contentType())
+                                             .totalSize(dto.totalSize())
+                                             .committedOffset(0L)
+                                             .build();
+
+        return this.mapToDTO(uploadSessionRepository.save(session));
+    }
+
+    @Override
+    public UploadSessionDTO getSession(UUID id) {
+        return this.mapToDTO(this.findSession(id));
+    }
+
+    @Override
+    public UploadSessionDTO appendChunk(UUID id, long offset, InputStream body) {
+        log.info("Append chunk to upload session: {} at offset {}", id, offset);
+
+        // Looked up before taking a lock, so unknown ids never add one
+        UploadSession session = this.findSession(id);
+        ReentrantLock lock = this.getLock(id);
+
+        // Waiting would only let the chunk fail on the offset once the other one is done
+        if (!lock.tryLock()) {
+            throw new ConflictException("Another chunk is being uploaded", this.mapToDTO(session));
+        }
+
+        try {
+            session = this.findSession(id);
+
+            if (offset != session.getCommittedOffset()) {
+                throw new ConflictException("Upload offset mismatch", this.mapToDTO(session));
+            }
+
+            long remaining = session.getTotalSize() - offset;
+            long maxBytes = Math.min(remaining, maxChunkSize.toBytes());
+            long written = 0;
+            IOException failure = null;
+
+            try {
+                Files.createDirectories(this.getStagingDir());
+
+                try (FileChannel channel = FileChannel.open(this.getStagingPath(id),
+                                                            StandardOpenOption.CREATE,
+                                                            StandardOpenOption.WRITE);
+                     ReadableByteChannel source =
+                             Channels.newChannel(new LimitedInputStream(body, maxBytes))) {
+                    // Drop whatever an interrupted chunk left behind the committed offset
+                    channel.truncate(offset);
+
+                    long transferred;
+
+                    while ((transferred = channel.transferFrom(source, offset + written, TRANSFER_SIZE)) > 0) {
+                        written += transferred;
+                    }
+                }
+            } catch (IOException ex) {
+                failure = ex;
+            }
+
+            // Bytes that made it to disk stay committed so the client can resume from there
+            if (written > 0) {
+                session.setCommittedOffset(offset + written);
+                session = uploadSessionRepository.save(session);
+            }
+
+            if (failure instanceof LimitedInputStream.LimitExceededException) {
+                throw new BadRequestException("Chunk exceeds the allowed size", this.mapToDTO(session));
+            }
+
+            if (failure != null) {
+                log.info("Append chunk failed: {}", failure.getMessage());
+                throw new BadRequestException("Upload chunk failed", this.mapToDTO(session));
+            }
+
+            return this.mapToDTO(session);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public com.personal.spring_questly.model.File completeSession(UUID id) {
+        log.info("Complete upload session: {}", id);
+
+        ReentrantLock lock = this.getLock(id);
+        lock.lock();
+
+        try {
+            UploadSession session = this.findSession(id);
+
+            if (session.getCommittedOffset() < session.getTotalSize()) {
+                throw new BadRequestException("Upload is incomplete", this.mapToDTO(session));
+            }
+
+            Path stagingPath = this.getStagingPath(id);
+            com.personal.spring_questly.model.File newFile;
+
+            try (InputStream in = Files.newInputStream(stagingPath)) {
+                newFile = fileService.uploadFile(
+                        session.getModuleName(), session.getFileName(), session.getContentType(), in);
+            } catch (IOException ex) {
+                log.info("Cannot read staged upload {}: {}", id, ex.getMessage());
+                throw new InternalServerErrorException("Cannot complete upload", null);
+            }
+
+            this.deleteSession(session);
+
+            return newFile;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    @Scheduled(fixedDelayString = "${file.upload-session.cleanup-interval:PT1H}")
+    public void cleanupStaleSessions() {
+        List<UploadSession> staleSessions =
+                uploadSessionRepository.findAllByUpdatedAtBefore(Instant.now().minus(sessionTtl));
+
+        if (staleSessions.isEmpty()) {
+            return;
+        }
+
+        log.info("Cleaning up {} stale upload sessions", staleSessions.size());
+
+        for (UploadSession session : staleSessions) {
+            ReentrantLock lock = this.getLock(session.getId());
+            lock.lock();
+
+            try {
+                this.deleteSession(session);
+            } finally {
+                lock.unlock();
+            }
+        }
+    }
+
+    private void deleteSession(UploadSession session) {
+        try {
+            Files.deleteIfExists(this.getStagingPath(session.getId()));
+        } catch (IOException ex) {
+            log.info("Cannot delete staged upload {}: {}", session.getId(), ex.getMessage());
+        }
+
+        uploadSessionRepository.delete(session);
+        locks.remove(session.getId());
+    }
+
+    private UploadSession findSession(UUID id) {
+        return uploadSessionRepository.findById(id)
+                                      .orElseThrow(() -> new NotFoundException("Upload session not found", null));
+    }
+
+    private UploadSessionDTO mapToDTO(UploadSession session) {
+        Instant lastActivity = session.getUpdatedAt() != null ? session.getUpdatedAt() : Instant.now();
+
+        return UploadSessionDTO.builder()
+                               .id(session.getId())
+                               .moduleName(session.getModuleName())
+                               .fileName(session.getFileName())
+                               .contentType(session.getContentType())
+                               .totalSize(session.getTotalSize())
+                               .committedOffset(session.getCommittedOffset())
+                               .expiresAt(lastActivity.plus(sessionTtl))
+                               .build();
+    }
+
+    private Path getStagingDir() {
+        return Paths.get(uploadDir, STAGING_DIR);
+    }
+
+    private Path getStagingPath(UUID id) {
+        return this.getStagingDir().resolve(id + ".part");
+    }
+
+    private ReentrantLock getLock(UUID id) {
+        return locks.computeIfAbsent(id, ignored -> new ReentrantLock());
+    }
+}
@@ -1,5 +1,7 @@
 package com.personal.spring_questly.service.impl;
 
+import com.github.benmanes.caffeine.cache.Cache;
+import com.personal.spring_questly.event.UserChangedEvent;
 import com.personal.spring_questly.exception.CustomException.NotFoundException;
 import com.personal.spring_questly.model.User;
 import com.personal.spring_questly.repository.UserRepository;
@@ -11,38 +13,62 @@ import org.springframework.security.core.userdetails.UserDetails;
 import org.springframework.security.core.userdetails.UserDetailsService;
 import org.springframework.security.core.userdetails.UsernameNotFoundException;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.event.TransactionalEventListener;
 
-import java.util.HashSet;
 import java.util.Set;
 
 @Service
 @Slf4j
 @RequiredArgsConstructor
 public class UserDetailsServiceImpl implements UserDetailsService {
+    // Only four combinations exist, every user shares one of them
+    private static final GrantedAuthority QUESTER = new SimpleGrantedAuthority("QUESTER");
+    private static final GrantedAuthority REQUESTER = new SimpleGrantedAuthority("REQUESTER");
+    private static final Set<GrantedAuthority> NO_AUTHORITIES = Set.of();
+    private static final Set<GrantedAuthority> QUESTER_AUTHORITIES = Set.of(QUESTER);
+    private static final Set<GrantedAuthority> REQUESTER_AUTHORITIES = Set.of(REQUESTER);
+    private static final Set<GrantedAuthority> ALL_AUTHORITIES = Set.of(QUESTER, REQUESTER);
+
     private final UserRepository userRepository;
+    private final Cache<String, UserDetails> userDetailsCache;
 
+    /**
+     * Concurrent misses for the same email wait for a single query. Unknown emails are not cached.
+     */
     @Override
     public UserDetails loadUserByUsername(String email) throws UsernameNotFoundException {
+        return userDetailsCache.get(email, this::loadUser);
+    }
+
+    // After the commit, so a load running next to the update cannot put the old user back
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onUserChanged(UserChangedEvent event) {
+        userDetailsCache.invalidate(event.email());
+    }
+
+    private UserDetails loadUser(String email) {
         log.info("loading user details...");
 
         User foundUser = userRepository.findByEmail(email).orElseThrow(
                 () -> new NotFoundException("User not found", null)
         );
 
-        Set<GrantedAuthority> authorities = new HashSet<>();
+        return org.springframework.security.core.userdetails.User.builder()
+                                                                 .username(foundUser.getEmail())
+                                                                 .password("")
+                                                                 .authorities(this.getAuthorities(foundUser))
+                                                                 .build();
+    }
 
-        if (foundUser.isQuester()) {
-            authorities.add(new SimpleGrantedAuthority("QUESTER"));
+    private Set<GrantedAuthority> getAuthorities(User user) {
+        if (user.isQuester() && user.isRequester()) {
+            return ALL_AUTHORITIES;
         }
 
-        if (foundUser.isRequester()) {
-            authorities.add(new SimpleGrantedAuthority("REQUESTER"));
+        if (user.isQuester()) {
+            return QUESTER_AUTHORITIES;
         }
 
-        return org.springframework.security.core.userdetails.User.builder()
-                                                                 .username(foundUser.getEmail())
-                                                                 .password("")
-                                                                 .authorities(authorities)
-                                                                 .build();
+        return user.isRequester() ? REQUESTER_AUTHORITIES : NO_AUTHORITIES;
     }
 }
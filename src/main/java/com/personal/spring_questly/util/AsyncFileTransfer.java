@@ -0,0 +1,149 @@
+package com.personal.spring_questly.util;
+
+import jakarta.servlet.AsyncContext;
+import jakarta.servlet.AsyncEvent;
+import jakarta.servlet.AsyncListener;
+import jakarta.servlet.ServletOutputStream;
+import jakarta.servlet.WriteListener;
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.AsynchronousFileChannel;
+import java.nio.channels.CompletionHandler;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Copies a file region to an async response without a request thread waiting on the disk or the client.
+ * Reads go through an {@link AsynchronousFileChannel}, writes through the servlet non-blocking API.
+ * Only one of the two is in flight at a time, so the buffer is never shared.
+ * Timeouts and errors come from container threads and only ever end the transfer, they take no lock.
+ */
+@Slf4j
+public class AsyncFileTransfer implements WriteListener, CompletionHandler<Integer, Void>, AsyncListener {
+    private final AsynchronousFileChannel channel;
+    private final AsyncContext asyncContext;
+    private final ByteBuffer buffer;
+
+    private final AtomicBoolean isDone = new AtomicBoolean(false);
+
+    private ServletOutputStream out;
+    private long position;
+    private long remaining;
+    private boolean isReading;
+
+    public AsyncFileTransfer(AsynchronousFileChannel channel, long start, long count, AsyncContext asyncContext,
+                             int bufferSize) {
+        this.channel = channel;
+        this.asyncContext = asyncContext;
+        this.position = start;
+        this.remaining = count;
+        this.buffer = ByteBuffer.allocate((int) Math.max(1, Math.min(bufferSize, count)));
+        // Nothing to write until the first read completes
+        this.buffer.limit(0);
+    }
+
+    public synchronized void start() throws IOException {
+        try {
+            asyncContext.addListener(this);
+            out = asyncContext.getResponse().getOutputStream();
+            // The container calls onWritePossible as soon as the response takes data
+            out.setWriteListener(this);
+        } catch (IOException | RuntimeException ex) {
+            this.finish();
+            throw ex;
+        }
+    }
+
+    @Override
+    public synchronized void onWritePossible() throws IOException {
+        while (!isDone.get() && !isReading && out.isReady()) {
+            if (buffer.hasRemaining()) {
+                out.write(buffer.array(), buffer.arrayOffset() + buffer.position(), buffer.remaining());
+                buffer.position(buffer.limit());
+            } else if (remaining == 0) {
+                this.finish();
+            } else {
+                buffer.clear();
+                buffer.limit((int) Math.min(buffer.capacity(), remaining));
+                isReading = true;
+                channel.read(buffer, position, null, this);
+            }
+        }
+    }
+
+    @Override
+    public synchronized void completed(Integer read, Void attachment) {
+        isReading = false;
+
+        if (read < 0) {
+            this.failed(new EOFException("File ended before expected length"), null);
+            return;
+        }
+
+        buffer.flip();
+        position += read;
+        remaining -= read;
+
+        try {
+            // When the response is not ready the container calls back once it is
+            this.onWritePossible();
+        } catch (IOException ex) {
+            this.failed(ex, null);
+        }
+    }
+
+    /**
+     * The status and length are already sent, so the client only notices a body cut short.
+     */
+    @Override
+    public void failed(Throwable ex, Void attachment) {
+        log.info("Async file transfer failed: {}", ex.getMessage());
+        this.finish();
+    }
+
+    @Override
+    public void onError(Throwable ex) {
+        log.info("Async file transfer aborted: {}", ex.getMessage());
+        this.finish();
+    }
+
+    @Override
+    public void onComplete(AsyncEvent event) {
+        this.closeChannel();
+    }
+
+    @Override
+    public void onTimeout(AsyncEvent event) {
+        log.info("Async file transfer timed out");
+        this.finish();
+    }
+
+    @Override
+    public void onError(AsyncEvent event) {
+        this.closeChannel();
+    }
+
+    @Override
+    public void onStartAsync(AsyncEvent event) {
+    }
+
+    private void finish() {
+        if (!isDone.compareAndSet(false, true)) {
+            return;
+        }
+
+        this.closeChannel();
+        asyncContext.complete();
+    }
+
+    private void closeChannel() {
+        try {
+            // A read still in flight fails and finds the transfer already done
+            channel.close();
+        } catch (IOException ex) {
+            log.info("Close file channel failed: {}", ex.getMessage());
+        }
+    }
+}
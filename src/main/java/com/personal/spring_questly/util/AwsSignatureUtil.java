@@ -0,0 +1,122 @@
+package com.personal.spring_questly.util;
+
+import javax.crypto.Mac;
+import javax.crypto.spec.SecretKeySpec;
+import java.net.URI;
+import java.net.URLEncoder;
+import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
+import java.security.MessageDigest;
+import java.time.Instant;
+import java.time.ZoneOffset;
+import java.time.format.DateTimeFormatter;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HexFormat;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.stream.Collectors;
+
+/**
+ * AWS Signature Version 4 for S3-compatible object stores.
+ * Only host, x-amz-content-sha256 and x-amz-date are signed, which every S3-compatible store accepts.
+ */
+public class AwsSignatureUtil {
+    public static final String UNSIGNED_PAYLOAD = "UNSIGNED-PAYLOAD";
+
+    private static final String ALGORITHM = "AWS4-HMAC-SHA256";
+    private static final String SIGNED_HEADERS = "host;x-amz-content-sha256;x-amz-date";
+    private static final DateTimeFormatter DATE_TIME_FORMAT =
+            DateTimeFormatter.ofPattern("yyyyMMdd'T'HHmmss'Z'").withZone(ZoneOffset.UTC);
+
+    private AwsSignatureUtil() {
+    }
+
+    /**
+     * Returns the headers to add to the request, the URI must already be encoded with {@link #encode}.
+     */
+    public static Map<String, String> sign(String method, URI uri, String payloadHash, String region,
+                                           String accessKey, String secretKey, Instant now) {
+        String dateTime = DATE_TIME_FORMAT.format(now);
+        String date = dateTime.substring(0, 8);
+        String scope = date + "/" + region + "/s3/aws4_request";
+
+        String canonicalRequest = String.join("\n",
+                method,
+                uri.getRawPath(),
+                getCanonicalQuery(uri.getRawQuery()),
+                "host:" + getHost(uri),
+                "x-amz-content-sha256:" + payloadHash,
+                "x-amz-date:" + dateTime,
+                "",
+                SIGNED_HEADERS,
+                payloadHash);
+
+        String stringToSign = String.join("\n", ALGORITHM, dateTime, scope, sha256Hex(canonicalRequest));
+
+        byte[] signingKey = hmac(("AWS4" + secretKey).getBytes(StandardCharsets.UTF_8), date);
+        signingKey = hmac(signingKey, region);
+        signingKey = hmac(signingKey, "s3");
+        signingKey = hmac(signingKey, "aws4_request");
+
+        String signature = HexFormat.of().formatHex(hmac(signingKey, stringToSign));
+
+        Map<String, String> headers = new LinkedHashMap<>();
+        headers.put("x-amz-date", dateTime);
+        headers.put("x-amz-content-sha256", payloadHash);
+        headers.put("Authorization", String.format("%s Credential=%s/%s, SignedHeaders=%s, Signature=%s",
+                ALGORITHM, accessKey, scope, SIGNED_HEADERS, signature));
+
+        return headers;
+    }
+
+    /**
+     * RFC 3986 encoding as S3 expects it, slashes are kept when {@code keepSlashes} is set.
+     */
+    public static String encode(String value, boolean keepSlashes) {
+        String encoded = URLEncoder.encode(value, StandardCharsets.UTF_8)
+                                   .replace("+", "%20")
+                                   .replace("*", "%2A")
+                                   .replace("%7E", "~");
+
+        return keepSlashes ? encoded.replace("%2F", "/") : encoded;
+    }
+
+    public static String sha256Hex(String value) {
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            return HexFormat.of().formatHex(digest.digest(value.getBytes(StandardCharsets.UTF_8)));
+        } catch (GeneralSecurityException ex) {
+            throw new IllegalStateException(ex);
+        }
+    }
+
+    private static String getHost(URI uri) {
+        // The JDK HTTP client sends the port only when the URI has one
+        return uri.getPort() != -1 ? uri.getHost() + ":" + uri.getPort() : uri.getHost();
+    }
+
+    private static String getCanonicalQuery(String rawQuery) {
+        if (rawQuery == null || rawQuery.isEmpty()) {
+            return "";
+        }
+
+        // Sorted by name, then by value
+        return Arrays.stream(rawQuery.split("&"))
+                     .map(param -> param.contains("=") ? param.split("=", 2) : new String[]{param, ""})
+                     .sorted(Comparator.<String[], String>comparing(param -> param[0])
+                                       .thenComparing(param -> param[1]))
+                     .map(param -> param[0] + "=" + param[1])
+                     .collect(Collectors.joining("&"));
+    }
+
+    private static byte[] hmac(byte[] key, String data) {
+        try {
+            Mac mac = Mac.getInstance("HmacSHA256");
+            mac.init(new SecretKeySpec(key, "HmacSHA256"));
+            return mac.doFinal(data.getBytes(StandardCharsets.UTF_8));
+        } catch (GeneralSecurityException ex) {
+            throw new IllegalStateException(ex);
+        }
+    }
+}
@@ -0,0 +1,128 @@
+package com.personal.spring_questly.util;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Bloom filter over strings, safe to add to while other threads read it.
+ * Bit positions come from two 64-bit hashes combined as in Kirsch and Mitzenmacher.
+ */
+public class BloomFilter {
+    private static final double LN2 = Math.log(2);
+    private static final int MAX_HASHES = 16;
+
+    private final AtomicLongArray words;
+    private final long bitSize;
+    private final int hashCount;
+
+    private BloomFilter(long bitSize, int hashCount) {
+        // Rounded up to whole words, the extra bits are used as well
+        int wordCount = (int) Math.min(Integer.MAX_VALUE - 8, Math.max(1, (bitSize + 63) / 64));
+        this.words = new AtomicLongArray(wordCount);
+        this.bitSize = wordCount * 64L;
+        this.hashCount = hashCount;
+    }
+
+    /**
+     * Sized for {@code expectedInsertions} at {@code fpp}, then shrunk by {@code sizeRatio} when memory is short.
+     */
+    public static BloomFilter create(long expectedInsertions, double fpp, double sizeRatio) {
+        long n = Math.max(1, expectedInsertions);
+        long optimalBits = getOptimalBitSize(n, fpp);
+        long bitSize = Math.max(64, (long) (optimalBits * Math.min(1, sizeRatio)));
+        // The hash count stays optimal for the bits actually given
+        int hashCount = (int) Math.max(1, Math.min(MAX_HASHES, Math.round((double) bitSize / n * LN2)));
+
+        return new BloomFilter(bitSize, hashCount);
+    }
+
+    public static long getOptimalBitSize(long expectedInsertions, double fpp) {
+        return (long) Math.ceil(-Math.max(1, expectedInsertions) * Math.log(fpp) / (LN2 * LN2));
+    }
+
+    /**
+     * Returns false when every bit was already set, that is when the value might have been added before.
+     */
+    public boolean put(String value) {
+        long hash1 = hash(value);
+        long hash2 = mix(hash1 ^ 0x9E3779B97F4A7C15L) | 1;
+        boolean isChanged = false;
+
+        for (int i = 0; i < hashCount; i++) {
+            isChanged |= this.setBit(Math.floorMod(hash1 + i * hash2, bitSize));
+        }
+
+        return isChanged;
+    }
+
+    public boolean mightContain(String value) {
+        long hash1 = hash(value);
+        long hash2 = mix(hash1 ^ 0x9E3779B97F4A7C15L) | 1;
+
+        for (int i = 0; i < hashCount; i++) {
+            if (!this.getBit(Math.floorMod(hash1 + i * hash2, bitSize))) {
+                return false;
+            }
+        }
+
+        return true;
+    }
+
+    public long getSizeInBytes() {
+        return bitSize / 8;
+    }
+
+    /**
+     * Chance that a value never added is reported as present, computed from the bits set so far.
+     */
+    public double getEstimatedFpp() {
+        long bitCount = 0;
+
+        for (int i = 0; i < words.length(); i++) {
+            bitCount += Long.bitCount(words.get(i));
+        }
+
+        return Math.pow((double) bitCount / bitSize, hashCount);
+    }
+
+    private boolean setBit(long index) {
+        int word = (int) (index >>> 6);
+        long mask = 1L << index;
+        long current;
+
+        do {
+            current = words.get(word);
+
+            if ((current & mask) != 0) {
+                return false;
+            }
+        } while (!words.compareAndSet(word, current, current | mask));
+
+        return true;
+    }
+
+    private boolean getBit(long index) {
+        return (words.get((int) (index >>> 6)) & (1L << index)) != 0;
+    }
+
+    // FNV-1a over the UTF-16 chars, then mixed so nearby names spread over the whole range
+    private static long hash(String value) {
+        long hash = 0xCBF29CE484222325L;
+
+        for (int i = 0; i < value.length(); i++) {
+            hash ^= value.charAt(i);
+            hash *= 0x100000001B3L;
+        }
+
+        return mix(hash);
+    }
+
+    // Finalizer of MurmurHash3
+    private static long mix(long hash) {
+        hash ^= hash >>> 33;
+        hash *= 0xFF51AFD7ED558CCDL;
+        hash ^= hash >>> 33;
+        hash *= 0xC4CEB93FE1A85A53L;
+        hash ^= hash >>> 33;
+        return hash;
+    }
+}
@@ -0,0 +1,92 @@
+package com.personal.spring_questly.util;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HexFormat;
+import java.util.List;
+
+/**
+ * Maps stored file names to their location on disk.
+ * Files live under uploadDir/module/ab/cd/name, where ab/cd comes from a hash of the name,
+ * so no single directory grows past a few thousand entries.
+ * Files without a module are sharded under uploadDir/.root, so their shards cannot collide with a module.
+ */
+@Component
+public class FileLayoutUtil {
+    public static final String ROOT_DIR = ".root";
+
+    @Value("${file.upload-dir}")
+    private String uploadDir;
+
+    public Path getFilePath(String moduleName, String fileName) {
+        Path shardParent = moduleName != null ? this.getModuleDir(moduleName) : this.getModuleDir(ROOT_DIR);
+
+        return shardParent.resolve(getShard(fileName)).resolve(fileName);
+    }
+
+    /**
+     * Location used before sharding, files that are not migrated yet still live here.
+     */
+    public Path getLegacyFilePath(String moduleName, String fileName) {
+        return this.getModuleDir(moduleName).resolve(fileName);
+    }
+
+    /**
+     * Returns the sharded path unless the file only exists at its legacy path.
+     * The migration links the sharded path before unlinking the legacy one,
+     * so at any time at least one of them exists.
+     */
+    public Path resolveFilePath(String moduleName, String fileName) {
+        Path filePath = this.getFilePath(moduleName, fileName);
+
+        if (Files.exists(filePath)) {
+            return filePath;
+        }
+
+        Path legacyFilePath = this.getLegacyFilePath(moduleName, fileName);
+
+        return Files.exists(legacyFilePath) ? legacyFilePath : filePath;
+    }
+
+    /**
+     * Every path the file may be stored at, a delete has to remove all of them.
+     */
+    public List<Path> getAllFilePaths(String moduleName, String fileName) {
+        return List.of(this.getFilePath(moduleName, fileName), this.getLegacyFilePath(moduleName, fileName));
+    }
+
+    public Path getModuleDir(String moduleName) {
+        return moduleName != null ? Paths.get(uploadDir, moduleName) : Paths.get(uploadDir);
+    }
+
+    /**
+     * Key of a stored file in the configured StorageBackend.
+     */
+    public static String getStorageKey(String moduleName, String fileName) {
+        return moduleName != null ? moduleName + "/" + fileName : fileName;
+    }
+
+    /**
+     * Two directory levels taken from the SHA-256 of the key, e.g. "3f/a9".
+     */
+    public static Path getShard(String key) {
+        MessageDigest digest;
+
+        try {
+            digest = MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException ex) {
+            throw new IllegalStateException(ex);
+        }
+
+        String hex = HexFormat.of().formatHex(digest.digest(key.getBytes(StandardCharsets.UTF_8)), 0, 2);
+
+        return Paths.get(hex.substring(0, 2), hex.substring(2, 4));
+    }
+}
@@ -1,41 +1,175 @@
 package com.personal.spring_questly.util;
 
+import com.github.benmanes.caffeine.cache.Cache;
+import com.personal.spring_questly.exception.CustomException.BadRequestException;
+import com.personal.spring_questly.model.User;
+import io.jsonwebtoken.Claims;
+import io.jsonwebtoken.ExpiredJwtException;
+import io.jsonwebtoken.JwtParser;
 import io.jsonwebtoken.Jwts;
 import io.jsonwebtoken.SignatureAlgorithm;
 import io.jsonwebtoken.security.Keys;
+import jakarta.annotation.PostConstruct;
+import lombok.RequiredArgsConstructor;
 import org.springframework.beans.factory.annotation.Value;
+import org.springframework.security.core.GrantedAuthority;
+import org.springframework.security.core.authority.AuthorityUtils;
 import org.springframework.stereotype.Component;
 
+import java.nio.charset.StandardCharsets;
 import java.security.Key;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Base64;
 import java.util.Date;
+import java.util.List;
+import java.util.UUID;
 
 @Component
+@RequiredArgsConstructor
 public class JwtUtil {
+    private static final String USER_ID_CLAIM = "uid";
+    private static final String ROLES_CLAIM = "roles";
+    private static final String TOKEN_VERSION_CLAIM = "ver";
+    private static final String TOKEN_TYPE = "Bearer ";
+
+    private final Cache<String, VerifiedToken> verifiedTokenCache;
+
     @Value("${jwt.secret}")
     private String secret;
 
     @Value("${jwt.expiration}")
     private long expirationMs;
 
-    private Key getSigningKey() {
-        return Keys.hmacShaKeyFor(secret.getBytes());
+    private Key signingKey;
+    private JwtParser jwtParser;
+
+    @PostConstruct
+    public void init() {
+        signingKey = Keys.hmacShaKeyFor(secret.getBytes());
+        // Parsers are immutable and thread-safe, every request shares this one
+        jwtParser = Jwts.parserBuilder()
+                        .setSigningKey(signingKey)
+                        .build();
     }
 
-    public String generateToken(String email) {
+    /**
+     * The token carries everything the filter needs to authenticate a request, so requests never
+     * load the user. Its id lets a single token be revoked on logout.
+     */
+    public String generateToken(User user) {
+        List<String> roles = new ArrayList<>();
+
+        if (user.isQuester()) {
+            roles.add("QUESTER");
+        }
+
+        if (user.isRequester()) {
+            roles.add("REQUESTER");
+        }
+
         return Jwts.builder()
-                   .setSubject(email)
+                   .setId(UUID.randomUUID().toString())
+                   .setSubject(user.getEmail())
+                   .claim(USER_ID_CLAIM, user.getId().toString())
+                   .claim(ROLES_CLAIM, roles)
+                   .claim(TOKEN_VERSION_CLAIM, user.getTokenVersion())
                    .setIssuedAt(new Date())
                    .setExpiration(new Date(System.currentTimeMillis() + expirationMs))
-                   .signWith(getSigningKey(), SignatureAlgorithm.HS256)
+                   .signWith(signingKey, SignatureAlgorithm.HS256)
                    .compact();
     }
 
     public String extractEmail(String token) {
-        return Jwts.parserBuilder()
-                   .setSigningKey(getSigningKey())
-                   .build()
-                   .parseClaimsJws(token)
-                   .getBody()
-                   .getSubject();
+        return this.verify(token).email();
+    }
+
+    /**
+     * Tokens seen before are taken from the cache until they expire, so repeat requests skip the
+     * signature check and the claims parsing.
+     */
+    public VerifiedToken verify(String token) {
+        // Keyed by a digest, so the cache never holds a token that could be sent again
+        String tokenDigest = digest(token);
+        VerifiedToken verifiedToken = verifiedTokenCache.getIfPresent(tokenDigest);
+
+        if (verifiedToken != null) {
+            return verifiedToken;
+        }
+
+        Claims claims = jwtParser.parseClaimsJws(token).getBody();
+        verifiedToken = toVerifiedToken(claims);
+
+        // Without an exp there is nothing to bound the entry by
+        if (claims.getExpiration() != null) {
+            verifiedTokenCache.put(tokenDigest, verifiedToken);
+        }
+
+        return verifiedToken;
+    }
+
+    /**
+     * Like {@link #verify(String)}, but an expired token is still accepted. The signature is checked
+     * before the expiry, so its claims can be trusted. Expired tokens are never cached.
+     */
+    public VerifiedToken verifyAllowingExpired(String token) {
+        try {
+            return this.verify(token);
+        } catch (ExpiredJwtException ex) {
+            return toVerifiedToken(ex.getClaims());
+        }
+    }
+
+    private static VerifiedToken toVerifiedToken(Claims claims) {
+        Date expiration = claims.getExpiration();
+
+        String tokenId = claims.getId();
+        String userId = claims.get(USER_ID_CLAIM, String.class);
+        List<?> roles = claims.get(ROLES_CLAIM, List.class);
+        Integer tokenVersion = claims.get(TOKEN_VERSION_CLAIM, Integer.class);
+
+        return new VerifiedToken(
+                claims.getSubject(),
+                userId != null ? UUID.fromString(userId) : null,
+                // Built once per token and shared by every request with it, so it must never change
+                roles != null ? List.copyOf(AuthorityUtils.createAuthorityList(roles.stream().map(String::valueOf).toList()))
+                              : List.of(),
+                tokenVersion != null ? tokenVersion : 0,
+                expiration != null ? expiration.toInstant() : null,
+                tokenId != null ? UUID.fromString(tokenId) : null);
+    }
+
+    public static String getBearerToken(String authHeader) {
+        if (authHeader == null) {
+            throw new BadRequestException("Authorization header is " +
+                    "required", null);
+        }
+
+        if (!authHeader.startsWith(TOKEN_TYPE)) {
+            throw new BadRequestException("Request must include a Bearer token.", null);
+        }
+
+        return authHeader.substring(TOKEN_TYPE.length());
+    }
+
+    public static String digest(String token) {
+        try {
+            byte[] hash = MessageDigest.getInstance("SHA-256")
+                                       .digest(token.getBytes(StandardCharsets.UTF_8));
+            return Base64.getUrlEncoder().withoutPadding().encodeToString(hash);
+        } catch (NoSuchAlgorithmException ex) {
+            // Every JVM ships SHA-256
+            throw new IllegalStateException(ex);
+        }
+    }
+
+    /**
+     * Tokens issued before the user id and roles were added have no userId, and tokens issued before
+     * they had an id have no tokenId.
+     */
+    public record VerifiedToken(String email, UUID userId, List<GrantedAuthority> authorities, int tokenVersion,
+                                Instant expiresAt, UUID tokenId) {
     }
 }
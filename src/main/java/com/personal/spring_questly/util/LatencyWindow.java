@@ -0,0 +1,57 @@
+package com.personal.spring_questly.util;
+
+import org.springframework.stereotype.Component;
+
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Latencies of the requests served since the last drain, recorded without locks.
+ * Once more than fit arrive in a window the oldest are overwritten.
+ */
+@Component
+public class LatencyWindow {
+    private static final int DEFAULT_SAMPLE_COUNT = 4096;
+
+    private final AtomicLongArray samples;
+    private final AtomicLong count = new AtomicLong();
+
+    public LatencyWindow() {
+        this(DEFAULT_SAMPLE_COUNT);
+    }
+
+    public LatencyWindow(int sampleCount) {
+        this.samples = new AtomicLongArray(sampleCount);
+    }
+
+    public void record(long durationNanos) {
+        long index = count.getAndIncrement();
+        samples.set((int) (index % samples.length()), durationNanos);
+    }
+
+    /**
+     * Returns the samples of the window sorted and starts a new one. Requests finishing during the
+     * drain may land in either window, which is fine for a percentile.
+     */
+    public synchronized long[] drain() {
+        int size = (int) Math.min(count.getAndSet(0), samples.length());
+        long[] sorted = new long[size];
+
+        for (int i = 0; i < size; i++) {
+            sorted[i] = samples.get(i);
+        }
+
+        Arrays.sort(sorted);
+        return sorted;
+    }
+
+    public static long getPercentile(long[] sorted, double percentile) {
+        if (sorted.length == 0) {
+            return 0;
+        }
+
+        int index = (int) Math.ceil(percentile * sorted.length) - 1;
+        return sorted[Math.max(index, 0)];
+    }
+}
@@ -0,0 +1,16 @@
+package com.personal.spring_questly.util;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * {@link GZIPOutputStream} with a configurable compression level, the JDK one always uses the default level.
+ */
+public class LevelGZIPOutputStream extends GZIPOutputStream {
+
+    public LevelGZIPOutputStream(OutputStream out, int level, int bufferSize) throws IOException {
+        super(out, bufferSize);
+        def.setLevel(level);
+    }
+}
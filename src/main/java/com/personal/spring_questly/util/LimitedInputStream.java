@@ -0,0 +1,62 @@
+package com.personal.spring_questly.util;
+
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+
+/**
+ * Fails with {@link LimitExceededException} as soon as more than {@code maxBytes} are read.
+ */
+public class LimitedInputStream extends FilterInputStream {
+    private final long maxBytes;
+    private long count;
+
+    public LimitedInputStream(InputStream in, long maxBytes) {
+        super(in);
+        this.maxBytes = maxBytes;
+    }
+
+    @Override
+    public int read() throws IOException {
+        int b = super.read();
+
+        if (b != -1) {
+            this.addCount(1);
+        }
+
+        return b;
+    }
+
+    @Override
+    public int read(byte[] b, int off, int len) throws IOException {
+        int read = super.read(b, off, len);
+
+        if (read > 0) {
+            this.addCount(read);
+        }
+
+        return read;
+    }
+
+    @Override
+    public long skip(long n) throws IOException {
+        long skipped = super.skip(n);
+        this.addCount(skipped);
+
+        return skipped;
+    }
+
+    private void addCount(long read) throws LimitExceededException {
+        count += read;
+
+        if (count > maxBytes) {
+            throw new LimitExceededException(maxBytes);
+        }
+    }
+
+    public static class LimitExceededException extends IOException {
+        public LimitExceededException(long maxBytes) {
+            super("Stream exceeds the limit of " + maxBytes + " bytes");
+        }
+    }
+}
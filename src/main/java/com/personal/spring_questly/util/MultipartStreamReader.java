@@ -0,0 +1,317 @@
+package com.personal.spring_questly.util;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Locale;
+
+/**
+ * Reads a multipart/form-data body part by part without buffering whole parts.
+ * Each part body is exposed as a stream that ends right before the next boundary.
+ */
+public class MultipartStreamReader {
+    private static final int BUFFER_SIZE = 64 * 1024;
+    private static final int MAX_HEADER_SIZE = 8 * 1024;
+
+    private final InputStream in;
+    private final byte[] delimiter;
+    private final byte[] buffer;
+
+    private int pos;
+    private int limit;
+    private boolean isEndOfInput;
+    private boolean isFinished;
+    private PartInputStream currentBody;
+
+    public MultipartStreamReader(InputStream in, String boundary) {
+        this.in = in;
+        this.delimiter = ("\r\n--" + boundary).getBytes(StandardCharsets.US_ASCII);
+        this.buffer = new byte[Math.max(BUFFER_SIZE, delimiter.length * 2)];
+
+        // The first boundary has no preceding line break, pretend there is one
+        buffer[0] = '\r';
+        buffer[1] = '\n';
+        limit = 2;
+    }
+
+    public static String extractBoundary(String contentType) {
+        if (contentType == null
+                || !contentType.toLowerCase(Locale.ROOT).startsWith("multipart/form-data")) {
+            return null;
+        }
+
+        for (String param : contentType.split(";")) {
+            String trimmed = param.trim();
+
+            if (trimmed.toLowerCase(Locale.ROOT).startsWith("boundary=")) {
+                String boundary = unquote(trimmed.substring("boundary=".length()));
+                return boundary.isEmpty() ? null : boundary;
+            }
+        }
+
+        return null;
+    }
+
+    /**
+     * Returns the next part, or null once the closing boundary is reached.
+     * Whatever is left of the previous part body is skipped.
+     */
+    public Part nextPart() throws IOException {
+        if (isFinished) {
+            return null;
+        }
+
+        if (currentBody == null) {
+            // Skip the preamble up to the first boundary
+            new PartInputStream().skipAll();
+        } else {
+            currentBody.skipAll();
+        }
+
+        if (!this.ensureAvailable(2)) {
+            throw new IOException("Unexpected end of multipart stream");
+        }
+
+        if (buffer[pos] == '-' && buffer[pos + 1] == '-') {
+            isFinished = true;
+            return null;
+        }
+
+        this.skipLineEnd();
+
+        Part part = this.readHeaders();
+        currentBody = new PartInputStream();
+
+        return new Part(part.fieldName(), part.fileName(), part.contentType(), currentBody);
+    }
+
+    private Part readHeaders() throws IOException {
+        String fieldName = null;
+        String fileName = null;
+        String contentType = null;
+        int headerSize = 0;
+
+        while (true) {
+            String line = this.readLine();
+            headerSize += line.length() + 2;
+
+            if (headerSize > MAX_HEADER_SIZE) {
+                throw new IOException("Multipart headers are too large");
+            }
+
+            if (line.isEmpty()) {
+                return new Part(fieldName, fileName, contentType, null);
+            }
+
+            int colonIdx = line.indexOf(':');
+
+            if (colonIdx <= 0) {
+                continue;
+            }
+
+            String name = line.substring(0, colonIdx).trim().toLowerCase(Locale.ROOT);
+            String value = line.substring(colonIdx + 1).trim();
+
+            if (name.equals("content-type")) {
+                contentType = value;
+            } else if (name.equals("content-disposition")) {
+                fieldName = getDispositionParam(value, "name");
+                fileName = getDispositionParam(value, "filename");
+            }
+        }
+    }
+
+    private String readLine() throws IOException {
+        ByteArrayOutputStream line = new ByteArrayOutputStream();
+
+        while (true) {
+            if (!this.ensureAvailable(1)) {
+                throw new IOException("Unexpected end of multipart headers");
+            }
+
+            byte b = buffer[pos++];
+
+            if (b == '\r') {
+                if (!this.ensureAvailable(1)) {
+                    throw new IOException("Unexpected end of multipart headers");
+                }
+
+                if (buffer[pos] == '\n') {
+                    pos++;
+                    return line.toString(StandardCharsets.UTF_8);
+                }
+            }
+
+            if (line.size() >= MAX_HEADER_SIZE) {
+                throw new IOException("Multipart headers are too large");
+            }
+
+            line.write(b);
+        }
+    }
+
+    private void skipLineEnd() throws IOException {
+        // Transport padding may follow a boundary before its line break
+        while (this.ensureAvailable(1) && (buffer[pos] == ' ' || buffer[pos] == '\t')) {
+            pos++;
+        }
+
+        if (!this.ensureAvailable(2) || buffer[pos] != '\r' || buffer[pos + 1] != '\n') {
+            throw new IOException("Malformed multipart boundary");
+        }
+
+        pos += 2;
+    }
+
+    /**
+     * Makes at least {@code count} unread bytes available in the buffer when the input has them.
+     */
+    private boolean ensureAvailable(int count) throws IOException {
+        while (limit - pos < count && !isEndOfInput) {
+            if (pos > 0) {
+                System.arraycopy(buffer, pos, buffer, 0, limit - pos);
+                limit -= pos;
+                pos = 0;
+            }
+
+            int read = in.read(buffer, limit, buffer.length - limit);
+
+            if (read == -1) {
+                isEndOfInput = true;
+            } else {
+                limit += read;
+            }
+        }
+
+        return limit - pos >= count;
+    }
+
+    private int indexOfDelimiter() {
+        int last = limit - delimiter.length;
+
+        outer:
+        for (int i = pos; i <= last; i++) {
+            for (int j = 0; j < delimiter.length; j++) {
+                if (buffer[i + j] != delimiter[j]) {
+                    continue outer;
+                }
+            }
+
+            return i;
+        }
+
+        return -1;
+    }
+
+    private static String getDispositionParam(String disposition, String param) {
+        for (String part : disposition.split(";")) {
+            String trimmed = part.trim();
+            int equalsIdx = trimmed.indexOf('=');
+
+            if (equalsIdx > 0 && trimmed.substring(0, equalsIdx).trim().equalsIgnoreCase(param)) {
+                return unquote(trimmed.substring(equalsIdx + 1).trim());
+            }
+        }
+
+        return null;
+    }
+
+    private static String unquote(String value) {
+        if (value.length() >= 2 && value.startsWith("\"") && value.endsWith("\"")) {
+            return value.substring(1, value.length() - 1);
+        }
+
+        return value;
+    }
+
+    public record Part(
+            String fieldName,
+
+            String fileName,
+
+            String contentType,
+
+            InputStream body
+    ) {
+        public boolean isFile() {
+            return fileName != null;
+        }
+    }
+
+    private class PartInputStream extends InputStream {
+        private boolean isPartEnded;
+
+        @Override
+        public int read() throws IOException {
+            byte[] single = new byte[1];
+            int read = this.read(single, 0, 1);
+
+            return read == -1 ? -1 : single[0] & 0xff;
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) throws IOException {
+            if (len == 0) {
+                return 0;
+            }
+
+            int available = this.available();
+
+            if (available == 0) {
+                return -1;
+            }
+
+            int count = Math.min(len, available);
+            System.arraycopy(buffer, pos, b, off, count);
+            pos += count;
+
+            return count;
+        }
+
+        /**
+         * Number of bytes that can be returned before the delimiter, 0 once the part ended.
+         */
+        @Override
+        public int available() throws IOException {
+            if (isPartEnded || currentBody != this && currentBody != null) {
+                return 0;
+            }
+
+            while (true) {
+                int delimiterIdx = indexOfDelimiter();
+
+                if (delimiterIdx == pos) {
+                    pos += delimiter.length;
+                    isPartEnded = true;
+                    return 0;
+                }
+
+                if (delimiterIdx > pos) {
+                    return delimiterIdx - pos;
+                }
+
+                // Keep a possible partial delimiter at the buffer tail unread
+                int safe = limit - pos - (delimiter.length - 1);
+
+                if (safe > 0) {
+                    return safe;
+                }
+
+                if (isEndOfInput) {
+                    throw new IOException("Unexpected end of multipart stream");
+                }
+
+                ensureAvailable(delimiter.length);
+            }
+        }
+
+        private void skipAll() throws IOException {
+            int available;
+
+            while ((available = this.available()) > 0) {
+                pos += available;
+            }
+        }
+    }
+}
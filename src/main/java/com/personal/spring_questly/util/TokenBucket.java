@@ -0,0 +1,57 @@
+package com.personal.spring_questly.util;
+
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Token bucket kept as a single timestamp, the time at which it will be full again, as in the
+ * generic cell rate algorithm. Taking a token is one compare-and-set and the refill is worked out
+ * from the clock on the next take, so nothing ever runs in the background.
+ * Times are {@link System#nanoTime()} values passed in by the caller.
+ */
+public class TokenBucket {
+    private final long refillNanos;
+    private final long burstNanos;
+    private final AtomicLong fullAt;
+
+    public TokenBucket(int capacity, Duration refillPeriod, long nowNanos) {
+        this.refillNanos = Math.max(1, refillPeriod.toNanos() / capacity);
+        this.burstNanos = refillNanos * capacity;
+        this.fullAt = new AtomicLong(nowNanos);
+    }
+
+    /**
+     * Returns 0 when a token was taken, otherwise the nanoseconds until the next one.
+     */
+    public long tryAcquire(long nowNanos) {
+        while (true) {
+            long current = fullAt.get();
+            // A bucket full since before now starts from now, the unused time is not saved up
+            long next = (current - nowNanos > 0 ? current : nowNanos) + refillNanos;
+            long waitNanos = next - nowNanos - burstNanos;
+
+            if (waitNanos > 0) {
+                return waitNanos;
+            }
+
+            if (fullAt.compareAndSet(current, next)) {
+                return 0;
+            }
+        }
+    }
+
+    /**
+     * Puts back a token taken with {@link #tryAcquire(long)}, for a request rejected by another limit.
+     * A bucket that refilled in the meantime is full no matter how far back the time is moved.
+     */
+    public void release() {
+        fullAt.addAndGet(-refillNanos);
+    }
+
+    /**
+     * A bucket full for that long behaves exactly like a new one, so it can be dropped.
+     */
+    public boolean isIdle(long nowNanos, long idleNanos) {
+        return nowNanos - fullAt.get() >= idleNanos;
+    }
+}
@@ -0,0 +1,325 @@
+package com.personal.spring_questly.benchmark;
+
+import com.personal.spring_questly.util.AsyncFileTransfer;
+import com.personal.spring_questly.utils.NonBlockingServletOutputStream;
+import jakarta.servlet.AsyncContext;
+import jakarta.servlet.AsyncEvent;
+import jakarta.servlet.AsyncListener;
+import jakarta.servlet.ServletOutputStream;
+import jakarta.servlet.http.HttpServletResponseWrapper;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.AsynchronousFileChannel;
+import java.nio.channels.CompletionHandler;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Compares the blocking download path with the async one on a slow disk, run with {@code mvn test -Pbenchmark}.
+ * Every read of a buffer takes {@link #DISK_LATENCY_MS}. Downloads and cheap requests, such as 304s or
+ * hot cache hits, arrive together and share the request threads.
+ * The JDK runs async file reads as blocking calls on the io threads, so the disk is just as slow
+ * for both paths. What changes is how many request threads downloads hold, and so how long cheap
+ * requests wait for one.
+ */
+@Tag("benchmark")
+public class FileIoBenchmarkTests {
+    private static final int REQUEST_THREADS = 200;
+    private static final int DOWNLOADS = 400;
+    private static final int CHEAP_REQUESTS = 400;
+    private static final int FILE_SIZE = 1024 * 1024;
+    private static final int BUFFER_SIZE = 64 * 1024;
+    private static final long DISK_LATENCY_MS = 2;
+
+    @TempDir
+    Path tempDir;
+
+    @Test
+    void benchmarkSlowDisk() throws Exception {
+        byte[] content = new byte[FILE_SIZE];
+        new Random(42).nextBytes(content);
+        Path filePath = Files.write(tempDir.resolve("file.bin"), content);
+
+        // Warms up both paths before anything is measured
+        this.runBlocking(filePath);
+        this.runAsync(filePath, 8);
+
+        System.out.printf("%-16s %22s %18s %18s%n", "path", "busy request threads", "download p99 ms",
+                "cheap request p99 ms");
+        this.print("blocking", this.runBlocking(filePath));
+        this.print("async, 8 io", this.runAsync(filePath, 8));
+        this.print("async, 64 io", this.runAsync(filePath, 64));
+    }
+
+    private Result runBlocking(Path filePath) throws Exception {
+        ExecutorService requestThreads = Executors.newFixedThreadPool(REQUEST_THREADS);
+        Result result = new Result();
+
+        try {
+            List<Future<?>> requests = new ArrayList<>();
+            long startedAt = System.nanoTime();
+
+            for (int i = 0; i < DOWNLOADS + CHEAP_REQUESTS; i++) {
+                boolean isDownload = i % 2 == 0;
+
+                requests.add(requestThreads.submit(() -> {
+                    result.enter();
+
+                    try {
+                        if (isDownload) {
+                            // Same loop as the blocking transferFile, with every read slowed down
+                            this.transferBlocking(filePath, OutputStream.nullOutputStream());
+                            result.downloadLatencies.add(System.nanoTime() - startedAt);
+                        } else {
+                            result.cheapLatencies.add(System.nanoTime() - startedAt);
+                        }
+                    } catch (IOException | InterruptedException ex) {
+                        throw new IllegalStateException(ex);
+                    } finally {
+                        result.exit();
+                    }
+                }));
+            }
+
+            for (Future<?> request : requests) {
+                request.get();
+            }
+        } finally {
+            requestThreads.shutdown();
+        }
+
+        return result;
+    }
+
+    private Result runAsync(Path filePath, int ioThreads) throws Exception {
+        ExecutorService requestThreads = Executors.newFixedThreadPool(REQUEST_THREADS);
+        ExecutorService ioExecutor = Executors.newFixedThreadPool(ioThreads);
+        ExecutorService container = Executors.newFixedThreadPool(4);
+        Result result = new Result();
+        CountDownLatch done = new CountDownLatch(DOWNLOADS);
+
+        try {
+            long startedAt = System.nanoTime();
+
+            for (int i = 0; i < DOWNLOADS + CHEAP_REQUESTS; i++) {
+                boolean isDownload = i % 2 == 0;
+
+                requestThreads.execute(() -> {
+                    result.enter();
+
+                    try {
+                        if (isDownload) {
+                            this.startAsyncTransfer(filePath, ioExecutor, container, () -> {
+                                result.downloadLatencies.add(System.nanoTime() - startedAt);
+                                done.countDown();
+                            });
+                        } else {
+                            result.cheapLatencies.add(System.nanoTime() - startedAt);
+                        }
+                    } catch (IOException ex) {
+                        throw new IllegalStateException(ex);
+                    } finally {
+                        result.exit();
+                    }
+                });
+            }
+
+            if (!done.await(2, TimeUnit.MINUTES)) {
+                throw new IllegalStateException("Async downloads did not complete");
+            }
+        } finally {
+            requestThreads.shutdown();
+            ioExecutor.shutdown();
+            container.shutdown();
+        }
+
+        return result;
+    }
+
+    private void startAsyncTransfer(Path filePath, ExecutorService ioExecutor, ExecutorService container,
+                                    Runnable onComplete) throws IOException {
+        MockHttpServletRequest request = new MockHttpServletRequest("GET", "/files/module/file.bin");
+        request.setAsyncSupported(true);
+
+        ServletOutputStream out = new NonBlockingServletOutputStream(container, false);
+        HttpServletResponseWrapper response = new HttpServletResponseWrapper(new MockHttpServletResponse()) {
+            @Override
+            public ServletOutputStream getOutputStream() {
+                return out;
+            }
+        };
+
+        AsyncContext asyncContext = request.startAsync(request, response);
+        asyncContext.addListener(new AsyncListener() {
+            @Override
+            public void onComplete(AsyncEvent event) {
+                onComplete.run();
+            }
+
+            @Override
+            public void onTimeout(AsyncEvent event) {
+            }
+
+            @Override
+            public void onError(AsyncEvent event) {
+            }
+
+            @Override
+            public void onStartAsync(AsyncEvent event) {
+            }
+        });
+
+        AsynchronousFileChannel channel = new SlowAsynchronousFileChannel(
+                FileChannel.open(filePath, StandardOpenOption.READ), ioExecutor);
+
+        new AsyncFileTransfer(channel, 0, FILE_SIZE, asyncContext, BUFFER_SIZE).start();
+    }
+
+    private void transferBlocking(Path filePath, OutputStream out) throws IOException, InterruptedException {
+        ByteBuffer buffer = ByteBuffer.allocate(BUFFER_SIZE);
+
+        try (FileChannel channel = FileChannel.open(filePath, StandardOpenOption.READ)) {
+            while (true) {
+                buffer.clear();
+                Thread.sleep(DISK_LATENCY_MS);
+
+                if (channel.read(buffer) < 0) {
+                    return;
+                }
+
+                out.write(buffer.array(), 0, buffer.position());
+            }
+        }
+    }
+
+    private void print(String path, Result result) {
+        System.out.printf("%-16s %22d %18.1f %18.1f%n", path, result.maxBusyThreads.get(),
+                percentile(result.downloadLatencies, 0.99), percentile(result.cheapLatencies, 0.99));
+    }
+
+    private static double percentile(List<Long> latencies, double percentile) {
+        List<Long> sorted = new ArrayList<>(latencies);
+        Collections.sort(sorted);
+
+        int index = (int) Math.ceil(percentile * sorted.size()) - 1;
+        return sorted.get(Math.max(index, 0)) / 1_000_000.0;
+    }
+
+    private static class Result {
+        private final List<Long> downloadLatencies = Collections.synchronizedList(new ArrayList<>());
+        private final List<Long> cheapLatencies = Collections.synchronizedList(new ArrayList<>());
+        private final AtomicInteger busyThreads = new AtomicInteger();
+        private final AtomicInteger maxBusyThreads = new AtomicInteger();
+
+        void enter() {
+            maxBusyThreads.accumulateAndGet(busyThreads.incrementAndGet(), Math::max);
+        }
+
+        void exit() {
+            busyThreads.decrementAndGet();
+        }
+    }
+
+    /**
+     * Holds an io thread for the disk latency before every read, the way a slow disk holds the JDK's.
+     */
+    private static class SlowAsynchronousFileChannel extends AsynchronousFileChannel {
+        private final FileChannel channel;
+        private final ExecutorService ioExecutor;
+
+        SlowAsynchronousFileChannel(FileChannel channel, ExecutorService ioExecutor) {
+            this.channel = channel;
+            this.ioExecutor = ioExecutor;
+        }
+
+        @Override
+        public <A> void read(ByteBuffer dst, long position, A attachment,
+                             CompletionHandler<Integer, ? super A> handler) {
+            ioExecutor.execute(() -> {
+                try {
+                    Thread.sleep(DISK_LATENCY_MS);
+                    handler.completed(channel.read(dst, position), attachment);
+                } catch (IOException | InterruptedException ex) {
+                    handler.failed(ex, attachment);
+                }
+            });
+        }
+
+        @Override
+        public long size() throws IOException {
+            return channel.size();
+        }
+
+        @Override
+        public boolean isOpen() {
+            return channel.isOpen();
+        }
+
+        @Override
+        public void close() throws IOException {
+            channel.close();
+        }
+
+        @Override
+        public AsynchronousFileChannel truncate(long size) {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public void force(boolean metaData) {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public <A> void lock(long position, long size, boolean shared, A attachment,
+                             CompletionHandler<FileLock, ? super A> handler) {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public Future<FileLock> lock(long position, long size, boolean shared) {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public FileLock tryLock(long position, long size, boolean shared) {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public Future<Integer> read(ByteBuffer dst, long position) {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public <A> void write(ByteBuffer src, long position, A attachment,
+                              CompletionHandler<Integer, ? super A> handler) {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public Future<Integer> write(ByteBuffer src, long position) {
+            throw new UnsupportedOperationException();
+        }
+    }
+}
@@ -0,0 +1,111 @@
+package com.personal.spring_questly.benchmark;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.personal.spring_questly.config.CacheConfig;
+import com.personal.spring_questly.model.User;
+import com.personal.spring_questly.util.JwtUtil;
+import com.personal.spring_questly.util.JwtUtil.VerifiedToken;
+import io.jsonwebtoken.Jwts;
+import io.jsonwebtoken.security.Keys;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import org.openjdk.jmh.runner.options.TimeValue;
+
+import java.util.Base64;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+import static com.personal.spring_questly.utils.FieldUtils.injectField;
+
+/**
+ * Compares the ways of reading the email from a token, run with {@code mvn test -Pbenchmark}.
+ * perRequestParser is what JwtUtil did before, building the key and the parser for every request.
+ * sharedParser still checks the signature and parses the claims, with the cache turned off.
+ * verifiedTokenCache is a repeat request with the same token.
+ */
+@Tag("benchmark")
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class JwtUtilBenchmarkTests {
+    private static final String SECRET = Base64.getEncoder().encodeToString(
+            "thisisrandomstringfortestonlyonlyonlyonly".getBytes());
+    private static final String EMAIL = "test123@gmail.com";
+
+    private JwtUtil uncachedJwtUtil;
+    private JwtUtil cachedJwtUtil;
+    private String token;
+
+    @Setup
+    public void setup() {
+        // Evicted right on put, so every call takes the parser
+        uncachedJwtUtil = this.createJwtUtil(Caffeine.newBuilder()
+                                                     .maximumSize(0)
+                                                     .executor(Runnable::run)
+                                                     .build());
+
+        CacheConfig cacheConfig = new CacheConfig();
+        injectField(cacheConfig, "verifiedTokenCacheMaxSize", 10000L);
+        cachedJwtUtil = this.createJwtUtil(cacheConfig.verifiedTokenCache(new SimpleMeterRegistry()));
+
+        token = cachedJwtUtil.generateToken(User.builder()
+                                                .id(UUID.randomUUID())
+                                                .email(EMAIL)
+                                                .isQuester(true)
+                                                .build());
+    }
+
+    @Benchmark
+    public String perRequestParser() {
+        return Jwts.parserBuilder()
+                   .setSigningKey(Keys.hmacShaKeyFor(SECRET.getBytes()))
+                   .build()
+                   .parseClaimsJws(token)
+                   .getBody()
+                   .getSubject();
+    }
+
+    @Benchmark
+    public String sharedParser() {
+        return uncachedJwtUtil.extractEmail(token);
+    }
+
+    @Benchmark
+    public String verifiedTokenCache() {
+        return cachedJwtUtil.extractEmail(token);
+    }
+
+    @Test
+    void benchmarkExtractEmail() throws RunnerException {
+        Options options = new OptionsBuilder().include(JwtUtilBenchmarkTests.class.getName())
+                                              .warmupIterations(3)
+                                              .warmupTime(TimeValue.seconds(1))
+                                              .measurementIterations(5)
+                                              .measurementTime(TimeValue.seconds(1))
+                                              .forks(1)
+                                              .build();
+
+        new Runner(options).run();
+    }
+
+    private JwtUtil createJwtUtil(Cache<String, VerifiedToken> cache) {
+        JwtUtil jwtUtil = new JwtUtil(cache);
+        injectField(jwtUtil, "secret", SECRET);
+        injectField(jwtUtil, "expirationMs", 3600000L);
+        jwtUtil.init();
+        return jwtUtil;
+    }
+}
@@ -1,6 +1,8 @@
 package com.personal.spring_questly.service;
 
+import com.personal.spring_questly.dto.auth.AuthTokensDTO;
 import com.personal.spring_questly.dto.auth.LoginRequestDTO;
+import com.personal.spring_questly.dto.auth.RefreshTokenRequestDTO;
 import com.personal.spring_questly.dto.auth.RegisterRequestDTO;
 import com.personal.spring_questly.exception.CustomException.BadRequestException;
 import com.personal.spring_questly.exception.CustomException.UnauthorizedException;
@@ -9,14 +11,17 @@ import com.personal.spring_questly.model.UserProfile;
 import com.personal.spring_questly.repository.UserRepository;
 import com.personal.spring_questly.service.impl.AuthServiceImpl;
 import com.personal.spring_questly.util.JwtUtil;
+import com.personal.spring_questly.util.JwtUtil.VerifiedToken;
+import io.jsonwebtoken.MalformedJwtException;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
 import org.springframework.http.HttpStatus;
-import org.springframework.security.crypto.password.PasswordEncoder;
 
+import java.time.Instant;
+import java.util.List;
 import java.util.Optional;
 import java.util.UUID;
 
@@ -32,7 +37,13 @@ public class AuthServiceTests {
     private JwtUtil jwtUtil;
 
     @Mock
-    private PasswordEncoder passwordEncoder;
+    private PasswordHashService passwordHashService;
+
+    @Mock
+    private TokenRevocationService tokenRevocationService;
+
+    @Mock
+    private RefreshTokenService refreshTokenService;
 
     @InjectMocks
     private AuthServiceImpl authService;
@@ -60,8 +71,8 @@ public class AuthServiceTests {
 
         verify(userRepository, times(1)).existsByEmail(dto.email());
         verify(userRepository, times(0)).save(any(User.class));
-        verify(jwtUtil, times(0)).generateToken(dto.email());
-        verify(passwordEncoder, times(0)).encode(dto.password());
+        verify(refreshTokenService, times(0)).issue(any(User.class));
+        verify(passwordHashService, times(0)).encode(dto.password());
     }
 
 
@@ -93,17 +104,17 @@ public class AuthServiceTests {
 
         when(userRepository.existsByEmail(dto.email())).thenReturn(false);
         when(userRepository.save(newUser)).thenReturn(newUser);
-        when(passwordEncoder.encode(dto.password())).thenReturn("encoded");
-        when(jwtUtil.generateToken(newUser.getEmail())).thenReturn("jwt token");
+        when(passwordHashService.encode(dto.password())).thenReturn("encoded");
+        when(refreshTokenService.issue(newUser)).thenReturn(this.createTokens());
 
-        String result = authService.register(dto);
+        AuthTokensDTO result = authService.register(dto);
 
         assertNotNull(result);
 
         verify(userRepository, times(1)).existsByEmail(dto.email());
         verify(userRepository, times(1)).save(any(User.class));
-        verify(jwtUtil, times(1)).generateToken(dto.email());
-        verify(passwordEncoder, times(1)).encode(dto.password());
+        verify(refreshTokenService, times(1)).issue(newUser);
+        verify(passwordHashService, times(1)).encode(dto.password());
     }
 
     @Test
@@ -143,7 +154,7 @@ public class AuthServiceTests {
                              .build();
 
         when(userRepository.findByEmail(dto.email())).thenReturn(Optional.of(foundUser));
-        when(passwordEncoder.matches(dto.password(), foundUser.getPassword())).thenReturn(false);
+        when(passwordHashService.matches(dto.password(), foundUser.getPassword())).thenReturn(false);
 
         UnauthorizedException errors = assertThrows(UnauthorizedException.class, () ->
                 authService.login(dto));
@@ -151,6 +162,7 @@ public class AuthServiceTests {
         assertNotNull(errors);
         assertEquals(HttpStatus.UNAUTHORIZED, errors.getStatus());
         verify(userRepository, times(1)).findByEmail(dto.email());
+        verify(passwordHashService, times(0)).upgradeEncoding(any(), any(), any());
     }
 
     @Test
@@ -172,13 +184,140 @@ public class AuthServiceTests {
                              .build();
 
         when(userRepository.findByEmail(dto.email())).thenReturn(Optional.of(foundUser));
-        when(passwordEncoder.matches(dto.password(), foundUser.getPassword())).thenReturn(true);
-        when(jwtUtil.generateToken(foundUser.getEmail())).thenReturn("jwt token");
+        when(passwordHashService.matches(dto.password(), foundUser.getPassword())).thenReturn(true);
+        when(refreshTokenService.issue(foundUser)).thenReturn(this.createTokens());
 
-        String result = authService.login(dto);
+        AuthTokensDTO result = authService.login(dto);
 
         assertNotNull(result);
         verify(userRepository, times(1)).findByEmail(dto.email());
-        verify(jwtUtil, times(1)).generateToken(foundUser.getEmail());
+        verify(refreshTokenService, times(1)).issue(foundUser);
+        verify(passwordHashService, times(1)).upgradeEncoding(foundUser.getId(), dto.password(), "123qwe");
+    }
+
+    @Test
+    void testRefresh_Success() {
+        RefreshTokenRequestDTO dto = RefreshTokenRequestDTO.builder()
+                                                           .refreshToken("refresh token")
+                                                           .build();
+        AuthTokensDTO tokens = this.createTokens();
+
+        when(refreshTokenService.rotate("refresh token")).thenReturn(tokens);
+
+        AuthTokensDTO result = authService.refresh(dto);
+
+        assertEquals(tokens, result);
+        verifyNoInteractions(passwordHashService);
+    }
+
+    @Test
+    void testLogout_Success() {
+        UUID tokenId = UUID.randomUUID();
+        Instant expiresAt = Instant.now().plusSeconds(60);
+        VerifiedToken verifiedToken = new VerifiedToken("test123@gmail.com", UUID.randomUUID(), List.of(), 0,
+                expiresAt, tokenId);
+        RefreshTokenRequestDTO dto = RefreshTokenRequestDTO.builder()
+                                                           .refreshToken("refresh token")
+                                                           .build();
+
+        when(jwtUtil.verifyAllowingExpired("jwt token")).thenReturn(verifiedToken);
+
+        authService.logout("jwt token", dto);
+
+        verify(tokenRevocationService, times(1)).revokeToken(tokenId, expiresAt);
+        verify(refreshTokenService, times(1)).revoke("refresh token");
+        verify(tokenRevocationService, times(0)).revoke(any());
+        verifyNoInteractions(userRepository);
+    }
+
+    @Test
+    void testLogout_TokenWithoutId_RevokesUser() {
+        UUID userId = UUID.randomUUID();
+        VerifiedToken verifiedToken = new VerifiedToken("test123@gmail.com", userId, List.of(), 0,
+                Instant.now().plusSeconds(60), null);
+
+        when(jwtUtil.verifyAllowingExpired("jwt token")).thenReturn(verifiedToken);
+
+        authService.logout("jwt token", null);
+
+        verify(tokenRevocationService, times(1)).revoke(userId);
+        verifyNoInteractions(userRepository, refreshTokenService);
+    }
+
+    @Test
+    void testLogout_TokenWithoutUserId_LooksUpUser() {
+        User foundUser = User.builder()
+                             .id(UUID.randomUUID())
+                             .email("test123@gmail.com")
+                             .build();
+        VerifiedToken verifiedToken = new VerifiedToken(foundUser.getEmail(), null, List.of(), 0,
+                Instant.now().plusSeconds(60), null);
+
+        when(jwtUtil.verifyAllowingExpired("jwt token")).thenReturn(verifiedToken);
+        when(userRepository.findByEmail(foundUser.getEmail())).thenReturn(Optional.of(foundUser));
+
+        authService.logout("jwt token", null);
+
+        verify(tokenRevocationService, times(1)).revoke(foundUser.getId());
+    }
+
+    @Test
+    void testLogout_ExpiredToken_RevokesRefreshTokenOnly() {
+        VerifiedToken verifiedToken = new VerifiedToken("test123@gmail.com", UUID.randomUUID(), List.of(), 0,
+                Instant.now().minusSeconds(60), UUID.randomUUID());
+        RefreshTokenRequestDTO dto = RefreshTokenRequestDTO.builder()
+                                                           .refreshToken("refresh token")
+                                                           .build();
+
+        when(jwtUtil.verifyAllowingExpired("jwt token")).thenReturn(verifiedToken);
+
+        authService.logout("jwt token", dto);
+
+        verify(refreshTokenService, times(1)).revoke("refresh token");
+        verifyNoInteractions(tokenRevocationService, userRepository);
+    }
+
+    @Test
+    void testLogout_InvalidToken_RefreshTokenStillRevoked() {
+        RefreshTokenRequestDTO dto = RefreshTokenRequestDTO.builder()
+                                                           .refreshToken("refresh token")
+                                                           .build();
+
+        when(jwtUtil.verifyAllowingExpired("jwt token")).thenThrow(new MalformedJwtException("malformed"));
+
+        UnauthorizedException errors = assertThrows(UnauthorizedException.class, () ->
+                authService.logout("jwt token", dto));
+
+        assertEquals(HttpStatus.UNAUTHORIZED, errors.getStatus());
+        verify(refreshTokenService, times(1)).revoke("refresh token");
+        verifyNoInteractions(tokenRevocationService);
+    }
+
+    @Test
+    void testLogout_WithoutToken_RevokesRefreshToken() {
+        RefreshTokenRequestDTO dto = RefreshTokenRequestDTO.builder()
+                                                           .refreshToken("refresh token")
+                                                           .build();
+
+        authService.logout(null, dto);
+
+        verify(refreshTokenService, times(1)).revoke("refresh token");
+        verifyNoInteractions(jwtUtil, tokenRevocationService);
+    }
+
+    @Test
+    void testLogout_WithoutAnyToken_BadRequest() {
+        BadRequestException errors = assertThrows(BadRequestException.class, () ->
+                authService.logout(null, null));
+
+        assertEquals(HttpStatus.BAD_REQUEST, errors.getStatus());
+        verifyNoInteractions(jwtUtil, refreshTokenService, tokenRevocationService);
+    }
+
+    private AuthTokensDTO createTokens() {
+        return AuthTokensDTO.builder()
+                            .accessToken("jwt token")
+                            .refreshToken("refresh token")
+                            .build();
     }
 }
@@ -0,0 +1,138 @@
+package com.personal.spring_questly.service;
+
+import com.personal.spring_questly.model.Blob;
+import com.personal.spring_questly.repository.BlobRepository;
+import com.personal.spring_questly.service.impl.BlobServiceImpl;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.junit.jupiter.api.io.TempDir;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import static com.personal.spring_questly.utils.FieldUtils.injectField;
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+public class BlobServiceTests {
+    // SHA-256 of "content"
+    private static final String HASH = "ed7002b439e9ac845f22357d822bac1444730fbdb6016d3ec9432297b9ec9f73";
+
+    @Mock
+    private BlobRepository blobRepository;
+
+    @InjectMocks
+    private BlobServiceImpl blobService;
+
+    @TempDir
+    Path uploadDir;
+
+    @BeforeEach
+    void setup() {
+        injectField(blobService, "uploadDir", uploadDir.toString());
+    }
+
+    @Test
+    void testStore_NewBlob_Success() throws IOException {
+        Path target = Files.createDirectories(uploadDir.resolve("module")).resolve("file1.txt");
+
+        Blob result = blobService.store(new ByteArrayInputStream("content".getBytes()), target);
+
+        assertEquals(HASH, result.getHash());
+        assertEquals(7L, result.getSize());
+        assertEquals("content", Files.readString(target));
+        assertTrue(Files.exists(blobService.getBlobPath(HASH)));
+        verify(blobRepository, times(1)).addReference(HASH, 7L);
+    }
+
+    @Test
+    void testStore_DuplicateBlob_SharesStoredContent() throws IOException {
+        Path moduleDir = Files.createDirectories(uploadDir.resolve("module"));
+        Path target1 = moduleDir.resolve("file1.txt");
+        Path target2 = moduleDir.resolve("file2.txt");
+
+        blobService.store(new ByteArrayInputStream("content".getBytes()), target1);
+        Blob result = blobService.store(new ByteArrayInputStream("content".getBytes()), target2);
+
+        assertEquals(HASH, result.getHash());
+        assertEquals("content", Files.readString(target2));
+        assertTrue(Files.isSameFile(target1, target2));
+        verify(blobRepository, times(2)).addReference(HASH, 7L);
+
+        try (var tempFiles = Files.list(uploadDir.resolve(BlobServiceImpl.TEMP_DIR))) {
+            assertEquals(0, tempFiles.count());
+        }
+    }
+
+    @Test
+    void testQuarantineIfUnreferenced() throws IOException {
+        Path blobPath = blobService.getBlobPath(HASH);
+        Files.createDirectories(blobPath.getParent());
+        Files.writeString(blobPath, "content");
+        Path quarantinePath = uploadDir.resolve(".quarantine").resolve(HASH);
+
+        when(blobRepository.existsById(HASH)).thenReturn(true, false);
+
+        assertFalse(blobService.quarantineIfUnreferenced(HASH, quarantinePath));
+        assertTrue(Files.exists(blobPath));
+
+        assertTrue(blobService.quarantineIfUnreferenced(HASH, quarantinePath));
+        assertFalse(Files.exists(blobPath));
+        assertEquals("content", Files.readString(quarantinePath));
+    }
+
+    @Test
+    void testReleaseLinked_LinkedFile_ReleasesReference() throws IOException {
+        Path target = Files.createDirectories(uploadDir.resolve("module")).resolve("file1.txt");
+        blobService.store(new ByteArrayInputStream("content".getBytes()), target);
+
+        assertTrue(blobService.releaseLinked(target));
+        verify(blobRepository, times(1)).decrementRefCount(HASH);
+    }
+
+    @Test
+    void testReleaseLinked_PrivateCopy_NotReleased() throws IOException {
+        Path blobPath = blobService.getBlobPath(HASH);
+        Files.createDirectories(blobPath.getParent());
+        Files.writeString(blobPath, "content");
+        Path copy = Files.writeString(uploadDir.resolve("file1.txt"), "content");
+
+        assertFalse(blobService.releaseLinked(copy));
+        verify(blobRepository, never()).decrementRefCount(any());
+    }
+
+    @Test
+    void testRelease_LastReference_DeletesBlob() throws IOException {
+        Path blobPath = blobService.getBlobPath(HASH);
+        Files.createDirectories(blobPath.getParent());
+        Files.writeString(blobPath, "content");
+
+        when(blobRepository.deleteIfUnreferenced(HASH)).thenReturn(1);
+
+        blobService.release(HASH);
+
+        verify(blobRepository, times(1)).decrementRefCount(HASH);
+        assertFalse(Files.exists(blobPath));
+    }
+
+    @Test
+    void testRelease_StillReferenced_KeepsBlob() throws IOException {
+        Path blobPath = blobService.getBlobPath(HASH);
+        Files.createDirectories(blobPath.getParent());
+        Files.writeString(blobPath, "content");
+
+        when(blobRepository.deleteIfUnreferenced(HASH)).thenReturn(0);
+
+        blobService.release(HASH);
+
+        verify(blobRepository, times(1)).decrementRefCount(HASH);
+        assertTrue(Files.exists(blobPath));
+    }
+}
@@ -0,0 +1,154 @@
+package com.personal.spring_questly.service;
+
+import com.personal.spring_questly.exception.CustomException.BadRequestException;
+import com.personal.spring_questly.exception.CustomException.NotFoundException;
+import com.personal.spring_questly.repository.FileRepository;
+import com.personal.spring_questly.service.impl.FileArchiveServiceImpl;
+import com.personal.spring_questly.service.impl.LocalStorageBackend;
+import com.personal.spring_questly.util.FileLayoutUtil;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.junit.jupiter.api.io.TempDir;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.Spy;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.mock.web.MockHttpServletResponse;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Instant;
+import java.util.List;
+import java.util.UUID;
+import java.util.stream.Stream;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipInputStream;
+
+import static com.personal.spring_questly.utils.FieldUtils.injectField;
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+public class FileArchiveServiceTests {
+    private static final String MODULE_NAME = "testmodule";
+
+    @Mock
+    private FileRepository fileRepository;
+    @Spy
+    private FileLayoutUtil fileLayoutUtil = new FileLayoutUtil();
+    @InjectMocks
+    private FileArchiveServiceImpl fileArchiveService;
+
+    @TempDir
+    Path uploadDir;
+
+    @BeforeEach
+    void setup() {
+        injectField(fileLayoutUtil, "uploadDir", uploadDir.toString());
+        injectField(fileArchiveService, "storageBackend", new LocalStorageBackend(null, fileLayoutUtil));
+        injectField(fileArchiveService, "maxFiles", 10);
+        injectField(fileArchiveService, "compressionLevel", 1);
+    }
+
+    @Test
+    void testStreamArchive_Success() throws IOException {
+        com.personal.spring_questly.model.File text = createFileOnDisk("notes.txt", "text/plain", "hello ".repeat(1000));
+        com.personal.spring_questly.model.File image = createFileOnDisk("photo.png", "image/png", "png-bytes");
+        com.personal.spring_questly.model.File missing = createTestFile("missing.txt", "text/plain");
+
+        List<UUID> ids = List.of(image.getId(), text.getId(), missing.getId());
+        when(fileRepository.findAllById(ids)).thenReturn(List.of(text, image, missing));
+
+        MockHttpServletResponse response = new MockHttpServletResponse();
+        fileArchiveService.streamArchive(ids, response);
+
+        assertEquals("application/zip", response.getContentType());
+        assertTrue(response.getHeader("Content-Disposition").contains("files.zip"));
+
+        try (ZipInputStream zip = new ZipInputStream(new ByteArrayInputStream(response.getContentAsByteArray()))) {
+            ZipEntry first = zip.getNextEntry();
+            assertEquals(MODULE_NAME + "/photo.png", first.getName());
+            assertEquals(ZipEntry.STORED, first.getMethod());
+            assertEquals("png-bytes", new String(zip.readAllBytes(), StandardCharsets.UTF_8));
+
+            ZipEntry second = zip.getNextEntry();
+            assertEquals(MODULE_NAME + "/notes.txt", second.getName());
+            assertEquals(ZipEntry.DEFLATED, second.getMethod());
+            assertEquals("hello ".repeat(1000), new String(zip.readAllBytes(), StandardCharsets.UTF_8));
+
+            // Rows without a file on disk are left out
+            assertNull(zip.getNextEntry());
+        }
+    }
+
+    @Test
+    void testStreamArchive_RemoteBackend_Success() throws IOException {
+        StorageBackend remoteBackend = mock(StorageBackend.class);
+        injectField(fileArchiveService, "storageBackend", remoteBackend);
+
+        com.personal.spring_questly.model.File image = createTestFile("photo.png", "image/png");
+        String storageKey = MODULE_NAME + "/photo.png";
+
+        when(fileRepository.findAllById(List.of(image.getId()))).thenReturn(List.of(image));
+        when(remoteBackend.get(storageKey))
+                .thenAnswer(invocation -> new ByteArrayInputStream("png-bytes".getBytes(StandardCharsets.UTF_8)));
+
+        MockHttpServletResponse response = new MockHttpServletResponse();
+        fileArchiveService.streamArchive(List.of(image.getId()), response);
+
+        try (ZipInputStream zip = new ZipInputStream(new ByteArrayInputStream(response.getContentAsByteArray()))) {
+            ZipEntry entry = zip.getNextEntry();
+            assertEquals(storageKey, entry.getName());
+            assertEquals(ZipEntry.STORED, entry.getMethod());
+            assertEquals("png-bytes", new String(zip.readAllBytes(), StandardCharsets.UTF_8));
+        }
+
+        // Once for the CRC of the STORED entry, once for its content
+        verify(remoteBackend, times(2)).get(storageKey);
+    }
+
+    @Test
+    void testStreamArchive_OnlyTombstoned_NotFound() {
+        com.personal.spring_questly.model.File file = createTestFile("deleted.txt", "text/plain");
+        file.setDeletedAt(Instant.now());
+
+        when(fileRepository.findAllById(List.of(file.getId()))).thenReturn(List.of(file));
+
+        MockHttpServletResponse response = new MockHttpServletResponse();
+
+        assertThrows(NotFoundException.class, () ->
+                fileArchiveService.streamArchive(List.of(file.getId()), response));
+        assertFalse(response.isCommitted());
+    }
+
+    @Test
+    void testStreamArchive_TooManyFiles_BadRequest() {
+        List<UUID> ids = Stream.generate(UUID::randomUUID).limit(11).toList();
+
+        assertThrows(BadRequestException.class, () ->
+                fileArchiveService.streamArchive(ids, new MockHttpServletResponse()));
+        verifyNoInteractions(fileRepository);
+    }
+
+    private com.personal.spring_questly.model.File createTestFile(String name, String type) {
+        return com.personal.spring_questly.model.File.builder()
+                                                     .id(UUID.randomUUID())
+                                                     .moduleName(MODULE_NAME)
+                                                     .name(name)
+                                                     .type(type)
+                                                     .build();
+    }
+
+    private com.personal.spring_questly.model.File createFileOnDisk(String name, String type, String content)
+            throws IOException {
+        Path filePath = fileLayoutUtil.getFilePath(MODULE_NAME, name);
+        Files.createDirectories(filePath.getParent());
+        Files.writeString(filePath, content);
+
+        return createTestFile(name, type);
+    }
+}
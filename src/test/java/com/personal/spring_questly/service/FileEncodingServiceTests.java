@@ -0,0 +1,159 @@
+package com.personal.spring_questly.service;
+
+import com.personal.spring_questly.dto.file.FileMetadataDTO;
+import com.personal.spring_questly.service.impl.FileEncodingServiceImpl;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.junit.jupiter.api.io.TempDir;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.util.unit.DataSize;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Random;
+import java.util.stream.Stream;
+import java.util.zip.GZIPInputStream;
+
+import static com.personal.spring_questly.utils.FieldUtils.injectField;
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+public class FileEncodingServiceTests {
+    private static final String MODULE_NAME = "testmodule";
+    private static final String FILE_NAME = "file.json";
+    private static final String STORAGE_KEY = MODULE_NAME + "/" + FILE_NAME;
+
+    @Mock
+    private StorageBackend storageBackend;
+    @InjectMocks
+    private FileEncodingServiceImpl fileEncodingService;
+
+    @TempDir
+    Path tempDir;
+
+    @BeforeEach
+    void setup() {
+        injectField(fileEncodingService, "precompressedDir", tempDir.resolve("precompressed").toString());
+        injectField(fileEncodingService, "isEnabled", true);
+        injectField(fileEncodingService, "minSize", DataSize.ofKilobytes(1));
+        injectField(fileEncodingService, "level", 9);
+        injectField(fileEncodingService, "maxRatio", 0.9);
+    }
+
+    @Test
+    void testPrecompress_Success() throws IOException {
+        String content = "{\"name\": \"questly\"}\n".repeat(200);
+        Path filePath = Files.writeString(tempDir.resolve(FILE_NAME), content);
+        when(storageBackend.getLocalPath(STORAGE_KEY)).thenReturn(filePath);
+
+        assertTrue(fileEncodingService.precompress(MODULE_NAME, FILE_NAME, "application/json; charset=utf-8"));
+
+        FileMetadataDTO precompressed = fileEncodingService.getPrecompressed(createMetadata(content.length()));
+
+        assertNotNull(precompressed);
+        assertEquals("gzip", precompressed.contentEncoding());
+        assertEquals("etag1-gzip", precompressed.etag());
+        assertEquals("application/json", precompressed.mimeType());
+        assertEquals(precompressed.file().length(), precompressed.size());
+        assertTrue(precompressed.size() < content.length());
+
+        try (InputStream in = new GZIPInputStream(Files.newInputStream(precompressed.file().toPath()))) {
+            assertEquals(content, new String(in.readAllBytes(), StandardCharsets.UTF_8));
+        }
+
+        // Kept apart from the image variants, so it never counts against their limit
+        assertTrue(precompressed.file().toPath().startsWith(tempDir.resolve("precompressed").toAbsolutePath()));
+    }
+
+    @Test
+    void testPrecompress_SavesTooLittle_NotKept() throws IOException {
+        byte[] content = new byte[4096];
+        new Random(42).nextBytes(content);
+        Path filePath = Files.write(tempDir.resolve(FILE_NAME), content);
+        when(storageBackend.getLocalPath(STORAGE_KEY)).thenReturn(filePath);
+
+        assertFalse(fileEncodingService.precompress(MODULE_NAME, FILE_NAME, "text/plain"));
+
+        assertNull(fileEncodingService.getPrecompressed(createMetadata(content.length)));
+        // No temp files are left behind either
+        try (Stream<Path> files = Files.list(tempDir.resolve("precompressed").resolve(MODULE_NAME))) {
+            assertEquals(0, files.count());
+        }
+    }
+
+    @Test
+    void testDeletePrecompressed() throws IOException {
+        String content = "{\"name\": \"questly\"}\n".repeat(200);
+        Path filePath = Files.writeString(tempDir.resolve(FILE_NAME), content);
+        when(storageBackend.getLocalPath(STORAGE_KEY)).thenReturn(filePath);
+
+        assertTrue(fileEncodingService.precompress(MODULE_NAME, FILE_NAME, "application/json"));
+
+        fileEncodingService.deletePrecompressed(MODULE_NAME, FILE_NAME);
+
+        assertNull(fileEncodingService.getPrecompressed(createMetadata(content.length())));
+    }
+
+    @Test
+    void testPrecompress_TooSmall_NotKept() throws IOException {
+        Path filePath = Files.writeString(tempDir.resolve(FILE_NAME), "{}");
+        when(storageBackend.getLocalPath(STORAGE_KEY)).thenReturn(filePath);
+
+        fileEncodingService.precompress(MODULE_NAME, FILE_NAME, "application/json");
+
+        assertNull(fileEncodingService.getPrecompressed(createMetadata(2)));
+    }
+
+    @Test
+    void testPrecompress_NotCompressibleType_Skipped() {
+        fileEncodingService.precompress(MODULE_NAME, "image.png", "image/png");
+
+        verifyNoInteractions(storageBackend);
+    }
+
+    @Test
+    void testPrecompress_RemoteBackend_Skipped() {
+        when(storageBackend.getLocalPath(STORAGE_KEY)).thenReturn(null);
+
+        fileEncodingService.precompress(MODULE_NAME, FILE_NAME, "application/json");
+
+        assertNull(fileEncodingService.getPrecompressed(createMetadata(4096)));
+    }
+
+    @Test
+    void testIsCompressible() {
+        assertTrue(fileEncodingService.isCompressible(createMetadata(4096)));
+        assertTrue(fileEncodingService.isCompressible(createMetadata("image/svg+xml", 4096)));
+        assertTrue(fileEncodingService.isCompressible(createMetadata("application/ld+json", 4096)));
+        assertFalse(fileEncodingService.isCompressible(createMetadata(100)));
+        assertFalse(fileEncodingService.isCompressible(createMetadata("image/png", 4096)));
+        assertFalse(fileEncodingService.isCompressible(createMetadata(null, 4096)));
+
+        injectField(fileEncodingService, "isEnabled", false);
+
+        assertFalse(fileEncodingService.isCompressible(createMetadata(4096)));
+    }
+
+    private FileMetadataDTO createMetadata(long size) {
+        return createMetadata("application/json", size);
+    }
+
+    private FileMetadataDTO createMetadata(String mimeType, long size) {
+        return FileMetadataDTO.builder()
+                              .file(tempDir.resolve(FILE_NAME).toFile())
+                              .storageKey(STORAGE_KEY)
+                              .mimeType(mimeType)
+                              .size(size)
+                              .lastModified(System.currentTimeMillis())
+                              .disposition("attachment; " + FILE_NAME)
+                              .etag("etag1")
+                              .build();
+    }
+}
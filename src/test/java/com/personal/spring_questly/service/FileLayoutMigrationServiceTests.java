@@ -0,0 +1,109 @@
+package com.personal.spring_questly.service;
+
+import com.personal.spring_questly.service.impl.FileLayoutMigrationServiceImpl;
+import com.personal.spring_questly.util.FileLayoutUtil;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.junit.jupiter.api.io.TempDir;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.Spy;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import static com.personal.spring_questly.utils.FieldUtils.injectField;
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+public class FileLayoutMigrationServiceTests {
+    private static final String MODULE_NAME = "testmodule";
+
+    @Spy
+    private FileLayoutUtil fileLayoutUtil = new FileLayoutUtil();
+    @Mock
+    private FileService fileService;
+    @InjectMocks
+    private FileLayoutMigrationServiceImpl fileLayoutMigrationService;
+
+    @TempDir
+    Path uploadDir;
+
+    @BeforeEach
+    void setup() {
+        injectField(fileLayoutUtil, "uploadDir", uploadDir.toString());
+        injectField(fileLayoutMigrationService, "isEnabled", true);
+        injectField(fileLayoutMigrationService, "batchSize", 500);
+    }
+
+    @Test
+    void testMigrateNextBatch_Disabled() throws IOException {
+        injectField(fileLayoutMigrationService, "isEnabled", false);
+        Path legacyPath = createLegacyFile("file1.txt");
+
+        assertEquals(0, fileLayoutMigrationService.migrateNextBatch());
+        assertTrue(Files.exists(legacyPath));
+        verifyNoInteractions(fileService);
+    }
+
+    @Test
+    void testMigrateNextBatch_LinksThenUnlinksOnNextRun() throws IOException {
+        Path legacyPath = createLegacyFile("file1.txt");
+        Path shardedPath = fileLayoutUtil.getFilePath(MODULE_NAME, "file1.txt");
+
+        assertEquals(1, fileLayoutMigrationService.migrateNextBatch());
+
+        // Both paths serve the same content until the next run
+        assertTrue(Files.isSameFile(legacyPath, shardedPath));
+        assertEquals(shardedPath, fileLayoutUtil.resolveFilePath(MODULE_NAME, "file1.txt"));
+        verify(fileService, times(1)).invalidateCachedFile(MODULE_NAME, "file1.txt");
+
+        assertEquals(0, fileLayoutMigrationService.migrateNextBatch());
+
+        assertFalse(Files.exists(legacyPath));
+        assertEquals("content", Files.readString(shardedPath));
+        verify(fileService, times(2)).invalidateCachedFile(MODULE_NAME, "file1.txt");
+    }
+
+    @Test
+    void testMigrateNextBatch_RespectsBatchSizeAndSkipsReservedDirs() throws IOException {
+        injectField(fileLayoutMigrationService, "batchSize", 1);
+        createLegacyFile("file1.txt");
+        createLegacyFile("file2.txt");
+        Files.createDirectories(uploadDir.resolve(".blobs"));
+        Files.writeString(uploadDir.resolve(".blobs").resolve("file3.txt"), "content");
+
+        assertEquals(1, fileLayoutMigrationService.migrateNextBatch());
+        assertEquals(1, fileLayoutMigrationService.migrateNextBatch());
+        assertEquals(0, fileLayoutMigrationService.migrateNextBatch());
+
+        assertTrue(Files.exists(fileLayoutUtil.getFilePath(MODULE_NAME, "file1.txt")));
+        assertTrue(Files.exists(fileLayoutUtil.getFilePath(MODULE_NAME, "file2.txt")));
+        assertTrue(Files.exists(uploadDir.resolve(".blobs").resolve("file3.txt")));
+
+        try (var entries = Files.list(uploadDir.resolve(MODULE_NAME))) {
+            assertTrue(entries.allMatch(Files::isDirectory));
+        }
+    }
+
+    @Test
+    void testMigrateNextBatch_FileWithoutModule_ShardedUnderRootDir() throws IOException {
+        Path legacyPath = Files.writeString(uploadDir.resolve("file1.txt"), "content");
+        Path shardedPath = fileLayoutUtil.getFilePath(null, "file1.txt");
+
+        assertEquals(1, fileLayoutMigrationService.migrateNextBatch());
+
+        assertTrue(Files.isSameFile(legacyPath, shardedPath));
+        assertEquals(uploadDir.resolve(FileLayoutUtil.ROOT_DIR), shardedPath.getParent().getParent().getParent());
+        verify(fileService, times(1)).invalidateCachedFile(null, "file1.txt");
+    }
+
+    private Path createLegacyFile(String fileName) throws IOException {
+        Path moduleDir = Files.createDirectories(uploadDir.resolve(MODULE_NAME));
+        return Files.writeString(moduleDir.resolve(fileName), "content");
+    }
+}
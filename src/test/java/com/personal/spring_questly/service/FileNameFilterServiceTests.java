@@ -0,0 +1,145 @@
+package com.personal.spring_questly.service;
+
+import com.personal.spring_questly.repository.FileRepository;
+import com.personal.spring_questly.service.impl.FileNameFilterServiceImpl;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.Spy;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.data.domain.Pageable;
+import org.springframework.util.unit.DataSize;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.List;
+
+import static com.personal.spring_questly.utils.FieldUtils.injectField;
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+public class FileNameFilterServiceTests {
+    private static final String MODULE_NAME = "testmodule";
+
+    @Mock
+    private FileRepository fileRepository;
+    @Spy
+    private MeterRegistry meterRegistry = new SimpleMeterRegistry();
+    @InjectMocks
+    private FileNameFilterServiceImpl fileNameFilterService;
+
+    @BeforeEach
+    void setup() {
+        injectField(fileNameFilterService, "isEnabled", true);
+        injectField(fileNameFilterService, "fpp", 0.01);
+        injectField(fileNameFilterService, "minExpectedNames", 1024L);
+        injectField(fileNameFilterService, "maxSize", DataSize.ofMegabytes(64));
+        injectField(fileNameFilterService, "refreshOverlap", Duration.ofMinutes(1));
+    }
+
+    @Test
+    void testMightExist_NotBuilt_AlwaysTrue() {
+        assertTrue(fileNameFilterService.mightExist(MODULE_NAME, "missing.png"));
+        verifyNoInteractions(fileRepository);
+    }
+
+    @Test
+    void testMightExist_Built_MissingNamesFilteredOut() {
+        this.stubStoredNames();
+
+        fileNameFilterService.refresh();
+        clearInvocations(fileRepository);
+
+        assertTrue(fileNameFilterService.mightExist(MODULE_NAME, "file1.png"));
+        assertTrue(fileNameFilterService.mightExist(MODULE_NAME, "file2.png"));
+        assertFalse(fileNameFilterService.mightExist(MODULE_NAME, "missing.png"));
+        assertFalse(fileNameFilterService.mightExist("othermodule", "file1.png"));
+        assertEquals(2, meterRegistry.counter("file.name.filter.negatives").count());
+
+        // Negatives are answered from the filter alone
+        verifyNoInteractions(fileRepository);
+    }
+
+    @Test
+    void testAdd_Uploaded_FoundRightAway() {
+        this.stubStoredNames();
+        fileNameFilterService.refresh();
+
+        fileNameFilterService.add(MODULE_NAME, "file3.png");
+        fileNameFilterService.add("newmodule", "file1.png");
+
+        assertTrue(fileNameFilterService.mightExist(MODULE_NAME, "file3.png"));
+        assertTrue(fileNameFilterService.mightExist("newmodule", "file1.png"));
+    }
+
+    @Test
+    void testRefresh_PicksUpOtherInstances() {
+        this.stubStoredNames();
+        fileNameFilterService.refresh();
+
+        com.personal.spring_questly.model.File file = spy(new com.personal.spring_questly.model.File());
+        file.setModuleName(MODULE_NAME);
+        file.setName("file3.png");
+        doReturn(Instant.now()).when(file).getCreatedAt();
+
+        when(fileRepository.findLiveCreatedSince(any(Instant.class), any(Pageable.class))).thenReturn(List.of(file));
+
+        assertFalse(fileNameFilterService.mightExist(MODULE_NAME, "file3.png"));
+
+        fileNameFilterService.refresh();
+
+        assertTrue(fileNameFilterService.mightExist(MODULE_NAME, "file3.png"));
+    }
+
+    @Test
+    void testRemove_ManyDeleted_ModuleRebuilt() {
+        this.stubStoredNames();
+        fileNameFilterService.refresh();
+
+        when(fileRepository.findLiveCreatedSince(any(Instant.class), any(Pageable.class))).thenReturn(List.of());
+        when(fileRepository.findLiveNamesAfter(eq(MODULE_NAME), eq(""), any(Pageable.class)))
+                .thenReturn(List.of("file2.png"));
+
+        fileNameFilterService.remove(MODULE_NAME, "file1.png");
+        fileNameFilterService.refresh();
+
+        assertFalse(fileNameFilterService.mightExist(MODULE_NAME, "file1.png"));
+        assertTrue(fileNameFilterService.mightExist(MODULE_NAME, "file2.png"));
+    }
+
+    @Test
+    void testRebuild_OverMaxSize_SizedDown() {
+        injectField(fileNameFilterService, "maxSize", DataSize.ofBytes(600));
+        this.stubStoredNames();
+        fileNameFilterService.registerMetrics();
+
+        fileNameFilterService.refresh();
+
+        // 1024 names at 1% need about 1.2 KB
+        assertEquals(600, meterRegistry.get("file.name.filter.size").gauge().value(), 8);
+        assertTrue(fileNameFilterService.mightExist(MODULE_NAME, "file1.png"));
+    }
+
+    @Test
+    void testDisabled_NothingLoaded() {
+        injectField(fileNameFilterService, "isEnabled", false);
+
+        fileNameFilterService.refresh();
+        fileNameFilterService.add(MODULE_NAME, "file1.png");
+
+        assertTrue(fileNameFilterService.mightExist(MODULE_NAME, "missing.png"));
+        verifyNoInteractions(fileRepository);
+    }
+
+    private void stubStoredNames() {
+        when(fileRepository.findLiveModuleNames()).thenReturn(List.of(MODULE_NAME));
+        when(fileRepository.countLiveByModuleName(MODULE_NAME)).thenReturn(2L);
+        when(fileRepository.findLiveNamesAfter(eq(MODULE_NAME), eq(""), any(Pageable.class)))
+                .thenReturn(List.of("file1.png", "file2.png"));
+    }
+}
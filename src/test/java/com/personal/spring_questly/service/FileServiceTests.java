@@ -1,31 +1,50 @@
 package com.personal.spring_questly.service;
 
+import com.personal.spring_questly.dto.common.CursorPaginationDTO;
 import com.personal.spring_questly.dto.file.BulkDeleteFilesResponseDTO;
 import com.personal.spring_questly.dto.file.FileDTO;
+import com.personal.spring_questly.dto.file.FileMetadataDTO;
 import com.personal.spring_questly.exception.CustomException.BadRequestException;
+import com.personal.spring_questly.exception.CustomException.InsufficientStorageException;
 import com.personal.spring_questly.exception.CustomException.NotFoundException;
+import com.personal.spring_questly.model.Blob;
 import com.personal.spring_questly.repository.FileRepository;
 import com.personal.spring_questly.service.impl.FileServiceImpl;
+import com.personal.spring_questly.service.impl.LocalStorageBackend;
+import com.personal.spring_questly.util.FileLayoutUtil;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
 import org.junit.jupiter.api.AfterEach;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
+import org.mockito.Spy;
 import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.core.task.SyncTaskExecutor;
+import org.springframework.core.task.TaskExecutor;
+import org.springframework.core.task.TaskRejectedException;
 import org.springframework.http.HttpStatus;
+import org.springframework.util.unit.DataSize;
 import org.springframework.web.multipart.MultipartFile;
 
 import javax.imageio.ImageIO;
 import java.awt.image.BufferedImage;
+import java.io.ByteArrayInputStream;
 import java.io.File;
 import java.io.IOException;
+import java.io.InputStream;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
+import java.time.Instant;
 import java.util.Comparator;
 import java.util.List;
+import java.util.Optional;
 import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
 
 import static com.personal.spring_questly.utils.FieldUtils.injectField;
 import static org.junit.jupiter.api.Assertions.*;
@@ -38,12 +57,42 @@ public class FileServiceTests {
 
     @Mock
     private FileRepository fileRepository;
+    @Mock
+    private BlobService blobService;
+    @Spy
+    private TaskExecutor fileUploadExecutor = new SyncTaskExecutor();
+    @Spy
+    private Cache<String, FileMetadataDTO> fileMetadataCache = Caffeine.newBuilder().build();
+    @Mock
+    private HotFileCacheService hotFileCacheService;
+    @Mock
+    private ImageVariantService imageVariantService;
+    @Mock
+    private FileEncodingService fileEncodingService;
+    @Mock
+    private StorageQuotaService storageQuotaService;
+    @Mock
+    private FileNameFilterService fileNameFilterService;
+    @Spy
+    private TaskExecutor fileCompressionExecutor = new SyncTaskExecutor();
+    @Spy
+    private FileLayoutUtil fileLayoutUtil = new FileLayoutUtil();
     @InjectMocks
     private FileServiceImpl fileService;
 
     @BeforeEach
     void setup() {
-        injectField(fileService, "uploadDir", UPLOAD_DIR);
+        injectField(fileLayoutUtil, "uploadDir", UPLOAD_DIR);
+        injectField(fileService, "storageBackend", new LocalStorageBackend(blobService, fileLayoutUtil));
+        injectField(fileService, "maxFileSize", DataSize.ofMegabytes(10));
+        injectField(fileService, "maxRequestSize", DataSize.ofMegabytes(15));
+        injectField(fileService, "fileCompressionExecutor", fileCompressionExecutor);
+        injectField(fileService, "defaultListLimit", 50);
+        injectField(fileService, "maxListLimit", 200);
+        injectField(fileService, "maxGetIds", 500);
+
+        // Not every test looks a file up
+        lenient().when(fileNameFilterService.mightExist(anyString(), anyString())).thenReturn(true);
     }
 
     @AfterEach
@@ -182,30 +231,145 @@ public class FileServiceTests {
     }
 
     @Test
-    void testBulkUploadFiles_Exception_ShouldCleanUpAndThrow() throws IOException {
-        FileServiceImpl spyService = spy(fileService);
+    void testGetFileByModuleNameAndFileName_Migrated_PrefersShardedPath() throws IOException {
+        com.personal.spring_questly.model.File file = createTestFile(UUID.randomUUID(), "migrated.png");
+        createFileOnDisk(file);
+
+        // Mid-migration the legacy link still exists next to the sharded one
+        Path legacyPath = fileLayoutUtil.getLegacyFilePath(MODULE_NAME, file.getName());
+        Files.createFile(legacyPath);
+
+        File result = fileService.getFileByModuleNameAndFileName(MODULE_NAME, file.getName());
+
+        assertEquals(getPath(file).toFile().getAbsolutePath(), result.getAbsolutePath());
+    }
+
+    @Test
+    void testGetFileETag_Success() {
+        com.personal.spring_questly.model.File file = createTestFile(UUID.randomUUID(), "file1.txt");
+        file.setEtag("abc123");
+
+        when(fileRepository.findByModuleNameAndName(MODULE_NAME, "file1.txt"))
+                .thenReturn(Optional.of(file));
+
+        assertEquals("abc123", fileService.getFileETag(MODULE_NAME, "file1.txt"));
+    }
+
+    @Test
+    void testGetFileETag_NotStored() {
+        when(fileRepository.findByModuleNameAndName(MODULE_NAME, "file1.txt"))
+                .thenReturn(Optional.empty());
+
+        assertNull(fileService.getFileETag(MODULE_NAME, "file1.txt"));
+    }
+
+    @Test
+    void testGetFileMetadata_NotFound() {
+        NotFoundException errors = assertThrows(NotFoundException.class, () ->
+                fileService.getFileMetadata(MODULE_NAME, "missing.txt"));
+
+        assertEquals("Resource not found", errors.getMessage());
+        assertNull(fileMetadataCache.getIfPresent(MODULE_NAME + "/missing.txt"));
+    }
+
+    @Test
+    void testGetFileMetadata_Success_LoadedOnce() throws IOException {
+        com.personal.spring_questly.model.File file = createTestFile(UUID.randomUUID(), "file1.txt");
+        file.setEtag("etag1");
+        createFileOnDisk(file);
+
+        when(fileRepository.findByModuleNameAndName(MODULE_NAME, "file1.txt")).thenReturn(Optional.of(file));
+
+        FileMetadataDTO first = fileService.getFileMetadata(MODULE_NAME, "file1.txt");
+        FileMetadataDTO second = fileService.getFileMetadata(MODULE_NAME, "file1.txt");
+
+        assertSame(first, second);
+        assertEquals("text/plain", first.mimeType());
+        assertEquals("attachment; file1.txt", first.disposition());
+        assertEquals(0L, first.size());
+        assertEquals("etag1", first.etag());
+        verify(fileRepository, times(1)).findByModuleNameAndName(MODULE_NAME, "file1.txt");
+    }
+
+    @Test
+    void testGetFileMetadata_Compressible_ResolvesPrecompressedOnce() throws IOException {
+        com.personal.spring_questly.model.File file = createTestFile(UUID.randomUUID(), "file1.txt");
+        createFileOnDisk(file);
+        FileMetadataDTO precompressed = FileMetadataDTO.builder().contentEncoding("gzip").build();
+
+        when(fileRepository.findByModuleNameAndName(MODULE_NAME, "file1.txt")).thenReturn(Optional.of(file));
+        when(fileEncodingService.isCompressible(any(FileMetadataDTO.class))).thenReturn(true);
+        when(fileEncodingService.getPrecompressed(any(FileMetadataDTO.class))).thenReturn(precompressed);
+
+        fileService.getFileMetadata(MODULE_NAME, "file1.txt");
+        FileMetadataDTO result = fileService.getFileMetadata(MODULE_NAME, "file1.txt");
+
+        assertSame(precompressed, result.precompressed());
+        verify(fileEncodingService, times(1)).getPrecompressed(any(FileMetadataDTO.class));
+    }
+
+    @Test
+    void testGetFileMetadata_FilteredOut_NotFoundWithoutLookup() throws IOException {
+        com.personal.spring_questly.model.File file = createTestFile(UUID.randomUUID(), "file1.txt");
+        createFileOnDisk(file);
+
+        when(fileNameFilterService.mightExist(MODULE_NAME, "file1.txt")).thenReturn(false);
+
+        NotFoundException errors = assertThrows(NotFoundException.class, () ->
+                fileService.getFileMetadata(MODULE_NAME, "file1.txt"));
+
+        assertEquals("Resource not found", errors.getMessage());
+        verifyNoInteractions(fileRepository);
+    }
+
+    @Test
+    void testGetFileMetadata_Tombstoned_NotFound() throws IOException {
+        com.personal.spring_questly.model.File file = createTestFile(UUID.randomUUID(), "file1.txt");
+        file.setDeletedAt(Instant.now());
+        createFileOnDisk(file);
 
+        when(fileRepository.findByModuleNameAndName(MODULE_NAME, "file1.txt")).thenReturn(Optional.of(file));
+
+        NotFoundException errors = assertThrows(NotFoundException.class, () ->
+                fileService.getFileMetadata(MODULE_NAME, "file1.txt"));
+
+        assertEquals("Resource not found", errors.getMessage());
+    }
+
+    @Test
+    void testBulkUploadFiles_Exception_ShouldCleanUpAndThrow() throws IOException {
         MultipartFile mockFile1 = mock(MultipartFile.class);
         when(mockFile1.getOriginalFilename()).thenReturn("test1.png");
         when(mockFile1.getSize()).thenReturn(1024L);
         when(mockFile1.getContentType()).thenReturn("image/png");
-        doNothing().when(mockFile1).transferTo(any(File.class));
+        when(mockFile1.getInputStream()).thenReturn(new ByteArrayInputStream("test1".getBytes()));
 
         MultipartFile mockFile2 = mock(MultipartFile.class);
         when(mockFile2.getOriginalFilename()).thenReturn("test2.png");
-        doThrow(new IOException("Simulated failure")).when(mockFile2).transferTo(any(File.class));
+        when(mockFile2.getInputStream()).thenThrow(new IOException("Simulated failure"));
 
-        doReturn(new File("fake-file-path")).when(spyService)
-                                            .getFileByModuleNameAndFileName(anyString(), anyString());
+        when(blobService.store(any(InputStream.class), any(Path.class)))
+                .thenReturn(Blob.builder().hash("hash1").size(5L).build());
 
         List<MultipartFile> multipartFiles = List.of(mockFile1, mockFile2);
 
         BadRequestException errors = assertThrows(BadRequestException.class, () ->
-                spyService.bulkUploadFiles(MODULE_NAME, multipartFiles));
+                fileService.bulkUploadFiles(MODULE_NAME, multipartFiles));
 
         assertNotNull(errors);
         assertEquals("Bulk upload files failed", errors.getMessage());
         verify(fileRepository, never()).saveAll(anyList());
+        verify(blobService, times(1)).release("hash1");
+    }
+
+    @Test
+    void testBulkUploadFiles_ReservedModuleName_BadRequest() {
+        BadRequestException errors = assertThrows(BadRequestException.class, () ->
+                fileService.bulkUploadFiles(".blobs", List.of(mock(MultipartFile.class))));
+
+        assertNotNull(errors);
+        assertEquals("Invalid module name", errors.getMessage());
+        verifyNoInteractions(blobService);
     }
 
 
@@ -215,10 +379,12 @@ public class FileServiceTests {
         when(mockFile1.getOriginalFilename()).thenReturn("test1.png");
         when(mockFile1.getSize()).thenReturn(1024L);
         when(mockFile1.getContentType()).thenReturn("image/png");
-        doNothing().when(mockFile1).transferTo(any(File.class));
+        when(mockFile1.getInputStream()).thenReturn(new ByteArrayInputStream("test1".getBytes()));
 
         List<MultipartFile> multipartFiles = List.of(mockFile1);
 
+        when(blobService.store(any(InputStream.class), any(Path.class)))
+                .thenReturn(Blob.builder().hash("hash1").size(5L).build());
         when(fileRepository.saveAll(anyList()))
                 .thenAnswer(invocationOnMock -> invocationOnMock.getArgument(0));
 
@@ -231,6 +397,8 @@ public class FileServiceTests {
         assertTrue(result.get(0).getName().endsWith(".png"));
 
         assertEquals(MODULE_NAME, result.get(0).getModuleName());
+        assertEquals("hash1", result.get(0).getEtag());
+        assertEquals("hash1", result.get(0).getBlobHash());
 
         verify(fileRepository, times(1)).saveAll(anyList());
     }
@@ -242,16 +410,18 @@ public class FileServiceTests {
         when(mockFile1.getOriginalFilename()).thenReturn("test1.png");
         when(mockFile1.getSize()).thenReturn(1024L);
         when(mockFile1.getContentType()).thenReturn("image/png");
-        doNothing().when(mockFile1).transferTo(any(File.class));
+        when(mockFile1.getInputStream()).thenReturn(new ByteArrayInputStream("test1".getBytes()));
 
         MultipartFile mockFile2 = mock(MultipartFile.class);
         when(mockFile2.getOriginalFilename()).thenReturn("test2.jpg");
         when(mockFile2.getSize()).thenReturn(1024L);
         when(mockFile2.getContentType()).thenReturn("image/jpeg");
-        doNothing().when(mockFile2).transferTo(any(File.class));
+        when(mockFile2.getInputStream()).thenReturn(new ByteArrayInputStream("test2".getBytes()));
 
         List<MultipartFile> multipartFiles = List.of(mockFile1, mockFile2);
 
+        when(blobService.store(any(InputStream.class), any(Path.class)))
+                .thenReturn(Blob.builder().hash("hash1").size(5L).build());
         when(fileRepository.saveAll(anyList()))
                 .thenAnswer(invocationOnMock -> invocationOnMock.getArgument(0));
 
@@ -270,6 +440,184 @@ public class FileServiceTests {
         verify(fileRepository, times(1)).saveAll(anyList());
     }
 
+    @Test
+    void testBulkUploadFiles_SaveFailed_ShouldCleanUpAndThrow() throws IOException {
+        MultipartFile mockFile1 = mock(MultipartFile.class);
+        when(mockFile1.getOriginalFilename()).thenReturn("test1.png");
+        when(mockFile1.getSize()).thenReturn(1024L);
+        when(mockFile1.getContentType()).thenReturn("image/png");
+        when(mockFile1.getInputStream()).thenReturn(new ByteArrayInputStream("test1".getBytes()));
+
+        when(blobService.store(any(InputStream.class), any(Path.class)))
+                .thenReturn(Blob.builder().hash("hash1").size(5L).build());
+        when(fileRepository.saveAll(anyList())).thenThrow(new RuntimeException("Simulated failure"));
+
+        BadRequestException errors = assertThrows(BadRequestException.class, () ->
+                fileService.bulkUploadFiles(MODULE_NAME, List.of(mockFile1)));
+
+        assertNotNull(errors);
+        assertEquals("Bulk upload files failed", errors.getMessage());
+        verify(blobService, times(1)).release("hash1");
+        verify(storageQuotaService, times(1)).release(MODULE_NAME, null, 1024L, 1);
+    }
+
+    @Test
+    void testBulkUploadFilesAsync_SaveFailed_CompletesExceptionally() throws IOException {
+        MultipartFile mockFile1 = mock(MultipartFile.class);
+        when(mockFile1.getOriginalFilename()).thenReturn("test1.png");
+        when(mockFile1.getSize()).thenReturn(1024L);
+        when(mockFile1.getContentType()).thenReturn("image/png");
+        when(mockFile1.getInputStream()).thenReturn(new ByteArrayInputStream("test1".getBytes()));
+
+        when(blobService.store(any(InputStream.class), any(Path.class)))
+                .thenReturn(Blob.builder().hash("hash1").size(5L).build());
+        when(fileRepository.saveAll(anyList())).thenThrow(new RuntimeException("Simulated failure"));
+
+        CompletableFuture<List<com.personal.spring_questly.model.File>> upload =
+                fileService.bulkUploadFilesAsync(MODULE_NAME, List.of(mockFile1));
+
+        CompletionException errors = assertThrows(CompletionException.class, upload::join);
+
+        assertInstanceOf(BadRequestException.class, errors.getCause());
+        verify(blobService, times(1)).release("hash1");
+        verify(storageQuotaService, times(1)).release(MODULE_NAME, null, 1024L, 1);
+    }
+
+    @Test
+    void testBulkUploadFiles_QuotaExceeded_NothingStored() {
+        MultipartFile mockFile1 = mock(MultipartFile.class);
+        when(mockFile1.getSize()).thenReturn(2048L);
+
+        doThrow(new InsufficientStorageException("Storage quota exceeded", null))
+                .when(storageQuotaService).reserve(MODULE_NAME, null, 2048L, 1);
+
+        InsufficientStorageException errors = assertThrows(InsufficientStorageException.class, () ->
+                fileService.bulkUploadFiles(MODULE_NAME, List.of(mockFile1)));
+
+        assertNotNull(errors);
+        verifyNoInteractions(blobService);
+        verify(fileRepository, never()).saveAll(anyList());
+    }
+
+
+    @Test
+    void testUploadFile_Success() throws IOException {
+        when(blobService.store(any(InputStream.class), any(Path.class)))
+                .thenReturn(Blob.builder().hash("hash1").size(2048L).build());
+        when(fileRepository.saveAll(anyList()))
+                .thenAnswer(invocationOnMock -> invocationOnMock.getArgument(0));
+
+        com.personal.spring_questly.model.File result = fileService.uploadFile(
+                MODULE_NAME, "test1.pdf", "application/pdf", new ByteArrayInputStream("test1".getBytes()));
+
+        assertNull(result.getIndex());
+        assertTrue(result.getName().endsWith(".pdf"));
+        assertEquals("application/pdf", result.getType());
+        assertEquals(2.0, result.getSize());
+        assertEquals("hash1", result.getBlobHash());
+        verify(fileEncodingService).precompress(MODULE_NAME, result.getName(), "application/pdf");
+        verify(fileNameFilterService).add(MODULE_NAME, result.getName());
+    }
+
+    @Test
+    void testUploadFile_Precompressed_DropsCachedMetadata() throws IOException {
+        when(blobService.store(any(InputStream.class), any(Path.class)))
+                .thenReturn(Blob.builder().hash("hash1").size(2048L).build());
+        when(fileRepository.saveAll(anyList()))
+                .thenAnswer(invocationOnMock -> invocationOnMock.getArgument(0));
+        when(fileEncodingService.precompress(eq(MODULE_NAME), anyString(), eq("text/plain"))).thenReturn(true);
+
+        com.personal.spring_questly.model.File result = fileService.uploadFile(
+                MODULE_NAME, "test1.txt", "text/plain", new ByteArrayInputStream("test1".getBytes()));
+
+        verify(fileMetadataCache).invalidate(MODULE_NAME + "/" + result.getName());
+    }
+
+    @Test
+    void testUploadFile_CompressionQueueFull_StillUploaded() throws IOException {
+        when(blobService.store(any(InputStream.class), any(Path.class)))
+                .thenReturn(Blob.builder().hash("hash1").size(2048L).build());
+        when(fileRepository.saveAll(anyList()))
+                .thenAnswer(invocationOnMock -> invocationOnMock.getArgument(0));
+        doThrow(new TaskRejectedException("full")).when(fileCompressionExecutor).execute(any(Runnable.class));
+
+        com.personal.spring_questly.model.File result = fileService.uploadFile(
+                MODULE_NAME, "test1.txt", "text/plain", new ByteArrayInputStream("test1".getBytes()));
+
+        assertEquals("hash1", result.getBlobHash());
+        verify(fileEncodingService, never()).precompress(anyString(), anyString(), anyString());
+    }
+
+    @Test
+    void testStreamUploadFiles_Success_MoreThanOne() throws IOException {
+        String body = "--boundary\r\n"
+                + "Content-Disposition: form-data; name=\"moduleName\"\r\n\r\n"
+                + "ignored\r\n"
+                + "--boundary\r\n"
+                + "Content-Disposition: form-data; name=\"files\"; filename=\"test1.png\"\r\n"
+                + "Content-Type: image/png\r\n\r\n"
+                + "test1\r\n"
+                + "--boundary\r\n"
+                + "Content-Disposition: form-data; name=\"files\"; filename=\"test2.jpg\"\r\n"
+                + "Content-Type: image/jpeg\r\n\r\n"
+                + "test2\r\n"
+                + "--boundary--\r\n";
+
+        when(blobService.store(any(InputStream.class), any(Path.class)))
+                .thenAnswer(invocationOnMock -> {
+                    byte[] content = invocationOnMock.getArgument(0, InputStream.class).readAllBytes();
+                    return Blob.builder().hash(new String(content)).size((long) content.length).build();
+                });
+        when(fileRepository.saveAll(anyList()))
+                .thenAnswer(invocationOnMock -> invocationOnMock.getArgument(0));
+
+        List<com.personal.spring_questly.model.File> result = fileService.streamUploadFiles(
+                MODULE_NAME, "multipart/form-data; boundary=boundary", new ByteArrayInputStream(body.getBytes()));
+
+        assertEquals(2, result.size());
+        assertEquals(0, result.get(0).getIndex());
+        assertEquals(1, result.get(1).getIndex());
+        assertTrue(result.get(0).getName().endsWith(".png"));
+        assertEquals("image/jpeg", result.get(1).getType());
+        assertEquals("test1", result.get(0).getBlobHash());
+        assertEquals("test2", result.get(1).getBlobHash());
+        assertEquals(5.0 / 1024, result.get(1).getSize());
+    }
+
+    @Test
+    void testStreamUploadFiles_NotMultipart_BadRequest() {
+        BadRequestException errors = assertThrows(BadRequestException.class, () ->
+                fileService.streamUploadFiles(MODULE_NAME, "application/json", new ByteArrayInputStream(new byte[0])));
+
+        assertEquals("Request must be multipart/form-data", errors.getMessage());
+        verifyNoInteractions(blobService);
+    }
+
+    @Test
+    void testStreamUploadFiles_FileTooLarge_ShouldCleanUpAndThrow() throws IOException {
+        injectField(fileService, "maxFileSize", DataSize.ofBytes(4));
+
+        String body = "--boundary\r\n"
+                + "Content-Disposition: form-data; name=\"files\"; filename=\"test1.txt\"\r\n\r\n"
+                + "abc\r\n"
+                + "--boundary\r\n"
+                + "Content-Disposition: form-data; name=\"files\"; filename=\"test2.txt\"\r\n\r\n"
+                + "too large\r\n"
+                + "--boundary--\r\n";
+
+        when(blobService.store(any(InputStream.class), any(Path.class)))
+                .thenAnswer(invocationOnMock -> {
+                    invocationOnMock.getArgument(0, InputStream.class).readAllBytes();
+                    return Blob.builder().hash("hash1").size(3L).build();
+                });
+        BadRequestException errors = assertThrows(BadRequestException.class, () ->
+                fileService.streamUploadFiles(MODULE_NAME, "multipart/form-data; boundary=boundary",
+                                             new ByteArrayInputStream(body.getBytes())));
+
+        assertEquals("Uploaded file is too large", errors.getMessage());
+        verify(blobService, times(1)).release("hash1");
+        verify(fileRepository, never()).saveAll(anyList());
+    }
 
     @Test
     void bulkDeleteFiles_shouldHandleExistingAndMissingFilesProperly() throws IOException {
@@ -288,6 +636,8 @@ public class FileServiceTests {
         createFileOnDisk(file1);
         // Do not create file2
 
+        fileMetadataCache.put(MODULE_NAME + "/file1.txt", FileMetadataDTO.builder().build());
+
         // Act
         BulkDeleteFilesResponseDTO response = fileService.bulkDeleteFiles(ids);
 
@@ -300,9 +650,110 @@ public class FileServiceTests {
 
         verify(fileRepository).findAllById(ids);
         verify(fileRepository).deleteAll(List.of(file1));
+        verify(blobService).release(file1.getBlobHash());
+        verify(blobService, never()).release(file2.getBlobHash());
+        verify(hotFileCacheService).invalidate(getPath(file1).toFile());
+        verify(imageVariantService).deleteVariants(MODULE_NAME, "file1.txt");
+        verify(imageVariantService, never()).deleteVariants(MODULE_NAME, "file2.txt");
+        verify(fileEncodingService).deletePrecompressed(MODULE_NAME, "file1.txt");
 
         // Ensure file1 is deleted
         assertTrue(Files.notExists(getPath(file1)));
+        assertNull(fileMetadataCache.getIfPresent(MODULE_NAME + "/file1.txt"));
+    }
+
+    @Test
+    void testScheduleBulkDeleteFiles_TombstonesLiveFiles() throws IOException {
+        UUID id1 = UUID.randomUUID();
+        UUID id2 = UUID.randomUUID();
+
+        com.personal.spring_questly.model.File file1 = createTestFile(id1, "file1.txt");
+        com.personal.spring_questly.model.File file2 = createTestFile(id2, "file2.txt");
+        file2.setDeletedAt(Instant.now());
+
+        createFileOnDisk(file1);
+
+        when(fileRepository.findAllById(List.of(id1, id2))).thenReturn(List.of(file1, file2));
+
+        BulkDeleteFilesResponseDTO response = fileService.scheduleBulkDeleteFiles(List.of(id1, id2));
+
+        assertEquals(1, response.deletedFiles().size());
+        assertEquals("file1.txt", response.deletedFiles().get(0).name());
+        verify(fileRepository).markDeleted(eq(List.of(id1)), any(Instant.class));
+        verify(fileRepository, never()).deleteAll(anyList());
+        verifyNoInteractions(blobService);
+
+        // Removing the file is left to the sweeper
+        assertTrue(Files.exists(getPath(file1)));
+    }
+
+    @Test
+    void testListFiles_Success_CursorContinuesAfterLastRow() {
+        Instant createdAt = Instant.parse("2025-01-01T00:00:00.123456Z");
+        com.personal.spring_questly.model.File file1 = createTestFile(UUID.randomUUID(), "file1.txt", createdAt);
+        com.personal.spring_questly.model.File file2 = createTestFile(UUID.randomUUID(), "file2.txt", createdAt);
+        com.personal.spring_questly.model.File file3 = createTestFile(UUID.randomUUID(), "file3.txt", createdAt);
+
+        when(fileRepository.findLiveByModuleName(MODULE_NAME, 3)).thenReturn(List.of(file1, file2, file3));
+
+        CursorPaginationDTO<List<FileDTO>> firstPage = fileService.listFiles(MODULE_NAME, null, 2);
+
+        assertTrue(firstPage.hasMore());
+        assertNotNull(firstPage.nextCursor());
+        assertEquals(List.of("file1.txt", "file2.txt"), firstPage.data().stream().map(FileDTO::name).toList());
+
+        when(fileRepository.findLiveByModuleNameAfter(MODULE_NAME, createdAt, file2.getId(), 3))
+                .thenReturn(List.of(file3));
+
+        CursorPaginationDTO<List<FileDTO>> secondPage = fileService.listFiles(MODULE_NAME, firstPage.nextCursor(), 2);
+
+        assertFalse(secondPage.hasMore());
+        assertNull(secondPage.nextCursor());
+        assertEquals(List.of("file3.txt"), secondPage.data().stream().map(FileDTO::name).toList());
+        verify(fileRepository, never()).count();
+    }
+
+    @Test
+    void testListFiles_InvalidCursor_BadRequest() {
+        BadRequestException errors = assertThrows(BadRequestException.class, () ->
+                fileService.listFiles(MODULE_NAME, "not-a-cursor", null));
+
+        assertEquals("Invalid cursor", errors.getMessage());
+        verifyNoInteractions(fileRepository);
+    }
+
+    @Test
+    void testListFiles_LimitTooLarge_BadRequest() {
+        BadRequestException errors = assertThrows(BadRequestException.class, () ->
+                fileService.listFiles(MODULE_NAME, null, 201));
+
+        assertEquals("Limit must be between 1 and 200", errors.getMessage());
+        verifyNoInteractions(fileRepository);
+    }
+
+    @Test
+    void testGetFiles_SkipsTombstoned_KeepsRequestedOrder() {
+        UUID id1 = UUID.randomUUID();
+        UUID id2 = UUID.randomUUID();
+        UUID id3 = UUID.randomUUID();
+        com.personal.spring_questly.model.File file1 = createTestFile(id1, "file1.txt");
+        com.personal.spring_questly.model.File file2 = createTestFile(id2, "file2.txt");
+        file2.setDeletedAt(Instant.now());
+
+        when(fileRepository.findAllById(anyCollection())).thenReturn(List.of(file1, file2));
+
+        List<FileDTO> result = fileService.getFiles(List.of(id3, id2, id1, id1));
+
+        assertEquals(1, result.size());
+        assertEquals(id1, result.get(0).id());
+        verify(fileRepository, times(1)).findAllById(anyCollection());
+    }
+
+    private com.personal.spring_questly.model.File createTestFile(UUID id, String name, Instant createdAt) {
+        // Creation times are only ever set by Hibernate
+        com.personal.spring_questly.model.File file = spy(createTestFile(id, name));
+        doReturn(createdAt).when(file).getCreatedAt();
+        return file;
     }
 
     private com.personal.spring_questly.model.File createTestFile(UUID id, String name) {
@@ -310,14 +761,14 @@ public class FileServiceTests {
         file.setId(id);
         file.setModuleName(MODULE_NAME);
         file.setName(name);
+        file.setBlobHash("hash-" + name);
         return file;
     }
 
     private void createFileOnDisk(com.personal.spring_questly.model.File file) throws IOException {
-        Path dirPath = Paths.get(UPLOAD_DIR, file.getModuleName());
-        Files.createDirectories(dirPath);
+        Path filePath = getPath(file);
+        Files.createDirectories(filePath.getParent());
 
-        Path filePath = dirPath.resolve(file.getName());
         if (!Files.exists(filePath)) {
             Files.createFile(filePath);
         }
@@ -326,7 +777,7 @@ public class FileServiceTests {
     }
 
     private Path getPath(com.personal.spring_questly.model.File file) {
-        return Paths.get(UPLOAD_DIR, file.getModuleName(), file.getName());
+        return fileLayoutUtil.getFilePath(file.getModuleName(), file.getName());
     }
 
 }
@@ -0,0 +1,459 @@
+package com.personal.spring_questly.service;
+
+import com.personal.spring_questly.dto.file.FileMetadataDTO;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.personal.spring_questly.service.impl.FileEncodingServiceImpl;
+import com.personal.spring_questly.service.impl.FileStreamServiceImpl;
+import com.personal.spring_questly.service.impl.HotFileCacheServiceImpl;
+import com.personal.spring_questly.utils.NonBlockingServletOutputStream;
+import jakarta.servlet.ServletOutputStream;
+import jakarta.servlet.http.HttpServletResponseWrapper;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.http.HttpStatus;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+import org.springframework.util.unit.DataSize;
+
+import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.Random;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.zip.GZIPInputStream;
+
+import static com.personal.spring_questly.utils.FieldUtils.injectField;
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+public class FileStreamServiceTests {
+    private static final String CONTENT = "0123456789abcdefghij";
+    private static final String ETAG = "abc123";
+
+    private FileStreamServiceImpl fileStreamService;
+
+    private HotFileCacheServiceImpl hotFileCacheService;
+
+    private StorageBackend storageBackend;
+
+    private FileEncodingServiceImpl fileEncodingService;
+
+    private ThreadPoolTaskExecutor fileIoExecutor;
+
+    private File file;
+
+    @TempDir
+    Path tempDir;
+
+    @BeforeEach
+    void setup() throws IOException {
+        hotFileCacheService = new HotFileCacheServiceImpl(Caffeine.newBuilder().build(), Caffeine.newBuilder().build());
+        // Disabled unless a test opts in, so the disk paths are exercised
+        injectField(hotFileCacheService, "maxFileSize", DataSize.ofBytes(0));
+
+        storageBackend = mock(StorageBackend.class);
+
+        fileEncodingService = new FileEncodingServiceImpl(storageBackend);
+        injectField(fileEncodingService, "precompressedDir", tempDir.resolve("precompressed").toString());
+        injectField(fileEncodingService, "isEnabled", true);
+        injectField(fileEncodingService, "minSize", DataSize.ofKilobytes(1));
+        injectField(fileEncodingService, "level", 9);
+        injectField(fileEncodingService, "maxRatio", 0.9);
+
+        fileIoExecutor = new ThreadPoolTaskExecutor();
+        fileIoExecutor.initialize();
+
+        fileStreamService = new FileStreamServiceImpl(hotFileCacheService, storageBackend, fileEncodingService,
+                                                      fileIoExecutor);
+        injectField(fileStreamService, "sendfileMinSize", 0L);
+        injectField(fileStreamService, "cacheMaxAge", 31536000L);
+        injectField(fileStreamService, "streamingLevel", 1);
+        injectField(fileStreamService, "isAsyncIoEnabled", false);
+        injectField(fileStreamService, "asyncIoTimeout", Duration.ofMinutes(1));
+
+        file = File.createTempFile("stream-file", ".txt");
+        file.deleteOnExit();
+        Files.writeString(file.toPath(), CONTENT);
+    }
+
+    @AfterEach
+    void cleanup() {
+        fileIoExecutor.shutdown();
+    }
+
+    @Test
+    void testStreamFile_Success_FullContent() {
+        MockHttpServletRequest request = new MockHttpServletRequest("GET", "/files/module/file");
+        MockHttpServletResponse response = new MockHttpServletResponse();
+
+        fileStreamService.streamFile(createMetadata(ETAG), request, response);
+
+        assertEquals(HttpStatus.OK.value(), response.getStatus());
+        assertEquals("bytes", response.getHeader("Accept-Ranges"));
+        assertEquals("text/plain", response.getHeader("Content-Type"));
+        assertEquals("attachment; file", response.getHeader("Content-Disposition"));
+        assertEquals(CONTENT.length(), response.getContentLengthLong());
+        assertEquals(CONTENT, new String(response.getContentAsByteArray(), StandardCharsets.UTF_8));
+        assertEquals("\"" + ETAG + "\"", response.getHeader("ETag"));
+        assertEquals("public, max-age=31536000, immutable", response.getHeader("Cache-Control"));
+        assertNotNull(response.getHeader("Last-Modified"));
+    }
+
+    @Test
+    void testStreamFile_IfNoneMatch_NotModified() {
+        MockHttpServletRequest request = new MockHttpServletRequest("GET", "/files/module/file");
+        request.addHeader("If-None-Match", "\"" + ETAG + "\"");
+        MockHttpServletResponse response = new MockHttpServletResponse();
+
+        fileStreamService.streamFile(createMetadata(ETAG), request, response);
+
+        assertEquals(HttpStatus.NOT_MODIFIED.value(), response.getStatus());
+        assertEquals("\"" + ETAG + "\"", response.getHeader("ETag"));
+        assertEquals(0, response.getContentAsByteArray().length);
+    }
+
+    @Test
+    void testStreamFile_IfModifiedSince_NotModified() {
+        MockHttpServletRequest request = new MockHttpServletRequest("GET", "/files/module/file");
+        request.addHeader("If-Modified-Since", file.lastModified());
+        MockHttpServletResponse response = new MockHttpServletResponse();
+
+        fileStreamService.streamFile(createMetadata(null), request, response);
+
+        assertEquals(HttpStatus.NOT_MODIFIED.value(), response.getStatus());
+        assertEquals(0, response.getContentAsByteArray().length);
+    }
+
+    @Test
+    void testStreamFile_IfNoneMatchChanged_FullContent() {
+        MockHttpServletRequest request = new MockHttpServletRequest("GET", "/files/module/file");
+        request.addHeader("If-None-Match", "\"other\"");
+        MockHttpServletResponse response = new MockHttpServletResponse();
+
+        fileStreamService.streamFile(createMetadata(ETAG), request, response);
+
+        assertEquals(HttpStatus.OK.value(), response.getStatus());
+        assertEquals(CONTENT, new String(response.getContentAsByteArray(), StandardCharsets.UTF_8));
+    }
+
+    @Test
+    void testStreamFile_IfRangeEntityTag_PartialContent() {
+        MockHttpServletRequest request = new MockHttpServletRequest("GET", "/files/module/file");
+        request.addHeader("Range", "bytes=0-1");
+        request.addHeader("If-Range", "\"" + ETAG + "\"");
+        MockHttpServletResponse response = new MockHttpServletResponse();
+
+        fileStreamService.streamFile(createMetadata(ETAG), request, response);
+
+        assertEquals(HttpStatus.PARTIAL_CONTENT.value(), response.getStatus());
+        assertEquals("01", new String(response.getContentAsByteArray(), StandardCharsets.UTF_8));
+    }
+
+    @Test
+    void testStreamFile_Success_PartialContent() {
+        MockHttpServletRequest request = new MockHttpServletRequest("GET", "/files/module/file");
+        request.addHeader("Range", "bytes=5-9");
+        MockHttpServletResponse response = new MockHttpServletResponse();
+
+        fileStreamService.streamFile(createMetadata(ETAG), request, response);
+
+        assertEquals(HttpStatus.PARTIAL_CONTENT.value(), response.getStatus());
+        assertEquals("bytes 5-9/20", response.getHeader("Content-Range"));
+        assertEquals(5, response.getContentLengthLong());
+        assertEquals("56789", new String(response.getContentAsByteArray(), StandardCharsets.UTF_8));
+    }
+
+    @Test
+    void testStreamFile_Success_SuffixRange() {
+        MockHttpServletRequest request = new MockHttpServletRequest("GET", "/files/module/file");
+        request.addHeader("Range", "bytes=-3");
+        MockHttpServletResponse response = new MockHttpServletResponse();
+
+        fileStreamService.streamFile(createMetadata(ETAG), request, response);
+
+        assertEquals(HttpStatus.PARTIAL_CONTENT.value(), response.getStatus());
+        assertEquals("bytes 17-19/20", response.getHeader("Content-Range"));
+        assertEquals("hij", new String(response.getContentAsByteArray(), StandardCharsets.UTF_8));
+    }
+
+    @Test
+    void testStreamFile_RangeNotSatisfiable() {
+        MockHttpServletRequest request = new MockHttpServletRequest("GET", "/files/module/file");
+        request.addHeader("Range", "bytes=50-60");
+        MockHttpServletResponse response = new MockHttpServletResponse();
+
+        fileStreamService.streamFile(createMetadata(ETAG), request, response);
+
+        assertEquals(HttpStatus.REQUESTED_RANGE_NOT_SATISFIABLE.value(), response.getStatus());
+        assertEquals("bytes */20", response.getHeader("Content-Range"));
+        assertEquals(0, response.getContentAsByteArray().length);
+    }
+
+    @Test
+    void testStreamFile_IfRangeOutdated_FullContent() {
+        MockHttpServletRequest request = new MockHttpServletRequest("GET", "/files/module/file");
+        request.addHeader("Range", "bytes=5-9");
+        request.addHeader("If-Range", file.lastModified() - 60_000);
+        MockHttpServletResponse response = new MockHttpServletResponse();
+
+        fileStreamService.streamFile(createMetadata(ETAG), request, response);
+
+        assertEquals(HttpStatus.OK.value(), response.getStatus());
+        assertEquals(CONTENT, new String(response.getContentAsByteArray(), StandardCharsets.UTF_8));
+    }
+
+    @Test
+    void testStreamFile_Head_NoBody() {
+        MockHttpServletRequest request = new MockHttpServletRequest("HEAD", "/files/module/file");
+        MockHttpServletResponse response = new MockHttpServletResponse();
+
+        fileStreamService.streamFile(createMetadata(ETAG), request, response);
+
+        assertEquals(HttpStatus.OK.value(), response.getStatus());
+        assertEquals(CONTENT.length(), response.getContentLengthLong());
+        assertEquals(0, response.getContentAsByteArray().length);
+    }
+
+    @Test
+    void testStreamFile_Success_Sendfile() {
+        MockHttpServletRequest request = new MockHttpServletRequest("GET", "/files/module/file");
+        request.setAttribute("org.apache.tomcat.sendfile.support", Boolean.TRUE);
+        request.addHeader("Range", "bytes=2-");
+        MockHttpServletResponse response = new MockHttpServletResponse();
+
+        fileStreamService.streamFile(createMetadata(ETAG), request, response);
+
+        assertEquals(HttpStatus.PARTIAL_CONTENT.value(), response.getStatus());
+        assertEquals(file.getAbsolutePath(), request.getAttribute("org.apache.tomcat.sendfile.filename"));
+        assertEquals(2L, request.getAttribute("org.apache.tomcat.sendfile.start"));
+        assertEquals(20L, request.getAttribute("org.apache.tomcat.sendfile.end"));
+        assertEquals(0, response.getContentAsByteArray().length);
+    }
+
+    @Test
+    void testStreamFile_Success_FromHotCache() throws IOException {
+        injectField(hotFileCacheService, "maxFileSize", DataSize.ofKilobytes(64));
+
+        // The first request still goes through sendfile, it only marks the file for the cache
+        MockHttpServletRequest firstRequest = new MockHttpServletRequest("GET", "/files/module/file");
+        firstRequest.setAttribute("org.apache.tomcat.sendfile.support", Boolean.TRUE);
+        fileStreamService.streamFile(createMetadata(ETAG), firstRequest, new MockHttpServletResponse());
+
+        assertNotNull(firstRequest.getAttribute("org.apache.tomcat.sendfile.filename"));
+
+        MockHttpServletRequest request = new MockHttpServletRequest("GET", "/files/module/file");
+        request.setAttribute("org.apache.tomcat.sendfile.support", Boolean.TRUE);
+        request.addHeader("Range", "bytes=2-");
+        MockHttpServletResponse response = new MockHttpServletResponse();
+
+        fileStreamService.streamFile(createMetadata(ETAG), request, response);
+
+        assertEquals(HttpStatus.PARTIAL_CONTENT.value(), response.getStatus());
+        assertEquals(CONTENT.substring(2), new String(response.getContentAsByteArray(), StandardCharsets.UTF_8));
+        assertNull(request.getAttribute("org.apache.tomcat.sendfile.filename"));
+    }
+
+    @Test
+    void testStreamFile_AsyncIo_PartialContent() throws InterruptedException {
+        injectField(fileStreamService, "isAsyncIoEnabled", true);
+
+        MockHttpServletRequest request = new MockHttpServletRequest("GET", "/files/module/file");
+        request.setAsyncSupported(true);
+        request.addHeader("Range", "bytes=2-");
+        ExecutorService container = Executors.newSingleThreadExecutor();
+        NonBlockingServletOutputStream out = new NonBlockingServletOutputStream(container, false);
+
+        // Returns once the transfer is set up, the body is written on callbacks
+        fileStreamService.streamFile(createMetadata(ETAG), request, withOutputStream(new MockHttpServletResponse(), out));
+
+        awaitAsyncComplete(request);
+        container.shutdown();
+
+        assertEquals(CONTENT.substring(2), new String(out.toByteArray(), StandardCharsets.UTF_8));
+    }
+
+    @Test
+    void testStreamFile_AsyncIo_SlowClient_FullContent() throws IOException, InterruptedException {
+        injectField(fileStreamService, "isAsyncIoEnabled", true);
+
+        // Several buffers long, so reads and writes take turns more than once
+        byte[] content = new byte[300 * 1024];
+        new Random(42).nextBytes(content);
+        Files.write(file.toPath(), content);
+
+        MockHttpServletRequest request = new MockHttpServletRequest("GET", "/files/module/file");
+        request.setAsyncSupported(true);
+        ExecutorService container = Executors.newSingleThreadExecutor();
+        NonBlockingServletOutputStream out = new NonBlockingServletOutputStream(container, true);
+        MockHttpServletResponse response = new MockHttpServletResponse();
+
+        fileStreamService.streamFile(createMetadata(ETAG), request, withOutputStream(response, out));
+
+        awaitAsyncComplete(request);
+        container.shutdown();
+
+        assertEquals(content.length, response.getContentLengthLong());
+        assertArrayEquals(content, out.toByteArray());
+    }
+
+    @Test
+    void testStreamFile_AsyncIoNotSupported_Blocking() {
+        injectField(fileStreamService, "isAsyncIoEnabled", true);
+
+        MockHttpServletRequest request = new MockHttpServletRequest("GET", "/files/module/file");
+        request.setAsyncSupported(false);
+        MockHttpServletResponse response = new MockHttpServletResponse();
+
+        fileStreamService.streamFile(createMetadata(ETAG), request, response);
+
+        assertFalse(request.isAsyncStarted());
+        assertEquals(CONTENT, new String(response.getContentAsByteArray(), StandardCharsets.UTF_8));
+    }
+
+    @Test
+    void testStreamFile_RemoteBackend_PartialContent() throws IOException {
+        FileMetadataDTO metadata = FileMetadataDTO.builder()
+                                                  .storageKey("module/file")
+                                                  .mimeType("text/plain")
+                                                  .size(CONTENT.length())
+                                                  .lastModified(file.lastModified())
+                                                  .disposition("attachment; file")
+                                                  .etag(ETAG)
+                                                  .build();
+
+        when(storageBackend.getRange("module/file", 5, 5))
+                .thenReturn(new ByteArrayInputStream(CONTENT.substring(5, 10).getBytes(StandardCharsets.UTF_8)));
+
+        MockHttpServletRequest request = new MockHttpServletRequest("GET", "/files/module/file");
+        request.addHeader("Range", "bytes=5-9");
+        request.setAttribute("org.apache.tomcat.sendfile.support", Boolean.TRUE);
+        MockHttpServletResponse response = new MockHttpServletResponse();
+
+        fileStreamService.streamFile(metadata, request, response);
+
+        assertEquals(HttpStatus.PARTIAL_CONTENT.value(), response.getStatus());
+        assertEquals("bytes 5-9/20", response.getHeader("Content-Range"));
+        assertEquals(CONTENT.substring(5, 10), new String(response.getContentAsByteArray(), StandardCharsets.UTF_8));
+        assertNull(request.getAttribute("org.apache.tomcat.sendfile.filename"));
+    }
+
+    @Test
+    void testStreamFile_AcceptGzip_Precompressed() throws IOException {
+        FileMetadataDTO textMetadata = createTextMetadata();
+        fileEncodingService.precompress("module", "file.txt", "text/plain");
+        FileMetadataDTO metadata = textMetadata.toBuilder()
+                                               .precompressed(fileEncodingService.getPrecompressed(textMetadata))
+                                               .build();
+
+        MockHttpServletRequest request = new MockHttpServletRequest("GET", "/files/module/file.txt");
+        request.addHeader("Accept-Encoding", "gzip, deflate, br");
+        MockHttpServletResponse response = new MockHttpServletResponse();
+
+        fileStreamService.streamFile(metadata, request, response);
+
+        assertEquals(HttpStatus.OK.value(), response.getStatus());
+        assertEquals("gzip", response.getHeader("Content-Encoding"));
+        assertEquals("Accept-Encoding", response.getHeader("Vary"));
+        assertEquals("\"" + ETAG + "-gzip\"", response.getHeader("ETag"));
+        assertTrue(response.getContentLengthLong() < metadata.size());
+        assertEquals(response.getContentLengthLong(), response.getContentAsByteArray().length);
+        assertEquals(Files.readString(metadata.file().toPath()), gunzip(response.getContentAsByteArray()));
+    }
+
+    @Test
+    void testStreamFile_AcceptGzip_CompressedOnTheFly() throws IOException {
+        FileMetadataDTO metadata = createTextMetadata();
+
+        MockHttpServletRequest request = new MockHttpServletRequest("GET", "/files/module/file.txt");
+        request.addHeader("Accept-Encoding", "br;q=1, gzip;q=0.5");
+        request.addHeader("Range", "bytes=0-9");
+        MockHttpServletResponse response = new MockHttpServletResponse();
+
+        fileStreamService.streamFile(metadata, request, response);
+
+        // Ranges are ignored, the compressed length is not known up front
+        assertEquals(HttpStatus.OK.value(), response.getStatus());
+        assertEquals("gzip", response.getHeader("Content-Encoding"));
+        assertEquals("Accept-Encoding", response.getHeader("Vary"));
+        assertEquals("W/\"" + ETAG + "-gzip\"", response.getHeader("ETag"));
+        assertNull(response.getHeader("Content-Length"));
+        assertNull(response.getHeader("Accept-Ranges"));
+        assertEquals(Files.readString(metadata.file().toPath()), gunzip(response.getContentAsByteArray()));
+    }
+
+    @Test
+    void testStreamFile_GzipRefused_Identity() throws IOException {
+        FileMetadataDTO metadata = createTextMetadata();
+
+        MockHttpServletRequest request = new MockHttpServletRequest("GET", "/files/module/file.txt");
+        request.addHeader("Accept-Encoding", "gzip;q=0, *");
+        MockHttpServletResponse response = new MockHttpServletResponse();
+
+        fileStreamService.streamFile(metadata, request, response);
+
+        assertNull(response.getHeader("Content-Encoding"));
+        assertEquals("Accept-Encoding", response.getHeader("Vary"));
+        assertEquals(metadata.size(), response.getContentLengthLong());
+        assertEquals(Files.readString(metadata.file().toPath()), response.getContentAsString());
+    }
+
+    private FileMetadataDTO createTextMetadata() throws IOException {
+        Path textPath = Files.writeString(tempDir.resolve("file.txt"), "hello world\n".repeat(500));
+        when(storageBackend.getLocalPath("module/file.txt")).thenReturn(textPath);
+
+        return FileMetadataDTO.builder()
+                              .file(textPath.toFile())
+                              .storageKey("module/file.txt")
+                              .mimeType("text/plain")
+                              .size(Files.size(textPath))
+                              .lastModified(textPath.toFile().lastModified())
+                              .disposition("attachment; file.txt")
+                              .etag(ETAG)
+                              .build();
+    }
+
+    private static HttpServletResponseWrapper withOutputStream(MockHttpServletResponse response,
+                                                               ServletOutputStream out) {
+        return new HttpServletResponseWrapper(response) {
+            @Override
+            public ServletOutputStream getOutputStream() {
+                return out;
+            }
+        };
+    }
+
+    private static void awaitAsyncComplete(MockHttpServletRequest request) throws InterruptedException {
+        long deadline = System.nanoTime() + Duration.ofSeconds(5).toNanos();
+
+        while (request.isAsyncStarted() && System.nanoTime() < deadline) {
+            Thread.sleep(10);
+        }
+
+        assertFalse(request.isAsyncStarted(), "Async transfer did not complete");
+    }
+
+    private static String gunzip(byte[] content) throws IOException {
+        try (GZIPInputStream in = new GZIPInputStream(new ByteArrayInputStream(content))) {
+            return new String(in.readAllBytes(), StandardCharsets.UTF_8);
+        }
+    }
+
+    private FileMetadataDTO createMetadata(String etag) {
+        return FileMetadataDTO.builder()
+                              .file(file)
+                              .mimeType("text/plain")
+                              .size(file.length())
+                              .lastModified(file.lastModified())
+                              .disposition("attachment; file")
+                              .etag(etag)
+                              .build();
+    }
+}
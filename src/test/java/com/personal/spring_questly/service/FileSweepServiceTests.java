@@ -0,0 +1,151 @@
+package com.personal.spring_questly.service;
+
+import com.personal.spring_questly.repository.FileRepository;
+import com.personal.spring_questly.service.impl.FileSweepServiceImpl;
+import com.personal.spring_questly.service.impl.LocalStorageBackend;
+import com.personal.spring_questly.util.FileLayoutUtil;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.junit.jupiter.api.io.TempDir;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.Spy;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.core.task.SyncTaskExecutor;
+import org.springframework.core.task.TaskExecutor;
+import org.springframework.data.domain.Pageable;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.List;
+import java.util.UUID;
+
+import static com.personal.spring_questly.utils.FieldUtils.injectField;
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+public class FileSweepServiceTests {
+    private static final String MODULE_NAME = "testmodule";
+
+    @Mock
+    private FileRepository fileRepository;
+    @Mock
+    private BlobService blobService;
+    @Mock
+    private HotFileCacheService hotFileCacheService;
+    @Mock
+    private ImageVariantService imageVariantService;
+    @Mock
+    private FileEncodingService fileEncodingService;
+    @Spy
+    private TaskExecutor fileSweepExecutor = new SyncTaskExecutor();
+    @Spy
+    private FileLayoutUtil fileLayoutUtil = new FileLayoutUtil();
+    @InjectMocks
+    private FileSweepServiceImpl fileSweepService;
+
+    @TempDir
+    Path uploadDir;
+
+    @BeforeEach
+    void setup() {
+        injectField(fileLayoutUtil, "uploadDir", uploadDir.toString());
+        injectField(fileSweepService, "storageBackend", new LocalStorageBackend(blobService, fileLayoutUtil));
+        injectField(fileSweepService, "batchSize", 200);
+        injectField(fileSweepService, "maxAttempts", 5);
+        injectField(fileSweepService, "retryDelay", Duration.ofMinutes(5));
+    }
+
+    @Test
+    void testSweepDeletedFiles_NothingDue() {
+        when(fileRepository.findDueTombstones(any(Instant.class), eq(5), any(Pageable.class))).thenReturn(List.of());
+
+        assertEquals(0, fileSweepService.sweepDeletedFiles());
+        verify(fileRepository, never()).deleteTombstonesReturningBlobHash(any());
+    }
+
+    @Test
+    void testSweepDeletedFiles_DeletesFilesAndReleasesBlobs() throws IOException {
+        com.personal.spring_questly.model.File file1 = createTombstone("file1.txt");
+        com.personal.spring_questly.model.File file2 = createTombstone("file2.txt");
+        Path path1 = createFileOnDisk(file1);
+        // Not migrated to the sharded layout yet
+        Path path2 = Files.writeString(
+                Files.createDirectories(uploadDir.resolve(MODULE_NAME)).resolve(file2.getName()), "content");
+
+        when(fileRepository.findDueTombstones(any(Instant.class), eq(5), any(Pageable.class)))
+                .thenReturn(List.of(file1, file2));
+        when(fileRepository.deleteTombstonesReturningBlobHash(List.of(file1.getId(), file2.getId())))
+                .thenReturn(List.of("hash-file1.txt", "hash-file2.txt"));
+
+        int result = fileSweepService.sweepDeletedFiles();
+
+        assertEquals(2, result);
+        assertFalse(Files.exists(path1));
+        assertFalse(Files.exists(path2));
+        verify(blobService).release("hash-file1.txt");
+        verify(blobService).release("hash-file2.txt");
+        verify(imageVariantService).deleteVariants(MODULE_NAME, "file1.txt");
+        verify(fileEncodingService).deletePrecompressed(MODULE_NAME, "file1.txt");
+        verify(hotFileCacheService).invalidate(path2.toFile());
+        verify(fileRepository, never()).rescheduleDelete(anyList(), any(Instant.class));
+    }
+
+    @Test
+    void testSweepDeletedFiles_FailedDelete_Rescheduled() throws IOException {
+        com.personal.spring_questly.model.File file1 = createTombstone("file1.txt");
+        com.personal.spring_questly.model.File file2 = createTombstone("file2.txt");
+        createFileOnDisk(file1);
+
+        // A non-empty directory in place of the file cannot be deleted
+        Path path2 = Files.createDirectories(fileLayoutUtil.getFilePath(MODULE_NAME, "file2.txt"));
+        Files.writeString(path2.resolve("child"), "content");
+
+        when(fileRepository.findDueTombstones(any(Instant.class), eq(5), any(Pageable.class)))
+                .thenReturn(List.of(file1, file2));
+        when(fileRepository.deleteTombstonesReturningBlobHash(List.of(file1.getId())))
+                .thenReturn(List.of("hash-file1.txt"));
+
+        int result = fileSweepService.sweepDeletedFiles();
+
+        assertEquals(1, result);
+        verify(fileRepository).rescheduleDelete(eq(List.of(file2.getId())), any(Instant.class));
+        verify(blobService, never()).release("hash-file2.txt");
+        verify(imageVariantService, never()).deleteVariants(MODULE_NAME, "file2.txt");
+    }
+
+    @Test
+    void testSweepDeletedFiles_RemovedByOtherSweeper_NotReleasedTwice() throws IOException {
+        com.personal.spring_questly.model.File file1 = createTombstone("file1.txt");
+        createFileOnDisk(file1);
+
+        when(fileRepository.findDueTombstones(any(Instant.class), eq(5), any(Pageable.class)))
+                .thenReturn(List.of(file1));
+        when(fileRepository.deleteTombstonesReturningBlobHash(List.of(file1.getId()))).thenReturn(List.of());
+
+        assertEquals(0, fileSweepService.sweepDeletedFiles());
+        verify(blobService, never()).release(any());
+    }
+
+    private com.personal.spring_questly.model.File createTombstone(String name) {
+        return com.personal.spring_questly.model.File.builder()
+                                                     .id(UUID.randomUUID())
+                                                     .moduleName(MODULE_NAME)
+                                                     .name(name)
+                                                     .blobHash("hash-" + name)
+                                                     .deletedAt(Instant.now())
+                                                     .deleteAttempts(0)
+                                                     .build();
+    }
+
+    private Path createFileOnDisk(com.personal.spring_questly.model.File file) throws IOException {
+        Path filePath = fileLayoutUtil.getFilePath(file.getModuleName(), file.getName());
+        Files.createDirectories(filePath.getParent());
+        return Files.writeString(filePath, "content");
+    }
+}
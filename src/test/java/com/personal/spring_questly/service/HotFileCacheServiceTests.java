@@ -0,0 +1,148 @@
+package com.personal.spring_questly.service;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.personal.spring_questly.dto.file.FileMetadataDTO;
+import com.personal.spring_questly.service.impl.HotFileCacheServiceImpl;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.util.unit.DataSize;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import static com.personal.spring_questly.utils.FieldUtils.injectField;
+import static org.junit.jupiter.api.Assertions.*;
+
+public class HotFileCacheServiceTests {
+    private Cache<Path, ByteBuffer> hotFileCache;
+
+    private HotFileCacheServiceImpl hotFileCacheService;
+
+    @TempDir
+    Path uploadDir;
+
+    @BeforeEach
+    void setup() {
+        hotFileCache = Caffeine.newBuilder()
+                               .maximumWeight(64)
+                               .weigher((Path path, ByteBuffer content) -> content.capacity())
+                               .executor(Runnable::run)
+                               .recordStats()
+                               .build();
+
+        hotFileCacheService = new HotFileCacheServiceImpl(hotFileCache, Caffeine.newBuilder().build());
+        injectField(hotFileCacheService, "maxFileSize", DataSize.ofBytes(32));
+    }
+
+    @Test
+    void testGetContent_FirstRequest_NotCached() throws IOException {
+        Path file = Files.writeString(uploadDir.resolve("file1.txt"), "content");
+
+        assertNull(hotFileCacheService.getContent(createMetadata(file)));
+        assertEquals(0, hotFileCache.estimatedSize());
+    }
+
+    @Test
+    void testGetContent_SmallFile_ServedFromCache() throws IOException {
+        Path file = Files.writeString(uploadDir.resolve("file1.txt"), "content");
+        FileMetadataDTO metadata = createMetadata(file);
+
+        this.admit(metadata);
+        assertEquals("content", toString(hotFileCacheService.getContent(metadata)));
+
+        // Same length so the entry stays valid, the old bytes prove it was not re-read
+        Files.writeString(file, "CONTENT");
+
+        assertEquals("content", toString(hotFileCacheService.getContent(metadata)));
+        assertEquals(1, hotFileCache.stats().hitCount());
+        assertEquals(2, hotFileCache.stats().missCount());
+    }
+
+    @Test
+    void testGetContent_ReturnsIndependentViews() throws IOException {
+        Path file = Files.writeString(uploadDir.resolve("file1.txt"), "content");
+        FileMetadataDTO metadata = createMetadata(file);
+
+        this.admit(metadata);
+        ByteBuffer first = hotFileCacheService.getContent(metadata);
+        first.position(first.limit());
+
+        ByteBuffer second = hotFileCacheService.getContent(metadata);
+
+        assertTrue(second.isReadOnly());
+        assertTrue(second.isDirect());
+        assertEquals("content", toString(second));
+    }
+
+    @Test
+    void testGetContent_LargeFile_NotCached() throws IOException {
+        Path file = Files.writeString(uploadDir.resolve("large.txt"), "x".repeat(33));
+
+        assertNull(hotFileCacheService.getContent(createMetadata(file)));
+        assertNull(hotFileCacheService.getContent(createMetadata(file)));
+        assertEquals(0, hotFileCache.estimatedSize());
+    }
+
+    @Test
+    void testGetContent_FileChanged_Invalidated() throws IOException {
+        Path file = Files.writeString(uploadDir.resolve("file1.txt"), "content");
+        FileMetadataDTO metadata = createMetadata(file);
+
+        this.admit(metadata);
+        hotFileCacheService.getContent(metadata);
+
+        FileMetadataDTO changedMetadata = FileMetadataDTO.builder()
+                                                         .file(file.toFile())
+                                                         .size(metadata.size() + 1)
+                                                         .build();
+
+        assertNull(hotFileCacheService.getContent(changedMetadata));
+        assertEquals(0, hotFileCache.estimatedSize());
+    }
+
+    @Test
+    void testGetContent_OverBudget_Evicts() throws IOException {
+        for (int i = 0; i < 4; i++) {
+            Path file = Files.writeString(uploadDir.resolve("file" + i + ".txt"), "x".repeat(30));
+            this.admit(createMetadata(file));
+            hotFileCacheService.getContent(createMetadata(file));
+        }
+
+        hotFileCache.cleanUp();
+
+        assertTrue(hotFileCache.stats().evictionCount() >= 2);
+        assertTrue(hotFileCache.policy().eviction().orElseThrow().weightedSize().orElseThrow() <= 64);
+    }
+
+    @Test
+    void testInvalidate() throws IOException {
+        Path file = Files.writeString(uploadDir.resolve("file1.txt"), "content");
+
+        this.admit(createMetadata(file));
+        hotFileCacheService.getContent(createMetadata(file));
+        hotFileCacheService.invalidate(file.toFile());
+
+        assertEquals(0, hotFileCache.estimatedSize());
+    }
+
+    // The first request of a file only marks it for admission
+    private void admit(FileMetadataDTO metadata) {
+        assertNull(hotFileCacheService.getContent(metadata));
+    }
+
+    private FileMetadataDTO createMetadata(Path file) throws IOException {
+        return FileMetadataDTO.builder()
+                              .file(file.toFile())
+                              .size(Files.size(file))
+                              .build();
+    }
+
+    private static String toString(ByteBuffer content) {
+        return StandardCharsets.UTF_8.decode(content).toString();
+    }
+}
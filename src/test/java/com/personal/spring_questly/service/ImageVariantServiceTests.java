@@ -0,0 +1,197 @@
+package com.personal.spring_questly.service;
+
+import com.personal.spring_questly.dto.file.FileMetadataDTO;
+import com.personal.spring_questly.exception.CustomException.BadRequestException;
+import com.personal.spring_questly.service.impl.ImageVariantServiceImpl;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import javax.imageio.ImageIO;
+import java.awt.image.BufferedImage;
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.stream.IntStream;
+
+import static com.personal.spring_questly.utils.FieldUtils.injectField;
+import static org.junit.jupiter.api.Assertions.*;
+
+public class ImageVariantServiceTests {
+    private static final String MODULE_NAME = "testmodule";
+    private static final String FILE_NAME = "image.png";
+
+    private ImageVariantServiceImpl imageVariantService;
+
+    private FileMetadataDTO original;
+
+    @TempDir
+    Path tempDir;
+
+    @BeforeEach
+    void setup() throws IOException {
+        imageVariantService = new ImageVariantServiceImpl();
+        injectField(imageVariantService, "variantDir", tempDir.resolve("variants").toString());
+        injectField(imageVariantService, "sizes", List.of(50, 64, 400, 2048));
+        injectField(imageVariantService, "maxVariantsPerFile", 16);
+        injectField(imageVariantService, "maxSourcePixels", 1_000_000L);
+
+        File image = tempDir.resolve(FILE_NAME).toFile();
+        ImageIO.write(new BufferedImage(200, 100, BufferedImage.TYPE_INT_RGB), "png", image);
+
+        original = FileMetadataDTO.builder()
+                                  .file(image)
+                                  .mimeType("image/png")
+                                  .size(image.length())
+                                  .lastModified(image.lastModified())
+                                  .disposition("inline; " + FILE_NAME)
+                                  .etag("etag1")
+                                  .build();
+    }
+
+    @Test
+    void testGetVariant_Contain_KeepsAspectRatio() throws IOException {
+        FileMetadataDTO variant = imageVariantService.getVariant(original, MODULE_NAME, FILE_NAME, 50, null, null);
+
+        BufferedImage image = ImageIO.read(variant.file());
+
+        assertEquals(50, image.getWidth());
+        assertEquals(25, image.getHeight());
+        assertEquals("image/png", variant.mimeType());
+        assertEquals(variant.file().length(), variant.size());
+        assertNotEquals(original.etag(), variant.etag());
+    }
+
+    @Test
+    void testGetVariant_Cover_FillsBox() throws IOException {
+        FileMetadataDTO variant = imageVariantService.getVariant(original, MODULE_NAME, FILE_NAME, 50, 50, "cover");
+
+        BufferedImage image = ImageIO.read(variant.file());
+
+        assertEquals(50, image.getWidth());
+        assertEquals(50, image.getHeight());
+    }
+
+    @Test
+    void testGetVariant_Larger_KeepsOriginalSize() throws IOException {
+        FileMetadataDTO variant = imageVariantService.getVariant(original, MODULE_NAME, FILE_NAME, 400, null, null);
+
+        assertEquals(original.size(), variant.size());
+        assertEquals(200, ImageIO.read(variant.file()).getWidth());
+    }
+
+    @Test
+    void testGetVariant_Generated_ServedFromDisk() throws IOException {
+        FileMetadataDTO first = imageVariantService.getVariant(original, MODULE_NAME, FILE_NAME, 50, null, null);
+
+        // Without the original the variant can only come from the derivative directory
+        Files.delete(original.file().toPath());
+
+        FileMetadataDTO second = imageVariantService.getVariant(original, MODULE_NAME, FILE_NAME, 50, null, null);
+
+        assertEquals(first.file(), second.file());
+        assertEquals(first.etag(), second.etag());
+    }
+
+    @Test
+    void testGetVariant_ConcurrentRequests_SameVariant() {
+        CountDownLatch start = new CountDownLatch(1);
+
+        List<CompletableFuture<FileMetadataDTO>> requests =
+                IntStream.range(0, 8)
+                         .mapToObj(i -> CompletableFuture.supplyAsync(() -> this.getVariantAfter(start)))
+                         .toList();
+
+        start.countDown();
+
+        List<FileMetadataDTO> variants = requests.stream()
+                                                 .map(CompletableFuture::join)
+                                                 .toList();
+
+        variants.forEach(variant -> assertEquals(variants.get(0).file(), variant.file()));
+        assertEquals(1, variants.get(0).file().getParentFile().list().length);
+    }
+
+    @Test
+    void testGetVariant_SnapsToConfiguredSize() throws IOException {
+        FileMetadataDTO variant = imageVariantService.getVariant(original, MODULE_NAME, FILE_NAME, 60, null, null);
+        FileMetadataDTO sameVariant = imageVariantService.getVariant(original, MODULE_NAME, FILE_NAME, 51, null, null);
+
+        assertEquals(64, ImageIO.read(variant.file()).getWidth());
+        assertEquals(variant.file(), sameVariant.file());
+    }
+
+    @Test
+    void testGetVariant_LimitPerFile_ServesOriginal() {
+        injectField(imageVariantService, "maxVariantsPerFile", 1);
+
+        FileMetadataDTO variant = imageVariantService.getVariant(original, MODULE_NAME, FILE_NAME, 50, null, null);
+        FileMetadataDTO result = imageVariantService.getVariant(original, MODULE_NAME, FILE_NAME, 64, null, null);
+
+        assertEquals(original, result);
+        assertEquals(1, variant.file().getParentFile().list().length);
+    }
+
+    @Test
+    void testGetVariant_TooManyPixels_BadRequest() {
+        injectField(imageVariantService, "maxSourcePixels", 10_000L);
+
+        BadRequestException errors = assertThrows(BadRequestException.class, () ->
+                imageVariantService.getVariant(original, MODULE_NAME, FILE_NAME, 50, null, null));
+
+        assertEquals("Image is too large to resize", errors.getMessage());
+    }
+
+    @Test
+    void testGetVariant_InvalidDimension_BadRequest() {
+        BadRequestException errors = assertThrows(BadRequestException.class, () ->
+                imageVariantService.getVariant(original, MODULE_NAME, FILE_NAME, 0, null, null));
+
+        assertEquals("Width and height must be between 1 and 2048", errors.getMessage());
+    }
+
+    @Test
+    void testGetVariant_InvalidFit_BadRequest() {
+        BadRequestException errors = assertThrows(BadRequestException.class, () ->
+                imageVariantService.getVariant(original, MODULE_NAME, FILE_NAME, 50, 50, "stretch"));
+
+        assertEquals("Fit must be one of contain, cover or fill", errors.getMessage());
+    }
+
+    @Test
+    void testGetVariant_NotImage_BadRequest() {
+        FileMetadataDTO document = FileMetadataDTO.builder()
+                                                   .file(tempDir.resolve("file.pdf").toFile())
+                                                   .mimeType("application/pdf")
+                                                   .build();
+
+        BadRequestException errors = assertThrows(BadRequestException.class, () ->
+                imageVariantService.getVariant(document, MODULE_NAME, "file.pdf", 50, null, null));
+
+        assertEquals("Only images can be resized", errors.getMessage());
+    }
+
+    @Test
+    void testDeleteVariants() {
+        FileMetadataDTO variant = imageVariantService.getVariant(original, MODULE_NAME, FILE_NAME, 50, null, null);
+
+        imageVariantService.deleteVariants(MODULE_NAME, FILE_NAME);
+
+        assertFalse(variant.file().exists());
+        assertFalse(variant.file().getParentFile().exists());
+    }
+
+    private FileMetadataDTO getVariantAfter(CountDownLatch start) {
+        try {
+            start.await();
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+        }
+
+        return imageVariantService.getVariant(original, MODULE_NAME, FILE_NAME, 64, 64, "fill");
+    }
+}
@@ -0,0 +1,182 @@
+package com.personal.spring_questly.service;
+
+import com.personal.spring_questly.exception.CustomException.ServiceUnavailableException;
+import com.personal.spring_questly.repository.UserRepository;
+import com.personal.spring_questly.service.impl.PasswordHashServiceImpl;
+import com.personal.spring_questly.util.LatencyWindow;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.http.HttpStatus;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+import org.springframework.security.crypto.password.PasswordEncoder;
+
+import java.time.Duration;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import static com.personal.spring_questly.utils.FieldUtils.injectField;
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+public class PasswordHashServiceTests {
+    private static final int MAX_CONCURRENCY = 4;
+
+    @Mock
+    private PasswordEncoder passwordEncoder;
+    @Mock
+    private UserRepository userRepository;
+
+    private final LatencyWindow latencyWindow = new LatencyWindow(1024);
+    private final MeterRegistry meterRegistry = new SimpleMeterRegistry();
+
+    private ThreadPoolTaskExecutor passwordHashExecutor;
+    private PasswordHashServiceImpl passwordHashService;
+
+    @BeforeEach
+    void setup() {
+        passwordHashExecutor = new ThreadPoolTaskExecutor();
+        passwordHashExecutor.setCorePoolSize(MAX_CONCURRENCY);
+        passwordHashExecutor.setMaxPoolSize(MAX_CONCURRENCY);
+        passwordHashExecutor.setQueueCapacity(1);
+        passwordHashExecutor.initialize();
+
+        passwordHashService = new PasswordHashServiceImpl(passwordEncoder, passwordHashExecutor, latencyWindow,
+                userRepository, meterRegistry);
+        injectField(passwordHashService, "maxConcurrency", MAX_CONCURRENCY);
+        injectField(passwordHashService, "minConcurrency", 1);
+        injectField(passwordHashService, "isAdaptive", true);
+        injectField(passwordHashService, "targetP99", Duration.ofMillis(100));
+        injectField(passwordHashService, "minSamples", 10);
+        passwordHashService.init();
+    }
+
+    @AfterEach
+    void tearDown() {
+        passwordHashExecutor.shutdown();
+    }
+
+    @Test
+    void testMatches_RunsOnHashExecutor() {
+        when(passwordEncoder.matches("123qwe", "encoded")).thenAnswer(invocation ->
+                Thread.currentThread().getName().startsWith(passwordHashExecutor.getThreadNamePrefix()));
+
+        assertTrue(passwordHashService.matches("123qwe", "encoded"));
+    }
+
+    @Test
+    void testEncode_Saturated_ServiceUnavailable() throws Exception {
+        CountDownLatch release = new CountDownLatch(1);
+        CountDownLatch started = new CountDownLatch(MAX_CONCURRENCY);
+
+        when(passwordEncoder.encode("123qwe")).thenAnswer(invocation -> {
+            started.countDown();
+            release.await(5, TimeUnit.SECONDS);
+            return "encoded";
+        });
+
+        // Takes every thread and the one queue slot
+        ExecutorService requestThreads = Executors.newFixedThreadPool(MAX_CONCURRENCY + 1);
+        CompletableFuture<?>[] running = new CompletableFuture<?>[MAX_CONCURRENCY + 1];
+
+        for (int i = 0; i < running.length; i++) {
+            running[i] = CompletableFuture.runAsync(() -> passwordHashService.encode("123qwe"), requestThreads);
+        }
+
+        assertTrue(started.await(5, TimeUnit.SECONDS));
+
+        while (passwordHashExecutor.getThreadPoolExecutor().getQueue().isEmpty()) {
+            Thread.sleep(1);
+        }
+
+        ServiceUnavailableException errors = assertThrows(ServiceUnavailableException.class,
+                () -> passwordHashService.encode("123qwe"));
+
+        release.countDown();
+        CompletableFuture.allOf(running).get(5, TimeUnit.SECONDS);
+        requestThreads.shutdown();
+
+        assertEquals(HttpStatus.SERVICE_UNAVAILABLE, errors.getStatus());
+        assertEquals(1, meterRegistry.counter("auth.password.hash.rejected").count());
+    }
+
+    @Test
+    void testAdjustLimit_SlowRequests_Shrinks() {
+        this.recordLatencies(Duration.ofMillis(500));
+        passwordHashService.adjustLimit();
+
+        assertEquals(3, passwordHashExecutor.getCorePoolSize());
+        assertEquals(3, passwordHashExecutor.getMaxPoolSize());
+
+        this.recordLatencies(Duration.ofMillis(500));
+        passwordHashService.adjustLimit();
+        this.recordLatencies(Duration.ofMillis(500));
+        passwordHashService.adjustLimit();
+        this.recordLatencies(Duration.ofMillis(500));
+        passwordHashService.adjustLimit();
+
+        // Never below the minimum
+        assertEquals(1, passwordHashExecutor.getCorePoolSize());
+        assertEquals(1, meterRegistry.get("auth.password.hash.limit").gauge().value());
+    }
+
+    @Test
+    void testAdjustLimit_FastRequests_GrowsBackToMax() {
+        this.recordLatencies(Duration.ofMillis(500));
+        passwordHashService.adjustLimit();
+        this.recordLatencies(Duration.ofMillis(500));
+        passwordHashService.adjustLimit();
+
+        assertEquals(2, passwordHashExecutor.getCorePoolSize());
+
+        this.recordLatencies(Duration.ofMillis(5));
+        passwordHashService.adjustLimit();
+
+        assertEquals(3, passwordHashExecutor.getCorePoolSize());
+
+        // Too few requests to judge, the limit keeps growing
+        passwordHashService.adjustLimit();
+        passwordHashService.adjustLimit();
+
+        assertEquals(MAX_CONCURRENCY, passwordHashExecutor.getCorePoolSize());
+        assertEquals(MAX_CONCURRENCY, passwordHashExecutor.getMaxPoolSize());
+    }
+
+    @Test
+    void testUpgradeEncoding_WeakerHash_Rehashed() {
+        UUID userId = UUID.randomUUID();
+
+        when(passwordEncoder.upgradeEncoding("old hash")).thenReturn(true);
+        when(passwordEncoder.encode("123qwe")).thenReturn("new hash");
+
+        passwordHashService.upgradeEncoding(userId, "123qwe", "old hash");
+
+        verify(userRepository, timeout(5000)).updatePassword(userId, "old hash", "new hash");
+    }
+
+    @Test
+    void testUpgradeEncoding_CurrentHash_Skipped() {
+        when(passwordEncoder.upgradeEncoding("hash")).thenReturn(false);
+
+        passwordHashService.upgradeEncoding(UUID.randomUUID(), "123qwe", "hash");
+
+        verify(passwordEncoder, times(0)).encode(any());
+        verifyNoInteractions(userRepository);
+    }
+
+    private void recordLatencies(Duration latency) {
+        for (int i = 0; i < 20; i++) {
+            latencyWindow.record(latency.toNanos());
+        }
+    }
+}
@@ -0,0 +1,134 @@
+package com.personal.spring_questly.service;
+
+import com.personal.spring_questly.service.impl.RateLimitServiceImpl;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.function.Supplier;
+
+import static com.personal.spring_questly.utils.FieldUtils.injectField;
+import static org.junit.jupiter.api.Assertions.*;
+
+public class RateLimitServiceTests {
+    private final MeterRegistry meterRegistry = new SimpleMeterRegistry();
+
+    private RateLimitServiceImpl rateLimitService;
+
+    @BeforeEach
+    void setup() {
+        rateLimitService = new RateLimitServiceImpl(meterRegistry);
+        injectField(rateLimitService, "isEnabled", true);
+        injectField(rateLimitService, "routeLimits", List.of("/auth/login 2 PT1H", "/files/** 3 PT1H"));
+        injectField(rateLimitService, "idleTimeout", Duration.ZERO);
+        rateLimitService.init();
+    }
+
+    @Test
+    void testTryAcquire_PerIp() {
+        assertEquals(0, rateLimitService.tryAcquire("/auth/login", "10.0.0.1", () -> null));
+        assertEquals(0, rateLimitService.tryAcquire("/auth/login", "10.0.0.1", () -> null));
+        assertTrue(rateLimitService.tryAcquire("/auth/login", "10.0.0.1", () -> null) > 0);
+
+        // Other clients have their own bucket
+        assertEquals(0, rateLimitService.tryAcquire("/auth/login", "10.0.0.2", () -> null));
+        assertEquals(1, meterRegistry.counter("rate.limit.rejected", "route", "/auth/login").count());
+    }
+
+    @Test
+    void testTryAcquire_PerUserAcrossIps() {
+        for (int i = 0; i < 3; i++) {
+            assertEquals(0, rateLimitService.tryAcquire("/files/bulk-upload", "10.0.0." + i, () -> "user"));
+        }
+
+        assertTrue(rateLimitService.tryAcquire("/files/bulk-upload", "10.0.0.9", () -> "user") > 0);
+        assertEquals(0, rateLimitService.tryAcquire("/files/bulk-upload", "10.0.0.9", () -> "other user"));
+    }
+
+    @Test
+    void testTryAcquire_RejectedByUser_IpTokenReturned() {
+        for (int i = 0; i < 3; i++) {
+            rateLimitService.tryAcquire("/files/bulk-upload", "10.0.0." + i, () -> "user");
+        }
+
+        // Rejections for the user do not use up the shared IP bucket
+        for (int i = 0; i < 5; i++) {
+            assertTrue(rateLimitService.tryAcquire("/files/bulk-upload", "10.0.0.9", () -> "user") > 0);
+        }
+
+        for (int i = 0; i < 3; i++) {
+            String otherUser = "other user " + i;
+            assertEquals(0, rateLimitService.tryAcquire("/files/bulk-upload", "10.0.0.9", () -> otherUser));
+        }
+    }
+
+    @Test
+    void testTryAcquire_RoutesHaveOwnBuckets() {
+        for (int i = 0; i < 2; i++) {
+            rateLimitService.tryAcquire("/auth/login", "10.0.0.1", () -> null);
+        }
+
+        assertEquals(0, rateLimitService.tryAcquire("/files/bulk-upload", "10.0.0.1", () -> null));
+    }
+
+    @Test
+    void testTryAcquire_UnlimitedRoute_UserNotResolved() {
+        Supplier<String> userKey = () -> fail("User resolved for an unlimited route");
+
+        for (int i = 0; i < 10; i++) {
+            assertEquals(0, rateLimitService.tryAcquire("/auth/logout", "10.0.0.1", userKey));
+        }
+
+        assertEquals(0, meterRegistry.get("rate.limit.buckets").gauge().value());
+    }
+
+    @Test
+    void testTryAcquire_Disabled() {
+        injectField(rateLimitService, "isEnabled", false);
+
+        for (int i = 0; i < 10; i++) {
+            assertEquals(0, rateLimitService.tryAcquire("/auth/login", "10.0.0.1", () -> null));
+        }
+    }
+
+    @Test
+    void testEvictIdleBuckets_OnlyFullBuckets() {
+        rateLimitService.tryAcquire("/files/bulk-upload", "10.0.0.1", () -> "user");
+
+        assertEquals(2, meterRegistry.get("rate.limit.buckets").gauge().value());
+
+        // Both buckets are missing a token for the next 20 minutes
+        rateLimitService.evictIdleBuckets();
+
+        assertEquals(2, meterRegistry.get("rate.limit.buckets").gauge().value());
+    }
+
+    @Test
+    void testEvictIdleBuckets_FullBuckets_Dropped() {
+        MeterRegistry fastMeterRegistry = new SimpleMeterRegistry();
+        RateLimitServiceImpl fastService = new RateLimitServiceImpl(fastMeterRegistry);
+        injectField(fastService, "isEnabled", true);
+        // Refilled within a nanosecond
+        injectField(fastService, "routeLimits", List.of("/auth/login 1000000 PT0.001S"));
+        injectField(fastService, "idleTimeout", Duration.ZERO);
+        fastService.init();
+
+        fastService.tryAcquire("/auth/login", "10.0.0.1", () -> null);
+        assertEquals(1, fastMeterRegistry.get("rate.limit.buckets").gauge().value());
+
+        fastService.evictIdleBuckets();
+
+        assertEquals(0, fastMeterRegistry.get("rate.limit.buckets").gauge().value());
+    }
+
+    @Test
+    void testInit_InvalidRoute() {
+        RateLimitServiceImpl invalidService = new RateLimitServiceImpl(new SimpleMeterRegistry());
+        injectField(invalidService, "routeLimits", List.of("/auth/login 0 PT1M"));
+
+        assertThrows(IllegalArgumentException.class, invalidService::init);
+    }
+}
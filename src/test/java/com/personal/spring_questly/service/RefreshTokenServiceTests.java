@@ -0,0 +1,188 @@
+package com.personal.spring_questly.service;
+
+import com.personal.spring_questly.dto.auth.AuthTokensDTO;
+import com.personal.spring_questly.exception.CustomException.UnauthorizedException;
+import com.personal.spring_questly.model.RefreshToken;
+import com.personal.spring_questly.model.User;
+import com.personal.spring_questly.repository.RefreshTokenRepository;
+import com.personal.spring_questly.repository.UserRepository;
+import com.personal.spring_questly.service.impl.RefreshTokenServiceImpl;
+import com.personal.spring_questly.util.JwtUtil;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.http.HttpStatus;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Optional;
+import java.util.UUID;
+
+import static com.personal.spring_questly.utils.FieldUtils.injectField;
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+public class RefreshTokenServiceTests {
+    private static final String REFRESH_TOKEN = "h1zgN_ThY_vfA5mx";
+
+    @Mock
+    private RefreshTokenRepository refreshTokenRepository;
+    @Mock
+    private UserRepository userRepository;
+    @Mock
+    private JwtUtil jwtUtil;
+    @InjectMocks
+    private RefreshTokenServiceImpl refreshTokenService;
+
+    private User user;
+
+    @BeforeEach
+    void setup() {
+        injectField(refreshTokenService, "refreshExpiration", Duration.ofDays(30));
+
+        user = User.builder()
+                   .id(UUID.randomUUID())
+                   .email("test123@gmail.com")
+                   .tokenVersion(1)
+                   .build();
+    }
+
+    @Test
+    void testIssue_StoresOnlyHash() {
+        when(jwtUtil.generateToken(user)).thenReturn("jwt token");
+
+        AuthTokensDTO result = refreshTokenService.issue(user);
+
+        ArgumentCaptor<RefreshToken> captor = ArgumentCaptor.forClass(RefreshToken.class);
+        verify(refreshTokenRepository, times(1)).save(captor.capture());
+
+        assertEquals("jwt token", result.accessToken());
+        assertNotNull(result.refreshToken());
+        assertEquals(JwtUtil.digest(result.refreshToken()), captor.getValue().getTokenHash());
+        assertNotEquals(result.refreshToken(), captor.getValue().getTokenHash());
+        assertEquals(user.getId(), captor.getValue().getUserId());
+        assertEquals(1, captor.getValue().getTokenVersion());
+        assertNotNull(captor.getValue().getFamilyId());
+    }
+
+    @Test
+    void testRotate_Success_SameFamily() {
+        RefreshToken refreshToken = this.createRefreshToken(Instant.now().plusSeconds(60));
+
+        when(refreshTokenRepository.findByTokenHash(JwtUtil.digest(REFRESH_TOKEN))).thenReturn(Optional.of(refreshToken));
+        when(userRepository.findById(user.getId())).thenReturn(Optional.of(user));
+        when(refreshTokenRepository.markUsed(eq(refreshToken.getId()), any(Instant.class))).thenReturn(1);
+        when(jwtUtil.generateToken(user)).thenReturn("jwt token");
+
+        AuthTokensDTO result = refreshTokenService.rotate(REFRESH_TOKEN);
+
+        ArgumentCaptor<RefreshToken> captor = ArgumentCaptor.forClass(RefreshToken.class);
+        verify(refreshTokenRepository, times(1)).save(captor.capture());
+
+        assertEquals("jwt token", result.accessToken());
+        assertNotEquals(REFRESH_TOKEN, result.refreshToken());
+        assertEquals(refreshToken.getFamilyId(), captor.getValue().getFamilyId());
+        verify(refreshTokenRepository, times(0)).revokeFamily(any(), any());
+    }
+
+    @Test
+    void testRotate_UnknownToken_Unauthorized() {
+        when(refreshTokenRepository.findByTokenHash(JwtUtil.digest(REFRESH_TOKEN))).thenReturn(Optional.empty());
+
+        UnauthorizedException errors = assertThrows(UnauthorizedException.class,
+                () -> refreshTokenService.rotate(REFRESH_TOKEN));
+
+        assertEquals(HttpStatus.UNAUTHORIZED, errors.getStatus());
+        assertEquals("Invalid refresh token", errors.getMessage());
+    }
+
+    @Test
+    void testRotate_UsedToken_RevokesFamily() {
+        RefreshToken refreshToken = this.createRefreshToken(Instant.now().plusSeconds(60));
+        refreshToken.setUsedAt(Instant.now().minusSeconds(10));
+
+        when(refreshTokenRepository.findByTokenHash(JwtUtil.digest(REFRESH_TOKEN))).thenReturn(Optional.of(refreshToken));
+        when(refreshTokenRepository.markUsed(eq(refreshToken.getId()), any(Instant.class))).thenReturn(0);
+
+        UnauthorizedException errors = assertThrows(UnauthorizedException.class,
+                () -> refreshTokenService.rotate(REFRESH_TOKEN));
+
+        assertEquals("Refresh token has been revoked", errors.getMessage());
+        verify(refreshTokenRepository, times(1)).revokeFamily(eq(refreshToken.getFamilyId()), any(Instant.class));
+        verify(refreshTokenRepository, times(0)).save(any());
+        verifyNoInteractions(jwtUtil);
+    }
+
+    @Test
+    void testRotate_ConcurrentUse_RevokesFamily() {
+        // Read as unused, but another request used it before the update
+        RefreshToken refreshToken = this.createRefreshToken(Instant.now().plusSeconds(60));
+
+        when(refreshTokenRepository.findByTokenHash(JwtUtil.digest(REFRESH_TOKEN))).thenReturn(Optional.of(refreshToken));
+        when(refreshTokenRepository.markUsed(eq(refreshToken.getId()), any(Instant.class))).thenReturn(0);
+
+        assertThrows(UnauthorizedException.class, () -> refreshTokenService.rotate(REFRESH_TOKEN));
+
+        verify(refreshTokenRepository, times(1)).revokeFamily(eq(refreshToken.getFamilyId()), any(Instant.class));
+        verify(refreshTokenRepository, times(0)).save(any());
+    }
+
+    @Test
+    void testRotate_ExpiredToken_Unauthorized() {
+        RefreshToken refreshToken = this.createRefreshToken(Instant.now().minusSeconds(1));
+
+        when(refreshTokenRepository.findByTokenHash(JwtUtil.digest(REFRESH_TOKEN))).thenReturn(Optional.of(refreshToken));
+        when(refreshTokenRepository.markUsed(eq(refreshToken.getId()), any(Instant.class))).thenReturn(1);
+
+        UnauthorizedException errors = assertThrows(UnauthorizedException.class,
+                () -> refreshTokenService.rotate(REFRESH_TOKEN));
+
+        assertEquals("Refresh token has expired", errors.getMessage());
+        verify(refreshTokenRepository, times(0)).revokeFamily(any(), any());
+        verify(refreshTokenRepository, times(0)).save(any());
+    }
+
+    @Test
+    void testRotate_UserRevokedAllTokens_Unauthorized() {
+        RefreshToken refreshToken = this.createRefreshToken(Instant.now().plusSeconds(60));
+        user.setTokenVersion(2);
+
+        when(refreshTokenRepository.findByTokenHash(JwtUtil.digest(REFRESH_TOKEN))).thenReturn(Optional.of(refreshToken));
+        when(userRepository.findById(user.getId())).thenReturn(Optional.of(user));
+        when(refreshTokenRepository.markUsed(eq(refreshToken.getId()), any(Instant.class))).thenReturn(1);
+
+        UnauthorizedException errors = assertThrows(UnauthorizedException.class,
+                () -> refreshTokenService.rotate(REFRESH_TOKEN));
+
+        assertEquals("Refresh token has been revoked", errors.getMessage());
+        verify(refreshTokenRepository, times(0)).revokeFamily(any(), any());
+        verify(refreshTokenRepository, times(0)).save(any());
+    }
+
+    @Test
+    void testRevoke_RevokesFamily() {
+        RefreshToken refreshToken = this.createRefreshToken(Instant.now().plusSeconds(60));
+
+        when(refreshTokenRepository.findByTokenHash(JwtUtil.digest(REFRESH_TOKEN))).thenReturn(Optional.of(refreshToken));
+
+        refreshTokenService.revoke(REFRESH_TOKEN);
+
+        verify(refreshTokenRepository, times(1)).revokeFamily(eq(refreshToken.getFamilyId()), any(Instant.class));
+    }
+
+    private RefreshToken createRefreshToken(Instant expiresAt) {
+        return RefreshToken.builder()
+                           .id(UUID.randomUUID())
+                           .userId(user.getId())
+                           .familyId(UUID.randomUUID())
+                           .tokenHash(JwtUtil.digest(REFRESH_TOKEN))
+                           .tokenVersion(1)
+                           .expiresAt(expiresAt)
+                           .build();
+    }
+}
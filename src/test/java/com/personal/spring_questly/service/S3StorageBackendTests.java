@@ -0,0 +1,345 @@
+package com.personal.spring_questly.service;
+
+import com.personal.spring_questly.dto.file.StoredObjectDTO;
+import com.personal.spring_questly.service.impl.S3StorageBackend;
+import com.personal.spring_questly.util.AwsSignatureUtil;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.core.task.SimpleAsyncTaskExecutor;
+import org.springframework.util.unit.DataSize;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.net.URI;
+import java.net.URLDecoder;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.NoSuchFileException;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.ZoneOffset;
+import java.time.format.DateTimeFormatter;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static com.personal.spring_questly.utils.FieldUtils.injectField;
+import static org.junit.jupiter.api.Assertions.*;
+
+public class S3StorageBackendTests {
+    private static final String BUCKET = "questly";
+    private static final String ACCESS_KEY = "access";
+    private static final String SECRET_KEY = "secret";
+    private static final String REGION = "us-east-1";
+
+    private S3StandIn s3;
+
+    private S3StorageBackend storageBackend;
+
+    @BeforeEach
+    void setup() throws IOException {
+        s3 = new S3StandIn();
+
+        storageBackend = new S3StorageBackend(new SimpleAsyncTaskExecutor("storage-upload-"));
+        injectField(storageBackend, "endpoint", s3.getEndpoint());
+        injectField(storageBackend, "region", REGION);
+        injectField(storageBackend, "bucket", BUCKET);
+        injectField(storageBackend, "accessKey", ACCESS_KEY);
+        injectField(storageBackend, "secretKey", SECRET_KEY);
+        injectField(storageBackend, "partSize", DataSize.ofBytes(16));
+        injectField(storageBackend, "maxConcurrency", 2);
+        injectField(storageBackend, "requestTimeout", Duration.ofSeconds(10));
+    }
+
+    @AfterEach
+    void cleanup() {
+        s3.stop();
+    }
+
+    @Test
+    void testPut_SinglePart_Success() throws IOException {
+        byte[] content = "hello".getBytes(StandardCharsets.UTF_8);
+
+        StoredObjectDTO storedObject = storageBackend.put("testmodule/file 1.txt", new ByteArrayInputStream(content));
+
+        assertEquals("testmodule/file 1.txt", storedObject.key());
+        assertEquals(5, storedObject.size());
+        assertEquals(sha256Hex(content), storedObject.hash());
+        assertNull(storedObject.blobHash());
+        assertArrayEquals(content, s3.objects.get("testmodule/file 1.txt"));
+        assertEquals(0, s3.partCount.get());
+    }
+
+    @Test
+    void testPut_Multipart_Success() throws IOException {
+        byte[] content = new byte[100];
+        new Random(42).nextBytes(content);
+
+        StoredObjectDTO storedObject = storageBackend.put("testmodule/large.bin", new ByteArrayInputStream(content));
+
+        assertEquals(100, storedObject.size());
+        assertEquals(sha256Hex(content), storedObject.hash());
+        assertArrayEquals(content, s3.objects.get("testmodule/large.bin"));
+        // Six full parts of 16 bytes plus the 4 bytes left
+        assertEquals(7, s3.partCount.get());
+        assertTrue(s3.uploads.isEmpty());
+    }
+
+    @Test
+    void testPut_MultipartFailed_AbortsUpload() {
+        s3.failPartNumber = 2;
+
+        assertThrows(IOException.class, () ->
+                storageBackend.put("testmodule/large.bin", new ByteArrayInputStream(new byte[100])));
+
+        assertFalse(s3.objects.containsKey("testmodule/large.bin"));
+        assertTrue(s3.uploads.isEmpty());
+    }
+
+    @Test
+    void testGet_Success() throws IOException {
+        s3.objects.put("testmodule/file.txt", "0123456789".getBytes(StandardCharsets.UTF_8));
+
+        try (InputStream in = storageBackend.get("testmodule/file.txt")) {
+            assertEquals("0123456789", new String(in.readAllBytes(), StandardCharsets.UTF_8));
+        }
+
+        try (InputStream in = storageBackend.getRange("testmodule/file.txt", 2, 5)) {
+            assertEquals("23456", new String(in.readAllBytes(), StandardCharsets.UTF_8));
+        }
+    }
+
+    @Test
+    void testGet_Missing_NoSuchFile() {
+        assertThrows(NoSuchFileException.class, () -> storageBackend.get("testmodule/missing.txt"));
+    }
+
+    @Test
+    void testDelete_Success() throws IOException {
+        s3.objects.put("testmodule/file.txt", new byte[1]);
+
+        assertTrue(storageBackend.exists("testmodule/file.txt"));
+        assertTrue(storageBackend.delete("testmodule/file.txt"));
+        assertFalse(storageBackend.exists("testmodule/file.txt"));
+        // S3 deletes are idempotent, a missing key is not an error
+        assertTrue(storageBackend.delete("testmodule/file.txt"));
+        assertEquals(2, s3.deleteCount.get());
+    }
+
+    @Test
+    void testGetSize_Success() throws IOException {
+        s3.objects.put("testmodule/file.txt", new byte[10]);
+
+        assertEquals(10, storageBackend.getSize("testmodule/file.txt"));
+        assertThrows(NoSuchFileException.class, () -> storageBackend.getSize("testmodule/missing.txt"));
+    }
+
+    @Test
+    void testList_Success() throws IOException {
+        for (String key : List.of("images/a.png", "testmodule/a.txt", "testmodule/b.txt", "testmodule/c.txt")) {
+            s3.objects.put(key, new byte[1]);
+        }
+
+        assertEquals(List.of("testmodule/a.txt", "testmodule/b.txt"), storageBackend.list("testmodule/", null, 2));
+        assertEquals(List.of("testmodule/c.txt"), storageBackend.list("testmodule/", "testmodule/b.txt", 2));
+    }
+
+    @Test
+    void testRequest_WrongSecretKey_Rejected() {
+        injectField(storageBackend, "secretKey", "wrong");
+
+        assertThrows(IOException.class, () ->
+                storageBackend.put("testmodule/file.txt", new ByteArrayInputStream(new byte[1])));
+        assertTrue(s3.objects.isEmpty());
+    }
+
+    private static String sha256Hex(byte[] content) {
+        try {
+            return HexFormat.of().formatHex(MessageDigest.getInstance("SHA-256").digest(content));
+        } catch (NoSuchAlgorithmException ex) {
+            throw new IllegalStateException(ex);
+        }
+    }
+
+    /**
+     * Just enough of the S3 API for the backend, requests with a wrong signature are rejected with 403.
+     */
+    private static class S3StandIn {
+        private static final DateTimeFormatter DATE_TIME_FORMAT =
+                DateTimeFormatter.ofPattern("yyyyMMdd'T'HHmmss'Z'").withZone(ZoneOffset.UTC);
+
+        final Map<String, byte[]> objects = new ConcurrentSkipListMap<>();
+        final Map<String, Map<Integer, byte[]>> uploads = new ConcurrentHashMap<>();
+        final AtomicInteger partCount = new AtomicInteger();
+        final AtomicInteger deleteCount = new AtomicInteger();
+        volatile int failPartNumber = -1;
+
+        private final HttpServer server;
+
+        S3StandIn() throws IOException {
+            server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+            server.createContext("/", this::handle);
+            server.start();
+        }
+
+        String getEndpoint() {
+            return "http://127.0.0.1:" + server.getAddress().getPort();
+        }
+
+        void stop() {
+            server.stop(0);
+        }
+
+        private void handle(HttpExchange exchange) throws IOException {
+            try (exchange) {
+                byte[] body = exchange.getRequestBody().readAllBytes();
+
+                if (!this.isSignatureValid(exchange)) {
+                    this.respond(exchange, 403, null);
+                    return;
+                }
+
+                String method = exchange.getRequestMethod();
+                String key = exchange.getRequestURI().getPath().substring(BUCKET.length() + 1);
+                key = key.startsWith("/") ? key.substring(1) : key;
+                Map<String, String> query = this.parseQuery(exchange.getRequestURI().getRawQuery());
+
+                if (method.equals("GET") && query.containsKey("list-type")) {
+                    this.handleList(exchange, query);
+                } else if (method.equals("POST") && query.containsKey("uploads")) {
+                    String uploadId = "upload-" + uploads.size();
+                    uploads.put(uploadId, new ConcurrentSkipListMap<>());
+                    this.respond(exchange, 200, "<InitiateMultipartUploadResult><UploadId>" + uploadId
+                            + "</UploadId></InitiateMultipartUploadResult>");
+                } else if (method.equals("PUT") && query.containsKey("partNumber")) {
+                    int partNumber = Integer.parseInt(query.get("partNumber"));
+
+                    if (partNumber == failPartNumber) {
+                        this.respond(exchange, 500, null);
+                        return;
+                    }
+
+                    uploads.get(query.get("uploadId")).put(partNumber, body);
+                    partCount.incrementAndGet();
+                    exchange.getResponseHeaders().add("ETag", "\"etag-" + partNumber + "\"");
+                    this.respond(exchange, 200, null);
+                } else if (method.equals("POST") && query.containsKey("uploadId")) {
+                    ByteArrayOutputStream content = new ByteArrayOutputStream();
+                    uploads.remove(query.get("uploadId")).values().forEach(content::writeBytes);
+                    objects.put(key, content.toByteArray());
+                    this.respond(exchange, 200, "<CompleteMultipartUploadResult/>");
+                } else if (method.equals("DELETE") && query.containsKey("uploadId")) {
+                    uploads.remove(query.get("uploadId"));
+                    this.respond(exchange, 204, null);
+                } else if (method.equals("PUT")) {
+                    objects.put(key, body);
+                    this.respond(exchange, 200, null);
+                } else if (method.equals("DELETE")) {
+                    objects.remove(key);
+                    deleteCount.incrementAndGet();
+                    this.respond(exchange, 204, null);
+                } else if (!objects.containsKey(key)) {
+                    this.respond(exchange, 404, null);
+                } else if (method.equals("HEAD")) {
+                    exchange.getResponseHeaders().set("Content-Length", String.valueOf(objects.get(key).length));
+                    this.respond(exchange, 200, null);
+                } else {
+                    this.handleGet(exchange, objects.get(key));
+                }
+            }
+        }
+
+        private void handleGet(HttpExchange exchange, byte[] content) throws IOException {
+            String range = exchange.getRequestHeaders().getFirst("Range");
+            int status = 200;
+
+            if (range != null) {
+                String[] bounds = range.substring("bytes=".length()).split("-");
+                int start = Integer.parseInt(bounds[0]);
+                int end = Integer.parseInt(bounds[1]);
+                content = Arrays.copyOfRange(content, start, end + 1);
+                status = 206;
+            }
+
+            exchange.sendResponseHeaders(status, content.length);
+
+            try (OutputStream out = exchange.getResponseBody()) {
+                out.write(content);
+            }
+        }
+
+        private void handleList(HttpExchange exchange, Map<String, String> query) throws IOException {
+            StringBuilder result = new StringBuilder("<ListBucketResult>");
+            int maxKeys = Integer.parseInt(query.get("max-keys"));
+            String startAfter = query.get("start-after");
+
+            objects.keySet()
+                   .stream()
+                   .filter(key -> key.startsWith(query.get("prefix")))
+                   .filter(key -> startAfter == null || key.compareTo(startAfter) > 0)
+                   .limit(maxKeys)
+                   .forEach(key -> result.append("<Contents><Key>").append(key).append("</Key></Contents>"));
+
+            this.respond(exchange, 200, result.append("</ListBucketResult>").toString());
+        }
+
+        private boolean isSignatureValid(HttpExchange exchange) {
+            String dateTime = exchange.getRequestHeaders().getFirst("x-amz-date");
+
+            if (dateTime == null) {
+                return false;
+            }
+
+            URI uri = URI.create(this.getEndpoint() + exchange.getRequestURI());
+            Map<String, String> expected = AwsSignatureUtil.sign(
+                    exchange.getRequestMethod(), uri, exchange.getRequestHeaders().getFirst("x-amz-content-sha256"),
+                    REGION, ACCESS_KEY, SECRET_KEY, Instant.from(DATE_TIME_FORMAT.parse(dateTime)));
+
+            return expected.get("Authorization").equals(exchange.getRequestHeaders().getFirst("Authorization"));
+        }
+
+        private Map<String, String> parseQuery(String rawQuery) {
+            Map<String, String> query = new HashMap<>();
+
+            if (rawQuery == null) {
+                return query;
+            }
+
+            for (String param : rawQuery.split("&")) {
+                String[] pair = param.split("=", 2);
+                query.put(URLDecoder.decode(pair[0], StandardCharsets.UTF_8),
+                          pair.length > 1 ? URLDecoder.decode(pair[1], StandardCharsets.UTF_8) : "");
+            }
+
+            return query;
+        }
+
+        private void respond(HttpExchange exchange, int status, String body) throws IOException {
+            if (body == null) {
+                exchange.sendResponseHeaders(status, -1);
+                return;
+            }
+
+            byte[] bytes = body.getBytes(StandardCharsets.UTF_8);
+            exchange.sendResponseHeaders(status, bytes.length);
+
+            try (OutputStream out = exchange.getResponseBody()) {
+                out.write(bytes);
+            }
+        }
+    }
+}
@@ -0,0 +1,174 @@
+package com.personal.spring_questly.service;
+
+import com.personal.spring_questly.dto.file.StorageUsageDTO;
+import com.personal.spring_questly.exception.CustomException.InsufficientStorageException;
+import com.personal.spring_questly.model.StorageUsage;
+import com.personal.spring_questly.repository.FileRepository;
+import com.personal.spring_questly.repository.StorageUsageRepository;
+import com.personal.spring_questly.service.impl.StorageQuotaServiceImpl;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.util.unit.DataSize;
+
+import java.util.Optional;
+
+import static com.personal.spring_questly.utils.FieldUtils.injectField;
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+public class StorageQuotaServiceTests {
+    private static final String MODULE_NAME = "testmodule";
+    private static final String MODULE_ID = "module:" + MODULE_NAME;
+    private static final String OWNER = "user@mail.com";
+    private static final String USER_ID = "user:" + OWNER;
+
+    @Mock
+    private StorageUsageRepository storageUsageRepository;
+    @Mock
+    private FileRepository fileRepository;
+    @InjectMocks
+    private StorageQuotaServiceImpl storageQuotaService;
+
+    @BeforeEach
+    void setup() {
+        injectField(storageQuotaService, "isEnabled", true);
+        injectField(storageQuotaService, "moduleMaxSize", DataSize.ofKilobytes(10));
+        injectField(storageQuotaService, "userMaxSize", DataSize.ofKilobytes(4));
+    }
+
+    @Test
+    void testReserve_WithinQuota_Counted() {
+        when(storageUsageRepository.findById(MODULE_ID)).thenReturn(Optional.of(createUsage(MODULE_ID, 1024, 1)));
+        when(storageUsageRepository.findById(USER_ID)).thenReturn(Optional.of(createUsage(USER_ID, 0, 0)));
+
+        storageQuotaService.reserve(MODULE_NAME, OWNER, 2048, 2);
+
+        StorageUsageDTO moduleUsage = storageQuotaService.getModuleUsage(MODULE_NAME);
+        StorageUsageDTO userUsage = storageQuotaService.getUserUsage(OWNER);
+
+        assertEquals(3072, moduleUsage.usedBytes());
+        assertEquals(3, moduleUsage.fileCount());
+        assertEquals(10240, moduleUsage.maxBytes());
+        assertEquals(2048, userUsage.usedBytes());
+        assertEquals(2, userUsage.fileCount());
+        verify(storageUsageRepository, never()).addUsage(anyString(), anyLong(), anyLong());
+    }
+
+    @Test
+    void testReserve_UserQuotaExceeded_NotCounted() {
+        when(storageUsageRepository.findById(MODULE_ID)).thenReturn(Optional.of(createUsage(MODULE_ID, 0, 0)));
+        when(storageUsageRepository.findById(USER_ID)).thenReturn(Optional.of(createUsage(USER_ID, 3072, 3)));
+
+        InsufficientStorageException errors = assertThrows(InsufficientStorageException.class, () ->
+                storageQuotaService.reserve(MODULE_NAME, OWNER, 2048, 1));
+
+        assertEquals("User storage quota exceeded", errors.getMessage());
+        assertEquals(0, storageQuotaService.getModuleUsage(MODULE_NAME).usedBytes());
+        assertEquals(3072, storageQuotaService.getUserUsage(OWNER).usedBytes());
+    }
+
+    @Test
+    void testReserve_ModuleQuotaExceeded_WithoutOwner() {
+        when(storageUsageRepository.findById(MODULE_ID)).thenReturn(Optional.of(createUsage(MODULE_ID, 9216, 9)));
+
+        InsufficientStorageException errors = assertThrows(InsufficientStorageException.class, () ->
+                storageQuotaService.reserve(MODULE_NAME, null, 2048, 1));
+
+        assertEquals("Module storage quota exceeded", errors.getMessage());
+        assertEquals(9216, storageQuotaService.getModuleUsage(MODULE_NAME).usedBytes());
+    }
+
+    @Test
+    void testReserve_Disabled_NeverThrows() {
+        injectField(storageQuotaService, "isEnabled", false);
+        when(storageUsageRepository.findById(MODULE_ID)).thenReturn(Optional.of(createUsage(MODULE_ID, 9216, 9)));
+
+        storageQuotaService.reserve(MODULE_NAME, null, 2048, 1);
+
+        StorageUsageDTO moduleUsage = storageQuotaService.getModuleUsage(MODULE_NAME);
+
+        assertEquals(11264, moduleUsage.usedBytes());
+        assertNull(moduleUsage.maxBytes());
+    }
+
+    @Test
+    void testGetModuleUsage_NoRow_ComputedWithoutSaving() {
+        when(storageUsageRepository.findById(MODULE_ID)).thenReturn(Optional.empty());
+        when(fileRepository.sumLiveSizeByModuleName(MODULE_NAME)).thenReturn(2.5);
+        when(fileRepository.countLiveByModuleName(MODULE_NAME)).thenReturn(2L);
+
+        StorageUsageDTO moduleUsage = storageQuotaService.getModuleUsage(MODULE_NAME);
+
+        assertEquals(2560, moduleUsage.usedBytes());
+        assertEquals(2, moduleUsage.fileCount());
+
+        // A lookup keeps no counter, the next one reads again
+        storageQuotaService.getModuleUsage(MODULE_NAME);
+        verify(storageUsageRepository, times(2)).findById(MODULE_ID);
+        verify(storageUsageRepository, never()).insertIfAbsent(anyString(), anyLong(), anyLong());
+    }
+
+    @Test
+    void testReserve_NoRow_InsertedThenReadBack() {
+        when(storageUsageRepository.findById(MODULE_ID))
+                .thenReturn(Optional.empty())
+                // Another instance inserted its row first
+                .thenReturn(Optional.of(createUsage(MODULE_ID, 3072, 3)));
+        when(fileRepository.sumLiveSizeByModuleName(MODULE_NAME)).thenReturn(2.5);
+        when(fileRepository.countLiveByModuleName(MODULE_NAME)).thenReturn(2L);
+
+        storageQuotaService.reserve(MODULE_NAME, null, 1024, 1);
+
+        verify(storageUsageRepository, times(1)).insertIfAbsent(MODULE_ID, 2560, 2);
+        assertEquals(4096, storageQuotaService.getModuleUsage(MODULE_NAME).usedBytes());
+        verify(storageUsageRepository, times(2)).findById(MODULE_ID);
+    }
+
+    @Test
+    void testFlush_AddsPendingAndReloads() {
+        when(storageUsageRepository.findById(MODULE_ID))
+                .thenReturn(Optional.of(createUsage(MODULE_ID, 1024, 1)))
+                // Another instance added 4 KB in the meantime
+                .thenReturn(Optional.of(createUsage(MODULE_ID, 7168, 3)));
+
+        storageQuotaService.reserve(MODULE_NAME, null, 2048, 1);
+        storageQuotaService.flush();
+
+        verify(storageUsageRepository, times(1)).addUsage(MODULE_ID, 2048, 1);
+        assertEquals(7168, storageQuotaService.getModuleUsage(MODULE_NAME).usedBytes());
+
+        // Nothing pending, nothing written
+        storageQuotaService.flush();
+        verify(storageUsageRepository, times(1)).addUsage(anyString(), anyLong(), anyLong());
+    }
+
+    @Test
+    void testFlush_Failed_StaysPending() {
+        when(storageUsageRepository.findById(MODULE_ID)).thenReturn(Optional.of(createUsage(MODULE_ID, 1024, 1)));
+        when(storageUsageRepository.addUsage(MODULE_ID, -1024, -1))
+                .thenThrow(new RuntimeException("Simulated failure"))
+                .thenReturn(1);
+
+        storageQuotaService.release(MODULE_NAME, null, 1024, 1);
+        storageQuotaService.flush();
+
+        assertEquals(0, storageQuotaService.getModuleUsage(MODULE_NAME).usedBytes());
+
+        storageQuotaService.flush();
+
+        verify(storageUsageRepository, times(2)).addUsage(MODULE_ID, -1024, -1);
+    }
+
+    private StorageUsage createUsage(String id, long usedBytes, long fileCount) {
+        return StorageUsage.builder()
+                           .id(id)
+                           .usedBytes(usedBytes)
+                           .fileCount(fileCount)
+                           .build();
+    }
+}
@@ -0,0 +1,205 @@
+package com.personal.spring_questly.service;
+
+import com.personal.spring_questly.model.ReconcileCheckpoint;
+import com.personal.spring_questly.repository.BlobRepository;
+import com.personal.spring_questly.repository.FileRepository;
+import com.personal.spring_questly.repository.ReconcileCheckpointRepository;
+import com.personal.spring_questly.service.impl.BlobServiceImpl;
+import com.personal.spring_questly.service.impl.StorageReconcileServiceImpl;
+import com.personal.spring_questly.util.FileLayoutUtil;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.junit.jupiter.api.io.TempDir;
+import org.mockito.ArgumentCaptor;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.Spy;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.core.task.TaskExecutor;
+import org.springframework.core.task.TaskRejectedException;
+import org.springframework.data.domain.Pageable;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.List;
+import java.util.Optional;
+import java.util.UUID;
+
+import static com.personal.spring_questly.utils.FieldUtils.injectField;
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+public class StorageReconcileServiceTests {
+    private static final String MODULE_NAME = "testmodule";
+
+    @Mock
+    private FileRepository fileRepository;
+    @Mock
+    private BlobRepository blobRepository;
+    @Mock
+    private ReconcileCheckpointRepository reconcileCheckpointRepository;
+    @Mock
+    private BlobService blobService;
+    @Mock
+    private FileService fileService;
+    @Spy
+    private FileLayoutUtil fileLayoutUtil = new FileLayoutUtil();
+    @Mock
+    private TaskExecutor storageReconcileExecutor;
+    @InjectMocks
+    private StorageReconcileServiceImpl storageReconcileService;
+
+    @TempDir
+    Path uploadDir;
+
+    @BeforeEach
+    void setup() {
+        injectField(fileLayoutUtil, "uploadDir", uploadDir.toString());
+        injectField(storageReconcileService, "isEnabled", true);
+        injectField(storageReconcileService, "storageBackend", "local");
+        injectField(storageReconcileService, "chunkSize", 500);
+        injectField(storageReconcileService, "minAge", Duration.ofMinutes(-1));
+        injectField(storageReconcileService, "maxRunDuration", Duration.ofMinutes(5));
+        injectField(storageReconcileService, "maxEntriesPerSecond", 1_000_000);
+    }
+
+    @Test
+    void testReconcile_QuarantinesOrphanedFiles() throws IOException {
+        Path storedPath = createFileOnDisk("stored.txt");
+        Path orphanPath = createFileOnDisk("orphan.txt");
+
+        when(fileRepository.findNamesByModuleNameAndNameIn(eq(MODULE_NAME), anyCollection()))
+                .thenReturn(List.of("stored.txt"));
+
+        assertEquals(1, storageReconcileService.reconcile());
+
+        assertTrue(Files.exists(storedPath));
+        assertFalse(Files.exists(orphanPath));
+        assertTrue(Files.exists(uploadDir.resolve(StorageReconcileServiceImpl.QUARANTINE_DIR)
+                                         .resolve(MODULE_NAME)
+                                         .resolve("orphan.txt")));
+        verify(fileService).invalidateCachedFile(MODULE_NAME, "orphan.txt");
+        verify(blobService).releaseLinked(uploadDir.resolve(StorageReconcileServiceImpl.QUARANTINE_DIR)
+                                                   .resolve(MODULE_NAME)
+                                                   .resolve("orphan.txt"));
+    }
+
+    @Test
+    void testReconcile_RecentFile_Kept() throws IOException {
+        injectField(storageReconcileService, "minAge", Duration.ofHours(1));
+        Path orphanPath = createFileOnDisk("orphan.txt");
+
+        when(fileRepository.findNamesByModuleNameAndNameIn(eq(MODULE_NAME), anyCollection())).thenReturn(List.of());
+
+        assertEquals(0, storageReconcileService.reconcile());
+        assertTrue(Files.exists(orphanPath));
+    }
+
+    @Test
+    void testReconcile_OrphanedBlob_Quarantined() throws IOException {
+        String hash = "ed7002b439e9ac845f22357d822bac1444730fbdb6016d3ec9432297b9ec9f73";
+        Path blobPath = uploadDir.resolve(BlobServiceImpl.BLOB_DIR).resolve("ed").resolve("70").resolve(hash);
+        Files.createDirectories(blobPath.getParent());
+        Files.writeString(blobPath, "content");
+
+        when(blobRepository.findHashesByHashIn(List.of(hash))).thenReturn(List.of());
+        when(blobService.quarantineIfUnreferenced(eq(hash), any(Path.class))).thenReturn(true);
+
+        assertEquals(1, storageReconcileService.reconcile());
+        verify(fileRepository, never()).findNamesByModuleNameAndNameIn(anyString(), anyCollection());
+    }
+
+    @Test
+    void testReconcile_FlagsDanglingRows() throws IOException {
+        com.personal.spring_questly.model.File stored = createTestFile("stored.txt");
+        com.personal.spring_questly.model.File dangling = createTestFile("dangling.txt");
+        com.personal.spring_questly.model.File restored = createTestFile("restored.txt");
+        restored.setMissingAt(Instant.now());
+
+        createFileOnDisk("stored.txt");
+        createFileOnDisk("restored.txt");
+
+        when(fileRepository.findNamesByModuleNameAndNameIn(eq(MODULE_NAME), anyCollection()))
+                .thenReturn(List.of("stored.txt", "restored.txt"));
+        when(fileRepository.findLiveAfterId(eq(new UUID(0, 0)), any(Pageable.class)))
+                .thenReturn(List.of(stored, dangling, restored));
+        when(fileRepository.findLiveAfterId(eq(restored.getId()), any(Pageable.class))).thenReturn(List.of());
+        when(fileRepository.markMissing(eq(List.of(dangling.getId())), any(Instant.class))).thenReturn(1);
+
+        assertEquals(1, storageReconcileService.reconcile());
+        verify(fileRepository).clearMissing(List.of(restored.getId()));
+    }
+
+    @Test
+    void testReconcile_ResumesFromCheckpoint() throws IOException {
+        Path skippedPath = createFileOnDisk("skipped.txt");
+        Path orphanPath = Files.writeString(Files.createDirectories(uploadDir.resolve("videos"))
+                                                 .resolve("orphan.txt"), "content");
+
+        UUID lastId = UUID.randomUUID();
+
+        when(reconcileCheckpointRepository.findById("disk"))
+                .thenReturn(Optional.of(ReconcileCheckpoint.builder().position(MODULE_NAME + "/ff/ff").build()));
+        when(reconcileCheckpointRepository.findById("rows"))
+                .thenReturn(Optional.of(ReconcileCheckpoint.builder().position(lastId.toString()).build()));
+        when(fileRepository.findNamesByModuleNameAndNameIn(eq("videos"), anyCollection())).thenReturn(List.of());
+        when(fileRepository.findLiveAfterId(eq(lastId), any(Pageable.class))).thenReturn(List.of());
+
+        assertEquals(1, storageReconcileService.reconcile());
+
+        // Already checked by an earlier run
+        assertTrue(Files.exists(skippedPath));
+        assertFalse(Files.exists(orphanPath));
+
+        ArgumentCaptor<ReconcileCheckpoint> checkpoints = ArgumentCaptor.forClass(ReconcileCheckpoint.class);
+        verify(reconcileCheckpointRepository, atLeastOnce()).save(checkpoints.capture());
+
+        // A completed pass starts over next time
+        assertTrue(checkpoints.getAllValues()
+                              .stream()
+                              .allMatch(checkpoint -> checkpoint.getPosition() == null
+                                      || checkpoint.getPosition().startsWith("videos")));
+    }
+
+    @Test
+    void testReconcile_Disabled() {
+        injectField(storageReconcileService, "isEnabled", false);
+
+        assertEquals(0, storageReconcileService.reconcile());
+        verifyNoInteractions(fileRepository, blobRepository, reconcileCheckpointRepository);
+    }
+
+    @Test
+    void testScheduleReconcile_RunsOnOwnExecutor() {
+        storageReconcileService.scheduleReconcile();
+
+        verify(storageReconcileExecutor).execute(any(Runnable.class));
+        verifyNoInteractions(fileRepository, blobRepository, reconcileCheckpointRepository);
+    }
+
+    @Test
+    void testScheduleReconcile_PreviousRunStillGoing_Skipped() {
+        doThrow(new TaskRejectedException("busy")).when(storageReconcileExecutor).execute(any(Runnable.class));
+
+        assertDoesNotThrow(() -> storageReconcileService.scheduleReconcile());
+    }
+
+    private com.personal.spring_questly.model.File createTestFile(String name) {
+        return com.personal.spring_questly.model.File.builder()
+                                                     .id(UUID.randomUUID())
+                                                     .moduleName(MODULE_NAME)
+                                                     .name(name)
+                                                     .build();
+    }
+
+    private Path createFileOnDisk(String fileName) throws IOException {
+        Path filePath = fileLayoutUtil.getFilePath(MODULE_NAME, fileName);
+        Files.createDirectories(filePath.getParent());
+        return Files.writeString(filePath, "content");
+    }
+}
@@ -0,0 +1,230 @@
+package com.personal.spring_questly.service;
+
+import com.personal.spring_questly.exception.CustomException.NotFoundException;
+import com.personal.spring_questly.model.RevokedToken;
+import com.personal.spring_questly.repository.RevokedTokenRepository;
+import com.personal.spring_questly.repository.UserRepository;
+import com.personal.spring_questly.repository.UserRepository.TokenVersion;
+import com.personal.spring_questly.service.impl.TokenRevocationServiceImpl;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.List;
+import java.util.Optional;
+import java.util.UUID;
+
+import static com.personal.spring_questly.utils.FieldUtils.injectField;
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+public class TokenRevocationServiceTests {
+    private static final long EXPIRATION_MS = 60000;
+
+    @Mock
+    private UserRepository userRepository;
+    @Mock
+    private RevokedTokenRepository revokedTokenRepository;
+
+    @InjectMocks
+    private TokenRevocationServiceImpl tokenRevocationService;
+
+    @BeforeEach
+    void setup() {
+        injectField(tokenRevocationService, "expirationMs", EXPIRATION_MS);
+        injectField(tokenRevocationService, "refreshOverlap", Duration.ofMinutes(1));
+        injectField(tokenRevocationService, "filterExpectedInsertions", 1000L);
+        injectField(tokenRevocationService, "filterFpp", 0.001);
+    }
+
+    @Test
+    void testIsRevoked_LoadedOnStartup() {
+        UUID userId = UUID.randomUUID();
+
+        when(userRepository.findTokenVersionsUpdatedSince(any(Instant.class)))
+                .thenReturn(List.of(this.createTokenVersion(userId, 2, Instant.now())));
+
+        tokenRevocationService.load();
+
+        assertTrue(tokenRevocationService.isRevoked(userId, 1));
+        assertFalse(tokenRevocationService.isRevoked(userId, 2));
+        assertFalse(tokenRevocationService.isRevoked(UUID.randomUUID(), 0));
+    }
+
+    @Test
+    void testRevoke_Success() {
+        UUID userId = UUID.randomUUID();
+
+        when(userRepository.incrementTokenVersion(eq(userId), any(Instant.class))).thenReturn(1);
+        when(userRepository.findTokenVersionById(userId)).thenReturn(Optional.of(1));
+
+        int result = tokenRevocationService.revoke(userId);
+
+        assertEquals(1, result);
+        assertTrue(tokenRevocationService.isRevoked(userId, 0));
+        assertFalse(tokenRevocationService.isRevoked(userId, 1));
+    }
+
+    @Test
+    void testRevoke_UserNotFound() {
+        UUID userId = UUID.randomUUID();
+
+        when(userRepository.incrementTokenVersion(eq(userId), any(Instant.class))).thenReturn(0);
+
+        NotFoundException errors = assertThrows(NotFoundException.class,
+                () -> tokenRevocationService.revoke(userId));
+
+        assertEquals("User not found", errors.getMessage());
+        verify(userRepository, times(0)).findTokenVersionById(userId);
+    }
+
+    @Test
+    void testRefresh_PicksUpOtherInstances() {
+        UUID userId = UUID.randomUUID();
+
+        when(userRepository.findTokenVersionsUpdatedSince(any(Instant.class)))
+                .thenReturn(List.of())
+                .thenReturn(List.of(this.createTokenVersion(userId, 1, Instant.now())));
+
+        tokenRevocationService.load();
+        assertFalse(tokenRevocationService.isRevoked(userId, 0));
+
+        tokenRevocationService.refresh();
+        assertTrue(tokenRevocationService.isRevoked(userId, 0));
+    }
+
+    @Test
+    void testRefresh_OlderVersion_Ignored() {
+        UUID userId = UUID.randomUUID();
+
+        when(userRepository.findTokenVersionsUpdatedSince(any(Instant.class)))
+                .thenReturn(List.of(this.createTokenVersion(userId, 3, Instant.now())))
+                .thenReturn(List.of(this.createTokenVersion(userId, 2, Instant.now())));
+
+        tokenRevocationService.load();
+        tokenRevocationService.refresh();
+
+        assertTrue(tokenRevocationService.isRevoked(userId, 2));
+    }
+
+    @Test
+    void testRefresh_OlderThanTokenLifetime_Dropped() {
+        UUID userId = UUID.randomUUID();
+        Instant revokedAt = Instant.now().minusMillis(EXPIRATION_MS * 2);
+
+        when(userRepository.findTokenVersionsUpdatedSince(any(Instant.class)))
+                .thenReturn(List.of(this.createTokenVersion(userId, 1, revokedAt)))
+                .thenReturn(List.of());
+
+        tokenRevocationService.load();
+        assertTrue(tokenRevocationService.isRevoked(userId, 0));
+
+        // Every token issued before the revocation has expired by now
+        tokenRevocationService.refresh();
+        assertFalse(tokenRevocationService.isRevoked(userId, 0));
+    }
+
+    @Test
+    void testIsTokenRevoked_RevokedToken() {
+        UUID tokenId = UUID.randomUUID();
+        Instant expiresAt = Instant.now().plusSeconds(60);
+
+        tokenRevocationService.load();
+        tokenRevocationService.revokeToken(tokenId, expiresAt);
+
+        when(revokedTokenRepository.existsById(tokenId)).thenReturn(true);
+
+        assertTrue(tokenRevocationService.isTokenRevoked(tokenId));
+        verify(revokedTokenRepository, times(1)).save(argThat((RevokedToken revokedToken) ->
+                revokedToken.getId().equals(tokenId) && revokedToken.getExpiresAt().equals(expiresAt)));
+    }
+
+    @Test
+    void testIsTokenRevoked_NotInFilter_SkipsDatabase() {
+        tokenRevocationService.load();
+
+        assertFalse(tokenRevocationService.isTokenRevoked(UUID.randomUUID()));
+        verify(revokedTokenRepository, times(0)).existsById(any());
+    }
+
+    @Test
+    void testIsTokenRevoked_LoadedOnStartup() {
+        UUID tokenId = UUID.randomUUID();
+
+        when(revokedTokenRepository.findLiveIds(any(Instant.class))).thenReturn(List.of(tokenId));
+        when(revokedTokenRepository.existsById(tokenId)).thenReturn(true);
+
+        tokenRevocationService.load();
+
+        assertTrue(tokenRevocationService.isTokenRevoked(tokenId));
+        verify(revokedTokenRepository, times(1)).deleteExpired(any(Instant.class));
+    }
+
+    @Test
+    void testIsTokenRevoked_FalsePositive_ConfirmedByDatabase() {
+        UUID tokenId = UUID.randomUUID();
+
+        when(revokedTokenRepository.findLiveIds(any(Instant.class))).thenReturn(List.of(tokenId));
+        // Expired and deleted on another instance since
+        when(revokedTokenRepository.existsById(tokenId)).thenReturn(false);
+
+        tokenRevocationService.load();
+
+        assertFalse(tokenRevocationService.isTokenRevoked(tokenId));
+    }
+
+    @Test
+    void testRefresh_PicksUpTokensRevokedOnOtherInstances() {
+        UUID tokenId = UUID.randomUUID();
+
+        when(revokedTokenRepository.findIdsCreatedSince(any(Instant.class)))
+                .thenReturn(List.of())
+                .thenReturn(List.of(tokenId));
+        when(revokedTokenRepository.existsById(tokenId)).thenReturn(true);
+
+        tokenRevocationService.load();
+        tokenRevocationService.refresh();
+
+        assertTrue(tokenRevocationService.isTokenRevoked(tokenId));
+    }
+
+    @Test
+    void testRebuildFilter_ExpiredIds_Dropped() {
+        UUID tokenId = UUID.randomUUID();
+
+        when(revokedTokenRepository.findLiveIds(any(Instant.class)))
+                .thenReturn(List.of(tokenId))
+                .thenReturn(List.of());
+
+        tokenRevocationService.load();
+        tokenRevocationService.rebuildFilter();
+
+        assertFalse(tokenRevocationService.isTokenRevoked(tokenId));
+        verify(revokedTokenRepository, times(0)).existsById(any());
+    }
+
+    private TokenVersion createTokenVersion(UUID id, int tokenVersion, Instant updatedAt) {
+        return new TokenVersion() {
+            @Override
+            public UUID getId() {
+                return id;
+            }
+
+            @Override
+            public int getTokenVersion() {
+                return tokenVersion;
+            }
+
+            @Override
+            public Instant getUpdatedAt() {
+                return updatedAt;
+            }
+        };
+    }
+}
@@ -0,0 +1,254 @@
+package com.personal.spring_questly.service;
+
+import com.personal.spring_questly.dto.file.CreateUploadSessionRequestDTO;
+import com.personal.spring_questly.dto.file.UploadSessionDTO;
+import com.personal.spring_questly.exception.CustomException.BadRequestException;
+import com.personal.spring_questly.exception.CustomException.ConflictException;
+import com.personal.spring_questly.model.UploadSession;
+import com.personal.spring_questly.repository.UploadSessionRepository;
+import com.personal.spring_questly.service.impl.UploadSessionServiceImpl;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.junit.jupiter.api.io.TempDir;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.util.unit.DataSize;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.List;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static com.personal.spring_questly.utils.FieldUtils.injectField;
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+public class UploadSessionServiceTests {
+    private static final String MODULE_NAME = "testmodule";
+
+    @Mock
+    private UploadSessionRepository uploadSessionRepository;
+    @Mock
+    private FileService fileService;
+    @InjectMocks
+    private UploadSessionServiceImpl uploadSessionService;
+
+    @TempDir
+    Path uploadDir;
+
+    @BeforeEach
+    void setup() {
+        injectField(uploadSessionService, "uploadDir", uploadDir.toString());
+        injectField(uploadSessionService, "maxFileSize", DataSize.ofMegabytes(10));
+        injectField(uploadSessionService, "maxChunkSize", DataSize.ofBytes(8));
+        injectField(uploadSessionService, "sessionTtl", Duration.ofHours(24));
+    }
+
+    @Test
+    void testCreateSession_Success() {
+        when(uploadSessionRepository.save(any(UploadSession.class)))
+                .thenAnswer(invocationOnMock -> invocationOnMock.getArgument(0));
+
+        UploadSessionDTO result = uploadSessionService.createSession(
+                new CreateUploadSessionRequestDTO(MODULE_NAME, "test.txt", "text/plain", 10L));
+
+        assertEquals(MODULE_NAME, result.moduleName());
+        assertEquals(10L, result.totalSize());
+        assertEquals(0L, result.committedOffset());
+    }
+
+    @Test
+    void testCreateSession_TooLarge_BadRequest() {
+        BadRequestException errors = assertThrows(BadRequestException.class, () ->
+                uploadSessionService.createSession(new CreateUploadSessionRequestDTO(
+                        MODULE_NAME, "test.txt", "text/plain", DataSize.ofMegabytes(11).toBytes())));
+
+        assertEquals("Uploaded file is too large", errors.getMessage());
+        verifyNoInteractions(uploadSessionRepository);
+    }
+
+    @Test
+    void testAppendChunk_Success_Resumes() throws IOException {
+        UploadSession session = createSession(10L);
+
+        when(uploadSessionRepository.findById(session.getId())).thenReturn(Optional.of(session));
+        when(uploadSessionRepository.save(session)).thenReturn(session);
+
+        uploadSessionService.appendChunk(session.getId(), 0, toStream("hello"));
+        UploadSessionDTO result = uploadSessionService.appendChunk(session.getId(), 5, toStream("world"));
+
+        assertEquals(10L, result.committedOffset());
+        assertEquals("helloworld", Files.readString(getStagingPath(session.getId())));
+    }
+
+    @Test
+    void testAppendChunk_DiscardsUncommittedBytes() throws IOException {
+        UploadSession session = createSession(10L);
+        session.setCommittedOffset(5L);
+
+        // A previous chunk was cut off after writing past the committed offset
+        Files.createDirectories(getStagingPath(session.getId()).getParent());
+        Files.writeString(getStagingPath(session.getId()), "hellowo");
+
+        when(uploadSessionRepository.findById(session.getId())).thenReturn(Optional.of(session));
+        when(uploadSessionRepository.save(session)).thenReturn(session);
+
+        uploadSessionService.appendChunk(session.getId(), 5, toStream("WORLD"));
+
+        assertEquals("helloWORLD", Files.readString(getStagingPath(session.getId())));
+    }
+
+    @Test
+    void testAppendChunk_OffsetMismatch_Conflict() {
+        UploadSession session = createSession(10L);
+        session.setCommittedOffset(5L);
+
+        when(uploadSessionRepository.findById(session.getId())).thenReturn(Optional.of(session));
+
+        ConflictException errors = assertThrows(ConflictException.class, () ->
+                uploadSessionService.appendChunk(session.getId(), 0, toStream("hello")));
+
+        assertEquals("Upload offset mismatch", errors.getMessage());
+        assertEquals(5L, ((UploadSessionDTO) errors.getData()).committedOffset());
+    }
+
+    @Test
+    void testAppendChunk_SlowChunk_BlocksOnlyItsSession() throws Exception {
+        UploadSession slowSession = createSession(10L);
+        UploadSession otherSession = createSession(10L);
+        CountDownLatch reading = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+
+        when(uploadSessionRepository.findById(slowSession.getId())).thenReturn(Optional.of(slowSession));
+        when(uploadSessionRepository.findById(otherSession.getId())).thenReturn(Optional.of(otherSession));
+        when(uploadSessionRepository.save(any(UploadSession.class))).thenAnswer(invocation -> invocation.getArgument(0));
+
+        InputStream slowBody = new InputStream() {
+            @Override
+            public int read() throws IOException {
+                reading.countDown();
+
+                try {
+                    release.await(5, TimeUnit.SECONDS);
+                } catch (InterruptedException ex) {
+                    throw new IOException(ex);
+                }
+
+                return -1;
+            }
+        };
+
+        CompletableFuture<UploadSessionDTO> slowChunk =
+                CompletableFuture.supplyAsync(() -> uploadSessionService.appendChunk(slowSession.getId(), 0, slowBody));
+        assertTrue(reading.await(5, TimeUnit.SECONDS));
+
+        UploadSessionDTO result = uploadSessionService.appendChunk(otherSession.getId(), 0, toStream("hello"));
+        ConflictException errors = assertThrows(ConflictException.class, () ->
+                uploadSessionService.appendChunk(slowSession.getId(), 0, toStream("hello")));
+
+        release.countDown();
+        slowChunk.get(5, TimeUnit.SECONDS);
+
+        assertEquals(5L, result.committedOffset());
+        assertEquals("Another chunk is being uploaded", errors.getMessage());
+    }
+
+    @Test
+    void testAppendChunk_ChunkTooLarge_BadRequest() {
+        UploadSession session = createSession(10L);
+
+        when(uploadSessionRepository.findById(session.getId())).thenReturn(Optional.of(session));
+
+        BadRequestException errors = assertThrows(BadRequestException.class, () ->
+                uploadSessionService.appendChunk(session.getId(), 0, toStream("longer than eight")));
+
+        assertEquals("Chunk exceeds the allowed size", errors.getMessage());
+    }
+
+    @Test
+    void testCompleteSession_Incomplete_BadRequest() {
+        UploadSession session = createSession(10L);
+        session.setCommittedOffset(5L);
+
+        when(uploadSessionRepository.findById(session.getId())).thenReturn(Optional.of(session));
+
+        BadRequestException errors = assertThrows(BadRequestException.class, () ->
+                uploadSessionService.completeSession(session.getId()));
+
+        assertEquals("Upload is incomplete", errors.getMessage());
+        verifyNoInteractions(fileService);
+    }
+
+    @Test
+    void testCompleteSession_Success() throws IOException {
+        UploadSession session = createSession(5L);
+        session.setCommittedOffset(5L);
+
+        Path stagingPath = getStagingPath(session.getId());
+        Files.createDirectories(stagingPath.getParent());
+        Files.writeString(stagingPath, "hello");
+
+        com.personal.spring_questly.model.File newFile =
+                com.personal.spring_questly.model.File.builder().uri("/testmodule/test.txt").build();
+
+        when(uploadSessionRepository.findById(session.getId())).thenReturn(Optional.of(session));
+        when(fileService.uploadFile(eq(MODULE_NAME), eq("test.txt"), eq("text/plain"), any(InputStream.class)))
+                .thenAnswer(invocationOnMock -> {
+                    assertEquals("hello", new String(invocationOnMock.getArgument(3, InputStream.class).readAllBytes()));
+                    return newFile;
+                });
+
+        com.personal.spring_questly.model.File result = uploadSessionService.completeSession(session.getId());
+
+        assertEquals(newFile, result);
+        assertFalse(Files.exists(stagingPath));
+        verify(uploadSessionRepository, times(1)).delete(session);
+    }
+
+    @Test
+    void testCleanupStaleSessions_DeletesStagingFiles() throws IOException {
+        UploadSession session = createSession(10L);
+
+        Path stagingPath = getStagingPath(session.getId());
+        Files.createDirectories(stagingPath.getParent());
+        Files.writeString(stagingPath, "hello");
+
+        when(uploadSessionRepository.findAllByUpdatedAtBefore(any(Instant.class))).thenReturn(List.of(session));
+
+        uploadSessionService.cleanupStaleSessions();
+
+        assertFalse(Files.exists(stagingPath));
+        verify(uploadSessionRepository, times(1)).delete(session);
+    }
+
+    private UploadSession createSession(long totalSize) {
+        return UploadSession.builder()
+                            .id(UUID.randomUUID())
+                            .moduleName(MODULE_NAME)
+                            .fileName("test.txt")
+                            .contentType("text/plain")
+                            .totalSize(totalSize)
+                            .committedOffset(0L)
+                            .build();
+    }
+
+    private Path getStagingPath(UUID id) {
+        return uploadDir.resolve(UploadSessionServiceImpl.STAGING_DIR).resolve(id + ".part");
+    }
+
+    private static InputStream toStream(String content) {
+        return new ByteArrayInputStream(content.getBytes());
+    }
+}
@@ -1,12 +1,15 @@
 package com.personal.spring_questly.service;
 
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.personal.spring_questly.event.UserChangedEvent;
 import com.personal.spring_questly.exception.CustomException.NotFoundException;
 import com.personal.spring_questly.model.User;
 import com.personal.spring_questly.repository.UserRepository;
 import com.personal.spring_questly.service.impl.UserDetailsServiceImpl;
+import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
-import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
 import org.springframework.security.core.GrantedAuthority;
@@ -15,6 +18,9 @@ import org.springframework.security.core.userdetails.UserDetails;
 import java.util.List;
 import java.util.Optional;
 import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
 
 import static org.junit.jupiter.api.Assertions.*;
 import static org.mockito.Mockito.*;
@@ -24,9 +30,17 @@ public class UserDetailsServiceTests {
     @Mock
     private UserRepository userRepository;
 
-    @InjectMocks
+    private Cache<String, UserDetails> userDetailsCache;
+
     private UserDetailsServiceImpl userDetailsService;
 
+    @BeforeEach
+    void setup() {
+        userDetailsCache = Caffeine.newBuilder()
+                                   .recordStats()
+                                   .build();
+        userDetailsService = new UserDetailsServiceImpl(userRepository, userDetailsCache);
+    }
 
     @Test
     void testLoadUserByUsername_NotFound() {
@@ -138,5 +152,81 @@ public class UserDetailsServiceTests {
         verify(userRepository, times(1)).findByEmail(email);
     }
 
+    @Test
+    void testLoadUserByUsername_Repeated_ServedFromCache() {
+        String email = "test123@gmail.com";
+        User foundUser = this.createUser(email);
+
+        when(userRepository.findByEmail(email)).thenReturn(Optional.of(foundUser));
+
+        UserDetails first = userDetailsService.loadUserByUsername(email);
+        UserDetails second = userDetailsService.loadUserByUsername(email);
+
+        assertSame(first, second);
+        assertEquals(1, userDetailsCache.stats().hitCount());
+        verify(userRepository, times(1)).findByEmail(email);
+    }
+
+    @Test
+    void testLoadUserByUsername_NotFound_NotCached() {
+        String email = "test123@gmail.com";
+
+        when(userRepository.findByEmail(email)).thenReturn(Optional.empty());
+
+        assertThrows(NotFoundException.class, () -> userDetailsService.loadUserByUsername(email));
+        assertThrows(NotFoundException.class, () -> userDetailsService.loadUserByUsername(email));
+
+        verify(userRepository, times(2)).findByEmail(email);
+    }
+
+    @Test
+    void testOnUserChanged_Invalidated() {
+        String email = "test123@gmail.com";
+        User foundUser = this.createUser(email);
+
+        when(userRepository.findByEmail(email)).thenReturn(Optional.of(foundUser));
+
+        userDetailsService.loadUserByUsername(email);
+        userDetailsService.onUserChanged(new UserChangedEvent(email));
+        userDetailsService.loadUserByUsername(email);
+
+        verify(userRepository, times(2)).findByEmail(email);
+    }
+
+    @Test
+    void testLoadUserByUsername_ConcurrentMisses_OneQuery() throws Exception {
+        String email = "test123@gmail.com";
+        User foundUser = this.createUser(email);
+        CountDownLatch queryStarted = new CountDownLatch(1);
+        CountDownLatch releaseQuery = new CountDownLatch(1);
+
+        when(userRepository.findByEmail(email)).thenAnswer(invocation -> {
+            queryStarted.countDown();
+            releaseQuery.await(5, TimeUnit.SECONDS);
+            return Optional.of(foundUser);
+        });
+
+        CompletableFuture<UserDetails> first = CompletableFuture.supplyAsync(
+                () -> userDetailsService.loadUserByUsername(email));
+        assertTrue(queryStarted.await(5, TimeUnit.SECONDS));
+
+        CompletableFuture<UserDetails> second = CompletableFuture.supplyAsync(
+                () -> userDetailsService.loadUserByUsername(email));
+        releaseQuery.countDown();
 
+        assertSame(first.get(5, TimeUnit.SECONDS), second.get(5, TimeUnit.SECONDS));
+        verify(userRepository, times(1)).findByEmail(email);
+    }
+
+    private User createUser(String email) {
+        return User.builder()
+                   .id(UUID.randomUUID())
+                   .email(email)
+                   .firstName("Test")
+                   .lastName("Tset")
+                   .fullName("Test Tset")
+                   .isQuester(true)
+                   .isRequester(false)
+                   .build();
+    }
 }
@@ -0,0 +1,66 @@
+package com.personal.spring_questly.util;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class BloomFilterTests {
+
+    @Test
+    void testMightContain_NoFalseNegatives() {
+        BloomFilter filter = BloomFilter.create(10000, 0.01, 1);
+
+        for (int i = 0; i < 10000; i++) {
+            filter.put(getName(i));
+        }
+
+        for (int i = 0; i < 10000; i++) {
+            assertTrue(filter.mightContain(getName(i)));
+        }
+    }
+
+    @Test
+    void testMightContain_FalsePositivesNearConfiguredRate() {
+        BloomFilter filter = BloomFilter.create(10000, 0.01, 1);
+
+        for (int i = 0; i < 10000; i++) {
+            filter.put(getName(i));
+        }
+
+        int falsePositives = 0;
+
+        for (int i = 10000; i < 110000; i++) {
+            if (filter.mightContain(getName(i))) {
+                falsePositives++;
+            }
+        }
+
+        assertTrue(falsePositives < 1500, "False positives: " + falsePositives);
+        assertEquals(0.01, filter.getEstimatedFpp(), 0.005);
+    }
+
+    @Test
+    void testPut_ReportsWhenNothingChanged() {
+        BloomFilter filter = BloomFilter.create(100, 0.01, 1);
+
+        assertTrue(filter.put("file1.txt"));
+        assertFalse(filter.put("file1.txt"));
+    }
+
+    @Test
+    void testCreate_SizedDown() {
+        BloomFilter filter = BloomFilter.create(10000, 0.01, 1);
+        BloomFilter smallerFilter = BloomFilter.create(10000, 0.01, 0.5);
+
+        // About 9.6 bits per name at 1%
+        assertEquals(12000, filter.getSizeInBytes(), 100);
+        assertEquals(filter.getSizeInBytes() / 2, smallerFilter.getSizeInBytes(), 8);
+    }
+
+    // Shaped like stored names, which only differ in a few characters
+    private static String getName(int i) {
+        return new UUID(0, i) + "-" + (1700000000000L + i) + ".png";
+    }
+}
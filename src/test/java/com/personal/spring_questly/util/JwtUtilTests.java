@@ -1,15 +1,25 @@
 package com.personal.spring_questly.util;
 
+import com.github.benmanes.caffeine.cache.Cache;
+import com.personal.spring_questly.config.CacheConfig;
+import com.personal.spring_questly.model.User;
+import com.personal.spring_questly.util.JwtUtil.VerifiedToken;
+import io.jsonwebtoken.ExpiredJwtException;
+import io.jsonwebtoken.JwtException;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
 import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.security.core.GrantedAuthority;
 
 import java.util.Base64;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
 
 import static com.personal.spring_questly.utils.FieldUtils.injectField;
-import static org.junit.jupiter.api.Assertions.assertEquals;
-import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.*;
 
 @ExtendWith(MockitoExtension.class)
 public class JwtUtilTests {
@@ -19,19 +29,26 @@ public class JwtUtilTests {
 
     private final long testExpiration = 1000000;
 
+    private Cache<String, VerifiedToken> verifiedTokenCache;
+
     private JwtUtil jwtUtil;
 
     @BeforeEach
     public void setup() {
-        jwtUtil = new JwtUtil();
+        CacheConfig cacheConfig = new CacheConfig();
+        injectField(cacheConfig, "verifiedTokenCacheMaxSize", 100L);
+        verifiedTokenCache = cacheConfig.verifiedTokenCache(new SimpleMeterRegistry());
+
+        jwtUtil = new JwtUtil(verifiedTokenCache);
         injectField(jwtUtil, "secret", testSecret);
         injectField(jwtUtil, "expirationMs", testExpiration);
+        jwtUtil.init();
     }
 
     @Test
     void testGenerateTokenAndExtractEmail() {
         String email = "test123@gmail.com";
-        String token = jwtUtil.generateToken(email);
+        String token = jwtUtil.generateToken(this.createUser(email));
         String actualEmail = jwtUtil.extractEmail(token);
 
 
@@ -39,4 +56,115 @@ public class JwtUtilTests {
         assertNotNull(actualEmail);
         assertEquals(email, actualEmail);
     }
+
+    @Test
+    void testVerify_ClaimsCarryUser() {
+        User user = this.createUser("test123@gmail.com");
+        user.setRequester(true);
+        user.setTokenVersion(3);
+
+        VerifiedToken verifiedToken = jwtUtil.verify(jwtUtil.generateToken(user));
+
+        assertEquals(user.getEmail(), verifiedToken.email());
+        assertEquals(user.getId(), verifiedToken.userId());
+        assertEquals(3, verifiedToken.tokenVersion());
+        assertEquals(List.of("QUESTER", "REQUESTER"), verifiedToken.authorities()
+                                                                  .stream()
+                                                                  .map(GrantedAuthority::getAuthority)
+                                                                  .toList());
+        assertThrows(UnsupportedOperationException.class, () -> verifiedToken.authorities().clear());
+    }
+
+    @Test
+    void testGenerateToken_EveryTokenHasOwnId() {
+        User user = this.createUser("test123@gmail.com");
+
+        UUID firstTokenId = jwtUtil.verify(jwtUtil.generateToken(user)).tokenId();
+        UUID secondTokenId = jwtUtil.verify(jwtUtil.generateToken(user)).tokenId();
+
+        assertNotNull(firstTokenId);
+        assertNotEquals(firstTokenId, secondTokenId);
+    }
+
+    @Test
+    void testExtractEmail_SameToken_VerifiedOnce() {
+        String email = "test123@gmail.com";
+        String token = jwtUtil.generateToken(this.createUser(email));
+
+        assertEquals(email, jwtUtil.extractEmail(token));
+        assertEquals(email, jwtUtil.extractEmail(token));
+
+        assertEquals(1, verifiedTokenCache.estimatedSize());
+        assertEquals(1, verifiedTokenCache.stats().hitCount());
+        // Only a digest is kept, never the token itself
+        assertFalse(verifiedTokenCache.asMap().containsKey(token));
+    }
+
+    @Test
+    void testExtractEmail_CachedUntilTokenExpires() {
+        String token = jwtUtil.generateToken(this.createUser("test123@gmail.com"));
+        jwtUtil.extractEmail(token);
+
+        String tokenDigest = verifiedTokenCache.asMap().keySet().iterator().next();
+        long expiresAfterMs = verifiedTokenCache.policy()
+                                                .expireVariably()
+                                                .orElseThrow()
+                                                .getExpiresAfter(tokenDigest, TimeUnit.MILLISECONDS)
+                                                .orElseThrow();
+
+        assertTrue(expiresAfterMs > 0);
+        assertTrue(expiresAfterMs <= testExpiration);
+    }
+
+    @Test
+    void testExtractEmail_TamperedToken_Rejected() {
+        String token = jwtUtil.generateToken(this.createUser("test123@gmail.com"));
+        jwtUtil.extractEmail(token);
+
+        int signatureStart = token.lastIndexOf('.') + 1;
+        String tamperedToken = token.substring(0, signatureStart) +
+                (token.charAt(signatureStart) == 'A' ? 'B' : 'A') + token.substring(signatureStart + 1);
+
+        assertThrows(JwtException.class, () -> jwtUtil.extractEmail(tamperedToken));
+        assertEquals(1, verifiedTokenCache.estimatedSize());
+    }
+
+    @Test
+    void testExtractEmail_ExpiredToken_RejectedAndNotCached() {
+        injectField(jwtUtil, "expirationMs", -1000L);
+        String token = jwtUtil.generateToken(this.createUser("test123@gmail.com"));
+
+        assertThrows(ExpiredJwtException.class, () -> jwtUtil.extractEmail(token));
+        assertEquals(0, verifiedTokenCache.estimatedSize());
+    }
+
+    @Test
+    void testVerifyAllowingExpired_ExpiredToken_ClaimsReadAndNotCached() {
+        injectField(jwtUtil, "expirationMs", -1000L);
+        User user = this.createUser("test123@gmail.com");
+        String token = jwtUtil.generateToken(user);
+
+        VerifiedToken verifiedToken = jwtUtil.verifyAllowingExpired(token);
+
+        assertEquals(user.getId(), verifiedToken.userId());
+        assertNotNull(verifiedToken.tokenId());
+        assertEquals(0, verifiedTokenCache.estimatedSize());
+    }
+
+    @Test
+    void testVerifyAllowingExpired_TamperedToken_Rejected() {
+        injectField(jwtUtil, "expirationMs", -1000L);
+        String token = jwtUtil.generateToken(this.createUser("test123@gmail.com"));
+        String tamperedToken = token.substring(0, token.length() - 2) + "xx";
+
+        assertThrows(JwtException.class, () -> jwtUtil.verifyAllowingExpired(tamperedToken));
+    }
+
+    private User createUser(String email) {
+        return User.builder()
+                   .id(UUID.randomUUID())
+                   .email(email)
+                   .isQuester(true)
+                   .build();
+    }
 }
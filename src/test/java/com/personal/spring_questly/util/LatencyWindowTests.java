@@ -0,0 +1,40 @@
+package com.personal.spring_questly.util;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class LatencyWindowTests {
+
+    @Test
+    void testDrain_PercentileOfWindow() {
+        LatencyWindow latencyWindow = new LatencyWindow(1024);
+
+        for (int i = 100; i >= 1; i--) {
+            latencyWindow.record(i);
+        }
+
+        long[] latencies = latencyWindow.drain();
+
+        assertEquals(100, latencies.length);
+        assertEquals(99, LatencyWindow.getPercentile(latencies, 0.99));
+        assertEquals(50, LatencyWindow.getPercentile(latencies, 0.5));
+        // The next window starts empty
+        assertEquals(0, latencyWindow.drain().length);
+    }
+
+    @Test
+    void testRecord_MoreThanFit_Bounded() {
+        LatencyWindow latencyWindow = new LatencyWindow(16);
+
+        for (int i = 0; i < 100; i++) {
+            latencyWindow.record(i);
+        }
+
+        long[] latencies = latencyWindow.drain();
+
+        assertEquals(16, latencies.length);
+        assertEquals(99, latencies[15]);
+        assertEquals(0, LatencyWindow.getPercentile(new long[0], 0.99));
+    }
+}
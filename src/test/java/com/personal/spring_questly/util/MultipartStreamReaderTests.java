@@ -0,0 +1,114 @@
+package com.personal.spring_questly.util;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class MultipartStreamReaderTests {
+
+    @Test
+    void testExtractBoundary() {
+        assertEquals("abc", MultipartStreamReader.extractBoundary("multipart/form-data; boundary=abc"));
+        assertEquals("a b", MultipartStreamReader.extractBoundary("Multipart/Form-Data; boundary=\"a b\""));
+        assertNull(MultipartStreamReader.extractBoundary("application/json"));
+        assertNull(MultipartStreamReader.extractBoundary("multipart/form-data"));
+        assertNull(MultipartStreamReader.extractBoundary(null));
+    }
+
+    @Test
+    void testNextPart_ReadsFieldsAndFiles() throws IOException {
+        String body = "preamble\r\n"
+                + "--xyz\r\n"
+                + "Content-Disposition: form-data; name=\"moduleName\"\r\n\r\n"
+                + "avatars\r\n"
+                + "--xyz\r\n"
+                + "Content-Disposition: form-data; name=\"files\"; filename=\"a.txt\"\r\n"
+                + "Content-Type: text/plain\r\n\r\n"
+                + "line1\r\n--xy not a boundary\r\n"
+                + "--xyz--\r\n";
+
+        MultipartStreamReader reader = new MultipartStreamReader(toStream(body), "xyz");
+
+        MultipartStreamReader.Part field = reader.nextPart();
+        assertEquals("moduleName", field.fieldName());
+        assertFalse(field.isFile());
+        assertEquals("avatars", readString(field.body()));
+
+        MultipartStreamReader.Part file = reader.nextPart();
+        assertEquals("files", file.fieldName());
+        assertEquals("a.txt", file.fileName());
+        assertEquals("text/plain", file.contentType());
+        assertEquals("line1\r\n--xy not a boundary", readString(file.body()));
+
+        assertNull(reader.nextPart());
+        assertNull(reader.nextPart());
+    }
+
+    @Test
+    void testNextPart_SkipsUnreadBody() throws IOException {
+        String body = "--xyz\r\n"
+                + "Content-Disposition: form-data; name=\"files\"; filename=\"a.txt\"\r\n\r\n"
+                + "skipped\r\n"
+                + "--xyz\r\n"
+                + "Content-Disposition: form-data; name=\"files\"; filename=\"b.txt\"\r\n\r\n"
+                + "read\r\n"
+                + "--xyz--";
+
+        MultipartStreamReader reader = new MultipartStreamReader(toStream(body), "xyz");
+
+        assertEquals("a.txt", reader.nextPart().fileName());
+
+        MultipartStreamReader.Part second = reader.nextPart();
+        assertEquals("b.txt", second.fileName());
+        assertEquals("read", readString(second.body()));
+        assertNull(reader.nextPart());
+    }
+
+    @Test
+    void testNextPart_LargeBodyAcrossBuffers() throws IOException {
+        String content = "0123456789".repeat(20_000);
+        String body = "--xyz\r\n"
+                + "Content-Disposition: form-data; name=\"files\"; filename=\"big.bin\"\r\n\r\n"
+                + content + "\r\n"
+                + "--xyz--\r\n";
+
+        // Hand out a few bytes per read so the delimiter can be split between reads
+        InputStream trickle = new FilterInputStream(toStream(body)) {
+            @Override
+            public int read(byte[] b, int off, int len) throws IOException {
+                return super.read(b, off, Math.min(len, 7));
+            }
+        };
+
+        MultipartStreamReader reader = new MultipartStreamReader(trickle, "xyz");
+
+        assertEquals(content, readString(reader.nextPart().body()));
+        assertNull(reader.nextPart());
+    }
+
+    @Test
+    void testNextPart_TruncatedBody_Throws() throws IOException {
+        String body = "--xyz\r\n"
+                + "Content-Disposition: form-data; name=\"files\"; filename=\"a.txt\"\r\n\r\n"
+                + "no closing boundary";
+
+        MultipartStreamReader reader = new MultipartStreamReader(toStream(body), "xyz");
+        MultipartStreamReader.Part part = reader.nextPart();
+
+        assertThrows(IOException.class, () -> part.body().readAllBytes());
+    }
+
+    private static InputStream toStream(String body) {
+        return new ByteArrayInputStream(body.getBytes(StandardCharsets.UTF_8));
+    }
+
+    private static String readString(InputStream in) throws IOException {
+        return new String(in.readAllBytes(), StandardCharsets.UTF_8);
+    }
+}
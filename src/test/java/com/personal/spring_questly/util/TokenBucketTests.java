@@ -0,0 +1,101 @@
+package com.personal.spring_questly.util;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class TokenBucketTests {
+    private static final long SECOND = TimeUnit.SECONDS.toNanos(1);
+
+    @Test
+    void testTryAcquire_BurstUpToCapacity() {
+        TokenBucket bucket = new TokenBucket(3, Duration.ofSeconds(3), 0);
+
+        assertEquals(0, bucket.tryAcquire(0));
+        assertEquals(0, bucket.tryAcquire(0));
+        assertEquals(0, bucket.tryAcquire(0));
+        assertEquals(SECOND, bucket.tryAcquire(0));
+    }
+
+    @Test
+    void testTryAcquire_RefillsLazily() {
+        TokenBucket bucket = new TokenBucket(3, Duration.ofSeconds(3), 0);
+
+        for (int i = 0; i < 3; i++) {
+            bucket.tryAcquire(0);
+        }
+
+        assertEquals(SECOND / 2, bucket.tryAcquire(SECOND / 2));
+        assertEquals(0, bucket.tryAcquire(SECOND));
+        assertTrue(bucket.tryAcquire(SECOND) > 0);
+
+        // Idle for longer than the refill period, still no more than the capacity
+        for (int i = 0; i < 3; i++) {
+            assertEquals(0, bucket.tryAcquire(100 * SECOND));
+        }
+
+        assertTrue(bucket.tryAcquire(100 * SECOND) > 0);
+    }
+
+    @Test
+    void testRelease_TokenAvailableAgain() {
+        TokenBucket bucket = new TokenBucket(2, Duration.ofSeconds(2), 0);
+
+        bucket.tryAcquire(0);
+        bucket.tryAcquire(0);
+        bucket.release();
+
+        assertEquals(0, bucket.tryAcquire(0));
+        assertEquals(SECOND, bucket.tryAcquire(0));
+
+        // Refilled since, releasing does not raise it above the capacity
+        bucket.release();
+
+        for (int i = 0; i < 2; i++) {
+            assertEquals(0, bucket.tryAcquire(10 * SECOND));
+        }
+
+        assertTrue(bucket.tryAcquire(10 * SECOND) > 0);
+    }
+
+    @Test
+    void testTryAcquire_Concurrent_NeverAboveCapacity() throws Exception {
+        TokenBucket bucket = new TokenBucket(1000, Duration.ofHours(1), System.nanoTime());
+        AtomicInteger acquired = new AtomicInteger();
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+
+        for (int i = 0; i < 8; i++) {
+            executor.execute(() -> {
+                for (int j = 0; j < 500; j++) {
+                    if (bucket.tryAcquire(System.nanoTime()) == 0) {
+                        acquired.incrementAndGet();
+                    }
+                }
+            });
+        }
+
+        executor.shutdown();
+        assertTrue(executor.awaitTermination(10, TimeUnit.SECONDS));
+
+        // One more may have been refilled while the threads ran
+        assertTrue(acquired.get() >= 1000 && acquired.get() <= 1001);
+    }
+
+    @Test
+    void testIsIdle_OnlyOnceFullForTimeout() {
+        TokenBucket bucket = new TokenBucket(2, Duration.ofSeconds(2), 0);
+
+        bucket.tryAcquire(0);
+        bucket.tryAcquire(0);
+
+        // Full again at 2s
+        assertFalse(bucket.isIdle(5 * SECOND, 5 * SECOND));
+        assertTrue(bucket.isIdle(7 * SECOND, 5 * SECOND));
+    }
+}
@@ -0,0 +1,67 @@
+package com.personal.spring_questly.utils;
+
+import jakarta.servlet.ServletOutputStream;
+import jakarta.servlet.WriteListener;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.concurrent.Executor;
+
+/**
+ * Behaves like a container output stream in non-blocking mode. When {@code isSlowClient} is set every
+ * write leaves the stream not ready, and the listener is called back from another thread.
+ */
+public class NonBlockingServletOutputStream extends ServletOutputStream {
+    private final ByteArrayOutputStream content = new ByteArrayOutputStream();
+    private final Executor container;
+    private final boolean isSlowClient;
+
+    private volatile WriteListener writeListener;
+    private volatile boolean isBlocked;
+
+    public NonBlockingServletOutputStream(Executor container, boolean isSlowClient) {
+        this.container = container;
+        this.isSlowClient = isSlowClient;
+    }
+
+    public synchronized byte[] toByteArray() {
+        return content.toByteArray();
+    }
+
+    @Override
+    public boolean isReady() {
+        if (!isBlocked) {
+            return true;
+        }
+
+        isBlocked = false;
+        container.execute(this::notifyWritePossible);
+        return false;
+    }
+
+    @Override
+    public void setWriteListener(WriteListener writeListener) {
+        this.writeListener = writeListener;
+        container.execute(this::notifyWritePossible);
+    }
+
+    @Override
+    public synchronized void write(int b) {
+        content.write(b);
+        isBlocked = isSlowClient;
+    }
+
+    @Override
+    public synchronized void write(byte[] b, int off, int len) {
+        content.write(b, off, len);
+        isBlocked = isSlowClient;
+    }
+
+    private void notifyWritePossible() {
+        try {
+            writeListener.onWritePossible();
+        } catch (IOException ex) {
+            writeListener.onError(ex);
+        }
+    }
+}